@@ -45,6 +45,18 @@ public final class ArchiveFactory
     */
    private static final String ARCHIVE_IMPL = "org.jboss.shrinkwrap.impl.base.MemoryMapArchiveImpl";
 
+   /**
+    * Type of the {@link Archive}s created; unchecked as the class literal of a generic type is raw
+    */
+   @SuppressWarnings("unchecked")
+   private static final Class<Archive<?>> ARCHIVE_TYPE = (Class<Archive<?>>) (Class<?>) Archive.class;
+
+   /**
+    * Constructor of the {@link Archive} implementation, by name and {@link Configuration}
+    */
+   private static final CachedConstructor<Archive<?>> ARCHIVE_CONSTRUCTOR = new CachedConstructor<Archive<?>>(
+         ARCHIVE_IMPL, ARCHIVE_TYPE, String.class, Configuration.class);
+
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -134,9 +146,7 @@ public final class ArchiveFactory
          throw new IllegalArgumentException("ArchiveName must be specified");
       }
 
-      final Archive<?> archive = SecurityActions.newInstance(ARCHIVE_IMPL, new Class<?>[]
-      {String.class, Configuration.class}, new Object[]
-      {archiveName, configuration}, Archive.class);
+      final Archive<?> archive = ARCHIVE_CONSTRUCTOR.newInstance(archiveName, configuration);
       return archive.as(type);
    }
 
@@ -30,6 +30,21 @@ public final class ArchivePaths
 
    private static final String PATH_IMPL = "org.jboss.shrinkwrap.impl.base.path.BasicPath";
 
+   private static final CachedConstructor<ArchivePath> CONTEXT_CONSTRUCTOR = new CachedConstructor<ArchivePath>(
+         PATH_IMPL, ArchivePath.class, String.class);
+
+   private static final CachedConstructor<ArchivePath> STRING_BASE_STRING_CONTEXT_CONSTRUCTOR = new CachedConstructor<ArchivePath>(
+         PATH_IMPL, ArchivePath.class, String.class, String.class);
+
+   private static final CachedConstructor<ArchivePath> STRING_BASE_PATH_CONTEXT_CONSTRUCTOR = new CachedConstructor<ArchivePath>(
+         PATH_IMPL, ArchivePath.class, String.class, ArchivePath.class);
+
+   private static final CachedConstructor<ArchivePath> PATH_BASE_STRING_CONTEXT_CONSTRUCTOR = new CachedConstructor<ArchivePath>(
+         PATH_IMPL, ArchivePath.class, ArchivePath.class, String.class);
+
+   private static final CachedConstructor<ArchivePath> PATH_BASE_PATH_CONTEXT_CONSTRUCTOR = new CachedConstructor<ArchivePath>(
+         PATH_IMPL, ArchivePath.class, ArchivePath.class, ArchivePath.class);
+
    /**
     * Creates a new {@link ArchivePath} representing the root path (/).
     * 
@@ -50,9 +65,7 @@ public final class ArchivePaths
     */
    public static ArchivePath create(String context)
    {
-      return createInstance(new Class<?>[]
-      {String.class}, new Object[]
-      {context});
+      return CONTEXT_CONSTRUCTOR.newInstance(context);
    }
 
    /**
@@ -65,9 +78,7 @@ public final class ArchivePaths
     */
    public static ArchivePath create(String basePath, String context)
    {
-      return createInstance(new Class<?>[]
-      {String.class, String.class}, new Object[]
-      {basePath, context});
+      return STRING_BASE_STRING_CONTEXT_CONSTRUCTOR.newInstance(basePath, context);
    }
    
    /**
@@ -80,9 +91,7 @@ public final class ArchivePaths
     */
    public static ArchivePath create(final String basePath, final ArchivePath context)
    {
-      return createInstance(new Class<?>[]
-      {String.class, ArchivePath.class}, new Object[]
-      {basePath, context});
+      return STRING_BASE_PATH_CONTEXT_CONSTRUCTOR.newInstance(basePath, context);
    }
 
    /**
@@ -95,9 +104,7 @@ public final class ArchivePaths
     */
    public static ArchivePath create(ArchivePath basePath, String context)
    {
-      return createInstance(new Class<?>[]
-      {ArchivePath.class, String.class}, new Object[]
-      {basePath, context});
+      return PATH_BASE_STRING_CONTEXT_CONSTRUCTOR.newInstance(basePath, context);
    }
 
    /**
@@ -110,20 +117,9 @@ public final class ArchivePaths
     */
    public static ArchivePath create(ArchivePath basePath, ArchivePath context)
    {
-      return createInstance(new Class<?>[]
-      {ArchivePath.class, ArchivePath.class}, new Object[]
-      {basePath, context});
+      return PATH_BASE_PATH_CONTEXT_CONSTRUCTOR.newInstance(basePath, context);
    }
 
-   //-------------------------------------------------------------------------------------||
-   // Class Members - Internal Helpers ---------------------------------------------------||
-   //-------------------------------------------------------------------------------------||
-
-   private static ArchivePath createInstance(Class<?>[] argumentTypes, Object[] arguments)
-   {
-      return SecurityActions.newInstance(PATH_IMPL, argumentTypes, arguments, ArchivePath.class);
-   }
-   
    /**
     * Singleton wrapper to obtain a root {@link ArchivePath}
     *
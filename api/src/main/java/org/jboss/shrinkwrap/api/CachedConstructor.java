@@ -0,0 +1,186 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+
+/**
+ * Handle to a constructor of an implementation class, named by its class name 
+ * so as not to introduce a compile-time dependency upon the implementation.  The 
+ * class and constructor are looked up once, from the Thread Context ClassLoader (TCCL), 
+ * and reused for all instances created under the same TCCL, such that creating 
+ * {@link ArchivePath}s, {@link Filter}s and {@link Archive}s needs no lookup of 
+ * its own.  A change in TCCL triggers a new lookup, so resolution 
+ * behaves exactly as it would without caching.  Neither the TCCL nor the 
+ * implementation class (and so its ClassLoader) is held strongly, so a handle in 
+ * a static field does not prevent a redeployed ClassLoader from being collected; 
+ * the class stays reachable for as long as its ClassLoader lives.  The constructor, 
+ * a copy which nothing else holds, is held weakly too, and obtained again from the 
+ * class, without a further class lookup, whenever it has been cleared.  Thread-safe.
+ *
+ * @version $Revision: $
+ */
+final class CachedConstructor<T>
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Full name of the implementation class
+    */
+   private final String className;
+
+   /**
+    * The constructor argument types
+    */
+   private final Class<?>[] argumentTypes;
+
+   /**
+    * The type to which created instances are cast
+    */
+   private final Class<T> expectedType;
+
+   /**
+    * The class and constructor last looked up, with the TCCL from which they were 
+    * obtained; null until first used
+    */
+   private volatile Resolved resolved;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new handle to the constructor of the specified class matching 
+    * the specified argument types.  No lookup is done until first use.
+    * 
+    * @param className Full classname of class to create
+    * @param expectedType The type to which created instances are cast
+    * @param argumentTypes The constructor argument types
+    * @throws IllegalArgumentException if className, expectedType or argumentTypes are null
+    */
+   CachedConstructor(final String className, final Class<T> expectedType, final Class<?>... argumentTypes)
+         throws IllegalArgumentException
+   {
+      if (className == null)
+      {
+         throw new IllegalArgumentException("ClassName must be specified");
+      }
+      if (expectedType == null)
+      {
+         throw new IllegalArgumentException("ExpectedType must be specified");
+      }
+      if (argumentTypes == null)
+      {
+         throw new IllegalArgumentException("ArgumentTypes must be specified. Use empty array if no arguments");
+      }
+      this.className = className;
+      this.expectedType = expectedType;
+      this.argumentTypes = argumentTypes;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance using the specified constructor arguments
+    * 
+    * @param arguments The constructor arguments
+    * @return a new instance
+    * @throws RuntimeException if any exceptions during creation
+    */
+   T newInstance(final Object... arguments)
+   {
+      final Constructor<?> constructor;
+      try
+      {
+         constructor = this.getConstructor();
+      }
+      catch (final Exception e)
+      {
+         throw SecurityActions.newInstanceFailed(className, e);
+      }
+      return SecurityActions.newInstance(className, constructor, arguments, expectedType);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the constructor as visible to the current TCCL, looking it up only 
+    * if the TCCL differs from that of the last lookup
+    * 
+    * @return
+    * @throws Exception If the class or constructor could not be found
+    */
+   private Constructor<?> getConstructor() throws Exception
+   {
+      final ClassLoader tccl = SecurityActions.getThreadContextClassLoader();
+      final Resolved current = resolved;
+      if (current != null && current.loader.get() == tccl)
+      {
+         final Class<?> implClass = current.implClass.get();
+         if (implClass != null)
+         {
+            Constructor<?> constructor = current.constructor.get();
+            if (constructor == null)
+            {
+               // Cleared by the collector; the class is still loaded
+               constructor = SecurityActions.getConstructor(implClass, argumentTypes);
+               current.constructor = new WeakReference<Constructor<?>>(constructor);
+            }
+            return constructor;
+         }
+      }
+
+      // Racing threads will look up the same constructor, so no need to lock
+      final Class<?> implClass = Class.forName(className, false, tccl);
+      final Constructor<?> constructor = SecurityActions.getConstructor(implClass, argumentTypes);
+      resolved = new Resolved(tccl, implClass, constructor);
+      return constructor;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * A looked-up class and constructor, and the TCCL from which they were obtained; 
+    * all are held weakly so as not to prevent the collection of either ClassLoader, 
+    * the class remaining reachable through its own
+    */
+   private static final class Resolved
+   {
+      private final WeakReference<ClassLoader> loader;
+
+      private final WeakReference<Class<?>> implClass;
+
+      private volatile WeakReference<Constructor<?>> constructor;
+
+      Resolved(final ClassLoader loader, final Class<?> implClass, final Constructor<?> constructor)
+      {
+         this.loader = new WeakReference<ClassLoader>(loader);
+         this.implClass = new WeakReference<Class<?>>(implClass);
+         this.constructor = new WeakReference<Constructor<?>>(constructor);
+      }
+   }
+}
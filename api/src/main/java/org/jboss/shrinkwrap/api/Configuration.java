@@ -18,6 +18,8 @@ package org.jboss.shrinkwrap.api;
 
 import java.util.concurrent.ExecutorService;
 
+import org.jboss.shrinkwrap.api.exporter.ZipCompression;
+
 /**
  * Encapsulates all configuration for a given {@link Domain}.
  * Each {@link Archive} created by the domain's {@link ArchiveFactory}
@@ -54,6 +56,63 @@ public class Configuration
     */
    private final ExecutorService executorService;
 
+   /**
+    * Size, in bytes, of the blocks into which a stream is split to be compressed in parallel
+    */
+   private final int compressionBlockSize;
+
+   /**
+    * Maximum number of blocks or entries to be compressed concurrently
+    */
+   private final int compressionParallelism;
+
+   /**
+    * Whether GZIP encodings are written as a series of members compressed in parallel
+    */
+   private final boolean multiMemberGzip;
+
+   /**
+    * Number of bytes of content of unknown length to be held in memory before being
+    * written to a temporary file
+    */
+   private final int spillThreshold;
+
+   /**
+    * Policy deciding how each entry is compressed when exporting as ZIP
+    */
+   private final ZipCompression zipCompression;
+
+   /**
+    * Whether archives share the directory paths of their content
+    */
+   private final boolean internPaths;
+
+   /**
+    * Whether packages are scanned for classes concurrently upon the {@link ExecutorService}
+    */
+   private final boolean parallelPackageScan;
+
+   /**
+    * Whether ZIP files are imported as a memory-mapped view, materialized as accessed
+    */
+   private final boolean mappedZipImport;
+
+   /**
+    * Whether content imported from streams may be written to a temporary file
+    */
+   private final boolean spillingImport;
+
+   /**
+    * Number of bytes of content imported from a single stream to be held in memory
+    * when spilling
+    */
+   private final long importHeapBudget;
+
+   /**
+    * Whether TAR files are imported as an index of their entries, read as accessed
+    */
+   private final boolean indexedTarImport;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -76,6 +135,17 @@ public class Configuration
       // Set 
       this.extensionLoader = builder.getExtensionLoader();
       this.executorService = builder.getExecutorService();
+      this.compressionBlockSize = builder.getCompressionBlockSize();
+      this.compressionParallelism = builder.getCompressionParallelism();
+      this.multiMemberGzip = builder.getMultiMemberGzip();
+      this.spillThreshold = builder.getSpillThreshold();
+      this.zipCompression = builder.getZipCompression();
+      this.internPaths = builder.getInternPaths();
+      this.parallelPackageScan = builder.getParallelPackageScan();
+      this.mappedZipImport = builder.getMappedZipImport();
+      this.spillingImport = builder.getSpillingImport();
+      this.importHeapBudget = builder.getImportHeapBudget();
+      this.indexedTarImport = builder.getIndexedTarImport();
    }
 
    //-------------------------------------------------------------------------------------||
@@ -97,4 +167,92 @@ public class Configuration
    {
       return executorService;
    }
+
+   /**
+    * @return the compressionBlockSize
+    */
+   public int getCompressionBlockSize()
+   {
+      return compressionBlockSize;
+   }
+
+   /**
+    * @return the compressionParallelism
+    */
+   public int getCompressionParallelism()
+   {
+      return compressionParallelism;
+   }
+
+   /**
+    * @return the multiMemberGzip
+    */
+   public boolean isMultiMemberGzip()
+   {
+      return multiMemberGzip;
+   }
+
+   /**
+    * @return the spillThreshold
+    */
+   public int getSpillThreshold()
+   {
+      return spillThreshold;
+   }
+
+   /**
+    * @return the zipCompression
+    */
+   public ZipCompression getZipCompression()
+   {
+      return zipCompression;
+   }
+
+   /**
+    * @return the internPaths
+    */
+   public boolean isInternPaths()
+   {
+      return internPaths;
+   }
+
+   /**
+    * @return the parallelPackageScan
+    */
+   public boolean isParallelPackageScan()
+   {
+      return parallelPackageScan;
+   }
+
+   /**
+    * @return the mappedZipImport
+    */
+   public boolean isMappedZipImport()
+   {
+      return mappedZipImport;
+   }
+
+   /**
+    * @return the spillingImport
+    */
+   public boolean isSpillingImport()
+   {
+      return spillingImport;
+   }
+
+   /**
+    * @return the importHeapBudget
+    */
+   public long getImportHeapBudget()
+   {
+      return importHeapBudget;
+   }
+
+   /**
+    * @return the indexedTarImport
+    */
+   public boolean isIndexedTarImport()
+   {
+      return indexedTarImport;
+   }
 }
@@ -20,13 +20,27 @@ import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.exporter.ZipCompression;
+
 /**
  * Mutable construction object for new instances of {@link Configuration}.
  * Provides defaults for each property if not specified (null) according to the following:
  * 
  * <ul>
- *   <li><code>executorService</code> - Stay null, none is required and ShrinkWrap will create its own and destroy it when done as needed</li>
+ *   <li><code>executorService</code> - Stay null, none is required</li>
  *   <li><code>extensionLoader</code> - A new instance of the service extension loader from shrinkwrap-impl</li>
+ *   <li><code>compressionBlockSize</code> - {@link ConfigurationBuilder#DEFAULT_COMPRESSION_BLOCK_SIZE}</li>
+ *   <li><code>compressionParallelism</code> - The number of processors available to the JVM</li>
+ *   <li><code>multiMemberGzip</code> - false</li>
+ *   <li><code>spillThreshold</code> - {@link ConfigurationBuilder#DEFAULT_SPILL_THRESHOLD}</li>
+ *   <li><code>zipCompression</code> - {@link ZipCompression#deflate()}</li>
+ *   <li><code>internPaths</code> - false</li>
+ *   <li><code>parallelPackageScan</code> - false</li>
+ *   <li><code>mappedZipImport</code> - false</li>
+ *   <li><code>spillingImport</code> - false</li>
+ *   <li><code>indexedTarImport</code> - false</li>
+ *   <li><code>importHeapBudget</code> - {@link ConfigurationBuilder#DEFAULT_IMPORT_HEAP_BUDGET}</li>
  * </ul>
  * 
  * Not thread-safe.  When done altering properties here, a new configuration may be
@@ -52,6 +66,24 @@ public class ConfigurationBuilder
     */
    private static final String EXTENSION_LOADER_IMPL = "org.jboss.shrinkwrap.impl.base.ServiceExtensionLoader";
 
+   /**
+    * Default size, in bytes, of the blocks into which exporters split 
+    * a stream to be compressed in parallel
+    */
+   public static final int DEFAULT_COMPRESSION_BLOCK_SIZE = 256 * 1024;
+
+   /**
+    * Default number of bytes of content of unknown length to be held in memory
+    * before being written to a temporary file
+    */
+   public static final int DEFAULT_SPILL_THRESHOLD = 8 * 1024 * 1024;
+
+   /**
+    * Default number of bytes of content imported from a single stream to be held 
+    * in memory before all further content is written to a temporary file
+    */
+   public static final long DEFAULT_IMPORT_HEAP_BUDGET = 64L * 1024 * 1024;
+
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -66,6 +98,66 @@ public class ConfigurationBuilder
     */
    private ExecutorService executorService;
 
+   /**
+    * Size, in bytes, of the blocks into which a stream is split to be compressed in parallel;
+    * 0 if not yet specified
+    */
+   private int compressionBlockSize;
+
+   /**
+    * Maximum number of blocks or entries to be compressed concurrently; 0 if not yet specified
+    */
+   private int compressionParallelism;
+
+   /**
+    * Whether GZIP encodings are written as a series of members compressed in parallel;
+    * null if not yet specified
+    */
+   private Boolean multiMemberGzip;
+
+   /**
+    * Number of bytes of content of unknown length to be held in memory before being
+    * written to a temporary file; -1 if not yet specified
+    */
+   private int spillThreshold = -1;
+
+   /**
+    * Policy deciding how each entry is compressed when exporting as ZIP
+    */
+   private ZipCompression zipCompression;
+
+   /**
+    * Whether archives share the directory paths of their content; null if not yet specified
+    */
+   private Boolean internPaths;
+
+   /**
+    * Whether packages are scanned for classes concurrently; null if not yet specified
+    */
+   private Boolean parallelPackageScan;
+
+   /**
+    * Whether ZIP files are imported as a memory-mapped view; null if not yet specified
+    */
+   private Boolean mappedZipImport;
+
+   /**
+    * Whether content imported from streams may be written to a temporary file; 
+    * null if not yet specified
+    */
+   private Boolean spillingImport;
+
+   /**
+    * Number of bytes of content imported from a single stream to be held in memory
+    * when spilling; -1 if not yet specified
+    */
+   private long importHeapBudget = -1;
+
+   /**
+    * Whether TAR files are imported as an index of their entries; null if not yet specified
+    */
+   private Boolean indexedTarImport;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -99,6 +191,93 @@ public class ConfigurationBuilder
       return executorService;
    }
 
+   /**
+    * @return the compressionBlockSize
+    */
+   public int getCompressionBlockSize()
+   {
+      return compressionBlockSize;
+   }
+
+   /**
+    * @return the compressionParallelism
+    */
+   public int getCompressionParallelism()
+   {
+      return compressionParallelism;
+   }
+
+   /**
+    * @return the multiMemberGzip
+    */
+   public Boolean getMultiMemberGzip()
+   {
+      return multiMemberGzip;
+   }
+
+   /**
+    * @return the spillThreshold
+    */
+   public int getSpillThreshold()
+   {
+      return spillThreshold;
+   }
+
+   /**
+    * @return the zipCompression
+    */
+   public ZipCompression getZipCompression()
+   {
+      return zipCompression;
+   }
+
+   /**
+    * @return the internPaths
+    */
+   public Boolean getInternPaths()
+   {
+      return internPaths;
+   }
+
+   /**
+    * @return the parallelPackageScan
+    */
+   public Boolean getParallelPackageScan()
+   {
+      return parallelPackageScan;
+   }
+
+   /**
+    * @return the mappedZipImport
+    */
+   public Boolean getMappedZipImport()
+   {
+      return mappedZipImport;
+   }
+
+   /**
+    * @return the spillingImport
+    */
+   public Boolean getSpillingImport()
+   {
+      return spillingImport;
+   }
+
+   /**
+    * @return the importHeapBudget
+    */
+   public long getImportHeapBudget()
+   {
+      return importHeapBudget;
+   }
+
+   /**
+    * @return the indexedTarImport
+    */
+   public Boolean getIndexedTarImport()
+   {
+      return indexedTarImport;
+   }
 
    /**
     * Sets the {@link ExtensionLoader} to be used, returning this instance
@@ -123,6 +302,200 @@ public class ConfigurationBuilder
       return this;
    }
 
+   /**
+    * Sets the size, in bytes, of the blocks into which exporters split a 
+    * stream to be compressed in parallel (ie. TAR.GZ written as multiple GZIP 
+    * members), returning this instance.
+    * Larger blocks compress slightly better; smaller blocks spread better 
+    * across Threads.
+    * 
+    * @param compressionBlockSize
+    * @return
+    * @throws IllegalArgumentException If the block size is not positive
+    */
+   public ConfigurationBuilder compressionBlockSize(final int compressionBlockSize) throws IllegalArgumentException
+   {
+      if (compressionBlockSize < 1)
+      {
+         throw new IllegalArgumentException("Compression block size must be positive");
+      }
+      this.compressionBlockSize = compressionBlockSize;
+      return this;
+   }
+
+   /**
+    * Sets the maximum number of blocks or entries exporters will compress
+    * concurrently, returning this instance.  Compression takes place upon the 
+    * {@link ExecutorService}, if set, else a shared pool of daemon Threads.
+    * 
+    * @param compressionParallelism
+    * @return
+    * @throws IllegalArgumentException If the parallelism is not positive
+    */
+   public ConfigurationBuilder compressionParallelism(final int compressionParallelism)
+         throws IllegalArgumentException
+   {
+      if (compressionParallelism < 1)
+      {
+         throw new IllegalArgumentException("Compression parallelism must be positive");
+      }
+      this.compressionParallelism = compressionParallelism;
+      return this;
+   }
+
+   /**
+    * Sets whether GZIP encodings (ie. TAR.GZ) are split into blocks of the compression 
+    * block size, compressed in parallel and written as a series of GZIP members, 
+    * returning this instance.  Such a stream is valid (RFC 1952), and is read in 
+    * full by <code>gzip -d</code> and the {@link java.util.zip.GZIPInputStream} of 
+    * Java 7 onwards; that of Java 6 and earlier stops after the first member, so 
+    * consumers running upon those see a truncated archive.  Otherwise, as by 
+    * default, a single member is compressed upon the calling Thread, and such 
+    * TAR.GZ files are not indexed under {@link #indexedTarImport(boolean)}.
+    * 
+    * @param multiMemberGzip
+    * @return
+    */
+   public ConfigurationBuilder multiMemberGzip(final boolean multiMemberGzip)
+   {
+      this.multiMemberGzip = multiMemberGzip;
+      return this;
+   }
+
+   /**
+    * Sets the number of bytes of content of unknown length (ie. an {@link Asset} 
+    * which cannot report its size when exported as TAR) to be held in memory 
+    * before being written to a temporary file instead, returning this instance.
+    * A value of 0 always uses a temporary file.
+    * 
+    * @param spillThreshold
+    * @return
+    * @throws IllegalArgumentException If the threshold is negative
+    */
+   public ConfigurationBuilder spillThreshold(final int spillThreshold) throws IllegalArgumentException
+   {
+      if (spillThreshold < 0)
+      {
+         throw new IllegalArgumentException("Spill threshold must not be negative");
+      }
+      this.spillThreshold = spillThreshold;
+      return this;
+   }
+
+   /**
+    * Sets the {@link ZipCompression} policy deciding how each entry is compressed
+    * when exporting as ZIP, returning this instance.  Defaults to 
+    * {@link ZipCompression#deflate()}; use {@link ZipCompression#store()} 
+    * for the fastest exports.
+    * 
+    * @param zipCompression
+    * @return
+    */
+   public ConfigurationBuilder zipCompression(final ZipCompression zipCompression)
+   {
+      this.zipCompression = zipCompression;
+      return this;
+   }
+
+   /**
+    * Sets whether archives should share a single instance of each directory 
+    * path among all their content, and with all other archives of the same 
+    * configuration, returning this instance.  Saves memory and speeds lookups 
+    * when many archives hold the same directory structure, at the cost of a 
+    * shared table; disabled by default.
+    * 
+    * @param internPaths
+    * @return
+    */
+   public ConfigurationBuilder internPaths(final boolean internPaths)
+   {
+      this.internPaths = internPaths;
+      return this;
+   }
+
+   /**
+    * Sets whether packages added to archives should be scanned for classes 
+    * concurrently, returning this instance.  JARs and directories are then read 
+    * upon the {@link ExecutorService}, or a shared pool if none is set.  
+    * The classes found, and the order in which they are added, are the same either way.
+    * 
+    * @param parallelPackageScan
+    * @return
+    */
+   public ConfigurationBuilder parallelPackageScan(final boolean parallelPackageScan)
+   {
+      this.parallelPackageScan = parallelPackageScan;
+      return this;
+   }
+
+   /**
+    * Sets whether ZIP files imported from a {@link java.io.File} are memory-mapped, returning 
+    * this instance.  If so, the content of an empty archive is read from the central 
+    * directory of the file as it is accessed, rather than all at once upon import, and 
+    * the file must not change for as long as the archive is in use.
+    * 
+    * @param mappedZipImport
+    * @return
+    */
+   public ConfigurationBuilder mappedZipImport(final boolean mappedZipImport)
+   {
+      this.mappedZipImport = mappedZipImport;
+      return this;
+   }
+
+   /**
+    * Sets whether content imported from a stream (ie. ZIP or TAR) may be written to
+    * a temporary file rather than held in memory, returning this instance.  If so, 
+    * each entry larger than the spill threshold, and all entries once the import heap 
+    * budget is used up, are read from the temporary file when accessed.  The file
+    * is deleted once the content is no longer referenced.
+    * 
+    * @param spillingImport
+    * @return
+    */
+   public ConfigurationBuilder spillingImport(final boolean spillingImport)
+   {
+      this.spillingImport = spillingImport;
+      return this;
+   }
+
+   /**
+    * Sets the number of bytes of content imported from a single stream to be held 
+    * in memory, when spilling imports, before all further content is written to a 
+    * temporary file, returning this instance.
+    * 
+    * @param importHeapBudget
+    * @return
+    * @throws IllegalArgumentException If the budget is negative
+    */
+   public ConfigurationBuilder importHeapBudget(final long importHeapBudget) throws IllegalArgumentException
+   {
+      if (importHeapBudget < 0)
+      {
+         throw new IllegalArgumentException("Import heap budget must not be negative");
+      }
+      this.importHeapBudget = importHeapBudget;
+      return this;
+   }
+
+   /**
+    * Sets whether TAR and TAR.GZ files imported from a {@link java.io.File} are indexed, 
+    * returning this instance.  If so, the headers of the entries are read upon import, 
+    * and their content from the file as it is accessed, such that the file must not 
+    * change for as long as the archive is in use.  A TAR.GZ file is only indexed if 
+    * written as a series of GZIP members (as exported under 
+    * {@link #multiMemberGzip(boolean)}, which is off by default), from whose starts 
+    * its content may be inflated; others are imported as a stream.
+    * 
+    * @param indexedTarImport
+    * @return
+    */
+   public ConfigurationBuilder indexedTarImport(final boolean indexedTarImport)
+   {
+      this.indexedTarImport = indexedTarImport;
+      return this;
+   }
+
    /**
     * Builds a new {@link Configuration} using the properties contained
     * in this builder.  In the case a property has not been specified, it will be defaulted
@@ -159,6 +532,52 @@ public class ConfigurationBuilder
          }
          this.extensionLoader(loader);
       }
+
+      // Compression defaults
+      if (getCompressionBlockSize() == 0)
+      {
+         this.compressionBlockSize(DEFAULT_COMPRESSION_BLOCK_SIZE);
+      }
+      if (getCompressionParallelism() == 0)
+      {
+         this.compressionParallelism(Runtime.getRuntime().availableProcessors());
+      }
+      if (getMultiMemberGzip() == null)
+      {
+         this.multiMemberGzip(false);
+      }
+      if (getSpillThreshold() == -1)
+      {
+         this.spillThreshold(DEFAULT_SPILL_THRESHOLD);
+      }
+      if (getZipCompression() == null)
+      {
+         this.zipCompression(ZipCompression.deflate());
+      }
+      if (getInternPaths() == null)
+      {
+         this.internPaths(false);
+      }
+      if (getParallelPackageScan() == null)
+      {
+         this.parallelPackageScan(false);
+      }
+      if (getMappedZipImport() == null)
+      {
+         this.mappedZipImport(false);
+      }
+      if (getSpillingImport() == null)
+      {
+         this.spillingImport(false);
+      }
+      if (getImportHeapBudget() == -1)
+      {
+         this.importHeapBudget(DEFAULT_IMPORT_HEAP_BUDGET);
+      }
+      if (getIndexedTarImport() == null)
+      {
+         this.indexedTarImport(false);
+      }
    }
 
    /**
@@ -39,6 +39,27 @@ public final class Filters
    
    private static final String EXCLUDE_REGEXP_PATHS = "org.jboss.shrinkwrap.impl.base.filter.ExcludeRegExpPaths";
    
+   private static final String INCLUDE_PREFIX_PATHS = "org.jboss.shrinkwrap.impl.base.filter.IncludePrefixPaths";
+   
+   /**
+    * Type of the {@link Filter}s created; unchecked as the class literal of a generic type is raw
+    */
+   @SuppressWarnings("unchecked")
+   private static final Class<Filter<ArchivePath>> FILTER_TYPE = 
+         (Class<Filter<ArchivePath>>) (Class<?>) Filter.class;
+   
+   private static final CachedConstructor<Filter<ArchivePath>> INCLUDE_ALL_PATHS_CONSTRUCTOR = 
+         new CachedConstructor<Filter<ArchivePath>>(INCLUDE_ALL_PATHS, FILTER_TYPE);
+   
+   private static final CachedConstructor<Filter<ArchivePath>> INCLUDE_REGEXP_PATHS_CONSTRUCTOR = 
+         new CachedConstructor<Filter<ArchivePath>>(INCLUDE_REGEXP_PATHS, FILTER_TYPE, String.class);
+   
+   private static final CachedConstructor<Filter<ArchivePath>> EXCLUDE_REGEXP_PATHS_CONSTRUCTOR = 
+         new CachedConstructor<Filter<ArchivePath>>(EXCLUDE_REGEXP_PATHS, FILTER_TYPE, String.class);
+   
+   private static final CachedConstructor<Filter<ArchivePath>> INCLUDE_PREFIX_PATHS_CONSTRUCTOR = 
+         new CachedConstructor<Filter<ArchivePath>>(INCLUDE_PREFIX_PATHS, FILTER_TYPE, String.class);
+   
    /**
     * {@link Filter} that includes all {@link ArchivePath}s.
     * 
@@ -49,11 +70,7 @@ public final class Filters
    @SuppressWarnings("unchecked")
    public static Filter<ArchivePath> includeAll() 
    {
-      return SecurityActions.newInstance(
-            INCLUDE_ALL_PATHS, 
-            new Class<?>[]{}, 
-            new Object[]{}, 
-            Filter.class);
+      return INCLUDE_ALL_PATHS_CONSTRUCTOR.newInstance();
    }
    
    /**
@@ -65,11 +82,7 @@ public final class Filters
    @SuppressWarnings("unchecked")
    public static Filter<ArchivePath> include(String regexp) 
    {
-      return SecurityActions.newInstance(
-            INCLUDE_REGEXP_PATHS, 
-            new Class<?>[]{String.class}, 
-            new Object[]{regexp}, 
-            Filter.class);
+      return INCLUDE_REGEXP_PATHS_CONSTRUCTOR.newInstance(regexp);
    }
 
    /**
@@ -81,11 +94,21 @@ public final class Filters
    @SuppressWarnings("unchecked")
    public static Filter<ArchivePath> exclude(String regexp) 
    {
-      return SecurityActions.newInstance(
-            EXCLUDE_REGEXP_PATHS, 
-            new Class<?>[]{String.class}, 
-            new Object[]{regexp}, 
-            Filter.class);
+      return EXCLUDE_REGEXP_PATHS_CONSTRUCTOR.newInstance(regexp);
+   }
+   
+   /**
+    * {@link Filter} that includes all {@link ArchivePath}s whose context starts with the given prefix.
+    * Archives need only look beneath the deepest directory named by the prefix, so this is 
+    * the cheapest way to list a subtree.
+    * 
+    * @param prefix The prefix of the contexts to include, for instance "/WEB-INF/classes/"
+    * @return A prefix based include {@link Filter}
+    */
+   @SuppressWarnings("unchecked")
+   public static Filter<ArchivePath> includePrefix(String prefix) 
+   {
+      return INCLUDE_PREFIX_PATHS_CONSTRUCTOR.newInstance(prefix);
    }
    
    /**
@@ -99,11 +122,7 @@ public final class Filters
    {
       String classExpression = ".*" + clazz.getName().replaceAll("\\.", "\\.") + "\\.class";
       
-      return SecurityActions.newInstance(
-            INCLUDE_REGEXP_PATHS, 
-            new Class<?>[]{String.class}, 
-            new Object[]{ classExpression }, 
-            Filter.class);
+      return INCLUDE_REGEXP_PATHS_CONSTRUCTOR.newInstance(classExpression);
    }
    
    //-------------------------------------------------------------------------------------||
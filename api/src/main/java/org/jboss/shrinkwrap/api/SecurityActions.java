@@ -130,18 +130,43 @@ final class SecurityActions
       {
          throw new IllegalArgumentException("Arguments must be specified. Use empty array if no arguments");
       }
-      final Object obj;
+      final Constructor<?> constructor;
       try
       {
          final ClassLoader tccl = getThreadContextClassLoader();
          final Class<?> implClass = Class.forName(className, false, tccl);
-         Constructor<?> constructor = getConstructor(implClass, argumentTypes);
+         constructor = getConstructor(implClass, argumentTypes);
+      }
+      catch (Exception e)
+      {
+         throw newInstanceFailed(className, e);
+      }
+      return newInstance(className, constructor, arguments, expectedType);
+   }
+
+   /**
+    * Create a new instance of the named class using the specified constructor and arguments, 
+    * cast to the expected type
+    * 
+    * @param className Full classname of class to create
+    * @param constructor The constructor
+    * @param arguments The constructor arguments
+    * @param expectedType The type to which the new instance is cast
+    * @return a new instance
+    * @throws RuntimeException if any exceptions during creation
+    * @throws ClassCastException if the new instance is not of the expected type
+    */
+   static <T> T newInstance(final String className, final Constructor<?> constructor, final Object[] arguments,
+         final Class<T> expectedType)
+   {
+      final Object obj;
+      try
+      {
          obj = constructor.newInstance(arguments);
       }
       catch (Exception e)
       {
-         throw new RuntimeException("Could not create new instance of " + className
-               + ", missing package from classpath?", e);
+         throw newInstanceFailed(className, e);
       }
 
       // Cast
@@ -157,6 +182,15 @@ final class SecurityActions
       }
    }
 
+   /**
+    * Obtains the Exception reporting that an instance of the named class could not be created
+    */
+   static RuntimeException newInstanceFailed(final String className, final Exception cause)
+   {
+      return new RuntimeException("Could not create new instance of " + className
+            + ", missing package from classpath?", cause);
+   }
+
    //-------------------------------------------------------------------------------||
    // Inner Classes ----------------------------------------------------------------||
    //-------------------------------------------------------------------------------||
@@ -18,6 +18,7 @@ package org.jboss.shrinkwrap.api.asset;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.zip.CRC32;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,7 +29,7 @@ import java.util.logging.Logger;
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
  */
-public class ByteArrayAsset implements Asset
+public class ByteArrayAsset implements DescribableAsset
 {
 
    //-------------------------------------------------------------------------------------||
@@ -49,6 +50,12 @@ public class ByteArrayAsset implements Asset
     */
    private final byte[] content;
 
+   /**
+    * CRC-32 of the content, lazily computed; as the value is always the same, 
+    * racing Threads may safely compute it more than once
+    */
+   private volatile long crc32 = UNKNOWN;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -107,6 +114,54 @@ public class ByteArrayAsset implements Asset
       return new ByteArrayInputStream(this.content);
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return content.length;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+    */
+   @Override
+   public long getLastModified()
+   {
+      return UNKNOWN;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+    */
+   @Override
+   public boolean isCompressed()
+   {
+      return false;
+   }
+
+   /**
+    * Computed upon first request and cached, as the content may not change
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+    */
+   @Override
+   public long getCrc32()
+   {
+      long crc32 = this.crc32;
+      if (crc32 == UNKNOWN)
+      {
+         final CRC32 crc = new CRC32();
+         crc.update(content);
+         crc32 = crc.getValue();
+         this.crc32 = crc32;
+      }
+      return crc32;
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
@@ -16,7 +16,6 @@
  */
 package org.jboss.shrinkwrap.api.asset;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.logging.Level;
@@ -49,14 +48,30 @@ class ByteArrayIOUtil
          throw new IllegalArgumentException("stream must be specified");
       }
 
-      // Get content as an array of bytes
-      final ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
-      final int len = 4096;
-      final byte[] buffer = new byte[len];
-      int read = 0;
+      // Read straight into the result, sized by what's available up front, so 
+      // neither a transfer buffer nor (if the hint was right) a final copy is needed
+      byte[] content;
+      int count = 0;
       try {
-         while (((read = in.read(buffer)) != -1)) {
-            out.write(buffer, 0, read);
+         final int available = in.available();
+         content = new byte[available > 0 ? available : 8192];
+         while (true) {
+            if (count == content.length) {
+               // Full; check for more before growing
+               final int next = in.read();
+               if (next == -1) {
+                  break;
+               }
+               final byte[] grown = new byte[content.length * 2];
+               System.arraycopy(content, 0, grown, 0, count);
+               content = grown;
+               content[count++] = (byte) next;
+            }
+            final int read = in.read(content, count, content.length - count);
+            if (read == -1) {
+               break;
+            }
+            count += read;
          }
       }
       catch (final IOException ioe) {
@@ -71,11 +86,14 @@ class ByteArrayIOUtil
                log.finer("Could not close stream due to: " + ignore.getMessage() + "; ignoring");
             }
          }
-         // We don't need to close the outstream, it's a byte array out
       }
 
-      // Represent as byte array
-      final byte[] content = out.toByteArray();
+      // Trim to size
+      if (count != content.length) {
+         final byte[] trimmed = new byte[count];
+         System.arraycopy(content, 0, trimmed, 0, count);
+         content = trimmed;
+      }
 
       // Return
       return content;
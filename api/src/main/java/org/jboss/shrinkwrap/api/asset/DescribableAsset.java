@@ -0,0 +1,70 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api.asset;
+
+/**
+ * Optional view of an {@link Asset} which is able to describe its content 
+ * without that content having to be read.  Consumers such as exporters
+ * may use this to stream content directly rather than buffering it to 
+ * learn its length, to preserve modification times, or to avoid compressing
+ * content a second time.  Consumers must continue to support plain 
+ * {@link Asset}s.
+ *
+ * @version $Revision: $
+ */
+public interface DescribableAsset extends Asset
+{
+   /**
+    * Denotes that a property of the content is not known
+    */
+   long UNKNOWN = -1L;
+
+   /**
+    * Obtains the length, in bytes, of the content returned by 
+    * {@link Asset#openStream()}, or {@link DescribableAsset#UNKNOWN} 
+    * if it cannot be determined without reading the content
+    * 
+    * @return
+    */
+   long getSize();
+
+   /**
+    * Obtains the time at which the content was last modified, in milliseconds since
+    * the epoch, or {@link DescribableAsset#UNKNOWN} if not known
+    * 
+    * @return
+    */
+   long getLastModified();
+
+   /**
+    * Whether the content returned by {@link Asset#openStream()} is already 
+    * in compressed form (ie. a nested JAR or an image), such that compressing
+    * it again is unlikely to be worthwhile
+    * 
+    * @return
+    */
+   boolean isCompressed();
+
+   /**
+    * Obtains the CRC-32 checksum of the content returned by {@link Asset#openStream()}, 
+    * or {@link DescribableAsset#UNKNOWN} if not known.  Implementations whose content 
+    * cannot change may compute this once upon request and cache it.
+    * 
+    * @return
+    */
+   long getCrc32();
+}
@@ -10,7 +10,7 @@ import java.io.InputStream;
  * @author <a href="mailto:dan.j.allen@gmail.com">Dan Allen</a>
  * @version $Revision: $
  */
-public enum EmptyAsset implements Asset {
+public enum EmptyAsset implements DescribableAsset {
    INSTANCE;
 
    /**
@@ -31,6 +31,47 @@ public enum EmptyAsset implements Asset {
       return new ByteArrayInputStream(content);
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return 0L;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+    */
+   @Override
+   public long getLastModified()
+   {
+      return UNKNOWN;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+    */
+   @Override
+   public boolean isCompressed()
+   {
+      return false;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+    */
+   @Override
+   public long getCrc32()
+   {
+      // Of no bytes
+      return 0L;
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
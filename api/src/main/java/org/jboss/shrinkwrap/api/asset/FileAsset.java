@@ -21,6 +21,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 
 
 /**
@@ -28,8 +32,15 @@ import java.io.InputStream;
  *
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
  */
-public class FileAsset implements Asset
+public class FileAsset implements DescribableAsset
 {
+   /**
+    * Extensions of file formats which are themselves compressed; also consulted for
+    * the entries of imported archives, as the API can't see the implementation
+    */
+   private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList("zip", "jar", "war",
+         "ear", "rar", "sar", "gz", "tgz", "bz2", "xz", "7z", "png", "jpg", "jpeg", "gif"));
+
    private File file;
 
    /**
@@ -74,6 +85,69 @@ public class FileAsset implements Asset
       }
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return file.length();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+    */
+   @Override
+   public long getLastModified()
+   {
+      // File uses 0 for unknown
+      final long lastModified = file.lastModified();
+      return lastModified == 0L ? UNKNOWN : lastModified;
+   }
+
+   /**
+    * Determined by the extension of the file name
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+    */
+   @Override
+   public boolean isCompressed()
+   {
+      return isCompressedFormat(file.getName());
+   }
+
+   /**
+    * Determines, by extension, whether the named file or resource is in a format
+    * which is itself compressed.
+    * <br/><br/>
+    * ie: WEB-INF/lib/library.jar = true
+    * 
+    * @param name
+    * @return
+    * @throws IllegalArgumentException If the name is not specified
+    */
+   static boolean isCompressedFormat(final String name) throws IllegalArgumentException
+   {
+      if (name == null)
+      {
+         throw new IllegalArgumentException("name must be specified");
+      }
+      final int dot = name.lastIndexOf('.');
+      return dot != -1 && name.indexOf('/', dot) == -1
+            && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ENGLISH));
+   }
+
+   /**
+    * Not known without reading the file, and not cached as the file may change
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+    */
+   @Override
+   public long getCrc32()
+   {
+      return UNKNOWN;
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
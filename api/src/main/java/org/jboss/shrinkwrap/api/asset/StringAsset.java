@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 /**
  * Implementation of an {@link Asset} backed by a String
@@ -11,7 +12,7 @@ import java.util.logging.Logger;
  * @author <a href="mailto:dan.j.allen@gmail.com">Dan Allen</a>
  * @version $Revision: $
  */
-public class StringAsset implements Asset
+public class StringAsset implements DescribableAsset
 {
    //-------------------------------------------------------------------------------------||
    // Class Members ----------------------------------------------------------------------||
@@ -31,6 +32,18 @@ public class StringAsset implements Asset
     */
    private final String content;
 
+   /**
+    * Length of the encoded content, lazily computed; as the value is always the same, 
+    * racing Threads may safely compute it more than once.  Volatile, as a long 
+    * may otherwise be seen half-written.
+    */
+   private volatile long size = UNKNOWN;
+
+   /**
+    * CRC-32 of the encoded content, lazily computed as is the size
+    */
+   private volatile long crc32 = UNKNOWN;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -70,6 +83,60 @@ public class StringAsset implements Asset
       return new ByteArrayInputStream(content.getBytes());
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      long size = this.size;
+      if (size == UNKNOWN)
+      {
+         size = content.getBytes().length;
+         this.size = size;
+      }
+      return size;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+    */
+   @Override
+   public long getLastModified()
+   {
+      return UNKNOWN;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+    */
+   @Override
+   public boolean isCompressed()
+   {
+      return false;
+   }
+
+   /**
+    * Computed upon first request and cached, as the content may not change
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+    */
+   @Override
+   public long getCrc32()
+   {
+      long crc32 = this.crc32;
+      if (crc32 == UNKNOWN)
+      {
+         final CRC32 crc = new CRC32();
+         crc.update(content.getBytes());
+         crc32 = crc.getValue();
+         this.crc32 = crc32;
+      }
+      return crc32;
+   }
+
    /**
     * {@inheritDoc}
     * @see java.lang.Object#toString()
@@ -16,24 +16,58 @@
  */
 package org.jboss.shrinkwrap.api.classloader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.security.CodeSource;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
 
 /**
  * Extension that will create a ClassLoader based on a Array of Archives.
  * When done, call {@link ShrinkWrapClassLoader#close()} to free resources.
+ * <br/><br/>
+ * Each lookup is made against the current content of the {@link Archive}s, so
+ * content added after the ClassLoader is created is seen.  Classes are defined
+ * directly from the bytes of their {@link Asset}s, within a {@link CodeSource}
+ * per class path root.  Each resource request opens a new stream.  Parallel
+ * capable where the JVM supports it.
+ * <br/><br/>
+ * Classes of a web archive ({@link WebArchive}, or named <code>.war</code>) are also 
+ * found in <code>WEB-INF/classes</code>, and in the libraries of <code>WEB-INF/lib</code>, 
+ * whether added as {@link Archive}s or as JAR content, without exporting them.  The 
+ * libraries are listed once, and again only when the children of <code>WEB-INF/lib</code> 
+ * change.  Libraries added as JAR content are indexed by resource name when a lookup 
+ * first reaches them, and names in packages they don't hold are rejected without 
+ * further lookup.
  *
  * @author <a href="mailto:aslak@redhat.com">Aslak Knutsen</a>
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
@@ -49,15 +83,99 @@ public class ShrinkWrapClassLoader extends URLClassLoader implements Closeable
     */
    private static final Logger log = Logger.getLogger(ShrinkWrapClassLoader.class.getName());
 
+   /**
+    * Protocol of the URLs of resources
+    */
+   private static final String PROTOCOL = "archive";
+
+   /**
+    * The filename extension appended to classes
+    */
+   private static final String EXTENSION_CLASS = ".class";
+
+   /**
+    * The filename extension of libraries
+    */
+   private static final String EXTENSION_JAR = ".jar";
+
+   /**
+    * The filename extension of web archives
+    */
+   private static final String EXTENSION_WAR = ".war";
+
+   /**
+    * Location of the classes of a web archive
+    */
+   private static final String PATH_WEB_CLASSES = "WEB-INF/classes/";
+
+   /**
+    * Location of the libraries of a web archive
+    */
+   private static final String PATH_WEB_LIBRARIES = "WEB-INF/lib/";
+
+   /**
+    * Largest buffer kept per Thread for reading classes; larger classes get a
+    * buffer of their own
+    */
+   private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024;
+
+   /**
+    * Buffer reused by each Thread to read classes
+    */
+   private static final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>()
+   {
+      @Override
+      protected byte[] initialValue()
+      {
+         return new byte[8192];
+      }
+   };
+
+   /**
+    * ClassLoader.getDefinedPackage(String), where available (Java 9 onwards)
+    */
+   private static final Method getDefinedPackage;
+
+   static
+   {
+      Method method = null;
+      try
+      {
+         method = ClassLoader.class.getMethod("getDefinedPackage", String.class);
+      }
+      catch (final NoSuchMethodException nsme)
+      {
+         // Fall back to getPackage(String)
+      }
+      getDefinedPackage = method;
+
+      // ClassLoader.registerAsParallelCapable() exists from Java 7 only
+      try
+      {
+         final Method register = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+         register.setAccessible(true);
+         register.invoke(null);
+      }
+      catch (final Exception e)
+      {
+         log.log(Level.FINEST, "Could not register as parallel capable", e);
+      }
+   }
+
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Map of all streams opened, such that they may be closed in {@link ShrinkWrapClassLoader#close()}.
-    * Guarded by "this".
+    * Class path roots of each {@link Archive}, in the order they are searched
+    */
+   private final List<ArchiveRoots> archives = new ArrayList<ArchiveRoots>();
+
+   /**
+    * Streams opened and not yet closed, such that they may be closed in
+    * {@link ShrinkWrapClassLoader#close()}.  Guarded by itself.
     */
-   private final Map<URL, InputStream> openedStreams = new HashMap<URL, InputStream>();
+   private final Map<InputStream, Boolean> openedStreams = new IdentityHashMap<InputStream, Boolean>();
 
    //-------------------------------------------------------------------------------------||
    // Constructors -----------------------------------------------------------------------||
@@ -68,7 +186,7 @@ public class ShrinkWrapClassLoader extends URLClassLoader implements Closeable
     * default delegation parent <code>ClassLoader</code>. The {@link Archive}s will
     * be searched in the order specified for classes and resources after
     * first searching in the parent class loader.
-    * 
+    *
     * @param archives the {@link Archive}s from which to load classes and resources
     */
    public ShrinkWrapClassLoader(final Archive<?>... archives)
@@ -86,8 +204,8 @@ public class ShrinkWrapClassLoader extends URLClassLoader implements Closeable
    /**
     * Constructs a new ShrinkWrapClassLoader for the given {@link Archive}s. The {@link Archive}s will be
     * searched in the order specified for classes and resources after first
-    * searching in the specified parent class loader. 
-    * 
+    * searching in the specified parent class loader.
+    *
     * @param parent the parent class loader for delegation
     * @param archives the {@link Archive}s from which to load classes and resources
     */
@@ -107,75 +225,639 @@ public class ShrinkWrapClassLoader extends URLClassLoader implements Closeable
    {
       for (final Archive<?> archive : archives)
       {
+         if (archive == null)
+         {
+            throw new IllegalArgumentException("Archives must not contain null");
+         }
          addArchive(archive);
       }
    }
 
+   /**
+    * Registers the class path roots of the specified {@link Archive}: its content 
+    * and, of a web archive, that of its <code>WEB-INF/classes</code> and its libraries
+    */
    private void addArchive(final Archive<?> archive)
    {
+      archives.add(new ArchiveRoots(archive));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.net.URLClassLoader#findClass(java.lang.String)
+    */
+   @Override
+   protected Class<?> findClass(final String name) throws ClassNotFoundException
+   {
+      final String resourceName = name.replace('.', '/').concat(EXTENSION_CLASS);
+      for (final ArchiveRoots archive : archives)
+      {
+         for (final Root root : archive.getRoots())
+         {
+            final Asset asset = root.getAsset(resourceName);
+            if (asset != null)
+            {
+               return defineClass(name, asset, root.getCodeSource());
+            }
+         }
+      }
+      throw new ClassNotFoundException(name);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.net.URLClassLoader#findResource(java.lang.String)
+    */
+   @Override
+   public URL findResource(final String name)
+   {
+      for (final ArchiveRoots archive : archives)
+      {
+         for (final Root root : archive.getRoots())
+         {
+            final URL url = root.getResource(name);
+            if (url != null)
+            {
+               return url;
+            }
+         }
+      }
+      return null;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.net.URLClassLoader#findResources(java.lang.String)
+    */
+   @Override
+   public Enumeration<URL> findResources(final String name) throws IOException
+   {
+      final List<URL> urls = new ArrayList<URL>(1);
+      for (final ArchiveRoots archive : archives)
+      {
+         for (final Root root : archive.getRoots())
+         {
+            final URL url = root.getResource(name);
+            if (url != null)
+            {
+               urls.add(url);
+            }
+         }
+      }
+      return Collections.enumeration(urls);
+   }
+
+   /**
+    * Closes all streams opened upon resources of this ClassLoader and not yet closed
+    * @see java.io.Closeable#close()
+    */
+   public void close() throws IOException
+   {
+      final List<InputStream> streams;
+      synchronized (openedStreams)
+      {
+         streams = new ArrayList<InputStream>(openedStreams.keySet());
+         openedStreams.clear();
+      }
+      for (final InputStream stream : streams)
+      {
+         try
+         {
+            stream.close();
+         }
+         catch (final Exception e)
+         {
+            log.warning("Could not close opened inputstream: " + e);
+         }
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Defines the named class from the bytes of the specified {@link Asset}
+    */
+   private Class<?> defineClass(final String name, final Asset asset, final CodeSource codeSource)
+         throws ClassNotFoundException
+   {
+      definePackageOf(name);
+
+      final long size = asset instanceof DescribableAsset ? ((DescribableAsset) asset).getSize() : -1;
+      byte[] buffer = buffers.get();
+      if (size > buffer.length)
+      {
+         buffer = new byte[(int) size];
+      }
+      int length = 0;
+      final InputStream in = asset.openStream();
       try
       {
-         addURL(new URL(null, "archive:" + archive.getName() + "/", new URLStreamHandler()
+         int read;
+         while ((read = in.read(buffer, length, buffer.length - length)) != -1)
          {
-            @Override
-            protected URLConnection openConnection(final URL u) throws IOException
+            length += read;
+            if (length == buffer.length)
             {
-               return new URLConnection(u)
+               // Only grow if there's more, so content of the size known fits exactly
+               final int next = in.read();
+               if (next == -1)
                {
-                  @Override
-                  public void connect() throws IOException
-                  {
-                  }
-
-                  @Override
-                  public InputStream getInputStream() throws IOException
-                  {
-                     synchronized (this)
-                     {
-                        InputStream input = openedStreams.get(u);
-                        if (input == null)
-                        {
-                           ArchivePath path = convertToArchivePath(u);
-                           input = archive.get(path).getAsset().openStream();
-                           openedStreams.put(u, input);
-                        }
-                        return input;
-                     }
-                  }
-
-                  private ArchivePath convertToArchivePath(URL url)
-                  {
-                     String path = url.getPath();
-                     path = path.replace(archive.getName(), "");
-
-                     return ArchivePaths.create(path);
-                  }
-               };
+                  break;
+               }
+               final byte[] larger = new byte[buffer.length * 2];
+               System.arraycopy(buffer, 0, larger, 0, length);
+               buffer = larger;
+               buffer[length++] = (byte) next;
             }
-         }));
+         }
+      }
+      catch (final IOException ioe)
+      {
+         throw new ClassNotFoundException("Could not read class " + name, ioe);
       }
-      catch (Exception e)
+      finally
       {
-         throw new RuntimeException("Could not create URL for archive: " + archive.getName(), e);
+         try
+         {
+            in.close();
+         }
+         catch (final IOException ignore)
+         {
+         }
       }
+      if (buffer.length <= MAX_POOLED_BUFFER_SIZE)
+      {
+         buffers.set(buffer);
+      }
+      // The bytes are copied, so the buffer may be reused
+      return defineClass(name, buffer, 0, length, codeSource);
    }
 
-   public void close() throws IOException
+   /**
+    * Defines the package of the named class, if not yet defined
+    */
+   private void definePackageOf(final String className)
+   {
+      final int lastDot = className.lastIndexOf('.');
+      if (lastDot == -1)
+      {
+         return;
+      }
+      final String packageName = className.substring(0, lastDot);
+      if (getDefinedPackageOf(packageName) != null)
+      {
+         return;
+      }
+      try
+      {
+         definePackage(packageName, null, null, null, null, null, null, null);
+      }
+      catch (final IllegalArgumentException iae)
+      {
+         // Defined concurrently
+      }
+   }
+
+   /**
+    * Obtains the named package if defined by this ClassLoader (or, before Java 9, 
+    * any of its ancestors; as definePackage(...) also checks them there)
+    */
+   @SuppressWarnings("deprecation")
+   private Package getDefinedPackageOf(final String packageName)
+   {
+      if (getDefinedPackage != null)
+      {
+         try
+         {
+            return (Package) getDefinedPackage.invoke(this, packageName);
+         }
+         catch (final Exception e)
+         {
+            log.log(Level.FINEST, "Could not obtain defined package " + packageName, e);
+         }
+      }
+      // Deprecated from Java 9 only, where getDefinedPackage(String) is used instead
+      return getPackage(packageName);
+   }
+
+   /**
+    * Obtains the {@link Archive} the specified {@link Asset} represents, if any.  The
+    * implementations of such {@link Asset}s are not part of the API, so they are
+    * recognized by a public <code>getArchive()</code> method.
+    */
+   private static Archive<?> getNestedArchive(final Asset asset)
    {
-      synchronized (this)
+      try
       {
-         for (InputStream stream : openedStreams.values())
+         final Method method = asset.getClass().getMethod("getArchive");
+         if (!Archive.class.isAssignableFrom(method.getReturnType()))
          {
-            try
+            return null;
+         }
+         return (Archive<?>) method.invoke(asset);
+      }
+      catch (final NoSuchMethodException nsme)
+      {
+         return null;
+      }
+      catch (final Exception e)
+      {
+         log.log(Level.WARNING, "Could not obtain the archive of " + asset, e);
+         return null;
+      }
+   }
+
+   /**
+    * Reads the content of the specified {@link Asset} fully
+    */
+   private static byte[] read(final Asset asset) throws IOException
+   {
+      final long size = asset instanceof DescribableAsset ? ((DescribableAsset) asset).getSize() : -1;
+      final ByteArrayOutputStream out = new ByteArrayOutputStream(size > 0 ? (int) size : 8192);
+      final InputStream in = asset.openStream();
+      try
+      {
+         final byte[] buffer = new byte[8192];
+         int read;
+         while ((read = in.read(buffer)) != -1)
+         {
+            out.write(buffer, 0, read);
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return out.toByteArray();
+   }
+
+   /**
+    * Opens a new stream upon the specified {@link Asset}, tracked until closed
+    */
+   private InputStream openStream(final Asset asset)
+   {
+      final InputStream[] tracked = new InputStream[1];
+      final InputStream in = new FilterInputStream(asset.openStream())
+      {
+         @Override
+         public void close() throws IOException
+         {
+            synchronized (openedStreams)
             {
-               stream.close();
+               openedStreams.remove(tracked[0]);
             }
-            catch (Exception e)
+            super.close();
+         }
+      };
+      tracked[0] = in;
+      synchronized (openedStreams)
+      {
+         openedStreams.put(in, Boolean.TRUE);
+      }
+      return in;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Class path roots of a single {@link Archive}; those of the libraries of a web 
+    * archive are listed again whenever the children of <code>WEB-INF/lib</code> change, 
+    * so libraries added later are seen
+    */
+   private final class ArchiveRoots
+   {
+      private final Archive<?> archive;
+
+      private final String urlPrefix;
+
+      /**
+       * Path of the libraries, or null if not a web archive
+       */
+      private final ArchivePath libraryPath;
+
+      /**
+       * Roots other than those of libraries: the content and, of a web archive, 
+       * <code>WEB-INF/classes</code>
+       */
+      private final List<Root> archiveRoots;
+
+      /**
+       * Roots last listed, along with the children of <code>WEB-INF/lib</code> they were 
+       * listed from; null until first listed
+       */
+      private volatile Listing listing;
+
+      /**
+       * Root of each library {@link Asset} seen, or null if not a library.  Guarded by itself.
+       */
+      private final Map<Asset, Root> libraries = new IdentityHashMap<Asset, Root>();
+
+      ArchiveRoots(final Archive<?> archive)
+      {
+         this.archive = archive;
+         this.urlPrefix = "/" + archive.getName() + "/";
+         final Root content = new ArchiveRoot(urlPrefix, archive, "");
+         if (archive instanceof WebArchive || archive.getName().endsWith(EXTENSION_WAR))
+         {
+            this.libraryPath = ArchivePaths.create(PATH_WEB_LIBRARIES);
+            this.archiveRoots = Collections.unmodifiableList(Arrays.<Root> asList(content, new ArchiveRoot(
+                  urlPrefix + PATH_WEB_CLASSES, archive, PATH_WEB_CLASSES)));
+         }
+         else
+         {
+            this.libraryPath = null;
+            this.archiveRoots = Collections.singletonList(content);
+         }
+      }
+
+      /**
+       * Obtains the roots of the {@link Archive} as it is now, in the order they are searched
+       */
+      List<Root> getRoots()
+      {
+         if (libraryPath == null)
+         {
+            return archiveRoots;
+         }
+         final Node lib = archive.get(libraryPath);
+         final Set<Node> children = lib == null ? Collections.<Node> emptySet() : lib.getChildren();
+
+         // Nodes share one copy of their children until changed
+         final Listing current = listing;
+         if (current != null && current.children == children)
+         {
+            return current.roots;
+         }
+         final Listing listed = new Listing(children, this.listRoots(children));
+         listing = listed;
+         return listed.roots;
+      }
+
+      /**
+       * Lists the roots of the {@link Archive}, with those of the specified children 
+       * of <code>WEB-INF/lib</code> in order of name
+       */
+      private List<Root> listRoots(final Set<Node> children)
+      {
+         final List<Root> roots = new ArrayList<Root>(archiveRoots);
+         if (children.isEmpty())
+         {
+            return Collections.unmodifiableList(roots);
+         }
+         final Map<String, Node> byName = new TreeMap<String, Node>();
+         for (final Node child : children)
+         {
+            byName.put(child.getPath().get(), child);
+         }
+         for (final Map.Entry<String, Node> child : byName.entrySet())
+         {
+            final Asset asset = child.getValue().getAsset();
+            if (asset == null)
+            {
+               continue;
+            }
+            final Root library;
+            synchronized (libraries)
+            {
+               if (libraries.containsKey(asset))
+               {
+                  library = libraries.get(asset);
+               }
+               else
+               {
+                  library = createLibrary(child.getKey().substring(1), asset);
+                  libraries.put(asset, library);
+               }
+            }
+            if (library != null)
             {
-               log.warning("Could not close opened inputstream: " + e);
+               roots.add(library);
             }
          }
-         openedStreams.clear();
+         return Collections.unmodifiableList(roots);
+      }
+
+      /**
+       * Creates the root of the named library, or null if the {@link Asset} is not a library
+       */
+      private Root createLibrary(final String name, final Asset asset)
+      {
+         final String libraryUrlPrefix = urlPrefix + name + "/";
+         final Archive<?> nested = getNestedArchive(asset);
+         if (nested != null)
+         {
+            return new ArchiveRoot(libraryUrlPrefix, nested, "");
+         }
+         if (name.endsWith(EXTENSION_JAR))
+         {
+            return new JarRoot(libraryUrlPrefix, asset);
+         }
+         return null;
+      }
+   }
+
+   /**
+    * Class path roots of an {@link Archive}, and the children of <code>WEB-INF/lib</code>
+    * they were listed from
+    */
+   private static final class Listing
+   {
+      private final Set<Node> children;
+
+      private final List<Root> roots;
+
+      Listing(final Set<Node> children, final List<Root> roots)
+      {
+         this.children = children;
+         this.roots = roots;
+      }
+   }
+
+   /**
+    * A class path root, finding resources by name (ie. org/jboss/Test.class) and
+    * serving their URLs
+    */
+   private abstract class Root extends URLStreamHandler
+   {
+      private final String urlPrefix;
+
+      /**
+       * Created upon first use; a race creates equal instances
+       */
+      private volatile CodeSource codeSource;
+
+      Root(final String urlPrefix)
+      {
+         this.urlPrefix = urlPrefix;
+      }
+
+      /**
+       * Obtains the {@link Asset} of the named resource, or null if there is none
+       */
+      abstract Asset getAsset(String resourceName);
+
+      /**
+       * Obtains the {@link CodeSource} of the classes defined from this root
+       */
+      CodeSource getCodeSource()
+      {
+         CodeSource codeSource = this.codeSource;
+         if (codeSource == null)
+         {
+            codeSource = new CodeSource(this.createUrl(""), (Certificate[]) null);
+            this.codeSource = codeSource;
+         }
+         return codeSource;
+      }
+
+      URL getResource(String resourceName)
+      {
+         if (resourceName.startsWith("/"))
+         {
+            resourceName = resourceName.substring(1);
+         }
+         if (getAsset(resourceName) == null)
+         {
+            return null;
+         }
+         return this.createUrl(resourceName);
+      }
+
+      private URL createUrl(final String resourceName)
+      {
+         try
+         {
+            return new URL(PROTOCOL, null, -1, urlPrefix + resourceName, this);
+         }
+         catch (final MalformedURLException mue)
+         {
+            throw new RuntimeException("Could not create URL for " + resourceName + " in " + urlPrefix, mue);
+         }
+      }
+
+      @Override
+      protected URLConnection openConnection(final URL u) throws IOException
+      {
+         final String path = u.getPath();
+         final Asset asset = path.startsWith(urlPrefix) ? getAsset(path.substring(urlPrefix.length())) : null;
+         if (asset == null)
+         {
+            throw new IOException("No resource " + path);
+         }
+         return new URLConnection(u)
+         {
+            @Override
+            public void connect() throws IOException
+            {
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException
+            {
+               return openStream(asset);
+            }
+         };
+      }
+   }
+
+   /**
+    * Root at a path within an {@link Archive}, looked up upon each request
+    */
+   private final class ArchiveRoot extends Root
+   {
+      private final Archive<?> archive;
+
+      private final String path;
+
+      ArchiveRoot(final String urlPrefix, final Archive<?> archive, final String path)
+      {
+         super(urlPrefix);
+         this.archive = archive;
+         this.path = path;
+      }
+
+      @Override
+      Asset getAsset(final String resourceName)
+      {
+         if (resourceName.length() == 0)
+         {
+            return null;
+         }
+         final Node node = archive.get(ArchivePaths.create(path + resourceName));
+         return node == null ? null : node.getAsset();
+      }
+   }
+
+   /**
+    * Root of a library held as JAR content, indexed by resource name, and by the 
+    * packages (ie. org/jboss) holding them, upon first lookup
+    */
+   private final class JarRoot extends Root
+   {
+      private final Asset library;
+
+      private final Map<String, Asset> resources = new HashMap<String, Asset>();
+
+      private final Set<String> packages = new HashSet<String>();
+
+      /**
+       * Whether the library has been indexed; written after the resources, such that
+       * reading it first makes them visible
+       */
+      private volatile boolean indexed;
+
+      JarRoot(final String urlPrefix, final Asset library)
+      {
+         super(urlPrefix);
+         this.library = library;
+      }
+
+      @Override
+      Asset getAsset(final String resourceName)
+      {
+         if (!indexed)
+         {
+            index();
+         }
+         final int lastSlash = resourceName.lastIndexOf('/');
+         if (!packages.contains(lastSlash == -1 ? "" : resourceName.substring(0, lastSlash)))
+         {
+            return null;
+         }
+         return resources.get(resourceName);
+      }
+
+      private synchronized void index()
+      {
+         if (indexed)
+         {
+            return;
+         }
+         try
+         {
+            for (final Map.Entry<String, Asset> entry : ZipContent.getEntries(read(library)).entrySet())
+            {
+               final String name = entry.getKey();
+               resources.put(name, entry.getValue());
+               final int lastSlash = name.lastIndexOf('/');
+               packages.add(lastSlash == -1 ? "" : name.substring(0, lastSlash));
+            }
+         }
+         catch (final IOException ioe)
+         {
+            resources.clear();
+            packages.clear();
+            log.log(Level.WARNING, "Could not index library " + library, ioe);
+         }
+         indexed = true;
       }
    }
-}
\ No newline at end of file
+}
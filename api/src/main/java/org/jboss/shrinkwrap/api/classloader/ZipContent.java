@@ -0,0 +1,363 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api.classloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+
+/**
+ * ZipContent
+ *
+ * Random-access view of the entries of a ZIP held in memory.  The central
+ * directory is read once; the content of an entry is only inflated when
+ * its {@link Asset} is opened.  ZIPs which cannot be read this way
+ * (ie. ZIP64) are read sequentially instead.  Names are decoded as UTF-8 if
+ * so flagged, else as CP437, as the ZIP format specifies.
+ *
+ * The implementation reads ZIP files with a parser of its own, but the API
+ * cannot depend on the implementation, hence this one; it need only handle
+ * libraries nested in an {@link org.jboss.shrinkwrap.api.Archive}.
+ *
+ * @version $Revision: $
+ */
+final class ZipContent
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final int SIGNATURE_END = 0x06054b50;
+
+   private static final int SIGNATURE_CENTRAL = 0x02014b50;
+
+   private static final int SIGNATURE_LOCAL = 0x04034b50;
+
+   private static final int LENGTH_END = 22;
+
+   private static final int LENGTH_CENTRAL = 46;
+
+   private static final int LENGTH_LOCAL = 30;
+
+   private static final int MAX_COMMENT_LENGTH = 0xffff;
+
+   private static final long ZIP64_MARKER = 0xffffffffL;
+
+   /**
+    * General purpose flag denoting the name is encoded as UTF-8
+    */
+   private static final int FLAG_UTF8 = 0x0800;
+
+   private static final String ENCODING_UTF8 = "UTF-8";
+
+   private static final String ENCODING_CP437 = "IBM437";
+
+   /**
+    * Characters of the bytes 0x80 to 0xFF in CP437, for JVMs which don't support it
+    */
+   private static final String CP437_HIGH =
+         "\u00c7\u00fc\u00e9\u00e2\u00e4\u00e0\u00e5\u00e7\u00ea\u00eb\u00e8\u00ef\u00ee\u00ec\u00c4\u00c5"
+         + "\u00c9\u00e6\u00c6\u00f4\u00f6\u00f2\u00fb\u00f9\u00ff\u00d6\u00dc\u00a2\u00a3\u00a5\u20a7\u0192"
+         + "\u00e1\u00ed\u00f3\u00fa\u00f1\u00d1\u00aa\u00ba\u00bf\u2310\u00ac\u00bd\u00bc\u00a1\u00ab\u00bb"
+         + "\u2591\u2592\u2593\u2502\u2524\u2561\u2562\u2556\u2555\u2563\u2551\u2557\u255d\u255c\u255b\u2510"
+         + "\u2514\u2534\u252c\u251c\u2500\u253c\u255e\u255f\u255a\u2554\u2569\u2566\u2560\u2550\u256c\u2567"
+         + "\u2568\u2564\u2565\u2559\u2558\u2552\u2553\u256b\u256a\u2518\u250c\u2588\u2584\u258c\u2590\u2580"
+         + "\u03b1\u00df\u0393\u03c0\u03a3\u03c3\u00b5\u03c4\u03a6\u0398\u03a9\u03b4\u221e\u03c6\u03b5\u2229"
+         + "\u2261\u00b1\u2265\u2264\u2320\u2321\u00f7\u2248\u00b0\u2219\u00b7\u221a\u207f\u00b2\u25a0\u00a0";
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * No instantiation
+    */
+   private ZipContent()
+   {
+      throw new UnsupportedOperationException("No instantiation");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the files of the specified ZIP by name (ie. org/jboss/Test.class),
+    * in the order of the ZIP
+    *
+    * @param zip
+    * @return
+    * @throws IOException If the ZIP could not be read
+    */
+   static Map<String, Asset> getEntries(final byte[] zip) throws IOException
+   {
+      final Map<String, Asset> entries = readCentralDirectory(zip);
+      return entries != null ? entries : readSequentially(zip);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reads the entries from the central directory, or returns null if it could not be located
+    */
+   private static Map<String, Asset> readCentralDirectory(final byte[] zip) throws IOException
+   {
+      int end = -1;
+      for (int i = zip.length - LENGTH_END; i >= 0 && i >= zip.length - LENGTH_END - MAX_COMMENT_LENGTH; i--)
+      {
+         if (readInt(zip, i) == SIGNATURE_END)
+         {
+            end = i;
+            break;
+         }
+      }
+      if (end == -1)
+      {
+         return null;
+      }
+      final int count = readShort(zip, end + 10);
+      final long offset = readInt(zip, end + 16) & ZIP64_MARKER;
+      if (count == 0xffff || offset == ZIP64_MARKER || offset > end)
+      {
+         return null;
+      }
+
+      final Map<String, Asset> entries = new LinkedHashMap<String, Asset>(count * 4 / 3 + 1);
+      int position = (int) offset;
+      for (int i = 0; i < count; i++)
+      {
+         if (position + LENGTH_CENTRAL > end || readInt(zip, position) != SIGNATURE_CENTRAL)
+         {
+            return null;
+         }
+         final int flags = readShort(zip, position + 8);
+         final int method = readShort(zip, position + 10);
+         final long crc = readInt(zip, position + 16) & ZIP64_MARKER;
+         final long compressedSize = readInt(zip, position + 20) & ZIP64_MARKER;
+         final long size = readInt(zip, position + 24) & ZIP64_MARKER;
+         final int nameLength = readShort(zip, position + 28);
+         final int extraLength = readShort(zip, position + 30);
+         final int commentLength = readShort(zip, position + 32);
+         final long localOffset = readInt(zip, position + 42) & ZIP64_MARKER;
+         final String name = decodeName(zip, position + LENGTH_CENTRAL, nameLength, (flags & FLAG_UTF8) != 0);
+         position += LENGTH_CENTRAL + nameLength + extraLength + commentLength;
+
+         if (compressedSize == ZIP64_MARKER || size == ZIP64_MARKER || localOffset == ZIP64_MARKER)
+         {
+            return null;
+         }
+         if (name.endsWith("/"))
+         {
+            continue;
+         }
+         if (localOffset + LENGTH_LOCAL > zip.length || readInt(zip, (int) localOffset) != SIGNATURE_LOCAL)
+         {
+            throw new IOException("No local header for " + name + " at " + localOffset);
+         }
+         final int dataOffset = (int) localOffset + LENGTH_LOCAL + readShort(zip, (int) localOffset + 26)
+               + readShort(zip, (int) localOffset + 28);
+         if (dataOffset + compressedSize > zip.length)
+         {
+            throw new IOException("Content of " + name + " exceeds the ZIP");
+         }
+         if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+         {
+            throw new IOException("Unsupported compression method " + method + " of " + name);
+         }
+         entries.put(name, new EntryAsset(zip, dataOffset, (int) compressedSize, size, method == ZipEntry.DEFLATED,
+               crc));
+      }
+      return entries;
+   }
+
+   /**
+    * Decodes the name at the specified position, as UTF-8 or else CP437
+    */
+   private static String decodeName(final byte[] zip, final int offset, final int length, final boolean utf8)
+         throws IOException
+   {
+      if (utf8)
+      {
+         return new String(zip, offset, length, ENCODING_UTF8);
+      }
+      final char[] chars = new char[length];
+      for (int i = 0; i < length; i++)
+      {
+         final int b = zip[offset + i] & 0xff;
+         if (b >= 0x80)
+         {
+            // Not ASCII
+            return Charset.isSupported(ENCODING_CP437) ? new String(zip, offset, length, ENCODING_CP437)
+                  : decodeCp437(zip, offset, length);
+         }
+         chars[i] = (char) b;
+      }
+      return new String(chars);
+   }
+
+   /**
+    * Decodes CP437 where the JVM does not support it
+    */
+   private static String decodeCp437(final byte[] zip, final int offset, final int length)
+   {
+      final char[] chars = new char[length];
+      for (int i = 0; i < length; i++)
+      {
+         final int b = zip[offset + i] & 0xff;
+         chars[i] = b < 0x80 ? (char) b : CP437_HIGH.charAt(b - 0x80);
+      }
+      return new String(chars);
+   }
+
+   /**
+    * Reads the entries by inflating the whole ZIP
+    */
+   private static Map<String, Asset> readSequentially(final byte[] zip) throws IOException
+   {
+      final Map<String, Asset> entries = new LinkedHashMap<String, Asset>();
+      final ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip));
+      try
+      {
+         final byte[] buffer = new byte[8192];
+         ZipEntry entry;
+         while ((entry = in.getNextEntry()) != null)
+         {
+            if (entry.isDirectory())
+            {
+               continue;
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int read;
+            while ((read = in.read(buffer)) != -1)
+            {
+               out.write(buffer, 0, read);
+            }
+            final byte[] content = out.toByteArray();
+            entries.put(entry.getName(), new EntryAsset(content, 0, content.length, content.length, false,
+                  entry.getCrc()));
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return entries;
+   }
+
+   private static int readShort(final byte[] b, final int offset)
+   {
+      return (b[offset] & 0xff) | ((b[offset + 1] & 0xff) << 8);
+   }
+
+   private static int readInt(final byte[] b, final int offset)
+   {
+      return readShort(b, offset) | (readShort(b, offset + 2) << 16);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * A file within the ZIP, inflated as it is read
+    */
+   private static final class EntryAsset implements DescribableAsset
+   {
+      private final byte[] zip;
+
+      private final int offset;
+
+      private final int length;
+
+      private final long size;
+
+      private final boolean deflated;
+
+      private final long crc;
+
+      EntryAsset(final byte[] zip, final int offset, final int length, final long size, final boolean deflated,
+            final long crc)
+      {
+         this.zip = zip;
+         this.offset = offset;
+         this.length = length;
+         this.size = size;
+         this.deflated = deflated;
+         this.crc = crc;
+      }
+
+      public InputStream openStream()
+      {
+         final InputStream raw = new ByteArrayInputStream(zip, offset, length);
+         if (!deflated)
+         {
+            return raw;
+         }
+         // The Inflater may need a dummy byte past the end of raw content
+         return new InflaterInputStream(new SequenceInputStream(raw, new ByteArrayInputStream(new byte[1])),
+               new Inflater(true))
+         {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException
+            {
+               if (!closed)
+               {
+                  closed = true;
+                  inf.end();
+               }
+               super.close();
+            }
+         };
+      }
+
+      public long getSize()
+      {
+         return size;
+      }
+
+      public long getLastModified()
+      {
+         return UNKNOWN;
+      }
+
+      public boolean isCompressed()
+      {
+         return false;
+      }
+
+      public long getCrc32()
+      {
+         return crc;
+      }
+   }
+}
@@ -0,0 +1,317 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api.exporter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Filter;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+
+/**
+ * Policy deciding how each entry is compressed when exporting as ZIP 
+ * (see {@link ZipExporter}): deflated at a given level, or 
+ * stored without compression.  Set for all archives of a domain via
+ * {@link ConfigurationBuilder#zipCompression(ZipCompression)}.
+ * 
+ * Rules for specific paths or extensions are consulted in the order they were 
+ * added, the first match deciding; failing that, {@link Asset}s describing their 
+ * content as already compressed (see {@link DescribableAsset#isCompressed()}) are 
+ * stored if so configured, else the default level applies.  Instances are 
+ * immutable; each method adding to the policy returns a new instance.
+ * 
+ * <pre>
+ * // Defaults, plus nested libraries stored
+ * ZipCompression.deflate().forExtensions(ZipCompression.STORED, "jar", "war");
+ * 
+ * // Defaults, plus anything already compressed stored
+ * ZipCompression.deflate().storeCompressedAssets(true);
+ * 
+ * // Fast local deploy: nothing compressed
+ * ZipCompression.store();
+ * </pre>
+ *
+ * @version $Revision: $
+ */
+public final class ZipCompression
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Level denoting entries are stored without compression
+    */
+   public static final int STORED = -2;
+
+   /**
+    * Level denoting the default trade-off of speed against size (as
+    * {@link java.util.zip.Deflater#DEFAULT_COMPRESSION})
+    */
+   public static final int DEFAULT_LEVEL = -1;
+
+   /**
+    * Lowest deflate level, for the fastest compression
+    */
+   public static final int BEST_SPEED = 1;
+
+   /**
+    * Highest deflate level, for the smallest output
+    */
+   public static final int BEST_COMPRESSION = 9;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Level applied when no rule matches
+    */
+   private final int level;
+
+   /**
+    * Whether {@link Asset}s describing their content as compressed are stored
+    */
+   private final boolean storeCompressedAssets;
+
+   /**
+    * Rules, in the order they're consulted
+    */
+   private final List<Rule> rules;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ZipCompression(final int level, final boolean storeCompressedAssets, final List<Rule> rules)
+   {
+      this.level = level;
+      this.storeCompressedAssets = storeCompressedAssets;
+      this.rules = rules;
+   }
+
+   /**
+    * Creates the default policy: all entries are deflated at {@link ZipCompression#DEFAULT_LEVEL}
+    * 
+    * @return
+    */
+   public static ZipCompression deflate()
+   {
+      return deflate(DEFAULT_LEVEL);
+   }
+
+   /**
+    * Creates a policy under which all entries are deflated at the specified level
+    * 
+    * @param level From {@link ZipCompression#BEST_SPEED} to {@link ZipCompression#BEST_COMPRESSION}, 
+    * 0 to deflate without compressing, or {@link ZipCompression#DEFAULT_LEVEL}
+    * @return
+    * @throws IllegalArgumentException If the level is not valid
+    */
+   public static ZipCompression deflate(final int level) throws IllegalArgumentException
+   {
+      if (level == STORED)
+      {
+         throw new IllegalArgumentException("Use " + ZipCompression.class.getSimpleName() + ".store() to store entries");
+      }
+      return new ZipCompression(validate(level), false, Collections.<Rule> emptyList());
+   }
+
+   /**
+    * Creates a policy under which all entries are stored without compression.  Exports
+    * are as fast as they may be, at the expense of size; suited to deploying to a local
+    * container.
+    * 
+    * @return
+    */
+   public static ZipCompression store()
+   {
+      return new ZipCompression(STORED, true, Collections.<Rule> emptyList());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Returns a policy as this one, additionally applying the specified level 
+    * to entries with any of the specified extensions (case-insensitive)
+    * 
+    * @param level
+    * @param extensions Extensions, without the leading "."
+    * @return
+    * @throws IllegalArgumentException If the level is not valid or no extensions are specified
+    */
+   public ZipCompression forExtensions(final int level, final String... extensions) throws IllegalArgumentException
+   {
+      if (extensions == null || extensions.length == 0)
+      {
+         throw new IllegalArgumentException("extensions must be specified");
+      }
+      final Set<String> normalized = new HashSet<String>();
+      for (final String extension : extensions)
+      {
+         if (extension == null)
+         {
+            throw new IllegalArgumentException("extensions must not be null");
+         }
+         normalized.add(extension.toLowerCase(Locale.ENGLISH));
+      }
+      return this.with(new Rule(validate(level), normalized, null));
+   }
+
+   /**
+    * Returns a policy as this one, additionally applying the specified level 
+    * to entries whose paths are included by the specified {@link Filter}
+    * 
+    * @param level
+    * @param filter
+    * @return
+    * @throws IllegalArgumentException If the level is not valid or the filter is not specified
+    */
+   public ZipCompression forPaths(final int level, final Filter<ArchivePath> filter)
+         throws IllegalArgumentException
+   {
+      if (filter == null)
+      {
+         throw new IllegalArgumentException("filter must be specified");
+      }
+      return this.with(new Rule(validate(level), null, filter));
+   }
+
+   /**
+    * Returns a policy as this one, storing {@link Asset}s which describe their 
+    * content as already compressed (when no rule matches) if specified.  Saves
+    * the time spent deflating such content again, for little or no gain in size.
+    * 
+    * @param store
+    * @return
+    */
+   public ZipCompression storeCompressedAssets(final boolean store)
+   {
+      return new ZipCompression(level, store, rules);
+   }
+
+   /**
+    * Obtains the level at which the specified {@link Asset} is to be
+    * compressed under the specified path; either {@link ZipCompression#STORED},
+    * or a deflate level
+    * 
+    * @param path
+    * @param asset
+    * @return
+    */
+   public int getLevel(final ArchivePath path, final Asset asset)
+   {
+      if (!rules.isEmpty())
+      {
+         final String extension = extensionOf(path.get());
+         for (final Rule rule : rules)
+         {
+            if (rule.matches(path, extension))
+            {
+               return rule.level;
+            }
+         }
+      }
+      if (storeCompressedAssets && asset instanceof DescribableAsset && ((DescribableAsset) asset).isCompressed())
+      {
+         return STORED;
+      }
+      return level;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString()
+   {
+      return ZipCompression.class.getSimpleName() + " [level=" + level + ", storeCompressedAssets="
+            + storeCompressedAssets + ", rules=" + rules.size() + "]";
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ZipCompression with(final Rule rule)
+   {
+      final List<Rule> rules = new ArrayList<Rule>(this.rules);
+      rules.add(rule);
+      return new ZipCompression(level, storeCompressedAssets, Collections.unmodifiableList(rules));
+   }
+
+   private static int validate(final int level) throws IllegalArgumentException
+   {
+      if (level < STORED || level > BEST_COMPRESSION)
+      {
+         throw new IllegalArgumentException("Invalid compression level: " + level);
+      }
+      return level;
+   }
+
+   private static String extensionOf(final String path)
+   {
+      final int dot = path.lastIndexOf('.');
+      if (dot == -1 || path.indexOf('/', dot) != -1)
+      {
+         return null;
+      }
+      return path.substring(dot + 1).toLowerCase(Locale.ENGLISH);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Level applied to paths matching either a set of extensions or a {@link Filter}
+    */
+   private static final class Rule
+   {
+      final int level;
+
+      final Set<String> extensions;
+
+      final Filter<ArchivePath> filter;
+
+      Rule(final int level, final Set<String> extensions, final Filter<ArchivePath> filter)
+      {
+         this.level = level;
+         this.extensions = extensions;
+         this.filter = filter;
+      }
+
+      boolean matches(final ArchivePath path, final String extension)
+      {
+         if (extensions != null)
+         {
+            return extension != null && extensions.contains(extension);
+         }
+         return filter.include(path);
+      }
+   }
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test Cases for the {@link CachedConstructor}
+ *
+ * @version $Revision: $
+ */
+public class CachedConstructorTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that instances are created using the constructor matching the argument types
+    */
+   @Test
+   public void shouldCreateNewInstances()
+   {
+      final CachedConstructor<CharSequence> constructor = new CachedConstructor<CharSequence>(
+            "java.lang.StringBuilder", CharSequence.class, String.class);
+      final CharSequence first = constructor.newInstance("first");
+      final CharSequence second = constructor.newInstance("second");
+      Assert.assertEquals("first", first.toString());
+      Assert.assertEquals("second", second.toString());
+      Assert.assertNotSame("Each call should create a new instance", first, constructor.newInstance("first"));
+   }
+
+   /**
+    * Ensures that the class is looked up again if the Thread Context ClassLoader changes
+    */
+   @Test
+   public void shouldResolveUnderNewThreadContextClassLoader()
+   {
+      final CachedConstructor<CharSequence> constructor = new CachedConstructor<CharSequence>(
+            "java.lang.StringBuilder", CharSequence.class, String.class);
+      Assert.assertEquals("value", constructor.newInstance("value").toString());
+
+      final Thread thread = Thread.currentThread();
+      final ClassLoader oldLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader(new ClassLoader(oldLoader)
+      {
+      });
+      try
+      {
+         Assert.assertEquals("value", constructor.newInstance("value").toString());
+      }
+      finally
+      {
+         thread.setContextClassLoader(oldLoader);
+      }
+   }
+
+   /**
+    * Ensures that a ClassLoader from which the constructor was looked up may 
+    * be collected while the handle remains in use
+    * @throws Exception
+    */
+   @Test
+   public void shouldNotPreventCollectionOfClassLoader() throws Exception
+   {
+      final CachedConstructor<Object> constructor = new CachedConstructor<Object>(Instance.class.getName(),
+            Object.class);
+      final WeakReference<ClassLoader> loader = createInstanceUnderNewClassLoader(constructor);
+      for (int i = 0; i < 20 && loader.get() != null; i++)
+      {
+         System.gc();
+         Thread.sleep(10);
+      }
+      Assert.assertNull("ClassLoader should be collected", loader.get());
+      Assert.assertSame("Handle should be usable under the original ClassLoader", Instance.class, constructor
+            .newInstance().getClass());
+   }
+
+   /**
+    * Ensures that a missing class is reported upon use
+    */
+   @Test(expected = RuntimeException.class)
+   public void shouldReportMissingClass()
+   {
+      new CachedConstructor<Object>("org.jboss.shrinkwrap.api.NoSuchClass", Object.class).newInstance();
+   }
+
+   /**
+    * Ensures that an instance of the wrong type is reported upon use
+    */
+   @Test(expected = ClassCastException.class)
+   public void shouldReportIncorrectExpectedType()
+   {
+      new CachedConstructor<Number>("java.lang.StringBuilder", Number.class).newInstance();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates an instance using the specified handle under a new ClassLoader, 
+    * defining {@link Instance} again, returning that ClassLoader
+    */
+   private static WeakReference<ClassLoader> createInstanceUnderNewClassLoader(
+         final CachedConstructor<Object> constructor) throws Exception
+   {
+      final URLClassLoader loader = new URLClassLoader(new URL[]
+      {Instance.class.getProtectionDomain().getCodeSource().getLocation()}, null);
+      final Thread thread = Thread.currentThread();
+      final ClassLoader oldLoader = thread.getContextClassLoader();
+      thread.setContextClassLoader(loader);
+      try
+      {
+         Assert.assertSame("Instance should be of the class defined by the new ClassLoader", loader, constructor
+               .newInstance().getClass().getClassLoader());
+      }
+      finally
+      {
+         thread.setContextClassLoader(oldLoader);
+      }
+      return new WeakReference<ClassLoader>(loader);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Class to be defined by more than one ClassLoader
+    */
+   public static class Instance
+   {
+   }
+}
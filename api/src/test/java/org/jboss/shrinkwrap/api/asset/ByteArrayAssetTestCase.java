@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 import junit.framework.Assert;
 
@@ -97,4 +98,23 @@ public class ByteArrayAssetTestCase
       }
 
    }
+
+   /**
+    * Ensures that the asset describes its content as contracted by {@link DescribableAsset}
+    */
+   @Test
+   public void testDescribesContent() throws Exception
+   {
+      final ByteArrayAsset asset = new ByteArrayAsset(new byte[]
+      {1, 2, 3});
+
+      Assert.assertEquals("Size should be that of the content", 3, asset.getSize());
+      Assert.assertEquals("Last modified time should be unknown", DescribableAsset.UNKNOWN, asset.getLastModified());
+      Assert.assertFalse("Content should not be compressed", asset.isCompressed());
+      final CRC32 crc = new CRC32();
+      crc.update(new byte[]
+      {1, 2, 3});
+      Assert.assertEquals("CRC-32 should be that of the content", crc.getValue(), asset.getCrc32());
+      Assert.assertEquals("CRC-32 should be the same when cached", crc.getValue(), asset.getCrc32());
+   }
 }
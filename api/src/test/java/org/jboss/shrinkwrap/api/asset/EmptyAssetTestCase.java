@@ -19,6 +19,7 @@ package org.jboss.shrinkwrap.api.asset;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 import junit.framework.Assert;
 
@@ -73,4 +74,18 @@ public class EmptyAssetTestCase
 
       Assert.assertEquals("Roundtrip did not produce empty contents", 0, out.toByteArray().length);
    }
+
+   /**
+    * Ensures that the asset describes its content as contracted by {@link DescribableAsset}
+    */
+   @Test
+   public void testDescribesContent() throws Exception
+   {
+      Assert.assertEquals("Size should be zero", 0, EmptyAsset.INSTANCE.getSize());
+      Assert.assertEquals("Last modified time should be unknown", DescribableAsset.UNKNOWN, EmptyAsset.INSTANCE
+            .getLastModified());
+      Assert.assertFalse("Content should not be compressed", EmptyAsset.INSTANCE.isCompressed());
+      Assert.assertEquals("CRC-32 should be that of no content", new CRC32().getValue(), EmptyAsset.INSTANCE
+            .getCrc32());
+   }
 }
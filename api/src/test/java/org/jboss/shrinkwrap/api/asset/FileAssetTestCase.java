@@ -17,6 +17,7 @@
 package org.jboss.shrinkwrap.api.asset;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 
 import junit.framework.Assert;
@@ -79,4 +80,28 @@ public class FileAssetTestCase
                IllegalArgumentException.class, e.getClass());
       }
    }
+
+   @Test
+   public void shouldDescribeFile() throws Exception
+   {
+      final File file = File.createTempFile("shouldDescribeFile", ".jar");
+      try
+      {
+         final FileOutputStream out = new FileOutputStream(file);
+         out.write(new byte[]
+         {1, 2, 3, 4});
+         out.close();
+         file.setLastModified(1000000000000L);
+
+         final FileAsset asset = new FileAsset(file);
+         Assert.assertEquals("Size should be that of the file", 4, asset.getSize());
+         Assert.assertEquals("Last modified time should be that of the file", file.lastModified(), asset
+               .getLastModified());
+         Assert.assertTrue("A JAR should be considered compressed", asset.isCompressed());
+      }
+      finally
+      {
+         file.delete();
+      }
+   }
 }
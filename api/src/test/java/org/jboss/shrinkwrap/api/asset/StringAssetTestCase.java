@@ -19,6 +19,7 @@ package org.jboss.shrinkwrap.api.asset;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 
 import junit.framework.Assert;
 
@@ -75,4 +76,21 @@ public class StringAssetTestCase
 
       Assert.assertEquals("Roundtrip did not equal passed in contents", contents, roundtrip);
    }
+
+   /**
+    * Ensures that the asset describes its content as contracted by {@link DescribableAsset}
+    */
+   @Test
+   public void testDescribesContent() throws Exception
+   {
+      final String contents = "Content with a non-ASCII character: \u00e9";
+      final StringAsset asset = new StringAsset(contents);
+
+      Assert.assertEquals("Size should be that of the content as read", contents.getBytes().length, asset.getSize());
+      Assert.assertEquals("Last modified time should be unknown", DescribableAsset.UNKNOWN, asset.getLastModified());
+      Assert.assertFalse("Content should not be compressed", asset.isCompressed());
+      final CRC32 crc = new CRC32();
+      crc.update(contents.getBytes());
+      Assert.assertEquals("CRC-32 should be that of the content as read", crc.getValue(), asset.getCrc32());
+   }
 }
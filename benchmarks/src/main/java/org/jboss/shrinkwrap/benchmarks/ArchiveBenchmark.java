@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures adding to, and looking up within, the in-memory content 
+ * of an archive (MemoryMapArchiveBase) as it grows from a thousand 
+ * to a million entries
+ *
+ * @version $Revision: $
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ArchiveBenchmark
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Added to step through entries in an order unrelated to insertion
+    */
+   private static final int STRIDE = 7919;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries in the archive
+    */
+   @Param(
+   {"1000", "10000", "100000", "1000000"})
+   public int entries;
+
+   /**
+    * Paths of all entries, in insertion order
+    */
+   private ArchivePath[] paths;
+
+   /**
+    * Paths of the same shape as those in the archive, but absent from it
+    */
+   private ArchivePath[] absent;
+
+   /**
+    * Archive holding all {@link ArchiveBenchmark#paths}
+    */
+   private GenericArchive archive;
+
+   /**
+    * Index of the next entry to look up
+    */
+   private int cursor;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Setup
+   public void createArchive()
+   {
+      paths = new ArchivePath[entries];
+      absent = new ArchivePath[entries];
+      for (int i = 0; i < entries; i++)
+      {
+         paths[i] = BenchmarkContent.entryPath(i);
+         absent[i] = ArchivePaths.create(paths[i].getParent(), "absent" + i + ".txt");
+      }
+      archive = this.fill(ShrinkWrap.create(GenericArchive.class, "lookup.jar"));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Benchmarks -------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Adds all entries to a new archive
+    */
+   @Benchmark
+   @BenchmarkMode(Mode.SingleShotTime)
+   @OutputTimeUnit(TimeUnit.MILLISECONDS)
+   @Warmup(iterations = 3, batchSize = 1)
+   @Measurement(iterations = 10, batchSize = 1)
+   public GenericArchive add()
+   {
+      return this.fill(ShrinkWrap.create(GenericArchive.class, "lookup.jar"));
+   }
+
+   /**
+    * Obtains a single entry which is present
+    */
+   @Benchmark
+   @BenchmarkMode(Mode.AverageTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   public Node get()
+   {
+      return archive.get(paths[this.next()]);
+   }
+
+   /**
+    * Checks for a single entry which is present
+    */
+   @Benchmark
+   @BenchmarkMode(Mode.AverageTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   public boolean containsPresent()
+   {
+      return archive.contains(paths[this.next()]);
+   }
+
+   /**
+    * Checks for a single entry which is absent
+    */
+   @Benchmark
+   @BenchmarkMode(Mode.AverageTime)
+   @OutputTimeUnit(TimeUnit.NANOSECONDS)
+   public boolean containsAbsent()
+   {
+      return archive.contains(absent[this.next()]);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private GenericArchive fill(final GenericArchive target)
+   {
+      final Asset asset = EmptyAsset.INSTANCE;
+      for (final ArchivePath path : paths)
+      {
+         target.add(asset, path);
+      }
+      return target;
+   }
+
+   private int next()
+   {
+      cursor = (cursor + STRIDE) % entries;
+      return cursor;
+   }
+}
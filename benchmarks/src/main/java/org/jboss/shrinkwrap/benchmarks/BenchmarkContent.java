@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+
+/**
+ * Creates the content upon which benchmarks operate: 
+ * deterministic, compressible bytes and archives of them, 
+ * plus the temporary directories in which they're written.
+ *
+ * @version $Revision: $
+ */
+final class BenchmarkContent
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of directories across which entries are spread
+    */
+   private static final int DIRECTORIES = 100;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * No instantiation
+    */
+   private BenchmarkContent()
+   {
+      throw new UnsupportedOperationException("No instances permitted");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates compressible content of the specified length; the same 
+    * seed always yields the same content
+    * @param length
+    * @param seed
+    * @return
+    */
+   static byte[] createContent(final int length, final long seed)
+   {
+      final Random random = new Random(seed);
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         // Mostly text-like, so it compresses about as well as typical resources
+         content[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : 'a' + random.nextInt(16));
+      }
+      return content;
+   }
+
+   /**
+    * Obtains the path of the entry of the specified index; entries 
+    * are spread across {@link BenchmarkContent#DIRECTORIES} directories
+    * @param index
+    * @return
+    */
+   static ArchivePath entryPath(final int index)
+   {
+      return ArchivePaths.create("dir" + (index % DIRECTORIES), "entry" + index + ".txt");
+   }
+
+   /**
+    * Creates an archive of the specified number of entries, each of the specified size
+    * @param name
+    * @param entries
+    * @param entrySize
+    * @return
+    */
+   static JavaArchive createArchive(final String name, final int entries, final int entrySize)
+   {
+      final JavaArchive archive = ShrinkWrap.create(JavaArchive.class, name);
+      for (int i = 0; i < entries; i++)
+      {
+         archive.add(new ByteArrayAsset(createContent(entrySize, i)), entryPath(i));
+      }
+      return archive;
+   }
+
+   /**
+    * Creates a new, empty temporary directory
+    * @param prefix
+    * @return
+    * @throws IOException If the directory could not be created
+    */
+   static File createTempDirectory(final String prefix) throws IOException
+   {
+      final File file = File.createTempFile(prefix, null);
+      if (!file.delete() || !file.mkdir())
+      {
+         throw new IOException("Could not create temporary directory " + file);
+      }
+      return file;
+   }
+
+   /**
+    * Deletes the specified file, and if a directory, all it contains
+    * @param file
+    */
+   static void delete(final File file)
+   {
+      if (file == null)
+      {
+         return;
+      }
+      final File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (final File child : children)
+         {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+}
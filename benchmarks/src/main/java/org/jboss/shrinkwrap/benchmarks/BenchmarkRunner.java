@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks JAR.  Accepts the standard JMH 
+ * command line, but unless told otherwise writes results as JSON 
+ * to {@link BenchmarkRunner#DEFAULT_RESULT} so that runs from 
+ * different releases may be compared.
+ *
+ * @version $Revision: $
+ */
+public final class BenchmarkRunner
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * File to which results are written if none is specified
+    */
+   public static final String DEFAULT_RESULT = "shrinkwrap-benchmarks.json";
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * No instantiation
+    */
+   private BenchmarkRunner()
+   {
+      throw new UnsupportedOperationException("No instances permitted");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Runs the benchmarks selected by the specified JMH arguments (all by default)
+    * @param args
+    * @throws Exception
+    */
+   public static void main(final String[] args) throws Exception
+   {
+      final CommandLineOptions options = new CommandLineOptions(args);
+      if (options.shouldHelp())
+      {
+         options.showHelp();
+         return;
+      }
+
+      final ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+      if (!options.getResultFormat().hasValue())
+      {
+         builder.resultFormat(ResultFormatType.JSON);
+      }
+      if (!options.getResult().hasValue())
+      {
+         builder.result(DEFAULT_RESULT);
+      }
+      final Runner runner = new Runner(builder.build());
+      if (options.shouldList())
+      {
+         runner.list();
+         return;
+      }
+      runner.run();
+   }
+}
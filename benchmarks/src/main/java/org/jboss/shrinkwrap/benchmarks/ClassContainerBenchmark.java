@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures adding classes and packages (ClassContainer) from a 
+ * {@link SyntheticClasspath}, which the container scans via the 
+ * Thread Context ClassLoader
+ *
+ * @version $Revision: $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClassContainerBenchmark
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of packages in the classpath
+    */
+   @Param(
+   {"10", "100"})
+   public int packages;
+
+   /**
+    * Number of top-level classes in each package
+    */
+   @Param(
+   {"50"})
+   public int classesPerPackage;
+
+   private SyntheticClasspath classpath;
+
+   private Class<?>[] classes;
+
+   private Package[] packageArray;
+
+   private Package rootPackage;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Setup
+   public void createClasspath() throws Exception
+   {
+      classpath = SyntheticClasspath.create(packages, classesPerPackage);
+      classes = classpath.loadClasses();
+      packageArray = classpath.getPackages();
+      rootPackage = classpath.getRootPackage();
+   }
+
+   @TearDown
+   public void destroyClasspath()
+   {
+      classpath.destroy();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Benchmarks -------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Adds every top-level class (and so its inner classes)
+    */
+   @Benchmark
+   public JavaArchive addClasses()
+   {
+      final ClassLoader previous = this.swapTccl(classpath.getClassLoader());
+      try
+      {
+         return ShrinkWrap.create(JavaArchive.class).addClasses(classes);
+      }
+      finally
+      {
+         this.swapTccl(previous);
+      }
+   }
+
+   /**
+    * Adds every package, non-recursively
+    */
+   @Benchmark
+   public JavaArchive addPackages()
+   {
+      final ClassLoader previous = this.swapTccl(classpath.getClassLoader());
+      try
+      {
+         return ShrinkWrap.create(JavaArchive.class).addPackages(false, packageArray);
+      }
+      finally
+      {
+         this.swapTccl(previous);
+      }
+   }
+
+   /**
+    * Adds the root package recursively
+    */
+   @Benchmark
+   public JavaArchive addPackagesRecursive()
+   {
+      final ClassLoader previous = this.swapTccl(classpath.getClassLoader());
+      try
+      {
+         return ShrinkWrap.create(JavaArchive.class).addPackages(true, rootPackage);
+      }
+      finally
+      {
+         this.swapTccl(previous);
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ClassLoader swapTccl(final ClassLoader cl)
+   {
+      final Thread thread = Thread.currentThread();
+      final ClassLoader previous = thread.getContextClassLoader();
+      thread.setContextClassLoader(cl);
+      return previous;
+   }
+}
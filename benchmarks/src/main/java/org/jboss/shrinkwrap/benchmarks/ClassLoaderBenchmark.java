@@ -0,0 +1,133 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.classloader.ShrinkWrapClassLoader;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading every class of an archive built from a 
+ * {@link SyntheticClasspath} through a new {@link ShrinkWrapClassLoader}
+ *
+ * @version $Revision: $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ClassLoaderBenchmark
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of packages in the archive
+    */
+   @Param(
+   {"10", "100"})
+   public int packages;
+
+   /**
+    * Number of top-level classes in each package
+    */
+   @Param(
+   {"50"})
+   public int classesPerPackage;
+
+   private SyntheticClasspath classpath;
+
+   private List<String> classNames;
+
+   private JavaArchive archive;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Setup
+   public void createArchive() throws Exception
+   {
+      classpath = SyntheticClasspath.create(packages, classesPerPackage);
+      classNames = classpath.getClassNames();
+
+      final Thread thread = Thread.currentThread();
+      final ClassLoader previous = thread.getContextClassLoader();
+      thread.setContextClassLoader(classpath.getClassLoader());
+      try
+      {
+         archive = ShrinkWrap.create(JavaArchive.class).addPackages(true, classpath.getRootPackage());
+      }
+      finally
+      {
+         thread.setContextClassLoader(previous);
+      }
+   }
+
+   @TearDown
+   public void destroyClasspath()
+   {
+      classpath.destroy();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Benchmarks -------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Loads and links every top-level class from the archive; the parent 
+    * can't see the synthetic classes, so all are defined from archive content
+    */
+   @Benchmark
+   public int loadAllClasses() throws ClassNotFoundException, IOException
+   {
+      final ShrinkWrapClassLoader cl = new ShrinkWrapClassLoader(ClassLoaderBenchmark.class.getClassLoader(),
+            archive);
+      try
+      {
+         int loaded = 0;
+         for (final String name : classNames)
+         {
+            loaded += Class.forName(name, true, cl).getName().length();
+         }
+         return loaded;
+      }
+      finally
+      {
+         cl.close();
+      }
+   }
+}
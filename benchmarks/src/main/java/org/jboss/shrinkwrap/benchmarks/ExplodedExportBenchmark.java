@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link ExplodedExporter}.  Each invocation writes into 
+ * a new directory (created outside the measurement); all are removed 
+ * after each iteration.
+ *
+ * @version $Revision: $
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExplodedExportBenchmark
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries in the archive
+    */
+   @Param(
+   {"1000"})
+   public int entries;
+
+   /**
+    * Size of each entry, in bytes
+    */
+   @Param(
+   {"1024", "65536"})
+   public int entrySize;
+
+   private JavaArchive archive;
+
+   /**
+    * Directory beneath which each iteration writes
+    */
+   private File root;
+
+   /**
+    * Directory into which the next invocation writes
+    */
+   private File target;
+
+   private int invocation;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Setup
+   public void createArchive()
+   {
+      archive = BenchmarkContent.createArchive("exploded.jar", entries, entrySize);
+   }
+
+   @Setup(Level.Iteration)
+   public void createRoot() throws Exception
+   {
+      root = BenchmarkContent.createTempDirectory("exploded-export");
+   }
+
+   @Setup(Level.Invocation)
+   public void createTarget()
+   {
+      target = new File(root, String.valueOf(invocation++));
+      if (!target.mkdir())
+      {
+         throw new IllegalStateException("Could not create " + target);
+      }
+   }
+
+   @TearDown(Level.Iteration)
+   public void deleteRoot()
+   {
+      BenchmarkContent.delete(root);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Benchmarks -------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Writes every entry of the archive as a file
+    */
+   @Benchmark
+   public File exportExploded()
+   {
+      return archive.as(ExplodedExporter.class).exportExploded(target);
+   }
+}
@@ -0,0 +1,187 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
+import org.jboss.shrinkwrap.api.exporter.TarExporter;
+import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.importer.ExplodedImporter;
+import org.jboss.shrinkwrap.api.importer.TarGzImporter;
+import org.jboss.shrinkwrap.api.importer.TarImporter;
+import org.jboss.shrinkwrap.api.importer.ZipImporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the importers, each reading the same content from files 
+ * written once up front: ZIP via both a stream and {@link ZipFile}, 
+ * TAR, TAR.GZ, and an exploded directory
+ *
+ * @version $Revision: $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ImportBenchmark
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries in the archive
+    */
+   @Param(
+   {"1000"})
+   public int entries;
+
+   /**
+    * Size of each entry, in bytes
+    */
+   @Param(
+   {"1024", "65536"})
+   public int entrySize;
+
+   private File directory;
+
+   private File zip;
+
+   private File tar;
+
+   private File tarGz;
+
+   private File exploded;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Setup
+   public void writeArchives() throws Exception
+   {
+      final JavaArchive archive = BenchmarkContent.createArchive("import.jar", entries, entrySize);
+      directory = BenchmarkContent.createTempDirectory("import");
+      zip = new File(directory, "import.jar");
+      archive.as(ZipExporter.class).exportTo(zip);
+      tar = new File(directory, "import.tar");
+      archive.as(TarExporter.class).exportTo(tar);
+      tarGz = new File(directory, "import.tar.gz");
+      archive.as(TarGzExporter.class).exportTo(tarGz);
+      final File explodedParent = new File(directory, "exploded");
+      if (!explodedParent.mkdir())
+      {
+         throw new IllegalStateException("Could not create " + explodedParent);
+      }
+      exploded = archive.as(ExplodedExporter.class).exportExploded(explodedParent);
+   }
+
+   @TearDown
+   public void deleteArchives()
+   {
+      BenchmarkContent.delete(directory);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Benchmarks -------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Imports a ZIP read sequentially from a stream
+    */
+   @Benchmark
+   public JavaArchive zipFromStream() throws IOException
+   {
+      final InputStream in = new BufferedInputStream(new FileInputStream(zip));
+      try
+      {
+         return ShrinkWrap.create(ZipImporter.class, "import.jar").importFrom(in).as(JavaArchive.class);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Imports a ZIP by way of its central directory
+    */
+   @Benchmark
+   public JavaArchive zipFromZipFile() throws IOException
+   {
+      final ZipFile file = new ZipFile(zip);
+      try
+      {
+         return ShrinkWrap.create(ZipImporter.class, "import.jar").importFrom(file).as(JavaArchive.class);
+      }
+      finally
+      {
+         file.close();
+      }
+   }
+
+   /**
+    * Imports a TAR
+    */
+   @Benchmark
+   public JavaArchive tar()
+   {
+      return ShrinkWrap.create(TarImporter.class, "import.tar").importFrom(tar).as(JavaArchive.class);
+   }
+
+   /**
+    * Imports a TAR.GZ
+    */
+   @Benchmark
+   public JavaArchive tarGz()
+   {
+      return ShrinkWrap.create(TarGzImporter.class, "import.tar.gz").importFrom(tarGz).as(JavaArchive.class);
+   }
+
+   /**
+    * Imports an exploded directory
+    */
+   @Benchmark
+   public JavaArchive exploded()
+   {
+      return ShrinkWrap.create(ExplodedImporter.class, "import.jar").importDirectory(exploded).as(
+            JavaArchive.class);
+   }
+}
@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.api.exporter.TarExporter;
+import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of the {@link StreamExporter}s, writing 
+ * to a target which discards all it's given so only encoding is measured
+ *
+ * @version $Revision: $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StreamExportBenchmark
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Format to export: "zip", "tar" or "tar.gz"
+    */
+   @Param(
+   {"zip", "tar", "tar.gz"})
+   public String format;
+
+   /**
+    * Number of entries in the archive
+    */
+   @Param(
+   {"1000"})
+   public int entries;
+
+   /**
+    * Size of each entry, in bytes
+    */
+   @Param(
+   {"1024", "65536"})
+   public int entrySize;
+
+   private JavaArchive archive;
+
+   private Class<? extends StreamExporter> exporter;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Setup
+   public void createArchive()
+   {
+      archive = BenchmarkContent.createArchive("export.jar", entries, entrySize);
+      exporter = exporterFor(format);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Benchmarks -------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Exports the whole archive, returning the number of bytes written
+    */
+   @Benchmark
+   public long export()
+   {
+      final CountingOutputStream out = new CountingOutputStream();
+      archive.as(exporter).exportTo(out);
+      return out.count;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the exporter type for the specified format name
+    */
+   static Class<? extends StreamExporter> exporterFor(final String format)
+   {
+      if ("zip".equals(format))
+      {
+         return ZipExporter.class;
+      }
+      if ("tar".equals(format))
+      {
+         return TarExporter.class;
+      }
+      if ("tar.gz".equals(format))
+      {
+         return TarGzExporter.class;
+      }
+      throw new IllegalArgumentException("Unknown format: " + format);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Discards all content, counting its length
+    */
+   private static final class CountingOutputStream extends OutputStream
+   {
+      long count;
+
+      @Override
+      public void write(final int b)
+      {
+         count++;
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len)
+      {
+         count += len;
+      }
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * A classpath of generated classes, compiled into a temporary directory.
+ * Each of a number of packages (all beneath {@link SyntheticClasspath#ROOT_PACKAGE})
+ * holds a number of top-level classes, each with a static and a non-static
+ * inner class, so scanning sees the same shape as real application code.
+ * Requires a JDK, as the system Java compiler is used.
+ *
+ * @version $Revision: $
+ */
+final class SyntheticClasspath
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Package containing all generated packages
+    */
+   static final String ROOT_PACKAGE = "org.jboss.shrinkwrap.benchmarks.synthetic";
+
+   /**
+    * Name of the single class generated directly in {@link SyntheticClasspath#ROOT_PACKAGE}
+    */
+   private static final String ROOT_CLASS = "Root";
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Directory holding the compiled classes
+    */
+   private final File directory;
+
+   /**
+    * Loads the generated classes
+    */
+   private final URLClassLoader classLoader;
+
+   /**
+    * Fully-qualified names of the top-level classes
+    */
+   private final List<String> classNames;
+
+   /**
+    * Number of packages generated
+    */
+   private final int packages;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private SyntheticClasspath(final File directory, final List<String> classNames, final int packages)
+         throws IOException
+   {
+      this.directory = directory;
+      this.classNames = classNames;
+      this.packages = packages;
+      this.classLoader = new URLClassLoader(new URL[]
+      {directory.toURI().toURL()}, SyntheticClasspath.class.getClassLoader());
+   }
+
+   /**
+    * Generates and compiles a classpath of the specified number of packages, 
+    * each of the specified number of classes
+    * @param packages
+    * @param classesPerPackage
+    * @return
+    * @throws IOException If the classes could not be written
+    * @throws IllegalStateException If no Java compiler is available, or compilation fails
+    */
+   static SyntheticClasspath create(final int packages, final int classesPerPackage) throws IOException,
+         IllegalStateException
+   {
+      final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      if (compiler == null)
+      {
+         throw new IllegalStateException("Synthetic classpaths must be compiled; run the benchmarks upon a JDK");
+      }
+
+      final File directory = BenchmarkContent.createTempDirectory("synthetic-classpath");
+      final List<String> sources = new ArrayList<String>();
+      final List<String> classNames = new ArrayList<String>();
+
+      sources.add(writeClass(directory, ROOT_PACKAGE, ROOT_CLASS));
+      classNames.add(ROOT_PACKAGE + "." + ROOT_CLASS);
+      for (int p = 0; p < packages; p++)
+      {
+         final String packageName = ROOT_PACKAGE + ".p" + p;
+         for (int c = 0; c < classesPerPackage; c++)
+         {
+            final String simpleName = "Class" + c;
+            sources.add(writeClass(directory, packageName, simpleName));
+            classNames.add(packageName + "." + simpleName);
+         }
+      }
+
+      final List<String> arguments = new ArrayList<String>();
+      arguments.add("-nowarn");
+      arguments.add("-d");
+      arguments.add(directory.getAbsolutePath());
+      arguments.addAll(sources);
+      if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0)
+      {
+         BenchmarkContent.delete(directory);
+         throw new IllegalStateException("Could not compile synthetic classpath");
+      }
+
+      return new SyntheticClasspath(directory, classNames, packages);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the {@link ClassLoader} which sees the generated classes
+    * @return
+    */
+   ClassLoader getClassLoader()
+   {
+      return classLoader;
+   }
+
+   /**
+    * Obtains the fully-qualified names of all top-level classes
+    * @return
+    */
+   List<String> getClassNames()
+   {
+      return classNames;
+   }
+
+   /**
+    * Loads all top-level classes
+    * @return
+    */
+   Class<?>[] loadClasses()
+   {
+      final Class<?>[] classes = new Class<?>[classNames.size()];
+      for (int i = 0; i < classes.length; i++)
+      {
+         classes[i] = this.loadClass(classNames.get(i));
+      }
+      return classes;
+   }
+
+   /**
+    * Obtains the root package, beneath which all others lie
+    * @return
+    */
+   Package getRootPackage()
+   {
+      return this.loadClass(ROOT_PACKAGE + "." + ROOT_CLASS).getPackage();
+   }
+
+   /**
+    * Obtains each generated package other than the root
+    * @return
+    */
+   Package[] getPackages()
+   {
+      final Package[] result = new Package[packages];
+      for (int p = 0; p < packages; p++)
+      {
+         result[p] = this.loadClass(ROOT_PACKAGE + ".p" + p + ".Class0").getPackage();
+      }
+      return result;
+   }
+
+   /**
+    * Releases the {@link ClassLoader} and removes the compiled classes
+    */
+   void destroy()
+   {
+      try
+      {
+         classLoader.close();
+      }
+      catch (final IOException ignore)
+      {
+         // Only stops us removing the directory on some platforms
+      }
+      BenchmarkContent.delete(directory);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private Class<?> loadClass(final String name)
+   {
+      try
+      {
+         return Class.forName(name, false, classLoader);
+      }
+      catch (final ClassNotFoundException cnfe)
+      {
+         throw new IllegalStateException("Generated class not found: " + name, cnfe);
+      }
+   }
+
+   /**
+    * Writes the source of a class with two inner classes, returning its path
+    */
+   private static String writeClass(final File root, final String packageName, final String simpleName)
+         throws IOException
+   {
+      final File packageDirectory = new File(root, packageName.replace('.', File.separatorChar));
+      if (!packageDirectory.isDirectory() && !packageDirectory.mkdirs())
+      {
+         throw new IOException("Could not create " + packageDirectory);
+      }
+      final File source = new File(packageDirectory, simpleName + ".java");
+      final Writer writer = new OutputStreamWriter(new FileOutputStream(source), "UTF-8");
+      try
+      {
+         writer.write("package " + packageName + ";\n\n");
+         writer.write("public class " + simpleName + "\n{\n");
+         writer.write("   private final Inner inner = new Inner();\n\n");
+         writer.write("   public int value()\n   {\n      return inner.value() + Nested.VALUE;\n   }\n\n");
+         writer.write("   public static class Nested\n   {\n      static final int VALUE = "
+               + simpleName.hashCode() + ";\n   }\n\n");
+         writer.write("   class Inner\n   {\n      int value()\n      {\n         return "
+               + packageName.hashCode() + ";\n      }\n   }\n}\n");
+      }
+      finally
+      {
+         writer.close();
+      }
+      return source.getAbsolutePath();
+   }
+}
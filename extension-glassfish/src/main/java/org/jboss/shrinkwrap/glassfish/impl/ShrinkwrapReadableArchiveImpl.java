@@ -32,7 +32,9 @@ import org.glassfish.api.deployment.archive.ReadableArchive;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
 import org.jboss.shrinkwrap.glassfish.api.ShrinkwrapReadableArchive;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
 import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
@@ -103,6 +105,17 @@ public class ShrinkwrapReadableArchiveImpl extends AssignableBase<Archive<?>> im
    @Override
    public long getEntrySize(String path)
    {
+      // Use the size if the asset can report it without being read
+      final Node node = this.getArchive().get(ArchivePaths.create(path));
+      if (node != null && node.getAsset() instanceof DescribableAsset)
+      {
+         final long size = ((DescribableAsset) node.getAsset()).getSize();
+         if (size != DescribableAsset.UNKNOWN)
+         {
+            return size;
+         }
+      }
+
       // Per API, signal that we don't know by using 0. 
       return 0;
    }
@@ -197,14 +210,11 @@ public class ShrinkwrapReadableArchiveImpl extends AssignableBase<Archive<?>> im
    {
       List<String> entries = new ArrayList<String>();
 
-      for (Entry<ArchivePath, Node> entry : this.getArchive().getContent().entrySet())
+      for (Entry<ArchivePath, Node> entry : this.getArchive().getContent(Filters.includePrefix(path)).entrySet())
       {
-         if (entry.getKey().get().startsWith(path))
+         if (entry.getValue().getAsset() != null) 
          {
-            if (entry.getValue().getAsset() != null) 
-            {
-               entries.add(entry.getKey().get());
-            }
+            entries.add(entry.getKey().get());
          }
       }
       return Collections.enumeration(entries);
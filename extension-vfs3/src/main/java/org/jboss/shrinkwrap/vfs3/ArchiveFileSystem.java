@@ -30,6 +30,7 @@ import java.util.Set;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
 import org.jboss.vfs.TempDir;
 import org.jboss.vfs.VFSUtils;
 import org.jboss.vfs.VirtualFile;
@@ -179,6 +180,15 @@ public class ArchiveFileSystem implements FileSystem
       {
          return cachedFile.lastModified();
       }
+      final Asset asset = node.getAsset();
+      if (asset instanceof DescribableAsset)
+      {
+         final long lastModified = ((DescribableAsset) asset).getLastModified();
+         if (lastModified != DescribableAsset.UNKNOWN)
+         {
+            return lastModified;
+         }
+      }
       return creationTime;
    }
 
@@ -191,7 +201,17 @@ public class ArchiveFileSystem implements FileSystem
       {
          return cachedFile.length();
       }
-      else if (node.getAsset() != null)
+      final Asset asset = node.getAsset();
+      if (asset instanceof DescribableAsset)
+      {
+         // Avoid materializing the asset if it can tell us
+         final long size = ((DescribableAsset) asset).getSize();
+         if (size != DescribableAsset.UNKNOWN)
+         {
+            return size;
+         }
+      }
+      if (asset != null)
       {
          // This sucks, but is the only way to get at it.
          try
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.api.asset;
+
+/**
+ * FileAssetDelegator
+ * 
+ * Class that helps expose package private members of {@link FileAsset}, 
+ * so that imported entries are judged by the same list of extensions
+ *
+ * @version $Revision: $
+ */
+public class FileAssetDelegator
+{
+   /**
+    * Delegates to {@link FileAsset#isCompressedFormat(String)}
+    * @param name
+    * @throws IllegalArgumentException If the name is not specified
+    * @return whether the named file or resource is in a compressed format
+    */
+   public static boolean isCompressedFormat(final String name) throws IllegalArgumentException
+   {
+      return FileAsset.isCompressedFormat(name);
+   }
+
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,6 +29,7 @@ import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.Assignable;
 import org.jboss.shrinkwrap.api.Configuration;
+import org.jboss.shrinkwrap.api.ExtensionLoader;
 import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.Node;
@@ -77,6 +79,11 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
     */
    private final Configuration configuration;
 
+   /**
+    * Views of this archive already obtained via {@link ArchiveBase#as(Class)}, by type
+    */
+   private final Map<Class<?>, View> views = new ConcurrentHashMap<Class<?>, View>();
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -362,7 +369,23 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
    {
       Validate.notNull(clazz, "Class must be specified");
 
-      return this.configuration.getExtensionLoader().load(clazz, this);
+      // Views only wrap this archive, so one of each type will do for as long as the 
+      // loader would create the same; only a ServiceExtensionLoader tells us when an 
+      // override may change that, so views from any other are created each time
+      final ExtensionLoader loader = this.configuration.getExtensionLoader();
+      if (!(loader instanceof ServiceExtensionLoader))
+      {
+         return loader.load(clazz, this);
+      }
+      final int overrides = ((ServiceExtensionLoader) loader).getOverrideCount();
+      final View view = views.get(clazz);
+      if (view != null && view.overrides == overrides)
+      {
+         return clazz.cast(view.view);
+      }
+      final TYPE created = loader.load(clazz, this);
+      views.put(clazz, new View(created, overrides));
+      return created;
    }
 
    /**
@@ -494,4 +517,25 @@ public abstract class ArchiveBase<T extends Archive<T>> implements Archive<T>, C
          throw cce;
       }
    }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * A view of this archive, along with the number of overrides its 
+    * {@link ServiceExtensionLoader} had when it was loaded
+    */
+   private static final class View
+   {
+      private final Assignable view;
+
+      private final int overrides;
+
+      View(final Assignable view, final int overrides)
+      {
+         this.view = view;
+         this.overrides = overrides;
+      }
+   }
 }
@@ -0,0 +1,202 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * ExtensionRegistry
+ *
+ * Precomputed view of the extension mappings otherwise found under
+ * <code>META-INF/services</code>, read from the {@link #REGISTRY_LOCATION}
+ * files written at build time by {@link ExtensionRegistryGenerator}.  All registry
+ * files visible to a {@link ClassLoader} are read once and shared by every
+ * {@link ServiceExtensionLoader} using that loader, so resolving a registered
+ * extension type does not touch the classpath.  Extension types not present in
+ * any registry are left to the regular <code>META-INF/services</code> lookup.
+ * Thread-safe.
+ *
+ * @version $Revision: $
+ */
+final class ExtensionRegistry
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(ExtensionRegistry.class.getName());
+
+   /**
+    * Location of the generated registry within a JAR
+    */
+   static final String REGISTRY_LOCATION = "META-INF/shrinkwrap/extension-registry.properties";
+
+   /**
+    * Separator between the extension type name and the property name in a registry key,
+    * ie. <code>org.jboss.shrinkwrap.api.exporter.ZipExporter/implementingClassName</code>
+    */
+   static final char KEY_SEPARATOR = '/';
+
+   /**
+    * Registries already read, by the {@link ClassLoader} they were read from
+    */
+   private static final Map<ClassLoader, ExtensionRegistry> registries = new WeakHashMap<ClassLoader, ExtensionRegistry>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Extension properties, keyed by extension type name
+    */
+   private final Map<String, Map<String, String>> mappings;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ExtensionRegistry(final Map<String, Map<String, String>> mappings)
+   {
+      this.mappings = mappings;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the registry for the specified {@link ClassLoader}, reading all
+    * registry files visible to it on first request.
+    *
+    * @param classLoader
+    * @return The registry, empty if no registry files are present
+    * @throws IllegalArgumentException If the classLoader is not specified
+    */
+   static ExtensionRegistry forClassLoader(final ClassLoader classLoader)
+   {
+      if (classLoader == null)
+      {
+         throw new IllegalArgumentException("ClassLoader must be specified");
+      }
+      synchronized (registries)
+      {
+         ExtensionRegistry registry = registries.get(classLoader);
+         if (registry == null)
+         {
+            registry = new ExtensionRegistry(read(classLoader));
+            registries.put(classLoader, registry);
+         }
+         return registry;
+      }
+   }
+
+   /**
+    * Obtains the registered properties of the specified extension type
+    *
+    * @param extensionClassName
+    * @return The properties, or null if the type is not registered
+    */
+   Map<String, String> getMapping(final String extensionClassName)
+   {
+      return mappings.get(extensionClassName);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static Map<String, Map<String, String>> read(final ClassLoader classLoader)
+   {
+      final Enumeration<URL> urls;
+      try
+      {
+         urls = classLoader.getResources(REGISTRY_LOCATION);
+      }
+      catch (final IOException ioe)
+      {
+         log.warning("Could not look up " + REGISTRY_LOCATION + ", falling back to META-INF/services: " + ioe);
+         return Collections.emptyMap();
+      }
+
+      final Map<String, Map<String, String>> mappings = new HashMap<String, Map<String, String>>();
+      while (urls.hasMoreElements())
+      {
+         final URL url = urls.nextElement();
+         final Properties properties = new Properties();
+         try
+         {
+            final InputStream in = url.openStream();
+            try
+            {
+               properties.load(in);
+            }
+            finally
+            {
+               in.close();
+            }
+         }
+         catch (final IOException ioe)
+         {
+            throw new RuntimeException("Could not read extension registry " + url, ioe);
+         }
+
+         // Group this registry's keys by extension type; earlier registries take precedence
+         final Map<String, Map<String, String>> found = new HashMap<String, Map<String, String>>();
+         final Enumeration<Object> keys = properties.keys();
+         while (keys.hasMoreElements())
+         {
+            final String key = (String) keys.nextElement();
+            final int separator = key.lastIndexOf(KEY_SEPARATOR);
+            if (separator <= 0)
+            {
+               throw new RuntimeException("Malformed key " + key + " in extension registry " + url);
+            }
+            final String extensionClassName = key.substring(0, separator);
+            Map<String, String> mapping = found.get(extensionClassName);
+            if (mapping == null)
+            {
+               mapping = new HashMap<String, String>();
+               found.put(extensionClassName, mapping);
+            }
+            mapping.put(key.substring(separator + 1), properties.getProperty(key));
+         }
+         for (final Map.Entry<String, Map<String, String>> entry : found.entrySet())
+         {
+            if (mappings.containsKey(entry.getKey()))
+            {
+               log.warning("Multiple extension implementations found for " + entry.getKey()
+                     + ", please verify classpath or add a extensionOverride");
+               continue;
+            }
+            mappings.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+         }
+      }
+      return mappings;
+   }
+}
@@ -0,0 +1,240 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * ExtensionRegistryGenerator
+ *
+ * Build-time tool collecting the extension mappings of a module's
+ * <code>META-INF/services</code> directory into a single
+ * {@link ExtensionRegistry#REGISTRY_LOCATION} file, which the
+ * {@link ServiceExtensionLoader} consults before scanning the classpath.
+ * Only service files declaring an <code>implementingClassName</code> are
+ * included.  Entries are written sorted and without a timestamp, so the
+ * output is reproducible.  Run during the build only, and so excluded from 
+ * the module's JAR.
+ * <br/><br/>
+ * Usage: <code>ExtensionRegistryGenerator &lt;classesDirectory&gt;</code>
+ *
+ * @version $Revision: $
+ */
+public final class ExtensionRegistryGenerator
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Location of the service files, relative to the classes directory
+    */
+   private static final String SERVICES_LOCATION = "META-INF/services";
+
+   /**
+    * Encoding of properties files
+    */
+   private static final String ENCODING = "ISO-8859-1";
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * No instantiation
+    */
+   private ExtensionRegistryGenerator()
+   {
+      throw new UnsupportedOperationException("No instantiation");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Main -------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Generates the registry for the classes directory given as sole argument
+    *
+    * @param args
+    * @throws IOException
+    */
+   public static void main(final String[] args) throws IOException
+   {
+      if (args == null || args.length != 1)
+      {
+         throw new IllegalArgumentException("Usage: " + ExtensionRegistryGenerator.class.getSimpleName()
+               + " <classesDirectory>");
+      }
+      generate(new File(args[0]));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Writes the registry for the service files found in the specified classes directory.
+    * If there are no extension service files, no registry is written.
+    *
+    * @param classesDirectory
+    * @return The registry file written, or null if none was
+    * @throws IOException
+    * @throws IllegalArgumentException If the classes directory is not specified
+    */
+   public static File generate(final File classesDirectory) throws IOException
+   {
+      if (classesDirectory == null)
+      {
+         throw new IllegalArgumentException("Classes directory must be specified");
+      }
+
+      final SortedMap<String, String> entries = new TreeMap<String, String>();
+      final File[] serviceFiles = new File(classesDirectory, SERVICES_LOCATION).listFiles();
+      if (serviceFiles != null)
+      {
+         for (final File serviceFile : serviceFiles)
+         {
+            if (!serviceFile.isFile())
+            {
+               continue;
+            }
+            final Properties properties = load(serviceFile);
+            if (properties.getProperty("implementingClassName") == null)
+            {
+               // Not a ShrinkWrap extension mapping
+               continue;
+            }
+            final Enumeration<Object> keys = properties.keys();
+            while (keys.hasMoreElements())
+            {
+               final String key = (String) keys.nextElement();
+               entries.put(serviceFile.getName() + ExtensionRegistry.KEY_SEPARATOR + key, properties.getProperty(key));
+            }
+         }
+      }
+      if (entries.isEmpty())
+      {
+         return null;
+      }
+
+      final File registry = new File(classesDirectory, ExtensionRegistry.REGISTRY_LOCATION);
+      final File parent = registry.getParentFile();
+      if (!parent.isDirectory() && !parent.mkdirs())
+      {
+         throw new IOException("Could not create " + parent.getAbsolutePath());
+      }
+      final Writer writer = new OutputStreamWriter(new FileOutputStream(registry), ENCODING);
+      try
+      {
+         writer.write("# Generated by " + ExtensionRegistryGenerator.class.getName() + " from " + SERVICES_LOCATION
+               + "\n");
+         for (final Map.Entry<String, String> entry : entries.entrySet())
+         {
+            writer.write(escape(entry.getKey(), true));
+            writer.write('=');
+            writer.write(escape(entry.getValue(), false));
+            writer.write('\n');
+         }
+      }
+      finally
+      {
+         writer.close();
+      }
+      return registry;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static Properties load(final File file) throws IOException
+   {
+      final Properties properties = new Properties();
+      final InputStream in = new FileInputStream(file);
+      try
+      {
+         properties.load(in);
+      }
+      finally
+      {
+         in.close();
+      }
+      return properties;
+   }
+
+   /**
+    * Escapes the specified key or value as {@link Properties#load(InputStream)} expects it
+    */
+   private static String escape(final String value, final boolean key)
+   {
+      final StringBuilder sb = new StringBuilder(value.length());
+      for (int i = 0; i < value.length(); i++)
+      {
+         final char c = value.charAt(i);
+         switch (c)
+         {
+            case '\\' :
+            case '=' :
+            case ':' :
+            case '#' :
+            case '!' :
+               sb.append('\\').append(c);
+               break;
+            case ' ' :
+               if (key || i == 0)
+               {
+                  sb.append('\\');
+               }
+               sb.append(c);
+               break;
+            case '\t' :
+               sb.append("\\t");
+               break;
+            case '\n' :
+               sb.append("\\n");
+               break;
+            case '\r' :
+               sb.append("\\r");
+               break;
+            case '\f' :
+               sb.append("\\f");
+               break;
+            default :
+               if (c < 0x20 || c > 0x7e)
+               {
+                  sb.append(String.format("\\u%04x", (int) c));
+               }
+               else
+               {
+                  sb.append(c);
+               }
+         }
+      }
+      return sb.toString();
+   }
+}
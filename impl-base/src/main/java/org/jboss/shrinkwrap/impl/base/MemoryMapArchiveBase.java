@@ -16,10 +16,10 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -33,13 +33,24 @@ import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.impl.base.asset.ArchiveAsset;
+import org.jboss.shrinkwrap.impl.base.filter.PrefixedFilter;
+import org.jboss.shrinkwrap.impl.base.importer.zip.MappedZip;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
+import org.jboss.shrinkwrap.impl.base.path.PathInterner;
 import org.jboss.shrinkwrap.impl.base.path.PathUtil;
 
 /**
  * MemoryMapArchiveBase
  * 
  * A base implementation for all MemoryMap archives. Thread-safe.
+ * 
+ * Content is held both in a map, for lookup by path, and as a tree of {@link NodeImpl}s 
+ * keyed by path segment, so that subtrees (including those of a {@link PrefixedFilter}) 
+ * may be listed without looking at the rest of the archive.
+ * 
+ * An empty archive may be backed by a {@link MappedZip}, whose entries are only added 
+ * to the content when a path at or above them is first accessed.  From then on the 
+ * content is authoritative for them, so that they may be replaced or deleted as any other.
  *
  * @author <a href="mailto:baileyje@gmail.com">John Bailey</a>
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
@@ -59,10 +70,29 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    private final Map<ArchivePath, NodeImpl> content = new ConcurrentHashMap<ArchivePath, NodeImpl>();
 
    /**
-    * Storage for the {@link ArchiveAsset}s.  Used to help get access to nested archive content.
+    * Storage for the {@link ArchiveAsset}s, by the path at which each is mounted.  Used to help 
+    * get access to nested archive content; a path is resolved by looking up its ancestors.
     */
    private final Map<ArchivePath, ArchiveAsset> nestedArchives = new ConcurrentHashMap<ArchivePath, ArchiveAsset>();
 
+   /**
+    * Shares directory paths with other archives of the same {@link Configuration}; 
+    * null if disabled
+    */
+   private final PathInterner pathInterner;
+
+   /**
+    * ZIP whose entries are yet to be added to the content upon access; null if none, 
+    * or once all have been
+    */
+   private volatile MappedZip mappedZip;
+
+   /**
+    * Indexes of the entries of the {@link MemoryMapArchiveBase#mappedZip} added to 
+    * the content.  Guarded by itself.
+    */
+   private final BitSet materialized = new BitSet();
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -95,6 +125,9 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       super(archiveName, configuration);
 
+      // Share directory paths if configured to do so
+      this.pathInterner = configuration.isInternPaths() ? PathInterner.of(configuration) : null;
+
       // Add the root node to the content
       final ArchivePath rootPath = new BasicPath("/");
       content.put(rootPath, new NodeImpl(rootPath));
@@ -114,7 +147,23 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
       Validate.notNull(asset, "No asset was specified");
       Validate.notNull(path, "No path was specified");
 
+      // Whatever is mapped there is replaced
+      this.materialize(path);
+      this.putAsset(asset, path);
+
+      return covariantReturn();
+   }
+
+   /**
+    * Puts the specified {@link Asset} at the specified path, replacing whatever is there
+    * 
+    * @param asset
+    * @param path
+    */
+   private void putAsset(final Asset asset, ArchivePath path)
+   {
       // Retrieve the parent
+      path = this.intern(path);
       NodeImpl parentNode = obtainParent(path.getParent());
 
       // Check if a the path already contains a node so we remove it from the parent's children
@@ -124,6 +173,13 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
          parentNode.removeChild(existingNode);
       }
 
+      // Anything beneath a replaced directory or archive is no longer reachable
+      if (existingNode != null)
+      {
+         removeDescendants(existingNode);
+         nestedArchives.remove(path);
+      }
+
       // Add the node to the content of the archive
       NodeImpl node = new NodeImpl(path, asset);
       content.put(path, node);
@@ -133,8 +189,6 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
       {
          parentNode.addChild(node);
       }
-
-      return covariantReturn();
    }
    
    /**
@@ -188,7 +242,8 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
       Validate.notNull(path, "path must be specified");
 
       // Adjust the path to remove any trailing slash
-      ArchivePath adjustedPath = new BasicPath(PathUtil.optionallyRemoveFollowingSlash(path.get()));
+      ArchivePath adjustedPath = this.intern(new BasicPath(PathUtil.optionallyRemoveFollowingSlash(path.get())));
+      this.materialize(adjustedPath);
 
       // Check if it exists. If it doesn't, create it and add it. The same with all the
       // non-existing parents
@@ -217,7 +272,7 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       Validate.notNull(path, "No path was specified");
 
-      boolean found = content.containsKey(path);
+      boolean found = content.containsKey(path) || this.isMapped(path);
       if (!found)
       {
          found = nestedContains(path);
@@ -246,6 +301,7 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       Validate.notNull(path, "No path was specified");
 
+      this.materialize(path);
       NodeImpl node = content.get(path);
       if (node == null)
       {
@@ -258,6 +314,10 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
          parentNode.removeChild(node);
       }
 
+      // Deleting a directory deletes all it contains
+      removeDescendants(node);
+      nestedArchives.remove(path);
+
       return content.remove(path) != null;
    }
 
@@ -269,8 +329,9 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    public Node get(ArchivePath path)
    {
       Validate.notNull(path, "No path was specified");
+      this.materialize(path);
       Node node = content.get(path);
-      if (node == null && contains(path))
+      if (node == null)
       {
          node = getNestedNode(path);
       }
@@ -284,6 +345,7 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    @Override
    public Map<ArchivePath, Node> getContent()
    {
+      this.materialize(new BasicPath("/"));
       Map<ArchivePath, Node> ret = new HashMap<ArchivePath, Node>();
       for (Map.Entry<ArchivePath, NodeImpl> item : content.entrySet())
       {
@@ -305,6 +367,17 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
    {
       Validate.notNull(filter, "Filter must be specified");
 
+      // If every match starts with a known prefix, look only beneath it
+      if (filter instanceof PrefixedFilter)
+      {
+         final String prefix = PrefixedFilter.class.cast(filter).getPrefix();
+         if (prefix != null)
+         {
+            return getContentByPrefix(prefix, filter);
+         }
+      }
+
+      this.materialize(new BasicPath("/"));
       Map<ArchivePath, Node> filteredContent = new HashMap<ArchivePath, Node>();
       for (Map.Entry<ArchivePath, NodeImpl> contentEntry : content.entrySet())
       {
@@ -319,78 +392,316 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
       return filteredContent;
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Returns whether this archive may be backed by a ZIP, being empty and not 
+    * yet backed by one
+    * 
+    * @return
+    * @see MemoryMapArchiveBase#mount(MappedZip)
+    */
+   public boolean isMountable()
+   {
+      synchronized (materialized)
+      {
+         // Only the root
+         return mappedZip == null && content.size() <= 1;
+      }
+   }
+
+   /**
+    * Backs this archive by the specified ZIP, whose entries will be added to the 
+    * content as they are accessed.  Only an archive which is empty, and not yet 
+    * backed by a ZIP, may be backed.
+    * 
+    * @param zip
+    * @return Whether this archive is now backed by the ZIP
+    * @throws IllegalArgumentException If the ZIP is not specified
+    */
+   public boolean mount(final MappedZip zip) throws IllegalArgumentException
+   {
+      Validate.notNull(zip, "ZIP must be specified");
+      synchronized (materialized)
+      {
+         // Only the root
+         if (mappedZip != null || content.size() > 1)
+         {
+            return false;
+         }
+         mappedZip = zip;
+         materialized.clear();
+         if (zip.size() == 0)
+         {
+            mappedZip = null;
+         }
+         return true;
+      }
+   }
+
    //-------------------------------------------------------------------------------------||
    // Internal Helper Methods ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Check to see if a path is found in a nested archive
+    * Adds the entries of the {@link MemoryMapArchiveBase#mappedZip} at and beneath the 
+    * specified path to the content, if not yet added
+    * 
+    * @param path
     */
-   private boolean nestedContains(ArchivePath path)
+   private void materialize(final ArchivePath path)
    {
-      // Iterate through nested archives
-      for (Entry<ArchivePath, ArchiveAsset> nestedArchiveEntry : nestedArchives.entrySet())
+      if (mappedZip == null)
+      {
+         return;
+      }
+      synchronized (materialized)
       {
-         ArchivePath archivePath = nestedArchiveEntry.getKey();
-         ArchiveAsset archiveAsset = nestedArchiveEntry.getValue();
+         final MappedZip zip = mappedZip;
+         if (zip == null)
+         {
+            return;
+         }
+         final String name = getMappedName(path);
+         final int index = name.length() == 0 ? -1 : zip.indexOf(name);
+         if (index >= 0 && !materialized.get(index))
+         {
+            this.materialize(zip, index);
+         }
 
-         // Check to see if the requested path starts with the nested archive path
-         if (startsWith(path, archivePath))
+         // A file has nothing beneath it
+         if (index < 0 || zip.isDirectory(index))
          {
-            Archive<?> nestedArchive = archiveAsset.getArchive();
+            for (final int i : zip.getIndexesBeneath(name.length() == 0 ? name : name + "/"))
+            {
+               if (!materialized.get(i))
+               {
+                  this.materialize(zip, i);
+               }
+            }
+         }
 
-            // Get the asset path from within the nested archive
-            ArchivePath nestedAssetPath = getNestedPath(path, archivePath);
+         // Nothing left to map
+         if (materialized.cardinality() >= zip.size())
+         {
+            mappedZip = null;
+         }
+      }
+   }
 
-            // Recurse the call to the nested archive
-            return nestedArchive.contains(nestedAssetPath);
+   /**
+    * Adds the entry of the specified index to the content
+    * 
+    * @param zip
+    * @param index
+    */
+   private void materialize(final MappedZip zip, final int index)
+   {
+      materialized.set(index);
+      final String name = zip.getName(index);
+      if (!zip.isDirectory(index))
+      {
+         this.putAsset(zip.getAsset(index), new BasicPath(name));
+         return;
+      }
+      final ArchivePath path = this.intern(new BasicPath(PathUtil.optionallyRemoveFollowingSlash(name)));
+      if (!content.containsKey(path))
+      {
+         final NodeImpl node = new NodeImpl(path);
+         content.put(path, node);
+         final NodeImpl parentNode = obtainParent(path.getParent());
+         if (parentNode != null)
+         {
+            parentNode.addChild(node);
          }
       }
-      return false;
    }
 
-   /** 
-    * Attempt to get the asset from a nested archive. 
+   /**
+    * Returns whether there are entries of the {@link MemoryMapArchiveBase#mappedZip} 
+    * at or beneath the specified path which are yet to be added to the content
     * 
     * @param path
     * @return
     */
-   private Node getNestedNode(ArchivePath path)
+   private boolean isMapped(final ArchivePath path)
    {
-      // Iterate through nested archives
-      for (Entry<ArchivePath, ArchiveAsset> nestedArchiveEntry : nestedArchives.entrySet())
+      if (mappedZip == null)
       {
-         ArchivePath archivePath = nestedArchiveEntry.getKey();
-         ArchiveAsset archiveAsset = nestedArchiveEntry.getValue();
-
-         // Check to see if the requested path starts with the nested archive path
-         if (startsWith(path, archivePath))
+         return false;
+      }
+      synchronized (materialized)
+      {
+         final MappedZip zip = mappedZip;
+         if (zip == null)
+         {
+            return false;
+         }
+         final String name = getMappedName(path);
+         final int index = name.length() == 0 ? -1 : zip.indexOf(name);
+         if (index >= 0 && !materialized.get(index))
          {
-            Archive<?> nestedArchive = archiveAsset.getArchive();
+            return true;
+         }
+         if (index >= 0 && !zip.isDirectory(index))
+         {
+            return false;
+         }
+         for (final int i : zip.getIndexesBeneath(name.length() == 0 ? name : name + "/"))
+         {
+            if (!materialized.get(i))
+            {
+               return true;
+            }
+         }
+         return false;
+      }
+   }
+
+   /**
+    * Obtains the name a {@link MappedZip} would have for the specified path (ie. "META-INF/MANIFEST.MF"), 
+    * or an empty String for the root
+    * 
+    * @param path
+    * @return
+    */
+   private static String getMappedName(final ArchivePath path)
+   {
+      final String name = PathUtil.optionallyRemoveFollowingSlash(path.get());
+      return name.startsWith("/") ? name.substring(1) : name;
+   }
 
-            // Get the asset path from within the nested archive
-            ArchivePath nestedAssetPath = getNestedPath(path, archivePath);
+   /**
+    * Obtains the content included by the specified filter, all of which must start with 
+    * the specified prefix, by walking only the subtrees which start with the prefix
+    * 
+    * @param prefix
+    * @param filter
+    * @return
+    */
+   private Map<ArchivePath, Node> getContentByPrefix(final String prefix, final Filter<ArchivePath> filter)
+   {
+      final Map<ArchivePath, Node> filteredContent = new HashMap<ArchivePath, Node>();
 
-            // Recurse the call to the nested archive
-            return nestedArchive.get(nestedAssetPath);
+      // Matches all lie beneath the deepest directory the prefix names in full
+      final int lastSlash = prefix.lastIndexOf('/');
+      if (lastSlash < 0)
+      {
+         // All contexts are absolute, so nothing starts with a relative prefix
+         return filteredContent;
+      }
+      final String directory = lastSlash == 0 ? "/" : prefix.substring(0, lastSlash);
+      this.materialize(new BasicPath(directory));
+      final NodeImpl start = content.get(new BasicPath(directory));
+      if (start == null)
+      {
+         return filteredContent;
+      }
+
+      for (final Node child : start.getChildren())
+      {
+         if (child.getPath().get().startsWith(prefix))
+         {
+            collectSubtree(child, filter, filteredContent);
          }
       }
-      return null;
+      return filteredContent;
    }
 
    /**
-    * Check to see if one path starts with another
+    * Adds the specified {@link Node} and all beneath it which are included by the filter
     * 
-    * @param fullPath
-    * @param startingPath
+    * @param node
+    * @param filter
+    * @param target
+    */
+   private void collectSubtree(final Node node, final Filter<ArchivePath> filter, final Map<ArchivePath, Node> target)
+   {
+      final ArchivePath path = node.getPath();
+      if (filter.include(path))
+      {
+         target.put(path, node);
+      }
+      for (final Node child : node.getChildren())
+      {
+         collectSubtree(child, filter, target);
+      }
+   }
+
+   /**
+    * Removes all {@link Node}s beneath the specified {@link Node} from the content
+    * 
+    * @param node
+    */
+   private void removeDescendants(final Node node)
+   {
+      for (final Node child : node.getChildren())
+      {
+         content.remove(child.getPath());
+         nestedArchives.remove(child.getPath());
+         removeDescendants(child);
+      }
+   }
+
+   /**
+    * Check to see if a path is found in a nested archive
+    */
+   private boolean nestedContains(ArchivePath path)
+   {
+      final ArchivePath archivePath = getNestedArchivePath(path);
+      final ArchiveAsset archiveAsset = archivePath == null ? null : nestedArchives.get(archivePath);
+      if (archiveAsset == null)
+      {
+         return false;
+      }
+
+      // Recurse the call to the nested archive
+      return archiveAsset.getArchive().contains(getNestedPath(path, archivePath));
+   }
+
+   /** 
+    * Attempt to get the asset from a nested archive. 
+    * 
+    * @param path
     * @return
     */
-   private boolean startsWith(ArchivePath fullPath, ArchivePath startingPath)
+   private Node getNestedNode(ArchivePath path)
    {
-      final String context = fullPath.get();
-      final String startingContext = startingPath.get();
+      final ArchivePath archivePath = getNestedArchivePath(path);
+      final ArchiveAsset archiveAsset = archivePath == null ? null : nestedArchives.get(archivePath);
+      if (archiveAsset == null)
+      {
+         return null;
+      }
+
+      // Recurse the call to the nested archive
+      return archiveAsset.getArchive().get(getNestedPath(path, archivePath));
+   }
 
-      return context.startsWith(startingContext);
+   /**
+    * Obtains the path at which the nested archive holding the specified path is mounted, 
+    * or null if it's not within any.  Only ancestors are looked up, so this is bounded 
+    * by the depth of the path rather than the number of nested archives.
+    * 
+    * @param path
+    * @return
+    */
+   private ArchivePath getNestedArchivePath(final ArchivePath path)
+   {
+      if (nestedArchives.isEmpty())
+      {
+         return null;
+      }
+      for (ArchivePath ancestor = path.getParent(); ancestor != null; ancestor = ancestor.getParent())
+      {
+         if (nestedArchives.containsKey(ancestor))
+         {
+            return ancestor;
+         }
+      }
+      return null;
    }
 
    /**
@@ -412,6 +723,18 @@ public abstract class MemoryMapArchiveBase<T extends Archive<T>> extends Archive
       return new BasicPath(nestedArchiveContext);
    }
 
+   /**
+    * Returns the specified path with its parent chain shared with that of 
+    * other paths, if interning is enabled
+    * 
+    * @param path
+    * @return
+    */
+   private ArchivePath intern(final ArchivePath path)
+   {
+      return pathInterner == null ? path : pathInterner.intern(path);
+   }
+
    /**
     * Used to retrieve a {@link Node} from the content of the {@link Archive}. If the 
     * {@link Node} doesn�t exists in the specified location, it is created and added 
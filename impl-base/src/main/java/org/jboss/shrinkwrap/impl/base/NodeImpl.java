@@ -51,6 +51,12 @@ public class NodeImpl implements Node
     * The children nodes.
     */
    private Set<Node> children = Collections.synchronizedSet(new HashSet<Node>());
+
+   /**
+    * Immutable copy of the children, made upon request and discarded upon change, 
+    * such that repeated requests of an unchanged node share one copy
+    */
+   private volatile Set<Node> childrenCopy;
    
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
@@ -106,7 +112,21 @@ public class NodeImpl implements Node
    @Override
    public Set<Node> getChildren()
    {
-      return Collections.unmodifiableSet(this.children);
+      // Copy under the lock so callers may iterate while children are added or removed
+      Set<Node> copy = this.childrenCopy;
+      if (copy == null)
+      {
+         synchronized (this.children)
+         {
+            copy = this.childrenCopy;
+            if (copy == null)
+            {
+               copy = Collections.unmodifiableSet(new HashSet<Node>(this.children));
+               this.childrenCopy = copy;
+            }
+         }
+      }
+      return copy;
    }
    
    /**
@@ -118,7 +138,11 @@ public class NodeImpl implements Node
    {
       Validate.notNull(node, "No node was specified");
       
-      children.add(node);
+      synchronized (children)
+      {
+         children.add(node);
+         childrenCopy = null;
+      }
    }
    
    /**
@@ -130,7 +154,11 @@ public class NodeImpl implements Node
    {
       Validate.notNull(node, "No node was specified");
       
-      children.remove(node);
+      synchronized (children)
+      {
+         children.remove(node);
+         childrenCopy = null;
+      }
    }
    
    /* (non-Javadoc)
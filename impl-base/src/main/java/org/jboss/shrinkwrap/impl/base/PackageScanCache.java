@@ -0,0 +1,662 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.jboss.shrinkwrap.api.Configuration;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.impl.base.io.CompressionPool;
+
+/**
+ * Cache of the classes found by {@link URLPackageScanner}s, so that archives
+ * repeatedly adding the same packages do not repeat the classpath scan.  One cache
+ * exists per {@link Configuration}, and so per {@link Domain}.  Held are:
+ *
+ * <ul>
+ *    <li>The roots (JARs or directories) of each package, by {@link ClassLoader}</li>
+ *    <li>The classes of each JAR, by package; a JAR is read once for all its packages,
+ *    and again only when its modification time or size changes</li>
+ *    <li>The classes found under each package directory, recursively or not; found
+ *    again only when the modification time of a directory visited changes</li>
+ * </ul>
+ *
+ * If the {@link Configuration} enables a parallel package scan, JARs are read and
+ * package directories are walked concurrently upon its {@link ExecutorService} (or the
+ * shared {@link CompressionPool} if none is configured).  Class names are returned in
+ * the same order either way: by root, then per directory its classes before its
+ * subdirectories, each sorted by name.
+ * Thread-safe.
+ *
+ * @version $Revision: $
+ */
+public final class PackageScanCache
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Extension of class files
+    */
+   private static final String EXTENSION_CLASS = ".class";
+
+   /**
+    * Caches by the {@link Configuration} they serve
+    */
+   private static final Map<Configuration, PackageScanCache> caches = new WeakHashMap<Configuration, PackageScanCache>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Roots of each package path, by {@link ClassLoader}; the values hold only file 
+    * system paths, so never keep a weakly-held {@link ClassLoader} reachable
+    */
+   private final Map<ClassLoader, Map<String, Set<String>>> roots = new WeakHashMap<ClassLoader, Map<String, Set<String>>>();
+
+   /**
+    * Indexed JARs, by absolute path
+    */
+   private final Map<String, JarIndex> jars = new ConcurrentHashMap<String, JarIndex>();
+
+   /**
+    * Indexed package directories, by {@link DirectoryKey}
+    */
+   private final Map<DirectoryKey, DirectoryIndex> directories = new ConcurrentHashMap<DirectoryKey, DirectoryIndex>();
+
+   /**
+    * Service upon which JARs and directories are read concurrently; null to read 
+    * upon the calling Thread
+    */
+   private final ExecutorService executor;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new, empty cache scanning upon the calling Thread; 
+    * {@link PackageScanCache#of(Configuration)} is to be used to obtain that 
+    * shared by a {@link Domain}
+    */
+   PackageScanCache()
+   {
+      this(null);
+   }
+
+   /**
+    * Creates a new, empty cache reading JARs and directories concurrently upon
+    * the specified service, or upon the calling Thread if null
+    */
+   PackageScanCache(final ExecutorService executor)
+   {
+      this.executor = executor;
+   }
+
+   /**
+    * Obtains the cache serving the specified {@link Configuration}
+    * @param configuration
+    * @return
+    * @throws IllegalArgumentException If the configuration is not specified
+    */
+   public static PackageScanCache of(final Configuration configuration) throws IllegalArgumentException
+   {
+      Validate.notNull(configuration, "configuration must be specified");
+      synchronized (caches)
+      {
+         PackageScanCache cache = caches.get(configuration);
+         if (cache == null)
+         {
+            cache = new PackageScanCache(configuration.isParallelPackageScan() ? getExecutor(configuration) : null);
+            caches.put(configuration, cache);
+         }
+         return cache;
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Removes all cached roots and classes
+    */
+   public void clear()
+   {
+      synchronized (roots)
+      {
+         roots.clear();
+      }
+      jars.clear();
+      directories.clear();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods - URLPackageScanner ----------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the names of the classes in the specified package, as seen by the 
+    * specified {@link ClassLoader}
+    */
+   List<String> getClasses(final ClassLoader classLoader, final String packageName, final String packageNamePath,
+         final boolean recursive) throws IOException
+   {
+      final List<String> classes = new ArrayList<String>();
+      for (final List<String> rootClasses : getClassesByRoot(classLoader, packageName, packageNamePath, recursive)
+            .values())
+      {
+         classes.addAll(rootClasses);
+      }
+      return classes;
+   }
+
+   /**
+    * Obtains the names of the classes in the specified package, as seen by the 
+    * specified {@link ClassLoader}, by the file system path of the JAR or package 
+    * directory holding them
+    */
+   Map<String, List<String>> getClassesByRoot(final ClassLoader classLoader, final String packageName,
+         final String packageNamePath, final boolean recursive) throws IOException
+   {
+      final List<String> rootPaths = new ArrayList<String>(getRoots(classLoader, packageNamePath));
+
+      // Read JARs in the background while directories are walked
+      final List<FutureTask<List<String>>> jarClasses = new ArrayList<FutureTask<List<String>>>(rootPaths.size());
+      for (final String root : rootPaths)
+      {
+         final File file = new File(root);
+         if (file.isDirectory())
+         {
+            jarClasses.add(null);
+            continue;
+         }
+         jarClasses.add(submit(new Callable<List<String>>()
+         {
+            public List<String> call() throws IOException
+            {
+               return getJarClasses(file, packageNamePath, recursive);
+            }
+         }, true));
+      }
+
+      // Merge by root
+      final Map<String, List<String>> classes = new LinkedHashMap<String, List<String>>();
+      for (int i = 0; i < rootPaths.size(); i++)
+      {
+         final FutureTask<List<String>> future = jarClasses.get(i);
+         classes.put(rootPaths.get(i), future == null ? getDirectoryClasses(new File(rootPaths.get(i)),
+               packageName, recursive) : get(future));
+      }
+      return classes;
+   }
+
+   /**
+    * Obtains the file system paths of the JARs and directories holding the specified
+    * package path, as seen by the specified {@link ClassLoader}
+    */
+   Set<String> getRoots(final ClassLoader classLoader, final String packageNamePath) throws IOException
+   {
+      Map<String, Set<String>> byPackage;
+      synchronized (roots)
+      {
+         byPackage = roots.get(classLoader);
+         if (byPackage == null)
+         {
+            byPackage = new ConcurrentHashMap<String, Set<String>>();
+            roots.put(classLoader, byPackage);
+         }
+      }
+      Set<String> paths = byPackage.get(packageNamePath);
+      if (paths == null)
+      {
+         paths = Collections.unmodifiableSet(findRoots(classLoader, packageNamePath));
+         byPackage.put(packageNamePath, paths);
+      }
+      return paths;
+   }
+
+   /**
+    * Obtains the names of the classes in the specified package of a JAR
+    */
+   List<String> getJarClasses(final File jar, final String packageNamePath, final boolean recursive)
+         throws IOException
+   {
+      final String key = jar.getAbsolutePath();
+      JarIndex index = jars.get(key);
+      if (index == null || !index.isCurrent(jar))
+      {
+         index = JarIndex.read(jar);
+         jars.put(key, index);
+      }
+      return index.getClasses(packageNamePath, recursive);
+   }
+
+   /**
+    * Obtains the names of the classes in a package directory
+    */
+   List<String> getDirectoryClasses(final File directory, final String packageName, final boolean recursive)
+         throws IOException
+   {
+      final DirectoryKey key = new DirectoryKey(directory.getAbsolutePath(), packageName, recursive);
+      DirectoryIndex index = directories.get(key);
+      if (index == null || !index.isCurrent())
+      {
+         index = readDirectory(directory, packageName, recursive);
+         directories.put(key, index);
+      }
+      return index.classes;
+   }
+
+   /**
+    * Walks a package directory level by level, listing the directories of each
+    * level concurrently; the calling Thread lists any directory no Thread of the 
+    * service has yet started upon, so the walk neither waits upon a bounded service 
+    * nor deadlocks when itself run upon one of its Threads
+    */
+   private DirectoryIndex readDirectory(final File directory, final String packageName, final boolean recursive)
+         throws IOException
+   {
+      final Map<File, Listing> listings = new HashMap<File, Listing>();
+      List<File> level = Collections.singletonList(directory);
+      while (!level.isEmpty())
+      {
+         final List<FutureTask<Listing>> futures = new ArrayList<FutureTask<Listing>>(level.size());
+         for (final File dir : level)
+         {
+            futures.add(submit(new Callable<Listing>()
+            {
+               public Listing call()
+               {
+                  return Listing.read(dir);
+               }
+            }, level.size() > 1));
+         }
+         final List<File> next = new ArrayList<File>();
+         for (int i = 0; i < level.size(); i++)
+         {
+            final Listing listing = get(futures.get(i));
+            listings.put(level.get(i), listing);
+            if (recursive)
+            {
+               next.addAll(listing.directories);
+            }
+         }
+         level = next;
+      }
+
+      final Map<File, Long> lastModified = new HashMap<File, Long>();
+      final List<String> classes = new ArrayList<String>();
+      collect(directory, packageName, recursive, listings, lastModified, classes);
+      return new DirectoryIndex(lastModified, Collections.unmodifiableList(classes));
+   }
+
+   private static void collect(final File directory, final String packageName, final boolean recursive,
+         final Map<File, Listing> listings, final Map<File, Long> lastModified, final List<String> classes)
+   {
+      final Listing listing = listings.get(directory);
+      lastModified.put(directory, listing.lastModified);
+      final String packagePrefix = packageName.length() > 0 ? packageName + "." : packageName;
+      for (final String simpleName : listing.classes)
+      {
+         classes.add(packagePrefix + simpleName);
+      }
+      if (recursive)
+      {
+         for (final File child : listing.directories)
+         {
+            collect(child, packagePrefix + child.getName(), recursive, listings, lastModified, classes);
+         }
+      }
+   }
+
+   /**
+    * Queues the specified task upon the executor if there is one and asynchronous 
+    * execution is requested, else runs it upon the calling Thread
+    */
+   private <T> FutureTask<T> submit(final Callable<T> task, final boolean async)
+   {
+      final FutureTask<T> future = new FutureTask<T>(task);
+      if (executor != null && async)
+      {
+         try
+         {
+            executor.execute(future);
+            return future;
+         }
+         catch (final RejectedExecutionException ree)
+         {
+            // Fall through and run here
+         }
+      }
+      future.run();
+      return future;
+   }
+
+   /**
+    * Obtains the result of the specified task, first running it upon the calling 
+    * Thread if no Thread of the executor has started it; waiting is then only ever 
+    * upon a task already running, never upon a free Thread of the executor
+    */
+   private static <T> T get(final FutureTask<T> future) throws IOException
+   {
+      // No-op if already started or done
+      future.run();
+      try
+      {
+         return future.get();
+      }
+      catch (final InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         final IOException ioe = new IOException("Interrupted while scanning");
+         ioe.initCause(ie);
+         throw ioe;
+      }
+      catch (final ExecutionException ee)
+      {
+         final Throwable cause = ee.getCause();
+         if (cause instanceof IOException)
+         {
+            throw (IOException) cause;
+         }
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error) cause;
+         }
+         throw new RuntimeException(cause);
+      }
+   }
+
+   /**
+    * Obtains the service upon which the specified {@link Configuration} scans 
+    * in parallel, or null if there is none
+    */
+   private static ExecutorService getExecutor(final Configuration configuration)
+   {
+      final ExecutorService service = configuration.getExecutorService();
+      return service != null ? service : CompressionPool.get();
+   }
+
+   /**
+    * Finds the file system paths of the JARs and directories holding the specified
+    * package path
+    */
+   static Set<String> findRoots(final ClassLoader classLoader, final String packageNamePath) throws IOException
+   {
+      final Set<String> paths = new LinkedHashSet<String>();
+      final Enumeration<URL> urls = classLoader.getResources(packageNamePath);
+      while (urls.hasMoreElements())
+      {
+         String urlPath = urls.nextElement().getFile();
+         urlPath = URLDecoder.decode(urlPath, "UTF-8");
+         if (urlPath.startsWith("file:"))
+         {
+            urlPath = urlPath.substring(5);
+         }
+         if (urlPath.indexOf('!') > 0)
+         {
+            urlPath = urlPath.substring(0, urlPath.indexOf('!'));
+         }
+         paths.add(urlPath);
+      }
+      return paths;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Classes of a JAR, by the path of their package, as of the
+    * modification time and size of the JAR
+    */
+   static final class JarIndex
+   {
+      private final long lastModified;
+
+      private final long length;
+
+      /**
+       * Class names, by package path (ie. org/jboss/shrinkwrap), in JAR order
+       */
+      private final Map<String, List<String>> classesByPackagePath;
+
+      private JarIndex(final long lastModified, final long length, final Map<String, List<String>> classesByPackagePath)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.classesByPackagePath = classesByPackagePath;
+      }
+
+      static JarIndex read(final File jar) throws IOException
+      {
+         // Stat before reading, so a change made while reading invalidates the index
+         final long lastModified = jar.lastModified();
+         final long length = jar.length();
+         final Map<String, List<String>> classesByPackagePath = new LinkedHashMap<String, List<String>>();
+         final ZipFile zip;
+         try
+         {
+            zip = new ZipFile(jar);
+         }
+         catch (final ZipException e)
+         {
+            throw new RuntimeException("Error handling file " + jar, e);
+         }
+         try
+         {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements())
+            {
+               final String name = entries.nextElement().getName();
+               if (!name.endsWith(EXTENSION_CLASS))
+               {
+                  continue;
+               }
+               final int lastSlash = name.lastIndexOf('/');
+               final String packagePath = lastSlash == -1 ? "" : name.substring(0, lastSlash);
+               List<String> classes = classesByPackagePath.get(packagePath);
+               if (classes == null)
+               {
+                  classes = new ArrayList<String>();
+                  classesByPackagePath.put(packagePath, classes);
+               }
+               classes.add(name.substring(0, name.length() - EXTENSION_CLASS.length()).replace('/', '.'));
+            }
+         }
+         finally
+         {
+            zip.close();
+         }
+         return new JarIndex(lastModified, length, classesByPackagePath);
+      }
+
+      boolean isCurrent(final File jar)
+      {
+         return jar.lastModified() == lastModified && jar.length() == length;
+      }
+
+      List<String> getClasses(final String packageNamePath, final boolean recursive)
+      {
+         if (!recursive)
+         {
+            final List<String> classes = classesByPackagePath.get(packageNamePath);
+            return classes == null ? Collections.<String> emptyList() : Collections.unmodifiableList(classes);
+         }
+         final String prefix = packageNamePath.length() == 0 ? "" : packageNamePath + "/";
+         final List<String> classes = new ArrayList<String>();
+         for (final Map.Entry<String, List<String>> entry : classesByPackagePath.entrySet())
+         {
+            final String packagePath = entry.getKey();
+            if (packagePath.equals(packageNamePath) || packagePath.startsWith(prefix))
+            {
+               classes.addAll(entry.getValue());
+            }
+         }
+         return classes;
+      }
+   }
+
+   /**
+    * Classes found under a package directory, as of the modification times
+    * of the directories visited
+    */
+   static final class DirectoryIndex
+   {
+      /**
+       * Modification times of the directories visited
+       */
+      private final Map<File, Long> lastModified;
+
+      private final List<String> classes;
+
+      private DirectoryIndex(final Map<File, Long> lastModified, final List<String> classes)
+      {
+         this.lastModified = lastModified;
+         this.classes = classes;
+      }
+
+      boolean isCurrent()
+      {
+         for (final Map.Entry<File, Long> entry : lastModified.entrySet())
+         {
+            if (entry.getKey().lastModified() != entry.getValue().longValue())
+            {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Class files and subdirectories of a single directory, each sorted by name
+    */
+   static final class Listing
+   {
+      private final long lastModified;
+
+      /**
+       * Simple names of the classes
+       */
+      private final List<String> classes = new ArrayList<String>();
+
+      private final List<File> directories = new ArrayList<File>();
+
+      private Listing(final long lastModified)
+      {
+         this.lastModified = lastModified;
+      }
+
+      static Listing read(final File directory)
+      {
+         // Stat before listing, so a change made while listing invalidates the index
+         final Listing listing = new Listing(directory.lastModified());
+         final File[] children = directory.listFiles();
+         if (children == null)
+         {
+            return listing;
+         }
+         Arrays.sort(children);
+         for (final File child : children)
+         {
+            final String name = child.getName();
+            if (child.isDirectory())
+            {
+               listing.directories.add(child);
+            }
+            else if (name.endsWith(EXTENSION_CLASS))
+            {
+               listing.classes.add(name.substring(0, name.length() - EXTENSION_CLASS.length()));
+            }
+         }
+         return listing;
+      }
+   }
+
+   /**
+    * Key of a {@link DirectoryIndex}; the same directory may be reached as
+    * different packages through different roots
+    */
+   private static final class DirectoryKey
+   {
+      private final String path;
+
+      private final String packageName;
+
+      private final boolean recursive;
+
+      DirectoryKey(final String path, final String packageName, final boolean recursive)
+      {
+         this.path = path;
+         this.packageName = packageName;
+         this.recursive = recursive;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return (path.hashCode() * 31 + packageName.hashCode()) * 31 + (recursive ? 1 : 0);
+      }
+
+      @Override
+      public boolean equals(final Object obj)
+      {
+         if (this == obj)
+         {
+            return true;
+         }
+         if (!(obj instanceof DirectoryKey))
+         {
+            return false;
+         }
+         final DirectoryKey other = (DirectoryKey) obj;
+         return recursive == other.recursive && path.equals(other.path) && packageName.equals(other.packageName);
+      }
+   }
+}
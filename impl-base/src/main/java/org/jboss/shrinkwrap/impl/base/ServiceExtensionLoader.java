@@ -26,6 +26,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
@@ -35,6 +37,13 @@ import org.jboss.shrinkwrap.api.UnknownExtensionTypeExceptionDelegator;
 
 /**
  * ServiceExtensionLoader
+ * 
+ * Resolved implementation classes, extension mappings and constructors are held 
+ * in concurrent maps, so once an extension has been loaded, subsequent loads 
+ * are a lookup and a constructor invocation.  Thread-safe.
+ * 
+ * Extension mappings are taken from the build-time generated {@link ExtensionRegistry} 
+ * when present, falling back to scanning <code>META-INF/services</code>.
  *
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
  * @author <a href="mailto:ken@glxn.net">Ken Gullaksen</a>
@@ -55,9 +64,20 @@ public class ServiceExtensionLoader implements ExtensionLoader
    // Instance Members -------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
    
-   private ClassLoader classLoader = SecurityActions.getThreadContextClassLoader();
-   private Map<Class<?>, Class<?>> cache = new HashMap<Class<?>, Class<?>>();
-   private Map<Class<?>, ExtensionWrapper> extensionMappings = new HashMap<Class<?>, ExtensionWrapper>();
+   private final ClassLoader classLoader = SecurityActions.getThreadContextClassLoader();
+   private final Map<Class<?>, Class<?>> cache = new ConcurrentHashMap<Class<?>, Class<?>>();
+   private final Map<Class<?>, ExtensionWrapper> extensionMappings = new ConcurrentHashMap<Class<?>, ExtensionWrapper>();
+
+   /**
+    * Constructors taking a single {@link Archive} (or view of one), by extension impl class
+    */
+   private final Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
+   /**
+    * Number of overrides added, by which those holding on to loaded extensions
+    * may tell whether they'd now be loaded differently
+    */
+   private final AtomicInteger overrides = new AtomicInteger();
 
    
    //-------------------------------------------------------------------------------------||
@@ -70,9 +90,10 @@ public class ServiceExtensionLoader implements ExtensionLoader
    @Override
    public <T extends Assignable> T load(Class<T> extensionClass, Archive<?> baseArchive)
    {
-      if(isCached(extensionClass))
+      Class<T> extensionImplClass = getFromCache(extensionClass);
+      if(extensionImplClass != null)
       {
-         return createFromCache(extensionClass, baseArchive);
+         return createExtension(extensionImplClass, baseArchive);
       }
       T object = createFromLoadExtension(extensionClass, baseArchive);
       
@@ -90,12 +111,6 @@ public class ServiceExtensionLoader implements ExtensionLoader
       return cache.containsKey(extensionClass);
    }
    
-   private <T extends Assignable> T createFromCache(Class<T> extensionClass, Archive<?> archive) 
-   {
-      Class<T> extensionImplClass = getFromCache(extensionClass);
-      return createExtension(extensionImplClass, archive);
-   }
-
    void addToCache(Class<?> extensionClass, Class<?> extensionImplClass)
    {
       cache.put(extensionClass, extensionImplClass);
@@ -117,9 +132,20 @@ public class ServiceExtensionLoader implements ExtensionLoader
    public <T extends Assignable> ServiceExtensionLoader addOverride(Class<T> extensionClass, Class<? extends T> extensionImplClass)
    {
       addToCache(extensionClass, extensionImplClass);
+      overrides.incrementAndGet();
       return this;
    }
 
+   /**
+    * Obtains the number of overrides added via 
+    * {@link ServiceExtensionLoader#addOverride(Class, Class)}
+    * @return
+    */
+   int getOverrideCount()
+   {
+      return overrides.get();
+   }
+
    /* (non-Javadoc)
     * @see org.jboss.shrinkwrap.api.ExtensionLoader#getExtensionFromExtensionMapping(java.lang.Class)
     */
@@ -179,13 +205,40 @@ public class ServiceExtensionLoader implements ExtensionLoader
 
    private <T extends Assignable> ExtensionWrapper loadExtensionMapping(Class<T> extensionClass)   
    {
-      URL extensionImplUrl = findExtensionImpl(extensionClass);
-
-      ExtensionWrapper extensionWrapper = loadExtensionWrapper(extensionImplUrl, extensionClass);
+      ExtensionWrapper extensionWrapper = loadRegisteredExtensionWrapper(extensionClass);
+      if (extensionWrapper == null)
+      {
+         URL extensionImplUrl = findExtensionImpl(extensionClass);
+         extensionWrapper = loadExtensionWrapper(extensionImplUrl, extensionClass);
+      }
       this.extensionMappings.put(extensionClass, extensionWrapper);
       return extensionWrapper;
    }
 
+   /**
+    * Looks up the mapping in the build-time generated {@link ExtensionRegistry}, 
+    * returning null if the extension type is not registered there
+    */
+   private <T extends Assignable> ExtensionWrapper loadRegisteredExtensionWrapper(Class<T> extensionClass)
+   {
+      if (getClassLoader() == null)
+      {
+         return null;
+      }
+      Map<String, String> mapping = getExtensionRegistry().getMapping(extensionClass.getName());
+      if (mapping == null)
+      {
+         return null;
+      }
+      String implementingClassName = mapping.get("implementingClassName");
+      if (implementingClassName == null)
+      {
+         throw new RuntimeException("Property implementingClassName is not present in " + 
+               ExtensionRegistry.REGISTRY_LOCATION + " for " + extensionClass.getName());
+      }
+      return new ExtensionWrapper(implementingClassName, new HashMap<String, String>(mapping), extensionClass);
+   }
+
    
    private <T extends Assignable> URL findExtensionImpl(Class<T> extensionClass) 
    {
@@ -296,6 +349,18 @@ public class ServiceExtensionLoader implements ExtensionLoader
 
    @SuppressWarnings("unchecked")
    private <T extends Assignable> Constructor<T> findConstructor(Class<T> extensionImplClass) 
+   {
+      Constructor<T> constructor = (Constructor<T>)this.constructors.get(extensionImplClass);
+      if(constructor == null) 
+      {
+         constructor = lookupConstructor(extensionImplClass);
+         this.constructors.put(extensionImplClass, constructor);
+      }
+      return constructor;
+   }
+
+   @SuppressWarnings("unchecked")
+   private <T extends Assignable> Constructor<T> lookupConstructor(Class<T> extensionImplClass) 
    {
       Constructor<?>[] constructors = SecurityActions.getConstructors(extensionImplClass);
       for(Constructor<?> constructor : constructors)
@@ -319,4 +384,9 @@ public class ServiceExtensionLoader implements ExtensionLoader
    {
       return classLoader;
    }
+
+   private ExtensionRegistry getExtensionRegistry() 
+   {
+      return ExtensionRegistry.forClassLoader(getClassLoader());
+   }
 }
@@ -20,20 +20,21 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.net.URLDecoder;
-import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.asset.UrlAsset;
 
 /**
- * Implementation of scanner which can scan a {@link URLClassLoader}
+ * Implementation of scanner which can scan a {@link URLClassLoader}.  
+ * Package roots and the classes found in them are taken from a 
+ * {@link PackageScanCache}, which may be shared among scanners.
  *
  * @author Thomas Heute
  * @author Gavin King
@@ -51,6 +52,11 @@ public class URLPackageScanner
     */
    private static final String NAME_EMPTY_PACKAGE = "";
 
+   /**
+    * Extension of class files
+    */
+   private static final String EXTENSION_CLASS = ".class";
+
    private final String packageName;
 
    private final String packageNamePath;
@@ -62,6 +68,8 @@ public class URLPackageScanner
    //private final Set<String> classes = new HashSet<String>();
    private Callback callback;
 
+   private final PackageScanCache cache;
+
    /**
     * Factory method to create an instance of URLPackageScanner.
     * @param addRecursively flag to add child packages
@@ -71,6 +79,21 @@ public class URLPackageScanner
     */
    public static URLPackageScanner newInstance(boolean addRecursively, final ClassLoader classLoader,
          final Callback callback, final Package pkg)
+   {
+      return newInstance(addRecursively, classLoader, callback, pkg, new PackageScanCache());
+   }
+
+   /**
+    * Factory method to create an instance of URLPackageScanner reusing the results
+    * of earlier scans held in the specified cache.
+    * @param addRecursively flag to add child packages
+    * @param classLoader class loader that will have classes added
+    * @param pkg Package that will be scanned 
+    * @param cache Cache of earlier scans
+    * @return new instance of URLPackageScanner
+    */
+   public static URLPackageScanner newInstance(boolean addRecursively, final ClassLoader classLoader,
+         final Callback callback, final Package pkg, final PackageScanCache cache)
    {
       Validate
             .notNull(pkg,
@@ -80,8 +103,29 @@ public class URLPackageScanner
       Validate.notNull(addRecursively, "AddRecursively must be specified");
       Validate.notNull(classLoader, "ClassLoader must be specified");
       Validate.notNull(callback, "Callback must be specified");
+      Validate.notNull(cache, "Cache must be specified");
+
+      return new URLPackageScanner(packageName, addRecursively, classLoader, callback, cache);
+   }
+
+   /**
+    * Factory method to create an instance of URLPackageScanner for the named package, 
+    * reusing the results of earlier scans held in the specified cache.
+    * @param addRecursively flag to add child packages
+    * @param classLoader class loader that will have classes added
+    * @param packageName Name of the package that will be scanned; empty for the default package
+    * @param cache Cache of earlier scans
+    * @return new instance of URLPackageScanner
+    */
+   public static URLPackageScanner newInstance(boolean addRecursively, final ClassLoader classLoader,
+         final Callback callback, final String packageName, final PackageScanCache cache)
+   {
+      Validate.notNull(packageName, "Package name must be specified");
+      Validate.notNull(classLoader, "ClassLoader must be specified");
+      Validate.notNull(callback, "Callback must be specified");
+      Validate.notNull(cache, "Cache must be specified");
 
-      return new URLPackageScanner(packageName, addRecursively, classLoader, callback);
+      return new URLPackageScanner(packageName, addRecursively, classLoader, callback, cache);
    }
 
    /**
@@ -92,121 +136,98 @@ public class URLPackageScanner
     * @return new instance of URLPackageScanner
     */
    public static URLPackageScanner newInstance(boolean addRecursively, ClassLoader classLoader, Callback callback)
+   {
+      return newInstance(addRecursively, classLoader, callback, new PackageScanCache());
+   }
+
+   /**
+    * Factory method to create an instance of URLPackageScanner in the default package 
+    * reusing the results of earlier scans held in the specified cache.
+    * @param addRecursively flag to add child packages
+    * @param classLoader class loader that will have classes added 
+    * @param cache Cache of earlier scans
+    * @return new instance of URLPackageScanner
+    */
+   public static URLPackageScanner newInstance(boolean addRecursively, ClassLoader classLoader, Callback callback,
+         PackageScanCache cache)
    {
       Validate.notNull(addRecursively, "AddRecursively must be specified");
       Validate.notNull(classLoader, "ClassLoader must be specified");
       Validate.notNull(callback, "Callback must be specified");
+      Validate.notNull(cache, "Cache must be specified");
 
-      return new URLPackageScanner(NAME_EMPTY_PACKAGE, addRecursively, classLoader, callback);
+      return new URLPackageScanner(NAME_EMPTY_PACKAGE, addRecursively, classLoader, callback, cache);
    }
 
-   private URLPackageScanner(String packageName, boolean addRecursively, ClassLoader classLoader, Callback callback)
+   private URLPackageScanner(String packageName, boolean addRecursively, ClassLoader classLoader, Callback callback,
+         PackageScanCache cache)
    {
       this.packageName = packageName;
       this.packageNamePath = packageName.replace(".", "/");
       this.addRecursively = addRecursively;
       this.classLoader = classLoader;
       this.callback = callback;
+      this.cache = cache;
    }
 
+   /**
+    * Scans the package, calling back once per class name.  Where several roots hold
+    * a class of the same name, only the first in {@link ClassLoader} order is reported,
+    * being the definition the {@link ClassLoader} would load.
+    */
    public void scanPackage()
    {
       try
       {
-         Set<String> paths = new HashSet<String>();
-
-         for (URL url : loadResources(packageNamePath))
+         final Map<String, List<String>> classesByRoot = cache.getClassesByRoot(classLoader, packageName,
+               packageNamePath, addRecursively);
+         final Set<String> found = new HashSet<String>();
+         for (Map.Entry<String, List<String>> entry : classesByRoot.entrySet())
          {
-            String urlPath = url.getFile();
-            urlPath = URLDecoder.decode(urlPath, "UTF-8");
-            if (urlPath.startsWith("file:"))
+            final File root = new File(entry.getKey());
+            final boolean directory = root.isDirectory();
+            for (String className : entry.getValue())
             {
-               urlPath = urlPath.substring(5);
+               if (!found.add(className))
+               {
+                  // Shadowed by an earlier root
+                  continue;
+               }
+               if (callback instanceof ResourceCallback)
+               {
+                  ((ResourceCallback) callback).classFound(className, directory ? getDirectoryResource(root,
+                        className) : getJarResource(root, className));
+               }
+               else
+               {
+                  callback.classFound(className);
+               }
             }
-            if (urlPath.indexOf('!') > 0)
-            {
-               urlPath = urlPath.substring(0, urlPath.indexOf('!'));
-            }
-            paths.add(urlPath);
          }
-         handle(paths);
       }
       catch (IOException ioe)
       {
          log.log(Level.WARNING, "could not read: " + packageName, ioe);
       }
-      catch (ClassNotFoundException ioe)
-      {
-         log.log(Level.WARNING, "Class coud not be loaded in package: " + packageName, ioe);
-      }
-   }
-
-   private void handleArchiveByFile(File file) throws IOException, ClassNotFoundException
-   {
-      try
-      {
-         log.fine("archive: " + file);
-         ZipFile zip = new ZipFile(file);
-         Enumeration<? extends ZipEntry> entries = zip.entries();
-         while (entries.hasMoreElements())
-         {
-            ZipEntry entry = entries.nextElement();
-            String name = entry.getName();
-            if (name.startsWith(packageNamePath) && name.endsWith(".class")
-                  && (addRecursively || !name.substring(packageNamePath.length() + 1).contains("/")))
-            {
-               String className = name.replace("/", ".").replace(".class", "");
-               foundClass(className);
-            }
-         }
-      }
-      catch (ZipException e)
-      {
-         throw new RuntimeException("Error handling file " + file, e);
-      }
-   }
-
-   private void handle(Set<String> paths) throws IOException, ClassNotFoundException
-   {
-      for (String urlPath : paths)
-      {
-         log.fine("scanning: " + urlPath);
-         File file = new File(urlPath);
-         if (file.isDirectory())
-         {
-            handle(file, packageName);
-         }
-         else
-         {
-            handleArchiveByFile(file);
-         }
-      }
-   }
-
-   private void handle(File file, String packageName) throws ClassNotFoundException
-   {
-      for (File child : file.listFiles())
-      {
-         if (!child.isDirectory() && child.getName().endsWith(".class"))
-         {
-            final String packagePrefix = packageName.length() > 0 ? packageName + "." : packageName;
-            foundClass(packagePrefix + child.getName().substring(0, child.getName().lastIndexOf(".class")));
-         }
-         else if (child.isDirectory() && addRecursively)
-         {
-            handle(child, packageName + "." + child.getName());
-         }
-      }
    }
 
-   private void foundClass(String className)
+   /**
+    * Obtains the class file of the specified class under the package directory
+    */
+   private Asset getDirectoryResource(final File packageDirectory, final String className)
    {
-      callback.classFound(className);
+      final String relativeName = packageName.length() == 0 ? className : className.substring(packageName
+            .length() + 1);
+      return new FileAsset(new File(packageDirectory, relativeName.replace('.', '/') + EXTENSION_CLASS));
    }
 
-   private List<URL> loadResources(String name) throws IOException
+   /**
+    * Obtains the entry of the specified class within a JAR
+    */
+   private Asset getJarResource(final File jar, final String className) throws IOException
    {
-      return Collections.list(classLoader.getResources(name));
+      return new UrlAsset(new URL("jar:" + jar.toURI().toURL() + "!/" + className.replace('.', '/')
+            + EXTENSION_CLASS));
    }
 
    /**
@@ -224,4 +245,21 @@ public class URLPackageScanner
        */
       void classFound(String className);
    }
+
+   /**
+    * Callback interface for found classes, also handed the class file
+    * found, such that the class need not be loaded to obtain it.
+    *
+    * @version $Revision: $
+    */
+   public interface ResourceCallback extends Callback
+   {
+      /**
+       * Called for each found class instead of {@link Callback#classFound(String)}.
+       * 
+       * @param className The name of the found class
+       * @param resource The class file
+       */
+      void classFound(String className, Asset resource);
+   }
 }
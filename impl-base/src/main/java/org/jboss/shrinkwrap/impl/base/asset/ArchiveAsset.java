@@ -20,7 +20,10 @@ import java.io.InputStream;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.impl.base.Validate;
 
 /**
@@ -32,7 +35,7 @@ import org.jboss.shrinkwrap.impl.base.Validate;
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
  */
-public class ArchiveAsset implements Asset
+public class ArchiveAsset implements DescribableAsset
 {
 
    //-------------------------------------------------------------------------------------||
@@ -86,6 +89,46 @@ public class ArchiveAsset implements Asset
       return this.getArchive().as(this.exporter).exportAsInputStream();
    }
 
+   /**
+    * Not known until exported
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      return UNKNOWN;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+    */
+   @Override
+   public long getLastModified()
+   {
+      return UNKNOWN;
+   }
+
+   /**
+    * Determined by the format of the exporter; ie. a nested JAR
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+    */
+   @Override
+   public boolean isCompressed()
+   {
+      return ZipExporter.class.isAssignableFrom(exporter) || TarGzExporter.class.isAssignableFrom(exporter);
+   }
+
+   /**
+    * Not known until exported
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+    */
+   @Override
+   public long getCrc32()
+   {
+      return UNKNOWN;
+   }
+
    /**
     * Returns the archive this asset represents 
     * @return
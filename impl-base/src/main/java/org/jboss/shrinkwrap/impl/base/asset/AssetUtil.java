@@ -17,6 +17,7 @@
 package org.jboss.shrinkwrap.impl.base.asset;
 
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.asset.FileAssetDelegator;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
 
 /**
@@ -130,8 +131,7 @@ public final class AssetUtil
     */
    public static ArchivePath getFullPathForClassResource(Class<?> clazz) 
    {
-      String classResourceDelimiter = clazz.getName().replaceAll(
-            DELIMITER_CLASS_NAME_PATH, DELIMITER_RESOURCE_PATH);
+      String classResourceDelimiter = clazz.getName().replace('.', '/');
       String classFullPath = classResourceDelimiter + EXTENSION_CLASS;
       return new BasicPath(classFullPath);
    }
@@ -147,9 +147,22 @@ public final class AssetUtil
     */
    public static ArchivePath getFullPathForClassResource(String className) 
    {
-      String classResourceDelimiter = className.replaceAll(
-            DELIMITER_CLASS_NAME_PATH, DELIMITER_RESOURCE_PATH);
+      String classResourceDelimiter = className.replace('.', '/');
       String classFullPath = classResourceDelimiter + EXTENSION_CLASS;
       return new BasicPath(classFullPath);
    }
+
+   /**
+    * Helper to determine, by extension, whether the named resource is in a format
+    * which is itself compressed; as {@link FileAssetDelegator#isCompressedFormat(String)}.
+    * <br/><br/>
+    * ie: WEB-INF/lib/library.jar = true
+    * 
+    * @param name
+    * @return
+    */
+   public static boolean isCompressedFormat(String name)
+   {
+      return FileAssetDelegator.isCompressedFormat(name);
+   }
 }
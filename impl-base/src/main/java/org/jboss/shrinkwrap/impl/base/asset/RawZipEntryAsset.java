@@ -0,0 +1,68 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.asset;
+
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+
+/**
+ * RawZipEntryAsset
+ *
+ * An entry of a ZIP file, whose content may also be read as stored in the file
+ * (ie. still compressed).  Used to copy the entry into another ZIP without
+ * inflating and deflating it again.
+ *
+ * @version $Revision: $
+ */
+public interface RawZipEntryAsset extends DescribableAsset
+{
+   /**
+    * Returns whether the content of this entry may be read as stored in the file
+    * via {@link RawZipEntryAsset#openRawStream()}, along with its
+    * {@link RawZipEntryAsset#getMethod()}, {@link RawZipEntryAsset#getCrc32()},
+    * {@link RawZipEntryAsset#getSize()} and {@link RawZipEntryAsset#getCompressedSize()}.
+    *
+    * @return
+    */
+   boolean isRawContentAvailable();
+
+   /**
+    * Opens a stream over the content of this entry as stored in the file,
+    * ie. still compressed if {@link RawZipEntryAsset#getMethod()} is
+    * {@link ZipEntry#DEFLATED}
+    *
+    * @return
+    * @throws IllegalStateException If the raw content is not available
+    * @see RawZipEntryAsset#isRawContentAvailable()
+    */
+   InputStream openRawStream() throws IllegalStateException;
+
+   /**
+    * Obtains the compression method of the entry
+    * @return
+    * @see ZipEntry#getMethod()
+    */
+   int getMethod();
+
+   /**
+    * Obtains the length of the content as stored in the file, or -1 if not known
+    * @return
+    */
+   long getCompressedSize();
+}
@@ -0,0 +1,325 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.asset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+import org.jboss.shrinkwrap.impl.base.io.ZipDirectoryReader;
+
+/**
+ * Index of where the content of each entry of a {@link ZipFile} begins, read 
+ * from its central directory on first use.  Allows the content of an entry to 
+ * be read as stored in the file (ie. still compressed), which {@link ZipFile} 
+ * itself does not offer.
+ * 
+ * Entries which may not be read raw (encrypted, duplicated, or otherwise 
+ * not laid out as expected) are reported as unavailable, and should be read
+ * through {@link ZipFile} as usual.
+ *
+ * @version $Revision: $
+ */
+final class ZipCentralDirectory
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(ZipCentralDirectory.class.getName());
+
+   /**
+    * Value denoting the offset of an entry may not be determined
+    */
+   static final long UNAVAILABLE = -1L;
+
+   /**
+    * Indexes by the {@link ZipFile} they describe
+    */
+   private static final Map<ZipFile, ZipCentralDirectory> directories = new WeakHashMap<ZipFile, ZipCentralDirectory>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * The underlying file
+    */
+   private final File file;
+
+   /**
+    * Offsets of the local header of each entry, by name; null until read
+    */
+   private Map<String, Long> localHeaders;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private ZipCentralDirectory(final File file)
+   {
+      this.file = file;
+   }
+
+   /**
+    * Obtains the index for the specified {@link ZipFile}, shared by all entries of the file
+    * @param zipFile
+    * @return
+    */
+   static ZipCentralDirectory of(final ZipFile zipFile)
+   {
+      synchronized (directories)
+      {
+         ZipCentralDirectory directory = directories.get(zipFile);
+         if (directory == null)
+         {
+            directory = new ZipCentralDirectory(new File(zipFile.getName()));
+            directories.put(zipFile, directory);
+         }
+         return directory;
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the offset within the file at which the content of the entry 
+    * of the specified name begins, or {@link ZipCentralDirectory#UNAVAILABLE}
+    * 
+    * @param name
+    * @return
+    */
+   long getDataOffset(final String name)
+   {
+      final Long localHeader = this.getLocalHeaders().get(name);
+      if (localHeader == null)
+      {
+         return UNAVAILABLE;
+      }
+
+      try
+      {
+         final RandomAccessFile raf = new RandomAccessFile(file, "r");
+         try
+         {
+            final byte[] encodedName = name.getBytes("UTF-8");
+            final int prefixLength = ZipDirectoryReader.LOCAL_HEADER_LENGTH + encodedName.length;
+            final ByteBuffer b = ZipDirectoryReader.read(raf.getChannel(), localHeader.longValue(), prefixLength);
+            final int headerLength = ZipDirectoryReader.getLocalHeaderLength(b, 0);
+            if (headerLength < 0 || (b.getShort(26) & 0xFFFF) != encodedName.length)
+            {
+               return UNAVAILABLE;
+            }
+            for (int i = 0; i < encodedName.length; i++)
+            {
+               if (b.get(ZipDirectoryReader.LOCAL_HEADER_LENGTH + i) != encodedName[i])
+               {
+                  return UNAVAILABLE;
+               }
+            }
+            return localHeader.longValue() + headerLength;
+         }
+         finally
+         {
+            raf.close();
+         }
+      }
+      catch (final IOException ioe)
+      {
+         log.log(Level.FINE, "Could not read local header of " + name + " in " + file, ioe);
+         return UNAVAILABLE;
+      }
+   }
+
+   /**
+    * Opens a stream over the specified range of the file
+    * 
+    * @param offset
+    * @param length
+    * @return
+    * @throws IOException
+    */
+   InputStream openRange(final long offset, final long length) throws IOException
+   {
+      return new RangeInputStream(file, offset, length);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the local header offsets, reading them from the central directory if 
+    * not yet done.  If the directory may not be read, no entry will be available.
+    */
+   private synchronized Map<String, Long> getLocalHeaders()
+   {
+      if (localHeaders == null)
+      {
+         try
+         {
+            localHeaders = this.readCentralDirectory();
+         }
+         catch (final IOException ioe)
+         {
+            log.log(Level.FINE, "Could not read central directory of " + file, ioe);
+            localHeaders = new HashMap<String, Long>();
+         }
+      }
+      return localHeaders;
+   }
+
+   private Map<String, Long> readCentralDirectory() throws IOException
+   {
+      final Map<String, Long> offsets = new HashMap<String, Long>();
+      final RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try
+      {
+         final FileChannel channel = raf.getChannel();
+         final long[] location = ZipDirectoryReader.locate(channel);
+         if (location[2] > Integer.MAX_VALUE)
+         {
+            return offsets;
+         }
+         final ByteBuffer directory = ZipDirectoryReader.read(channel, location[1], (int) location[2]);
+
+         byte[] nameBuffer = new byte[256];
+         int pos = 0;
+         for (long i = 0; i < location[0]; i++)
+         {
+            final int headerLength = ZipDirectoryReader.getHeaderLength(directory, pos);
+            if (headerLength < 0)
+            {
+               break;
+            }
+            final int nameLength = ZipDirectoryReader.getNameLength(directory, pos);
+            if (nameLength > nameBuffer.length)
+            {
+               nameBuffer = new byte[nameLength];
+            }
+            final String name = ZipDirectoryReader.getName(directory, pos, nameBuffer);
+            final long localHeader = ZipDirectoryReader.getField(directory, pos, ZipDirectoryReader.FIELD_LOCAL_HEADER);
+            if (ZipDirectoryReader.isEncrypted(directory, pos) || localHeader < 0 || offsets.containsKey(name))
+            {
+               // Never read raw; duplicates are ambiguous
+               offsets.put(name, Long.valueOf(UNAVAILABLE));
+            }
+            else
+            {
+               offsets.put(name, Long.valueOf(localHeader));
+            }
+            pos += headerLength;
+         }
+         return offsets;
+      }
+      finally
+      {
+         raf.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reads a range of a file
+    */
+   private static final class RangeInputStream extends InputStream
+   {
+      private final RandomAccessFile raf;
+
+      private long remaining;
+
+      RangeInputStream(final File file, final long offset, final long length) throws IOException
+      {
+         raf = new RandomAccessFile(file, "r");
+         try
+         {
+            raf.seek(offset);
+         }
+         catch (final IOException ioe)
+         {
+            raf.close();
+            throw ioe;
+         }
+         remaining = length;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#read()
+       */
+      @Override
+      public int read() throws IOException
+      {
+         if (remaining <= 0)
+         {
+            return -1;
+         }
+         final int b = raf.read();
+         if (b >= 0)
+         {
+            remaining--;
+         }
+         return b;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#read(byte[], int, int)
+       */
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         if (remaining <= 0)
+         {
+            return -1;
+         }
+         final int read = raf.read(b, off, (int) Math.min(len, remaining));
+         if (read > 0)
+         {
+            remaining -= read;
+         }
+         return read;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.InputStream#close()
+       */
+      @Override
+      public void close() throws IOException
+      {
+         raf.close();
+      }
+   }
+}
@@ -16,11 +16,11 @@
  */
 package org.jboss.shrinkwrap.impl.base.asset;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
-import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.impl.base.Validate;
 
 /**
@@ -32,10 +32,21 @@ import org.jboss.shrinkwrap.impl.base.Validate;
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
  * @version $Revision: $
  */
-public class ZipFileEntryAsset implements Asset
+public class ZipFileEntryAsset implements RawZipEntryAsset
 {
+   /**
+    * Offset of the entry's content is yet to be determined
+    */
+   private static final long OFFSET_UNKNOWN = -2L;
+
    private ZipFile file;
    private ZipEntry entry;
+
+   /**
+    * Offset of the entry's content within the file, or 
+    * {@link ZipCentralDirectory#UNAVAILABLE} if not to be read raw
+    */
+   private long dataOffset = OFFSET_UNKNOWN;
    
    public ZipFileEntryAsset(ZipFile file, ZipEntry entry)
    {
@@ -62,4 +73,110 @@ public class ZipFileEntryAsset implements Asset
          throw new RuntimeException("Could not open zip file stream", e); 
       }
    }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+    */
+   @Override
+   public long getSize()
+   {
+      // ZipEntry also uses -1 for unknown
+      return entry.getSize();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+    */
+   @Override
+   public long getLastModified()
+   {
+      // ZipEntry also uses -1 for unknown
+      return entry.getTime();
+   }
+
+   /**
+    * Determined by the extension of the entry name (ie. a nested JAR), as
+    * the entry itself is inflated upon being read
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+    */
+   @Override
+   public boolean isCompressed()
+   {
+      return AssetUtil.isCompressedFormat(entry.getName());
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+    */
+   @Override
+   public long getCrc32()
+   {
+      // Known from the central directory; ZipEntry also uses -1 for unknown
+      return entry.getCrc();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#isRawContentAvailable()
+    */
+   public boolean isRawContentAvailable()
+   {
+      final int method = entry.getMethod();
+      if ((method != ZipEntry.STORED && method != ZipEntry.DEFLATED) || entry.getCrc() < 0 || entry.getSize() < 0
+            || entry.getCompressedSize() < 0)
+      {
+         return false;
+      }
+      return this.getDataOffset() != ZipCentralDirectory.UNAVAILABLE;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#openRawStream()
+    */
+   public InputStream openRawStream() throws IllegalStateException
+   {
+      if (!this.isRawContentAvailable())
+      {
+         throw new IllegalStateException("Raw content is not available for " + entry.getName());
+      }
+      try
+      {
+         return ZipCentralDirectory.of(file).openRange(dataOffset, entry.getCompressedSize());
+      }
+      catch (final IOException ioe)
+      {
+         throw new RuntimeException("Could not open zip file stream", ioe);
+      }
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#getMethod()
+    */
+   public int getMethod()
+   {
+      return entry.getMethod();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#getCompressedSize()
+    */
+   public long getCompressedSize()
+   {
+      return entry.getCompressedSize();
+   }
+
+   private synchronized long getDataOffset()
+   {
+      if (dataOffset == OFFSET_UNKNOWN)
+      {
+         dataOffset = ZipCentralDirectory.of(file).getDataOffset(entry.getName());
+      }
+      return dataOffset;
+   }
 }
@@ -20,7 +20,11 @@ import java.io.File;
 import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
@@ -40,6 +44,7 @@ import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.formatter.Formatter;
 import org.jboss.shrinkwrap.impl.base.ArchiveBase;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
+import org.jboss.shrinkwrap.impl.base.PackageScanCache;
 import org.jboss.shrinkwrap.impl.base.URLPackageScanner;
 import org.jboss.shrinkwrap.impl.base.Validate;
 import org.jboss.shrinkwrap.impl.base.asset.AssetUtil;
@@ -47,6 +52,7 @@ import org.jboss.shrinkwrap.impl.base.asset.ClassAsset;
 import org.jboss.shrinkwrap.impl.base.asset.ClassLoaderAsset;
 import org.jboss.shrinkwrap.impl.base.asset.ServiceProviderAsset;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
+import org.jboss.shrinkwrap.spi.Configurable;
 
 /**
  * ContainerBase
@@ -908,20 +914,21 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
       Validate.notNullOrEmpty(fullyQualifiedClassName, "Fully-qualified class name must be specified");
       Validate.notNull(cl, "ClassLoader must be specified");
       
-      // Obtain the Class
-      final Class<?> clazz;
-      try
-      {
-         clazz = Class.forName(fullyQualifiedClassName, false, cl);
-      }
-      catch (final ClassNotFoundException e)
+      // Obtain the class file, without loading the Class
+      final ArchivePath classArchivePath = AssetUtil.getFullPathForClassResource(fullyQualifiedClassName);
+      final Asset resource = getClassResource(fullyQualifiedClassName, cl);
+      if (resource == null)
       {
          throw new IllegalArgumentException("Could not load class of name " + fullyQualifiedClassName + " with "
-               + cl, e);
+               + cl);
       }
+      add(resource, new BasicPath(getClassesPath(), classArchivePath));
 
-      // Delegate and return
-      return this.addClass(clazz);
+      // Get all inner classes and add them
+      final Map<String, Set<String>> classPathsByPackage = new HashMap<String, Set<String>>();
+      addClassPath(classPathsByPackage, fullyQualifiedClassName, classArchivePath);
+      addInnerClasses(classPathsByPackage, cl);
+      return covarientReturn();
    }
 
    /* (non-Javadoc)
@@ -931,35 +938,20 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
    {
       Validate.notNull(classes, "Classes must be specified");
       
+      // Resource paths of the added classes (without ".class"), by package name 
+      final Map<String, Set<String>> classPathsByPackage = new LinkedHashMap<String, Set<String>>();
       for(final Class<?> clazz : classes) 
       {
          Asset resource = new ClassAsset(clazz);
-         ArchivePath location = new BasicPath(getClassesPath(), AssetUtil.getFullPathForClassResource(clazz));
+         ArchivePath classArchivePath = AssetUtil.getFullPathForClassResource(clazz);
+         ArchivePath location = new BasicPath(getClassesPath(), classArchivePath);
          add(resource, location);
          
-         // Get all inner classes and add them
-         addPackages(
-               false,
-               new Filter<ArchivePath>()
-               {
-                  /**
-                   * path  = /package/MyClass$Test.class <br/>
-                   * clazz = /package/MyClass.class <br/>
-                   * 
-                   *  
-                   * @param path The added classes 
-                   * @return 
-                   */
-                  public boolean include(ArchivePath path)
-                  {
-                     ArchivePath classArchivePath = AssetUtil.getFullPathForClassResource(clazz);
-                     String expression = classArchivePath.get().replace(".class", "\\$.*");
-                     return path.get().matches(expression);
-                  };
-               },
-               clazz.getPackage()
-         );
+         addClassPath(classPathsByPackage, clazz.getName(), classArchivePath);
       }
+      
+      // Get all inner classes and add them, scanning each package once for the whole batch
+      addInnerClasses(classPathsByPackage, SecurityActions.getThreadContextClassLoader());
       return covarientReturn();
    };
    
@@ -994,42 +986,120 @@ public abstract class ContainerBase<T extends Archive<T>> extends AssignableBase
       Validate.notNull(packages, "Packages must be specified");
       
       final ClassLoader classLoader = SecurityActions.getThreadContextClassLoader();
-      
       for(Package pack : packages) 
       {
-         final URLPackageScanner.Callback callback = new URLPackageScanner.Callback()
+         addPackage(recursive, filter, pack == null ? "" : pack.getName(), classLoader);
+      }
+      return covarientReturn();
+   }
+
+   /**
+    * Adds the class files found in the named package, as seen by the specified 
+    * {@link ClassLoader}, and accepted by the filter.  The classes are not loaded.
+    * 
+    * @param recursive
+    * @param filter
+    * @param packageName Name of the package; empty for the default package
+    * @param classLoader
+    */
+   private void addPackage(final boolean recursive, final Filter<ArchivePath> filter, final String packageName,
+         final ClassLoader classLoader)
+   {
+      final URLPackageScanner.Callback callback = new URLPackageScanner.ResourceCallback()
+      {
+         @Override
+         public void classFound(String className, Asset resource)
          {
-            @Override
-            public void classFound(String className)
+            ArchivePath classNamePath = AssetUtil.getFullPathForClassResource(className);
+            if (!filter.include(classNamePath))
             {
-               ArchivePath classNamePath = AssetUtil.getFullPathForClassResource(className);
-               if (!filter.include(classNamePath))
-               {
-                  return;
-               }
-               Class<?> clazz;
-               try
-               {
-                  clazz = classLoader.loadClass(className);
-               }
-               catch (ClassNotFoundException e)
-               {
-                  throw new RuntimeException("Could not load found class " + className, e);
-               }
-               catch (NoClassDefFoundError e) 
-               {
-                  throw new RuntimeException("Could not load found class " + className, e);
-               }
-               Asset asset = new ClassAsset(clazz);
-               ArchivePath location = new BasicPath(getClassesPath(), classNamePath);
-               add(asset, location);
+               return;
             }
-         };
-         final URLPackageScanner scanner = pack == null ? URLPackageScanner.newInstance(recursive, classLoader,
-               callback) : URLPackageScanner.newInstance(recursive, classLoader, callback, pack);
-         scanner.scanPackage();
+            ArchivePath location = new BasicPath(getClassesPath(), classNamePath);
+            add(resource, location);
+         }
+
+         @Override
+         public void classFound(String className)
+         {
+            Asset resource = getClassResource(className, classLoader);
+            if (resource == null)
+            {
+               throw new RuntimeException("Could not find class file of found class " + className);
+            }
+            classFound(className, resource);
+         }
+      };
+      final PackageScanCache cache = PackageScanCache.of(this.getArchive().as(Configurable.class).getConfiguration());
+      URLPackageScanner.newInstance(recursive, classLoader, callback, packageName, cache).scanPackage();
+   }
+
+   /**
+    * Records the resource path (without ".class") of an added class by its package name
+    */
+   private static void addClassPath(final Map<String, Set<String>> classPathsByPackage, final String className,
+         final ArchivePath classArchivePath)
+   {
+      final int lastDot = className.lastIndexOf('.');
+      final String packageName = lastDot == -1 ? "" : className.substring(0, lastDot);
+      Set<String> classPaths = classPathsByPackage.get(packageName);
+      if (classPaths == null)
+      {
+         classPaths = new HashSet<String>();
+         classPathsByPackage.put(packageName, classPaths);
       }
-      return covarientReturn();
+      final String classPath = classArchivePath.get();
+      classPaths.add(classPath.substring(0, classPath.length() - ".class".length()));
+   }
+
+   /**
+    * Adds the inner classes of the recorded classes, scanning each package once
+    */
+   private void addInnerClasses(final Map<String, Set<String>> classPathsByPackage, final ClassLoader classLoader)
+   {
+      for (final Map.Entry<String, Set<String>> entry : classPathsByPackage.entrySet())
+      {
+         final Set<String> classPaths = entry.getValue();
+         addPackage(
+               false,
+               new Filter<ArchivePath>()
+               {
+                  /**
+                   * path  = /package/MyClass$Test.class <br/>
+                   * clazz = /package/MyClass.class <br/>
+                   * 
+                   * Included if the path up to any '$' is that of an added class.
+                   *  
+                   * @param path The added classes 
+                   * @return 
+                   */
+                  public boolean include(ArchivePath path)
+                  {
+                     final String name = path.get();
+                     for (int i = name.indexOf('$'); i != -1; i = name.indexOf('$', i + 1))
+                     {
+                        if (classPaths.contains(name.substring(0, i)))
+                        {
+                           return true;
+                        }
+                     }
+                     return false;
+                  };
+               },
+               entry.getKey(),
+               classLoader
+         );
+      }
+   }
+
+   /**
+    * Obtains the class file of the named class from the specified {@link ClassLoader}, 
+    * or null if there is none
+    */
+   private static Asset getClassResource(final String className, final ClassLoader classLoader)
+   {
+      final URL resource = classLoader.getResource(className.replace('.', '/') + ".class");
+      return resource == null ? null : new UrlAsset(resource);
    }
 
    //-------------------------------------------------------------------------------------||
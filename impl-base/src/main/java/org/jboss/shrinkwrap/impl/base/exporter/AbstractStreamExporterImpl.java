@@ -16,6 +16,7 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -29,7 +30,6 @@ import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
 import org.jboss.shrinkwrap.api.exporter.FileExistsException;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
-import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 
 /**
  * Base support for I/O Stream-based exporters
@@ -48,6 +48,11 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
     */
    private static final Logger log = Logger.getLogger(AbstractStreamExporterImpl.class.getName());
 
+   /**
+    * Size of the buffer placed in front of {@link File} targets
+    */
+   private static final int FILE_BUFFER_SIZE = 8192;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -57,10 +62,33 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
       super(archive);
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Contracts --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new delegate to carry out a single export of the current archive 
+    * in the format supported by this exporter
+    * 
+    * @return
+    */
+   protected abstract StreamExporterDelegateBase<?> createExportDelegate();
+
    //-------------------------------------------------------------------------------------||
    // Functional Methods -----------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.api.exporter.StreamExporter#exportAsInputStream()
+    */
+   @Override
+   public InputStream exportAsInputStream()
+   {
+      // Create export delegate and get the result
+      return this.createExportDelegate().export();
+   }
+
    /**
     * Obtains an {@link OuputStream} to the provided {@link File}.
     * @param target
@@ -88,7 +116,7 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
       final OutputStream out;
       try
       {
-         out = new FileOutputStream(target);
+         out = new BufferedOutputStream(new FileOutputStream(target), FILE_BUFFER_SIZE);
       }
       catch (final FileNotFoundException e)
       {
@@ -112,34 +140,8 @@ public abstract class AbstractStreamExporterImpl extends AssignableBase<Archive<
          throw new IllegalArgumentException("Target must be specified");
       }
 
-      // Get Stream
-      final InputStream in = this.exportAsInputStream();
-
-      try
-      {
-         // Write out
-         try
-         {
-            IOUtil.copy(in, target);
-         }
-         catch (final IOException e)
-         {
-            throw new ArchiveExportException("Error encountered in exporting archive to " + target, e);
-         }
-      }
-      finally
-      {
-         // Close
-         try
-         {
-            in.close();
-         }
-         catch (final IOException ioe)
-         {
-            // Just log
-            log.warning("Could not close " + in + ": " + ioe);
-         }
-      }
+      // Encode directly into the target on this Thread; no pipe or ExecutorService is needed
+      this.createExportDelegate().exportTo(target);
    }
 
    /**
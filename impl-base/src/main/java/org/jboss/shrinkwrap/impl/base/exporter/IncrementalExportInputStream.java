@@ -0,0 +1,412 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
+
+/**
+ * {@link InputStream} which encodes an archive lazily as it is read.  Each
+ * time the internal buffer runs dry, the next step of the export is carried
+ * out upon the reading {@link Thread}: starting an entry, copying a chunk 
+ * of the current {@link Asset} through the encoder, closing an entry, or writing
+ * the trailing structures of the format.  The {@link Node} tree is walked in the 
+ * same order as {@link AbstractExporterDelegate#doExport()}, so the output is
+ * identical to that of {@link StreamExporterDelegateBase#exportTo(java.io.OutputStream)}.
+ * 
+ * No background tasks, pipes or {@link java.util.concurrent.ExecutorService}s 
+ * are involved, so nested archives may be exported while their parent is
+ * being read at no additional cost. 
+ *
+ * @version $Revision: $
+ */
+public class IncrementalExportInputStream extends InputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(IncrementalExportInputStream.class.getName());
+
+   /**
+    * Number of bytes read signaling the end has been reached
+    */
+   private static final int EOF = -1;
+
+   /**
+    * Number of bytes of {@link Asset} content pushed through the encoder per step
+    */
+   private static final int CHUNK_SIZE = 8192;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * The delegate encoding the archive
+    */
+   private final StreamExporterDelegateBase<?> delegate;
+
+   /**
+    * Encoded bytes not yet handed to the caller
+    */
+   private final EncodedBuffer encoded = new EncodedBuffer();
+
+   /**
+    * Reusable buffer used in copying {@link Asset} content into the encoder
+    */
+   private final byte[] chunk = new byte[CHUNK_SIZE];
+
+   /**
+    * Remaining siblings at each level of the {@link Node} tree walk, deepest first
+    */
+   private final LinkedList<Iterator<Node>> pending = new LinkedList<Iterator<Node>>();
+
+   /**
+    * Content of the entry currently being written, if any
+    */
+   private InputStream currentContent;
+
+   /**
+    * Path of the entry currently being written, if any
+    */
+   private ArchivePath currentPath;
+
+   /**
+    * Whether the encoder has been set up
+    */
+   private boolean started;
+
+   /**
+    * Whether the encoder has been released, either successfully or not
+    */
+   private boolean finished;
+
+   /**
+    * Whether this stream has been closed
+    */
+   private boolean closed;
+
+   /**
+    * Single-byte buffer for {@link IncrementalExportInputStream#read()}
+    */
+   private final byte[] single = new byte[1];
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new stream which will export using the specified delegate as it's read
+    */
+   IncrementalExportInputStream(final StreamExporterDelegateBase<?> delegate)
+   {
+      assert delegate != null : "delegate must be specified";
+      this.delegate = delegate;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#read()
+    */
+   @Override
+   public int read() throws IOException
+   {
+      final int bytesRead = this.read(single, 0, 1);
+      return bytesRead == EOF ? EOF : single[0] & 0xFF;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#read(byte[], int, int)
+    */
+   @Override
+   public int read(final byte[] b, final int off, final int len) throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+      if (off < 0 || len < 0 || len > b.length - off)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+      if (len == 0)
+      {
+         return 0;
+      }
+
+      // Encode until we have something to hand back, or there's nothing left
+      while (encoded.remaining() == 0)
+      {
+         if (!this.encodeNext())
+         {
+            return EOF;
+         }
+      }
+      return encoded.drainTo(b, off, len);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#available()
+    */
+   @Override
+   public int available() throws IOException
+   {
+      return closed ? 0 : encoded.remaining();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (closed)
+      {
+         return;
+      }
+      closed = true;
+      this.closeCurrentContent();
+      if (started && !finished)
+      {
+         finished = true;
+         delegate.abortEncoding();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Carries out the next step of the export
+    * @return false if the export is complete and no further bytes will be produced
+    * @throws ArchiveExportException If the export failed
+    */
+   private boolean encodeNext() throws ArchiveExportException
+   {
+      if (finished)
+      {
+         return false;
+      }
+
+      try
+      {
+         // Set up the encoder and start at the root
+         if (!started)
+         {
+            started = true;
+            delegate.startEncoding(encoded);
+            this.pushChildren(delegate.getArchive().get(ArchivePaths.root()));
+            return true;
+         }
+
+         // Continue the current entry
+         if (currentContent != null)
+         {
+            final int read = currentContent.read(chunk);
+            if (read == EOF)
+            {
+               this.closeCurrentContent();
+               delegate.endEntry();
+            }
+            else
+            {
+               delegate.outputStream.write(chunk, 0, read);
+            }
+            return true;
+         }
+
+         // Start the next entry
+         final Node node = this.nextNode();
+         if (node != null)
+         {
+            currentPath = node.getPath();
+            final Asset asset = node.getAsset();
+            final boolean isDirectory = asset == null;
+            if (!isDirectory)
+            {
+               currentContent = delegate.openContent(currentPath, asset);
+            }
+            delegate.startEntry(currentPath, asset);
+            if (isDirectory)
+            {
+               delegate.endEntry();
+            }
+            return true;
+         }
+
+         // Nothing left; write out any trailing structures
+         finished = true;
+         delegate.finishEncoding();
+         return true;
+      }
+      catch (final Throwable t)
+      {
+         // Release everything; the output is incomplete
+         this.closeCurrentContent();
+         if (!finished)
+         {
+            finished = true;
+            delegate.abortEncoding();
+         }
+         if (t instanceof ArchiveExportException)
+         {
+            throw (ArchiveExportException) t;
+         }
+         if (currentPath == null)
+         {
+            throw new ArchiveExportException("Error encountered in exporting archive "
+                  + delegate.getArchive().toString(), t);
+         }
+         throw new ArchiveExportException("Failed to write asset to output: " + currentPath.get(), t);
+      }
+   }
+
+   /**
+    * Obtains the next {@link Node} in the walk, queuing its children
+    * to be processed directly after it
+    * @return
+    */
+   private Node nextNode()
+   {
+      while (!pending.isEmpty())
+      {
+         final Iterator<Node> siblings = pending.getFirst();
+         if (siblings.hasNext())
+         {
+            final Node node = siblings.next();
+            this.pushChildren(node);
+            return node;
+         }
+         pending.removeFirst();
+      }
+      return null;
+   }
+
+   /**
+    * Queues a snapshot of the children of the specified {@link Node}
+    * @param node
+    */
+   private void pushChildren(final Node node)
+   {
+      pending.addFirst(new ArrayList<Node>(node.getChildren()).iterator());
+   }
+
+   /**
+    * Closes the content of the current entry, if any
+    */
+   private void closeCurrentContent()
+   {
+      if (currentContent == null)
+      {
+         return;
+      }
+      try
+      {
+         currentContent.close();
+      }
+      catch (final IOException ignore)
+      {
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not close stream due to: " + ignore.getMessage() + "; ignoring");
+         }
+      }
+      currentContent = null;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reusable sink for the encoder, from which the encoded bytes are 
+    * drained by the reader.  The backing array is rewound rather than
+    * reallocated once it has been fully drained.
+    */
+   private static final class EncodedBuffer extends ByteArrayOutputStream
+   {
+      /**
+       * Position of the next byte to be drained
+       */
+      private int position;
+
+      EncodedBuffer()
+      {
+         super(CHUNK_SIZE * 2);
+      }
+
+      /**
+       * @return The number of bytes written but not yet drained
+       */
+      int remaining()
+      {
+         return count - position;
+      }
+
+      /**
+       * Moves up to the specified number of bytes into the target, rewinding
+       * the buffer if it has been emptied
+       */
+      int drainTo(final byte[] b, final int off, final int len)
+      {
+         final int toCopy = Math.min(len, this.remaining());
+         System.arraycopy(buf, position, b, off, toCopy);
+         position += toCopy;
+         if (position == count)
+         {
+            position = 0;
+            count = 0;
+         }
+         return toCopy;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.ByteArrayOutputStream#close()
+       */
+      @Override
+      public void close()
+      {
+         // Encoders close their targets when finished; keep any undrained bytes available
+      }
+   }
+}
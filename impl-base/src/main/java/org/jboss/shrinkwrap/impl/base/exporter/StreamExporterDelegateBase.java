@@ -16,25 +16,25 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedOutputStream;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.CompressionPool;
 import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 import org.jboss.shrinkwrap.impl.base.io.StreamErrorHandler;
 import org.jboss.shrinkwrap.impl.base.io.StreamTask;
@@ -43,7 +43,11 @@ import org.jboss.shrinkwrap.spi.Configurable;
 
 /**
  * Base for exporters capable of writing to some implementation
- * of {@link OutputStream}
+ * of {@link OutputStream}.  All encoding is done upon the calling
+ * {@link Thread}; either pushed directly into a target via
+ * {@link StreamExporterDelegateBase#exportTo(OutputStream)}, or 
+ * pulled on demand by the {@link InputStream} returned from 
+ * {@link StreamExporterDelegateBase#export()}.
  * 
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
@@ -78,11 +82,6 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
     */
    private Set<ArchivePath> pathsExported = new HashSet<ArchivePath>();
 
-   /**
-    * Synchronization point where the encoding process will wait until all streams have been set up
-    */
-   protected final CountDownLatch latch = new CountDownLatch(1);
-
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -100,95 +99,60 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
-   /**
-    * Returns the task used to run the export operation in another Thread.  Exposed
-    * such that the specified task (which handles the export) may be wrapped in some 
-    * error handling logic specific to the export process. 
-    * @param wrappedTask The export task to be wrapped in more specific handling logic
-    */
-   protected abstract Callable<Void> getExportTask(Callable<Void> wrappedTask);
-
    /**
     * {@inheritDoc}
     * @see org.jboss.shrinkwrap.impl.base.exporter.AbstractExporterDelegate#doExport()
     */
    protected void doExport()
    {
-      // Define the task to operate in another Thread so we can pipe the output to an InStream
-      final Callable<Void> exportTask = this.getExportTask(new Callable<Void>()
-      {
-
-         // Wrapped task is the super implementation
-         @Override
-         public Void call() throws Exception
-         {
-            StreamExporterDelegateBase.super.doExport();
-            return null;
-         }
-
-      });
-
-      // Get an ExecutorService to which we may submit jobs.  This is either supplied by the user
-      // in a custom domain, or if one has not been specified, we'll make one and shut it down right
-      // here.  ExecutorServices supplied by the user are under the user's lifecycle, therefore it's
-      // user responsibility to shut it down appropriately.
-      boolean executorServiceIsOurs = false;
-      ExecutorService service = this.getArchive().as(Configurable.class).getConfiguration().getExecutorService();
-      if (service == null)
-      {
-         service = Executors.newSingleThreadExecutor();
-         executorServiceIsOurs = true;
-      }
-
-      // Get a handle and return it to the caller
-      final Future<Void> job = service.submit(exportTask);
+      // Nothing is encoded here; the returned stream walks the archive as it's read
+      inputStream = new IncrementalExportInputStream(this);
+   }
 
-      // If we've created the ES
-      if (executorServiceIsOurs)
+   /**
+    * Runs the export operation synchronously upon the calling {@link Thread}, writing
+    * the encoded archive directly to the specified target.  The target will be flushed, 
+    * but not closed; this is the responsibility of the caller.
+    * 
+    * @param target
+    * @throws IllegalArgumentException If the target is not specified
+    * @throws ArchiveExportException If an error occurred during export
+    */
+   public final void exportTo(final OutputStream target) throws IllegalArgumentException, ArchiveExportException
+   {
+      // Precondition checks
+      if (target == null)
       {
-         // Tell the service to shut down after the job has completed, and accept no new jobs
-         service.shutdown();
+         throw new IllegalArgumentException("Target must be specified");
       }
 
-      /*
-       * At this point the job will start, but hit the latch until we set up the streams
-       * and tell it to proceed.
-       */
-
-      // Stream to return to the caller
-      final FutureCompletionInputStream input = new FutureCompletionInputStream(job);
-      inputStream = input;
+      // Encode straight into the caller's stream, shielding it from being closed along with the encoder
+      this.startEncoding(new UncloseableOutputStream(target));
 
-      /**
-       * OutputStream which will be associated with the returned InStream, and the 
-       * chained IO point for the final OutStream
-       */
-      final OutputStream output;
+      boolean finished = false;
       try
       {
-         output = new PipedOutputStream(input);
-      }
-      catch (final IOException e)
-      {
-         throw new RuntimeException("Error in setting up output stream", e);
-      }
+         // Write all entries
+         super.doExport();
 
-      // Set up the stream to which we'll write entries, backed by the piped stream
-      try
-      {
-         outputStream = StreamExporterDelegateBase.this.createOutputStream(output);
+         // Write any trailing structures
+         try
+         {
+            this.finishEncoding();
+         }
+         catch (final IOException ioe)
+         {
+            throw new ArchiveExportException("Error encountered in exporting archive to " + target, ioe);
+         }
+         finished = true;
       }
-      catch (final IOException e)
+      finally
       {
-         throw new ArchiveExportException("Could not create the underlying stream to export: "
-               + this.getArchive().toString(), e);
+         if (!finished)
+         {
+            this.abortEncoding();
+         }
       }
-
-      /*
-       * The job is now waiting on us to signal that we've set up the streams; 
-       * let it continue
-       */
-      latch.countDown();
    }
 
    /**
@@ -200,12 +164,42 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
     */
    protected abstract void putNextExtry(O outputStream, String context) throws IOException;
 
+   /**
+    * Writes the next entry (demarcates a new file/folder is to be written)
+    * for the specified {@link Asset}, which is null for directories.  Formats
+    * able to make use of what's known about the {@link Asset} up front 
+    * (ie. its size) may override; by default delegates to 
+    * {@link StreamExporterDelegateBase#putNextExtry(OutputStream, String)}.
+    * @param outputStream
+    * @param context
+    * @param asset
+    * @throws IOException If an error occurred writing the entry
+    */
+   protected void putNextExtry(final O outputStream, final String context, final Asset asset) throws IOException
+   {
+      this.putNextExtry(outputStream, context);
+   }
+
    /**
     * Closes the current entry context for the specified {@link OutputStream}
     * @param outputStream
     */
    protected abstract void closeEntry(O outputStream) throws IOException;
 
+   /**
+    * Opens the content of the specified {@link Asset} to be written under its entry
+    * at the specified path.  By default this is {@link Asset#openStream()}; formats 
+    * able to take content already in encoded form may override, in concert with 
+    * {@link StreamExporterDelegateBase#putNextExtry(OutputStream, String, Asset)}.
+    * @param path
+    * @param asset
+    * @return
+    */
+   protected InputStream openContent(final ArchivePath path, final Asset asset)
+   {
+      return asset.openStream();
+   }
+
    /**
     * Creates the real {@link OutputStream} to which we'll write, 
     * wrapping the provided target.
@@ -238,11 +232,16 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
       InputStream stream = null;
       if (!isDirectory)
       {
-         stream = node.getAsset().openStream();
+         try
+         {
+            stream = openContent(path, node.getAsset());
+         }
+         catch (final RuntimeException re)
+         {
+            throw new ArchiveExportException("Failed to write asset to output: " + path.get(), re);
+         }
       }
 
-      final String pathName = PathUtil.optionallyRemovePrecedingSlash(path.get());
-
       // Make a task for this stream and close when done
       IOUtil.closeOnComplete(stream, new StreamTask<InputStream>()
       {
@@ -250,31 +249,8 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
          @Override
          public void execute(final InputStream stream) throws Exception
          {
-            String resolvedPath = pathName;
-            if (isDirectory)
-            {
-               resolvedPath = PathUtil.optionallyAppendSlash(resolvedPath);
-            }
-
-            /*
-             * Wait until all streams have been set up for encoding, or
-             * do nothing if everything's set up already
-             */
-            latch.await();
-
             // Write the Asset under the same Path name in the output
-            try
-            {
-               putNextExtry(outputStream, resolvedPath);
-            }
-            catch (final IOException ze)
-            {
-               log.log(Level.SEVERE, pathsExported.toString());
-               throw new RuntimeException(ze);
-            }
-
-            // Mark that we've written this Path 
-            pathsExported.add(path);
+            startEntry(path, node.getAsset());
 
             // Read the contents of the asset and write to the JAR, 
             // if we're not just a directory
@@ -284,7 +260,7 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
             }
 
             // Close up the instream and the entry
-            StreamExporterDelegateBase.this.closeEntry(outputStream);
+            endEntry();
          }
 
       }, new StreamErrorHandler()
@@ -318,4 +294,163 @@ public abstract class StreamExporterDelegateBase<O extends OutputStream> extends
       return Collections.unmodifiableSet(this.pathsExported);
    }
 
+   /**
+    * Obtains the {@link Configuration} of the archive being exported
+    * @return
+    */
+   protected final Configuration getConfiguration()
+   {
+      return this.getArchive().as(Configurable.class).getConfiguration();
+   }
+
+   /**
+    * Obtains the {@link ExecutorService} upon which compression work should be run: 
+    * that of the archive's {@link Configuration} if set, else the shared 
+    * {@link CompressionPool}.  Returns null if compression should take place upon 
+    * the calling Thread.
+    * @return
+    */
+   protected final ExecutorService getCompressionExecutor()
+   {
+      final ExecutorService service = this.getConfiguration().getExecutorService();
+      return service != null ? service : CompressionPool.get();
+   }
+
+   /**
+    * Obtains the {@link CodecPool} from which compressors and buffers should be 
+    * borrowed: that shared by all archives of the same {@link Configuration}
+    * @return
+    */
+   protected final CodecPool getCodecPool()
+   {
+      return CodecPool.of(this.getConfiguration());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Encoding Lifecycle -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Sets up the encoder to write all entries to the specified target
+    * @param target
+    * @throws ArchiveExportException If the encoder could not be created
+    */
+   final void startEncoding(final OutputStream target) throws ArchiveExportException
+   {
+      try
+      {
+         outputStream = this.createOutputStream(target);
+      }
+      catch (final IOException e)
+      {
+         throw new ArchiveExportException("Could not create the underlying stream to export: "
+               + this.getArchive().toString(), e);
+      }
+   }
+
+   /**
+    * Begins a new entry at the specified path for the specified {@link Asset},
+    * or a directory if the {@link Asset} is null
+    * @param path
+    * @param asset
+    * @throws IOException If an error occurred writing the entry
+    */
+   final void startEntry(final ArchivePath path, final Asset asset) throws IOException
+   {
+      String resolvedPath = PathUtil.optionallyRemovePrecedingSlash(path.get());
+      if (asset == null)
+      {
+         resolvedPath = PathUtil.optionallyAppendSlash(resolvedPath);
+      }
+
+      try
+      {
+         putNextExtry(outputStream, resolvedPath, asset);
+      }
+      catch (final IOException ioe)
+      {
+         log.log(Level.SEVERE, pathsExported.toString());
+         throw ioe;
+      }
+
+      // Mark that we've written this Path 
+      pathsExported.add(path);
+   }
+
+   /**
+    * Closes the entry currently being written
+    * @throws IOException
+    */
+   final void endEntry() throws IOException
+   {
+      this.closeEntry(outputStream);
+   }
+
+   /**
+    * Writes any trailing structures of the format and releases the encoder
+    * @throws IOException
+    */
+   final void finishEncoding() throws IOException
+   {
+      outputStream.close();
+   }
+
+   /**
+    * Releases the encoder after a failed export, ignoring any errors 
+    * as the output is incomplete anyway
+    */
+   final void abortEncoding()
+   {
+      try
+      {
+         outputStream.close();
+      }
+      catch (final IOException ignore)
+      {
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not close encoder of failed export due to: " + ignore.getMessage() + "; ignoring");
+         }
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@link OutputStream} wrapper which flushes, but does not close, the
+    * underlying stream upon {@link OutputStream#close()}.  Used to protect
+    * a caller-supplied target from encoders which close their delegates
+    * when finished.
+    */
+   private static final class UncloseableOutputStream extends FilterOutputStream
+   {
+      UncloseableOutputStream(final OutputStream out)
+      {
+         super(out);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.FilterOutputStream#write(byte[], int, int)
+       */
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException
+      {
+         // Don't go byte-by-byte as FilterOutputStream would
+         out.write(b, off, len);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.io.FilterOutputStream#close()
+       */
+      @Override
+      public void close() throws IOException
+      {
+         this.flush();
+      }
+   }
+
 }
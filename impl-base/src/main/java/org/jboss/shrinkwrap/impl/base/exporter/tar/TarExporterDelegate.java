@@ -64,6 +64,6 @@ public class TarExporterDelegate extends TarExporterDelegateBase<TarOutputStream
    protected final TarOutputStream createOutputStream(final OutputStream out) throws IOException
    {
       // Create and return
-      return new TarOutputStream(out);
+      return new TarOutputStream(out, this.getConfiguration().getSpillThreshold());
    }
 }
@@ -17,11 +17,10 @@
 package org.jboss.shrinkwrap.impl.base.exporter.tar;
 
 import java.io.IOException;
-import java.util.concurrent.Callable;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
 import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarOutputStreamImpl;
@@ -34,15 +33,6 @@ import org.jboss.shrinkwrap.impl.base.io.tar.TarOutputStreamImpl;
  */
 public abstract class TarExporterDelegateBase<T extends TarOutputStreamImpl> extends StreamExporterDelegateBase<T>
 {
-   //-------------------------------------------------------------------------------------||
-   // Class Members ----------------------------------------------------------------------||
-   //-------------------------------------------------------------------------------------||
-
-   /**
-    * Logger
-    */
-   private static final Logger log = Logger.getLogger(TarExporterDelegateBase.class.getName());
-
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -77,58 +67,39 @@ public abstract class TarExporterDelegateBase<T extends TarOutputStreamImpl> ext
    @Override
    protected final void putNextExtry(final T outputStream, final String context) throws IOException
    {
-      // Put
-      final TarEntry entry = new TarEntry(context);
-      outputStream.putNextEntry(entry);
+      // Size unknown
+      this.putNextExtry(outputStream, context, null);
    }
 
    /**
     * {@inheritDoc}
-    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#getExportTask()
+    * Where the {@link Asset} is able to report its size, the entry header is written
+    * immediately and content streams straight through; otherwise the content is 
+    * buffered until the entry is closed.  Known modification times are preserved.
+    * 
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#putNextExtry(java.io.OutputStream, java.lang.String, org.jboss.shrinkwrap.api.asset.Asset)
     */
    @Override
-   protected Callable<Void> getExportTask(final Callable<Void> wrappedTask)
+   protected final void putNextExtry(final T outputStream, final String context, final Asset asset)
+         throws IOException
    {
-      assert wrappedTask != null : "Wrapped task must be specified";
-      return new Callable<Void>()
+      final TarEntry entry = new TarEntry(context);
+      if (asset instanceof DescribableAsset)
       {
-
-         @Override
-         public Void call() throws Exception
+         final DescribableAsset described = (DescribableAsset) asset;
+         final long size = described.getSize();
+         if (size > 0)
          {
-            try
-            {
-               // Attempt the wrapped task
-               wrappedTask.call();
-            }
-            catch (final Exception e)
-            {
-
-               // Log this and rethrow; otherwise if we go into deadlock we won't ever 
-               // be able to get the underlying cause from the Future 
-               log.log(Level.WARNING, "Exception encountered during export of archive", e);
-
-               throw e;
-            }
-            finally
-            {
-
-               try
-               {
-                  outputStream.close();
-               }
-               catch (final IOException ioe)
-               {
-                  // Ignore, but warn of danger
-                  log.log(
-                        Level.WARNING,
-                        "[SHRINKWRAP-120] Possible deadlock scenario: Got exception on closing the out stream: "
-                              + ioe.getMessage(), ioe);
-               }
-            }
-
-            return null;
+            entry.setSize(size);
          }
-      };
+         final long lastModified = described.getLastModified();
+         if (lastModified != DescribableAsset.UNKNOWN)
+         {
+            entry.setModTime(lastModified);
+         }
+      }
+
+      // Put
+      outputStream.putNextEntry(entry);
    }
 }
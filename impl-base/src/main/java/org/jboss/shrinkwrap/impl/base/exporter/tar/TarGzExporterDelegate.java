@@ -21,10 +21,14 @@ import java.io.OutputStream;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarGzOutputStream;
 
 /**
  * Implementation of an exporter for the TAR format, further encoded as GZIP.  
+ * If so configured, the GZIP encoding is split into blocks of the configured size, 
+ * compressed in parallel and written as a series of GZIP members; else it is 
+ * written as a single member.
  * 
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @version $Revision: $
@@ -64,7 +68,14 @@ public class TarGzExporterDelegate extends TarExporterDelegateBase<TarGzOutputSt
    @Override
    protected final TarGzOutputStream createOutputStream(final OutputStream out) throws IOException
    {
-      // Create and return
-      return new TarGzOutputStream(out);
+      final Configuration configuration = this.getConfiguration();
+      if (!configuration.isMultiMemberGzip())
+      {
+         return new TarGzOutputStream(out, configuration.getSpillThreshold());
+      }
+
+      // Compress in blocks, in parallel as configured
+      return new TarGzOutputStream(out, this.getCompressionExecutor(), configuration.getCompressionBlockSize(),
+            configuration.getCompressionParallelism(), configuration.getSpillThreshold(), this.getCodecPool());
    }
 }
@@ -16,13 +16,12 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter.tar;
 
-import java.io.InputStream;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
-import org.jboss.shrinkwrap.impl.base.exporter.AbstractExporterDelegate;
 import org.jboss.shrinkwrap.impl.base.exporter.AbstractStreamExporterImpl;
+import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
 
 /**
  * Implementation of {@link TarGzExporter} used to export an Archive as a TAR format
@@ -61,15 +60,12 @@ public class TarGzExporterImpl extends AbstractStreamExporterImpl implements Tar
 
    /**
     * {@inheritDoc}
-    * @see org.jboss.shrinkwrap.api.exporter.StreamExporter#exportAsInputStream()
+    * @see org.jboss.shrinkwrap.impl.base.exporter.AbstractStreamExporterImpl#createExportDelegate()
     */
    @Override
-   public InputStream exportAsInputStream()
+   protected StreamExporterDelegateBase<?> createExportDelegate()
    {
       // Create export delegate
-      final AbstractExporterDelegate<InputStream> exportDelegate = new TarGzExporterDelegate(this.getArchive());
-
-      // Execute export
-      return exportDelegate.export();
+      return new TarGzExporterDelegate(this.getArchive());
    }
 }
@@ -0,0 +1,1315 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter.zip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import org.jboss.shrinkwrap.api.exporter.ZipCompression;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.FileBackedOutputStream;
+
+/**
+ * {@link OutputStream} writing the ZIP format, compressing entries independently of
+ * one another so that the DEFLATE work may be spread across the Threads of an
+ * {@link ExecutorService}.  Each entry's content is buffered until 
+ * {@link ParallelZipOutputStream#closeEntry()}, at which point it is handed off 
+ * to be compressed while the caller moves on to the next entry.  Compressed entries
+ * are written strictly in the order in which they were put, followed by the central
+ * directory, so the output is byte-identical regardless of the number of 
+ * Threads (or whether an {@link ExecutorService} is used at all).
+ * 
+ * Entries whose content exceeds {@link ParallelZipOutputStream#ENTRY_BUFFER_LIMIT} are
+ * not buffered; once all preceding entries are written they're compressed upon the 
+ * calling {@link Thread} and terminated with a data descriptor.  Such entries to be 
+ * stored (see {@link ZipCompression#STORED}) instead continue to a temporary file, as their 
+ * size and checksum must precede their content.  ZIP64 extensions are written where required.
+ * 
+ * Buffered content and compressed output are held in arrays borrowed from the 
+ * {@link CodecPool}, and headers are assembled in a single reusable buffer.
+ * 
+ * Not thread-safe.
+ *
+ * @version $Revision: $
+ */
+public class ParallelZipOutputStream extends OutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Content size above which an entry is compressed upon the calling Thread
+    * rather than being buffered
+    */
+   static final int ENTRY_BUFFER_LIMIT = 8 * 1024 * 1024;
+
+   /**
+    * Total uncompressed size of the entries awaiting compression above which 
+    * we'll block on the oldest before accepting more
+    */
+   private static final long PENDING_BYTES_LIMIT = 32L * 1024 * 1024;
+
+   /**
+    * Size of the chunks in which compressed content is written
+    */
+   private static final int CHUNK_SIZE = 8192;
+
+   /**
+    * Size above which borrowed buffers are left to the garbage collector rather than
+    * handed back, bounding what the {@link CodecPool} holds idle
+    */
+   private static final int POOLED_BUFFER_LIMIT = 1024 * 1024;
+
+   private static final int SIG_LOCAL_HEADER = 0x04034b50;
+
+   private static final int SIG_DATA_DESCRIPTOR = 0x08074b50;
+
+   private static final int SIG_CENTRAL_HEADER = 0x02014b50;
+
+   private static final int SIG_ZIP64_END = 0x06064b50;
+
+   private static final int SIG_ZIP64_LOCATOR = 0x07064b50;
+
+   private static final int SIG_END = 0x06054b50;
+
+   private static final int VERSION_STORED = 10;
+
+   private static final int VERSION_DEFLATED = 20;
+
+   private static final int VERSION_ZIP64 = 45;
+
+   /**
+    * General purpose flag denoting sizes and CRC follow the content in a data descriptor
+    */
+   private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+   /**
+    * General purpose flag denoting names are encoded in UTF-8
+    */
+   private static final int FLAG_UTF8 = 0x0800;
+
+   private static final int METHOD_STORED = 0;
+
+   private static final int METHOD_DEFLATED = 8;
+
+   private static final int ZIP64_EXTRA_ID = 0x0001;
+
+   private static final long ZIP64_MAGIC_32 = 0xFFFFFFFFL;
+
+   private static final int ZIP64_MAGIC_16 = 0xFFFF;
+
+   private static final String CHARSET_UTF8 = "UTF-8";
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Underlying target
+    */
+   private final OutputStream out;
+
+   /**
+    * Where compression tasks are run, or null to compress upon the calling Thread
+    */
+   private final ExecutorService executor;
+
+   /**
+    * Compression level of entries which don't specify their own
+    */
+   private final int level;
+
+   /**
+    * Maximum number of entries awaiting compression at any one time
+    */
+   private final int maxPending;
+
+   /**
+    * Modification time stamped on entries which don't specify their own, in MS-DOS format
+    */
+   private final long dosTime;
+
+   /**
+    * Entries which have been closed, but not yet written, in order
+    */
+   private final LinkedList<Future<EncodedEntry>> pending = new LinkedList<Future<EncodedEntry>>();
+
+   /**
+    * Uncompressed bytes held by {@link ParallelZipOutputStream#pending}
+    */
+   private long pendingBytes;
+
+   /**
+    * Entries written, to be recorded in the central directory
+    */
+   private final List<EncodedEntry> written = new ArrayList<EncodedEntry>();
+
+   /**
+    * Number of bytes written to the underlying target
+    */
+   private long offset;
+
+   /**
+    * Name of the entry currently open, or null
+    */
+   private byte[] currentName;
+
+   /**
+    * Modification time of the entry currently open, in MS-DOS format
+    */
+   private long currentDosTime;
+
+   /**
+    * Compression level of the entry currently open, or {@link ZipCompression#STORED}
+    */
+   private int currentLevel;
+
+   /**
+    * Content of the entry currently open, if being buffered
+    */
+   private EntryBuffer currentContent;
+
+   /**
+    * Buffer of the content of each entry in turn, whose array is handed off upon close
+    */
+   private final EntryBuffer entryBuffer;
+
+   /**
+    * The entry currently open, if being compressed upon the calling Thread
+    */
+   private EncodedEntry streaming;
+
+   /**
+    * The entry currently open, if its content is being written already compressed
+    */
+   private EncodedEntry raw;
+
+   /**
+    * Bytes of already-compressed content written straight through for the current entry
+    */
+   private long rawWritten;
+
+   /**
+    * Content of the entry currently open, if to be stored and too large to buffer
+    */
+   private FileBackedOutputStream spilled;
+
+   /**
+    * {@link Deflater} borrowed for the entry being compressed upon the calling Thread
+    */
+   private Deflater streamingDeflater;
+
+   /**
+    * Level at which {@link ParallelZipOutputStream#streamingDeflater} was borrowed
+    */
+   private int streamingLevel;
+
+   /**
+    * Where {@link Deflater}s are borrowed from
+    */
+   private final CodecPool pool;
+
+   /**
+    * Checksum of entries compressed or spilled upon the calling Thread
+    */
+   private CRC32 streamingCrc;
+
+   /**
+    * Reusable buffer for compressed output and headers
+    */
+   private final byte[] chunk = new byte[CHUNK_SIZE];
+
+   /**
+    * Single-byte buffer for {@link ParallelZipOutputStream#write(int)}
+    */
+   private final byte[] single = new byte[1];
+
+   /**
+    * Whether the central directory has been written
+    */
+   private boolean finished;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new stream writing to the specified target, compressing on the
+    * specified {@link ExecutorService} (or the calling Thread if null) at 
+    * the specified level
+    * 
+    * @param out
+    * @param executor
+    * @param level
+    * @param maxPending Maximum number of entries to have in compression at any one time 
+    * @throws IllegalArgumentException If the target is not specified or the maximum pending is not positive
+    */
+   public ParallelZipOutputStream(final OutputStream out, final ExecutorService executor, final int level,
+         final int maxPending) throws IllegalArgumentException
+   {
+      this(out, executor, level, maxPending, CodecPool.shared());
+   }
+
+   /**
+    * Creates a new stream as {@link ParallelZipOutputStream#ParallelZipOutputStream(OutputStream, ExecutorService, int, int)}, 
+    * borrowing {@link Deflater}s from the specified {@link CodecPool}
+    * 
+    * @param out
+    * @param executor
+    * @param level
+    * @param maxPending
+    * @param pool
+    * @throws IllegalArgumentException If the target or pool is not specified or the maximum pending is not positive
+    */
+   public ParallelZipOutputStream(final OutputStream out, final ExecutorService executor, final int level,
+         final int maxPending, final CodecPool pool) throws IllegalArgumentException
+   {
+      if (out == null)
+      {
+         throw new IllegalArgumentException("Target must be specified");
+      }
+      if (maxPending < 1)
+      {
+         throw new IllegalArgumentException("Maximum pending entries must be positive");
+      }
+      if (pool == null)
+      {
+         throw new IllegalArgumentException("pool must be specified");
+      }
+      this.out = out;
+      this.pool = pool;
+      this.entryBuffer = new EntryBuffer(pool);
+      this.executor = executor;
+      this.level = level;
+      this.maxPending = maxPending;
+      this.dosTime = toDosTime(System.currentTimeMillis());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Begins a new entry of the specified name, closing the current entry if open
+    * @param name
+    * @throws IOException
+    */
+   public void putNextEntry(final String name) throws IOException
+   {
+      this.putNextEntry(name, -1L);
+   }
+
+   /**
+    * Begins a new entry of the specified name and modification time (in milliseconds
+    * since the epoch, or -1 to use the time at which this stream was created), 
+    * closing the current entry if open
+    * @param name
+    * @param lastModified
+    * @throws IOException
+    */
+   public void putNextEntry(final String name, final long lastModified) throws IOException
+   {
+      this.putNextEntry(name, lastModified, level);
+   }
+
+   /**
+    * Begins a new entry of the specified name and modification time (as 
+    * {@link ParallelZipOutputStream#putNextEntry(String, long)}), compressed at 
+    * the specified level, or stored if {@link ZipCompression#STORED}
+    * @param name
+    * @param lastModified
+    * @param level
+    * @throws IOException
+    */
+   public void putNextEntry(final String name, final long lastModified, final int level) throws IOException
+   {
+      this.ensureOpen();
+      if (currentName != null)
+      {
+         this.closeEntry();
+      }
+      currentName = encodeName(name);
+      currentDosTime = lastModified < 0 ? dosTime : toDosTime(lastModified);
+      currentLevel = level;
+      entryBuffer.clear();
+      currentContent = entryBuffer;
+   }
+
+   /**
+    * Begins a new entry of the specified name and modification time whose content
+    * will be written already in compressed form, as read verbatim from another ZIP.
+    * No compression takes place; the content is written as-is along with the 
+    * specified method, CRC and sizes.  Closes the current entry if open.
+    * 
+    * @param name
+    * @param lastModified
+    * @param method 0 if stored, or 8 if deflated
+    * @param crc CRC-32 of the uncompressed content
+    * @param size Length of the uncompressed content
+    * @param compressedSize Length of the content as it will be written
+    * @throws IOException
+    */
+   public void putNextRawEntry(final String name, final long lastModified, final int method, final long crc,
+         final long size, final long compressedSize) throws IOException
+   {
+      if (method != METHOD_STORED && method != METHOD_DEFLATED)
+      {
+         throw new ZipException("Unsupported compression method: " + method);
+      }
+      if (crc < 0 || size < 0 || compressedSize < 0)
+      {
+         throw new ZipException("CRC and sizes must be known to write a raw entry: " + name);
+      }
+      this.putNextEntry(name, lastModified);
+
+      raw = new EncodedEntry(currentName, currentDosTime, method, 0);
+      raw.crc = crc;
+      raw.size = size;
+      raw.compressedSize = compressedSize;
+
+      // Too large to buffer (so queued behind entries still in compression); 
+      // write out everything before it and pass straight through 
+      if (compressedSize > ENTRY_BUFFER_LIMIT)
+      {
+         this.writePending(true);
+         raw.offset = offset;
+         this.writeLocalHeader(raw);
+         currentContent = null;
+         rawWritten = 0;
+      }
+   }
+
+   /**
+    * Closes the current entry, handing it off for compression
+    * @throws IOException
+    */
+   public void closeEntry() throws IOException
+   {
+      this.ensureOpen();
+      if (currentName == null)
+      {
+         return;
+      }
+
+      if (raw != null)
+      {
+         this.finishRawEntry();
+      }
+      else if (streaming != null)
+      {
+         this.finishStreamingEntry();
+      }
+      else if (spilled != null)
+      {
+         this.finishSpilledEntry();
+      }
+      else
+      {
+         final int length = currentContent.size();
+         final Callable<EncodedEntry> task = new DeflateTask(currentName, currentDosTime, currentContent.detach(),
+               length, currentLevel, pool);
+         final FutureTask<EncodedEntry> future = new FutureTask<EncodedEntry>(task);
+         if (executor == null)
+         {
+            future.run();
+         }
+         else
+         {
+            executor.execute(future);
+         }
+         pending.add(future);
+         pendingBytes += length;
+      }
+
+      currentName = null;
+      currentContent = null;
+
+      // Write out whatever's ready, and bound what's held
+      this.writePending(false);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(int)
+    */
+   @Override
+   public void write(final int b) throws IOException
+   {
+      single[0] = (byte) b;
+      this.write(single, 0, 1);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.ensureOpen();
+      if (currentName == null)
+      {
+         throw new ZipException("No current ZIP entry");
+      }
+      if (len == 0)
+      {
+         return;
+      }
+
+      if (raw != null)
+      {
+         this.writeRaw(b, off, len);
+         return;
+      }
+
+      if (currentContent != null && currentContent.size() + (long) len > ENTRY_BUFFER_LIMIT)
+      {
+         if (currentLevel == ZipCompression.STORED)
+         {
+            this.startSpilledEntry();
+         }
+         else
+         {
+            this.startStreamingEntry();
+         }
+      }
+
+      if (spilled != null)
+      {
+         streamingCrc.update(b, off, len);
+         spilled.write(b, off, len);
+      }
+      else if (streaming != null)
+      {
+         streamingCrc.update(b, off, len);
+         streaming.size += len;
+         streamingDeflater.setInput(b, off, len);
+         while (!streamingDeflater.needsInput())
+         {
+            this.writeDeflated(streamingDeflater);
+         }
+      }
+      else
+      {
+         currentContent.write(b, off, len);
+      }
+   }
+
+   /**
+    * Writes all remaining entries and the central directory, without closing 
+    * the underlying target
+    * @throws IOException
+    */
+   public void finish() throws IOException
+   {
+      if (finished)
+      {
+         return;
+      }
+      this.closeEntry();
+      this.writePending(true);
+      this.writeCentralDirectory();
+      out.flush();
+      finished = true;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#flush()
+    */
+   @Override
+   public void flush() throws IOException
+   {
+      out.flush();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      try
+      {
+         this.finish();
+      }
+      finally
+      {
+         this.release();
+         out.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Writes completed entries in order.  If "all" is set, blocks until every pending
+    * entry is written, else only blocks while we're holding too many entries
+    */
+   private void writePending(final boolean all) throws IOException
+   {
+      while (!pending.isEmpty())
+      {
+         final Future<EncodedEntry> head = pending.getFirst();
+         final boolean mustWait = all || pending.size() > maxPending || pendingBytes > PENDING_BYTES_LIMIT;
+         if (!mustWait && !head.isDone())
+         {
+            return;
+         }
+         pending.removeFirst();
+         final EncodedEntry entry = await(head);
+         pendingBytes -= entry.size;
+         this.writeEntry(entry);
+      }
+   }
+
+   /**
+    * Writes the local header and compressed content of the specified entry
+    */
+   private void writeEntry(final EncodedEntry entry) throws IOException
+   {
+      entry.offset = offset;
+      this.writeLocalHeader(entry);
+      if (entry.data != null)
+      {
+         this.writeBytes(entry.data, 0, (int) entry.compressedSize);
+         recycle(pool, entry.data);
+         entry.data = null;
+      }
+      written.add(entry);
+   }
+
+   /**
+    * Switches the current entry to be compressed upon this Thread; everything 
+    * pending must be written first to preserve ordering
+    */
+   private void startStreamingEntry() throws IOException
+   {
+      this.writePending(true);
+
+      streaming = new EncodedEntry(currentName, currentDosTime, METHOD_DEFLATED, FLAG_DATA_DESCRIPTOR);
+      streaming.offset = offset;
+      this.writeLocalHeader(streaming);
+
+      streamingDeflater = pool.borrowDeflater(currentLevel);
+      streamingLevel = currentLevel;
+      this.resetCrc();
+
+      // Push through what we've buffered so far
+      final int buffered = currentContent.size();
+      final byte[] content = currentContent.detach();
+      currentContent = null;
+      if (buffered > 0)
+      {
+         streamingCrc.update(content, 0, buffered);
+         streaming.size += buffered;
+         streamingDeflater.setInput(content, 0, buffered);
+         while (!streamingDeflater.needsInput())
+         {
+            this.writeDeflated(streamingDeflater);
+         }
+      }
+      // All consumed by the Deflater
+      recycle(pool, content);
+   }
+
+   /**
+    * Switches the current entry, to be stored, to a temporary file, computing its 
+    * checksum on the way; it's written once complete and everything pending is written 
+    */
+   private void startSpilledEntry() throws IOException
+   {
+      this.resetCrc();
+      spilled = new FileBackedOutputStream(0);
+      final int buffered = currentContent.size();
+      final byte[] content = currentContent.detach();
+      currentContent = null;
+      if (buffered > 0)
+      {
+         streamingCrc.update(content, 0, buffered);
+         spilled.write(content, 0, buffered);
+      }
+      recycle(pool, content);
+   }
+
+   /**
+    * Writes the current entry from its temporary file, now that its size and 
+    * checksum are known
+    */
+   private void finishSpilledEntry() throws IOException
+   {
+      this.writePending(true);
+
+      final EncodedEntry entry = new EncodedEntry(currentName, currentDosTime, METHOD_STORED, 0);
+      entry.crc = streamingCrc.getValue();
+      entry.size = spilled.size();
+      entry.compressedSize = entry.size;
+      entry.offset = offset;
+      this.writeLocalHeader(entry);
+      final byte[] buffer = pool.borrowBuffer();
+      try
+      {
+         spilled.writeTo(new OutputStream()
+         {
+            @Override
+            public void write(final int b) throws IOException
+            {
+               single[0] = (byte) b;
+               this.write(single, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException
+            {
+               writeBytes(b, off, len);
+            }
+         }, buffer);
+      }
+      finally
+      {
+         pool.returnBuffer(buffer);
+         spilled.close();
+         spilled = null;
+      }
+      written.add(entry);
+   }
+
+   private void resetCrc()
+   {
+      if (streamingCrc == null)
+      {
+         streamingCrc = new CRC32();
+      }
+      streamingCrc.reset();
+   }
+
+   /**
+    * Completes the entry being compressed upon this Thread, writing its data descriptor
+    */
+   private void finishStreamingEntry() throws IOException
+   {
+      streamingDeflater.finish();
+      while (!streamingDeflater.finished())
+      {
+         this.writeDeflated(streamingDeflater);
+      }
+      streaming.crc = streamingCrc.getValue();
+      pool.returnDeflater(streamingLevel, streamingDeflater);
+      streamingDeflater = null;
+
+      // Data descriptor, in ZIP64 form only if the sizes don't fit; the local header carries 
+      // no ZIP64 extra field, so readers tell the forms apart by size (as java.util.zip does)
+      final byte[] b = chunk;
+      int pos = putInt(b, 0, SIG_DATA_DESCRIPTOR);
+      pos = putInt(b, pos, streaming.crc);
+      if (streaming.size >= ZIP64_MAGIC_32 || streaming.compressedSize >= ZIP64_MAGIC_32)
+      {
+         pos = putLong(b, pos, streaming.compressedSize);
+         pos = putLong(b, pos, streaming.size);
+      }
+      else
+      {
+         pos = putInt(b, pos, streaming.compressedSize);
+         pos = putInt(b, pos, streaming.size);
+      }
+      this.writeBytes(b, 0, pos);
+
+      written.add(streaming);
+      streaming = null;
+   }
+
+   /**
+    * Writes already-compressed content of the current entry, buffering it or 
+    * passing it straight through
+    */
+   private void writeRaw(final byte[] b, final int off, final int len) throws IOException
+   {
+      final long total = (currentContent == null ? rawWritten : currentContent.size()) + len;
+      if (total > raw.compressedSize)
+      {
+         throw new ZipException("Content exceeds the declared compressed size of " + raw.compressedSize + "b");
+      }
+      if (currentContent == null)
+      {
+         this.writeBytes(b, off, len);
+         rawWritten += len;
+      }
+      else
+      {
+         currentContent.write(b, off, len);
+      }
+   }
+
+   /**
+    * Completes the entry whose content was written already compressed, queueing
+    * it to be written in order if buffered
+    */
+   private void finishRawEntry() throws IOException
+   {
+      final EncodedEntry entry = raw;
+      raw = null;
+      final long length = currentContent == null ? rawWritten : currentContent.size();
+      if (length != entry.compressedSize)
+      {
+         throw new ZipException("Content of " + length + "b does not match the declared compressed size of "
+               + entry.compressedSize + "b");
+      }
+
+      if (currentContent == null)
+      {
+         written.add(entry);
+         return;
+      }
+
+      // Nothing to compress; queue as done
+      entry.data = currentContent.detach();
+      final FutureTask<EncodedEntry> done = new FutureTask<EncodedEntry>(new Callable<EncodedEntry>()
+      {
+         @Override
+         public EncodedEntry call()
+         {
+            return entry;
+         }
+      });
+      done.run();
+      pending.add(done);
+      pendingBytes += entry.size;
+   }
+
+   /**
+    * Writes the output of the specified {@link Deflater} to the current streaming entry
+    */
+   private void writeDeflated(final Deflater deflater) throws IOException
+   {
+      final int len = deflater.deflate(chunk, 0, chunk.length);
+      if (len > 0)
+      {
+         streaming.compressedSize += len;
+         this.writeBytes(chunk, 0, len);
+      }
+   }
+
+   /**
+    * Writes the local file header for the specified entry
+    */
+   private void writeLocalHeader(final EncodedEntry entry) throws IOException
+   {
+      final boolean descriptor = (entry.flags & FLAG_DATA_DESCRIPTOR) != 0;
+      // Sizes known up front which don't fit go to the ZIP64 extra field; entries with a data
+      // descriptor have sizes of 0 here and never announce ZIP64, per APPNOTE 4.3.9.2 
+      final boolean zip64 = !descriptor && (entry.size >= ZIP64_MAGIC_32 || entry.compressedSize >= ZIP64_MAGIC_32);
+      final int extraLength = zip64 ? 20 : 0;
+      final byte[] b = chunk;
+      int pos = putInt(b, 0, SIG_LOCAL_HEADER);
+      pos = putShort(b, pos, zip64 ? VERSION_ZIP64 : entry.versionNeeded());
+      pos = putShort(b, pos, entry.flags);
+      pos = putShort(b, pos, entry.method);
+      pos = putInt(b, pos, entry.dosTime);
+      pos = putInt(b, pos, descriptor ? 0 : entry.crc);
+      pos = putInt(b, pos, zip64 ? ZIP64_MAGIC_32 : descriptor ? 0 : entry.compressedSize);
+      pos = putInt(b, pos, zip64 ? ZIP64_MAGIC_32 : descriptor ? 0 : entry.size);
+      pos = putShort(b, pos, entry.name.length);
+      pos = putShort(b, pos, extraLength);
+      pos = this.appendName(pos, entry.name, extraLength);
+      if (zip64)
+      {
+         pos = putShort(b, pos, ZIP64_EXTRA_ID);
+         pos = putShort(b, pos, 16);
+         pos = putLong(b, pos, entry.size);
+         pos = putLong(b, pos, entry.compressedSize);
+      }
+      this.writeBytes(b, 0, pos);
+   }
+
+   /**
+    * Writes the central directory and end records
+    */
+   private void writeCentralDirectory() throws IOException
+   {
+      final long start = offset;
+      for (final EncodedEntry entry : written)
+      {
+         this.writeCentralHeader(entry);
+      }
+      final long length = offset - start;
+      final long count = written.size();
+
+      final boolean zip64 = count >= ZIP64_MAGIC_16 || start >= ZIP64_MAGIC_32 || length >= ZIP64_MAGIC_32;
+      final byte[] b = chunk;
+      int pos = 0;
+      if (zip64)
+      {
+         final long zip64EndOffset = offset;
+         pos = putInt(b, pos, SIG_ZIP64_END);
+         pos = putLong(b, pos, 44);
+         pos = putShort(b, pos, VERSION_ZIP64);
+         pos = putShort(b, pos, VERSION_ZIP64);
+         pos = putInt(b, pos, 0);
+         pos = putInt(b, pos, 0);
+         pos = putLong(b, pos, count);
+         pos = putLong(b, pos, count);
+         pos = putLong(b, pos, length);
+         pos = putLong(b, pos, start);
+         pos = putInt(b, pos, SIG_ZIP64_LOCATOR);
+         pos = putInt(b, pos, 0);
+         pos = putLong(b, pos, zip64EndOffset);
+         pos = putInt(b, pos, 1);
+      }
+      pos = putInt(b, pos, SIG_END);
+      pos = putShort(b, pos, 0);
+      pos = putShort(b, pos, 0);
+      pos = putShort(b, pos, (int) Math.min(count, ZIP64_MAGIC_16));
+      pos = putShort(b, pos, (int) Math.min(count, ZIP64_MAGIC_16));
+      pos = putInt(b, pos, Math.min(length, ZIP64_MAGIC_32));
+      pos = putInt(b, pos, Math.min(start, ZIP64_MAGIC_32));
+      pos = putShort(b, pos, 0);
+      this.writeBytes(b, 0, pos);
+   }
+
+   /**
+    * Writes the central directory header for the specified entry
+    */
+   private void writeCentralHeader(final EncodedEntry entry) throws IOException
+   {
+      // Values which don't fit are moved to the ZIP64 extra field
+      final boolean size64 = entry.size >= ZIP64_MAGIC_32;
+      final boolean compressedSize64 = entry.compressedSize >= ZIP64_MAGIC_32;
+      final boolean offset64 = entry.offset >= ZIP64_MAGIC_32;
+      final int extraLength = (size64 || compressedSize64 || offset64) ? 4 + (size64 ? 8 : 0)
+            + (compressedSize64 ? 8 : 0) + (offset64 ? 8 : 0) : 0;
+      final int version = extraLength > 0 ? VERSION_ZIP64 : entry.versionNeeded();
+
+      final byte[] b = chunk;
+      int pos = putInt(b, 0, SIG_CENTRAL_HEADER);
+      pos = putShort(b, pos, version);
+      pos = putShort(b, pos, version);
+      pos = putShort(b, pos, entry.flags);
+      pos = putShort(b, pos, entry.method);
+      pos = putInt(b, pos, entry.dosTime);
+      pos = putInt(b, pos, entry.crc);
+      pos = putInt(b, pos, compressedSize64 ? ZIP64_MAGIC_32 : entry.compressedSize);
+      pos = putInt(b, pos, size64 ? ZIP64_MAGIC_32 : entry.size);
+      pos = putShort(b, pos, entry.name.length);
+      pos = putShort(b, pos, extraLength);
+      pos = putShort(b, pos, 0);
+      pos = putShort(b, pos, 0);
+      pos = putShort(b, pos, 0);
+      pos = putInt(b, pos, 0);
+      pos = putInt(b, pos, offset64 ? ZIP64_MAGIC_32 : entry.offset);
+      pos = this.appendName(pos, entry.name, extraLength);
+      if (extraLength > 0)
+      {
+         pos = putShort(b, pos, ZIP64_EXTRA_ID);
+         pos = putShort(b, pos, extraLength - 4);
+         if (size64)
+         {
+            pos = putLong(b, pos, entry.size);
+         }
+         if (compressedSize64)
+         {
+            pos = putLong(b, pos, entry.compressedSize);
+         }
+         if (offset64)
+         {
+            pos = putLong(b, pos, entry.offset);
+         }
+      }
+      this.writeBytes(b, 0, pos);
+   }
+
+   /**
+    * Appends the specified name to the header being assembled in 
+    * {@link ParallelZipOutputStream#chunk}, returning the position following it; 
+    * if there's no room for it and the extra field to follow, what's assembled
+    * and the name are written out first, and the position returned is 0
+    */
+   private int appendName(final int pos, final byte[] name, final int extraLength) throws IOException
+   {
+      if (pos + name.length + extraLength <= chunk.length)
+      {
+         System.arraycopy(name, 0, chunk, pos, name.length);
+         return pos + name.length;
+      }
+      this.writeBytes(chunk, 0, pos);
+      this.writeBytes(name, 0, name.length);
+      return 0;
+   }
+
+   /**
+    * Writes to the underlying target, keeping track of the offset
+    */
+   private void writeBytes(final byte[] b, final int off, final int len) throws IOException
+   {
+      out.write(b, off, len);
+      offset += len;
+   }
+
+   /**
+    * Releases any native resources and abandons pending work
+    */
+   private void release()
+   {
+      for (final Future<EncodedEntry> future : pending)
+      {
+         future.cancel(false);
+      }
+      pending.clear();
+      entryBuffer.clear();
+      if (streamingDeflater != null)
+      {
+         pool.returnDeflater(streamingLevel, streamingDeflater);
+         streamingDeflater = null;
+      }
+      if (spilled != null)
+      {
+         try
+         {
+            spilled.close();
+         }
+         catch (final IOException ignore)
+         {
+            // Only removes the temporary file
+         }
+         spilled = null;
+      }
+   }
+
+   private void ensureOpen() throws IOException
+   {
+      if (finished)
+      {
+         throw new IOException("Stream is finished");
+      }
+   }
+
+   /**
+    * Obtains the result of the specified compression task
+    */
+   private static EncodedEntry await(final Future<EncodedEntry> future) throws IOException
+   {
+      try
+      {
+         return future.get();
+      }
+      catch (final InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while awaiting compression of ZIP entry");
+      }
+      catch (final ExecutionException ee)
+      {
+         final IOException ioe = new IOException("Could not compress ZIP entry");
+         ioe.initCause(ee.getCause());
+         throw ioe;
+      }
+   }
+
+   /**
+    * Obtains the size, of those the {@link CodecPool} is asked for, of a buffer 
+    * to hold the specified number of bytes; powers of two, so buffers are reused 
+    * across entries of differing sizes
+    */
+   private static int bufferSize(final int length)
+   {
+      final int size = Math.max(length, CHUNK_SIZE);
+      final int highest = Integer.highestOneBit(size);
+      return highest == size ? size : highest << 1;
+   }
+
+   /**
+    * Hands back the specified buffer, if any, to the {@link CodecPool} unless 
+    * too large to be worth holding idle
+    */
+   private static void recycle(final CodecPool pool, final byte[] buffer)
+   {
+      if (buffer != null && buffer.length <= POOLED_BUFFER_LIMIT)
+      {
+         pool.returnBuffer(buffer);
+      }
+   }
+
+   private static byte[] encodeName(final String name) throws ZipException
+   {
+      try
+      {
+         final byte[] encoded = name.getBytes(CHARSET_UTF8);
+         if (encoded.length > ZIP64_MAGIC_16)
+         {
+            throw new ZipException("Entry name too long: " + name);
+         }
+         return encoded;
+      }
+      catch (final UnsupportedEncodingException uee)
+      {
+         throw new IllegalStateException("Charset not supported: " + CHARSET_UTF8, uee);
+      }
+   }
+
+   /**
+    * Converts the specified Java time to MS-DOS date and time
+    */
+   private static long toDosTime(final long time)
+   {
+      final Calendar calendar = Calendar.getInstance();
+      calendar.setTimeInMillis(time);
+      final int year = calendar.get(Calendar.YEAR);
+      if (year < 1980)
+      {
+         return (1 << 21) | (1 << 16);
+      }
+      return ((year - 1980) << 25) | ((calendar.get(Calendar.MONTH) + 1) << 21)
+            | (calendar.get(Calendar.DAY_OF_MONTH) << 16) | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+            | (calendar.get(Calendar.MINUTE) << 5) | (calendar.get(Calendar.SECOND) >> 1);
+   }
+
+   private static int putShort(final byte[] b, final int pos, final int value)
+   {
+      b[pos] = (byte) value;
+      b[pos + 1] = (byte) (value >>> 8);
+      return pos + 2;
+   }
+
+   private static int putInt(final byte[] b, final int pos, final long value)
+   {
+      b[pos] = (byte) value;
+      b[pos + 1] = (byte) (value >>> 8);
+      b[pos + 2] = (byte) (value >>> 16);
+      b[pos + 3] = (byte) (value >>> 24);
+      return pos + 4;
+   }
+
+   private static int putLong(final byte[] b, final int pos, final long value)
+   {
+      putInt(b, pos, value);
+      putInt(b, pos + 4, value >>> 32);
+      return pos + 8;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * An entry in encoded form, along with the metadata required for its headers
+    */
+   private static final class EncodedEntry
+   {
+      final byte[] name;
+
+      final long dosTime;
+
+      final int method;
+
+      final int flags;
+
+      long crc;
+
+      long size;
+
+      long compressedSize;
+
+      long offset;
+
+      /**
+       * Compressed content, held until written
+       */
+      byte[] data;
+
+      EncodedEntry(final byte[] name, final long dosTime, final int method, final int flags)
+      {
+         this.name = name;
+         this.dosTime = dosTime;
+         this.method = method;
+         this.flags = flags | FLAG_UTF8;
+      }
+
+      int versionNeeded()
+      {
+         return method == METHOD_DEFLATED ? VERSION_DEFLATED : VERSION_STORED;
+      }
+   }
+
+   /**
+    * Compresses the buffered content of a single entry, or computes its checksum 
+    * if it's to be stored.  Empty entries (including directories) are stored.
+    */
+   private static final class DeflateTask implements Callable<EncodedEntry>
+   {
+      private final byte[] name;
+
+      private final long dosTime;
+
+      private final byte[] content;
+
+      private final int length;
+
+      private final int level;
+
+      private final CodecPool pool;
+
+      DeflateTask(final byte[] name, final long dosTime, final byte[] content, final int length, final int level,
+            final CodecPool pool)
+      {
+         this.name = name;
+         this.dosTime = dosTime;
+         this.content = content;
+         this.length = length;
+         this.level = level;
+         this.pool = pool;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.concurrent.Callable#call()
+       */
+      @Override
+      public EncodedEntry call() throws Exception
+      {
+         if (length == 0)
+         {
+            final EncodedEntry entry = new EncodedEntry(name, dosTime, METHOD_STORED, 0);
+            entry.data = content;
+            return entry;
+         }
+
+         if (level == ZipCompression.STORED)
+         {
+            final EncodedEntry entry = new EncodedEntry(name, dosTime, METHOD_STORED, 0);
+            final CRC32 crc = new CRC32();
+            crc.update(content, 0, length);
+            entry.crc = crc.getValue();
+            entry.size = length;
+            entry.compressedSize = length;
+            entry.data = content;
+            return entry;
+         }
+
+         final EncodedEntry entry = new EncodedEntry(name, dosTime, METHOD_DEFLATED, 0);
+         final CRC32 crc = new CRC32();
+         crc.update(content, 0, length);
+         entry.crc = crc.getValue();
+         entry.size = length;
+
+         final Deflater deflater = pool.borrowDeflater(level);
+         try
+         {
+            deflater.setInput(content, 0, length);
+            deflater.finish();
+            byte[] compressed = pool.borrowBuffer(bufferSize(length + (length >> 3) + 64));
+            int compressedLength = 0;
+            while (!deflater.finished())
+            {
+               if (compressedLength == compressed.length)
+               {
+                  final byte[] grown = pool.borrowBuffer(compressed.length * 2);
+                  System.arraycopy(compressed, 0, grown, 0, compressedLength);
+                  recycle(pool, compressed);
+                  compressed = grown;
+               }
+               compressedLength += deflater.deflate(compressed, compressedLength, compressed.length
+                     - compressedLength);
+            }
+            entry.data = compressed;
+            entry.compressedSize = compressedLength;
+         }
+         finally
+         {
+            pool.returnDeflater(level, deflater);
+            recycle(pool, content);
+         }
+         return entry;
+      }
+   }
+
+   /**
+    * Content of an entry being buffered, in an array borrowed once there's content;
+    * the array is detached so it may be handed off for compression without a copy,
+    * leaving the buffer empty for the next entry
+    */
+   private static final class EntryBuffer
+   {
+      private final CodecPool pool;
+
+      private byte[] buf;
+
+      private int count;
+
+      EntryBuffer(final CodecPool pool)
+      {
+         this.pool = pool;
+      }
+
+      void write(final byte[] b, final int off, final int len)
+      {
+         final int required = count + len;
+         if (buf == null || required > buf.length)
+         {
+            final byte[] grown = pool.borrowBuffer(bufferSize(required));
+            if (buf != null)
+            {
+               System.arraycopy(buf, 0, grown, 0, count);
+               recycle(pool, buf);
+            }
+            buf = grown;
+         }
+         System.arraycopy(b, off, buf, count, len);
+         count = required;
+      }
+
+      int size()
+      {
+         return count;
+      }
+
+      /**
+       * Hands over the content, null if there's none, leaving this buffer empty
+       */
+      byte[] detach()
+      {
+         final byte[] detached = buf;
+         buf = null;
+         count = 0;
+         return detached;
+      }
+
+      /**
+       * Discards any content, handing back its array
+       */
+      void clear()
+      {
+         recycle(pool, this.detach());
+      }
+   }
+}
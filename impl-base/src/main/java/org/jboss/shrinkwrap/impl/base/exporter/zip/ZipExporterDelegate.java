@@ -0,0 +1,232 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.exporter.zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.ZipEntry;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipCompression;
+import org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset;
+import org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase;
+
+/**
+ * Implementation of a ZIP exporter.  Entries are compressed in parallel
+ * upon the {@link ExecutorService} of the archive's configuration, or 
+ * a shared default pool if none has been configured, up to the configured
+ * compression parallelism, and assembled in order by a 
+ * {@link ParallelZipOutputStream}.  Each entry is deflated or stored as decided
+ * by the configured {@link ZipCompression} policy.  Entries imported from another 
+ * ZIP and left unchanged are copied as stored, without being inflated and 
+ * compressed again.  Cannot handle archives with no content (SHRINKWRAP-93).
+ * 
+ * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
+ * @version $Revision: $
+ */
+public class ZipExporterDelegate extends StreamExporterDelegateBase<ParallelZipOutputStream>
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries in compression per available Thread
+    */
+   private static final int PENDING_ENTRIES_PER_THREAD = 4;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Policy deciding how each entry is compressed
+    */
+   private final ZipCompression compression;
+
+   /**
+    * {@link Asset} whose content was last opened, and the level decided for it
+    */
+   private Asset currentAsset;
+
+   private int currentLevel;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new exporter delegate for exporting archives as ZIP
+    * 
+    * @throws IllegalArgumentException If the archive has no {@link Asset}s
+    */
+   public ZipExporterDelegate(final Archive<?> archive) throws IllegalArgumentException
+   {
+      super(archive);
+
+      // Precondition check
+      if (archive.getContent().isEmpty())
+      {
+         throw new IllegalArgumentException(
+               "[SHRINKWRAP-93] Cannot export as ZIP an archive with no content: " + archive.toString());
+      }
+
+      this.compression = this.getConfiguration().getZipCompression();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#closeEntry(java.io.OutputStream)
+    */
+   @Override
+   protected final void closeEntry(final ParallelZipOutputStream outputStream) throws IOException
+   {
+      // Close the entry
+      outputStream.closeEntry();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#createOutputStream(java.io.OutputStream)
+    */
+   @Override
+   protected final ParallelZipOutputStream createOutputStream(final OutputStream out) throws IOException
+   {
+      // Create and return
+      final int parallelism = this.getConfiguration().getCompressionParallelism();
+      return new ParallelZipOutputStream(out, this.getCompressionExecutor(), ZipCompression.DEFAULT_LEVEL,
+            parallelism * PENDING_ENTRIES_PER_THREAD, this.getCodecPool());
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#putNextExtry(java.io.OutputStream, java.lang.String)
+    */
+   @Override
+   protected final void putNextExtry(final ParallelZipOutputStream outputStream, final String context)
+         throws IOException
+   {
+      // Put
+      outputStream.putNextEntry(context);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * Preserves the modification time of {@link Asset}s able to report it, applies
+    * the {@link ZipCompression} policy, and passes through entries copied from 
+    * another ZIP as stored.
+    * 
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#putNextExtry(java.io.OutputStream, java.lang.String, org.jboss.shrinkwrap.api.asset.Asset)
+    */
+   @Override
+   protected final void putNextExtry(final ParallelZipOutputStream outputStream, final String context,
+         final Asset asset) throws IOException
+   {
+      // Directories
+      if (asset == null)
+      {
+         outputStream.putNextEntry(context);
+         return;
+      }
+
+      long lastModified = DescribableAsset.UNKNOWN;
+      if (asset instanceof DescribableAsset)
+      {
+         lastModified = ((DescribableAsset) asset).getLastModified();
+      }
+      // Decided when the content was opened
+      final int level = asset == currentAsset ? currentLevel : compression.getLevel(ArchivePaths.create(context),
+            asset);
+
+      // Put, as stored in the source if we can
+      if (isRaw(asset, level))
+      {
+         final RawZipEntryAsset entry = (RawZipEntryAsset) asset;
+         outputStream.putNextRawEntry(context, lastModified, entry.getMethod(), entry.getCrc32(), entry.getSize(),
+               entry.getCompressedSize());
+         return;
+      }
+
+      // Stored with what's known up front, so even large content is written straight through;
+      // else the checksum is computed as the content is buffered or spilled
+      if (level == ZipCompression.STORED && asset instanceof DescribableAsset)
+      {
+         final DescribableAsset describable = (DescribableAsset) asset;
+         final long size = describable.getSize();
+         final long crc = describable.getCrc32();
+         if (size != DescribableAsset.UNKNOWN && crc != DescribableAsset.UNKNOWN)
+         {
+            outputStream.putNextRawEntry(context, lastModified, ZipEntry.STORED, crc, size, size);
+            return;
+         }
+      }
+
+      outputStream.putNextEntry(context, lastModified, level);
+   }
+
+   /**
+    * {@inheritDoc}
+    * Decides the level of the entry, and reads entries copied from another ZIP 
+    * as stored, to be passed through.
+    * 
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterDelegateBase#openContent(org.jboss.shrinkwrap.api.ArchivePath, org.jboss.shrinkwrap.api.asset.Asset)
+    */
+   @Override
+   protected final InputStream openContent(final ArchivePath path, final Asset asset)
+   {
+      currentAsset = asset;
+      currentLevel = compression.getLevel(path, asset);
+      if (isRaw(asset, currentLevel))
+      {
+         return ((RawZipEntryAsset) asset).openRawStream();
+      }
+      return super.openContent(path, asset);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Returns whether the specified {@link Asset} may be copied as stored in its source, 
+    * which requires it to be stored (or not) as the specified level demands
+    */
+   private static boolean isRaw(final Asset asset, final int level)
+   {
+      if (!(asset instanceof RawZipEntryAsset))
+      {
+         return false;
+      }
+      final RawZipEntryAsset entry = (RawZipEntryAsset) asset;
+      return (entry.getMethod() == ZipEntry.STORED) == (level == ZipCompression.STORED)
+            && entry.isRawContentAvailable();
+   }
+}
@@ -17,18 +17,19 @@
 package org.jboss.shrinkwrap.impl.base.filter;
 
 import org.jboss.shrinkwrap.api.ArchivePath;
-import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.impl.base.Validate;
 
 /**
  * IncludeRegExpPath
  * 
  * Filter to include all {@link ArchivePath}s that match a given Regular Expression.
+ * As the whole path must match, any literal text with which the expression 
+ * starts is a prefix of every included path.
  *
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
  * @version $Revision: $
  */
-public class IncludeRegExpPaths implements Filter<ArchivePath>
+public class IncludeRegExpPaths implements PrefixedFilter
 {
    //-------------------------------------------------------------------------------------||
    // Instance Members -------------------------------------------------------------------||
@@ -36,6 +37,8 @@ public class IncludeRegExpPaths implements Filter<ArchivePath>
 
    private String expression;
    
+   private String prefix;
+   
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -44,6 +47,7 @@ public class IncludeRegExpPaths implements Filter<ArchivePath>
    {
       Validate.notNull(expression, "Expression must be specified");
       this.expression = expression;
+      this.prefix = literalPrefix(expression);
    }
    
    //-------------------------------------------------------------------------------------||
@@ -62,4 +66,58 @@ public class IncludeRegExpPaths implements Filter<ArchivePath>
       }
       return false;
    }
+
+   /* (non-Javadoc)
+    * @see org.jboss.shrinkwrap.impl.base.filter.PrefixedFilter#getPrefix()
+    */
+   @Override
+   public String getPrefix()
+   {
+      return prefix;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the literal text any match of the specified expression must start with,
+    * or null if there is none or it can't be safely determined
+    */
+   static String literalPrefix(final String expression)
+   {
+      // Alternation may apply to the very start
+      if (expression.indexOf('|') >= 0)
+      {
+         return null;
+      }
+
+      final StringBuilder prefix = new StringBuilder();
+      int i = expression.startsWith("^") ? 1 : 0;
+      while (i < expression.length())
+      {
+         final char c = expression.charAt(i);
+         if (c == '\\' && i + 1 < expression.length() && !Character.isLetterOrDigit(expression.charAt(i + 1)))
+         {
+            // Escaped punctuation stands for itself
+            prefix.append(expression.charAt(i + 1));
+            i += 2;
+         }
+         else if (c == '\\' || "[](){}.*+?^$".indexOf(c) >= 0)
+         {
+            // A quantifier makes the preceding character optional
+            if ((c == '*' || c == '?' || c == '{') && prefix.length() > 0)
+            {
+               prefix.setLength(prefix.length() - 1);
+            }
+            break;
+         }
+         else
+         {
+            prefix.append(c);
+            i++;
+         }
+      }
+      return prefix.length() == 0 ? null : prefix.toString();
+   }
 }
@@ -0,0 +1,40 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.filter;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Filter;
+
+/**
+ * PrefixedFilter
+ * 
+ * A {@link Filter} which includes only {@link ArchivePath}s whose context 
+ * starts with a known prefix, so archives may look only at that part of 
+ * their content rather than offering every path.
+ *
+ * @version $Revision: $
+ */
+public interface PrefixedFilter extends Filter<ArchivePath>
+{
+   /**
+    * Obtains the prefix with which the context of every included 
+    * {@link ArchivePath} starts, or null if there is none
+    * 
+    * @return
+    */
+   String getPrefix();
+}
@@ -0,0 +1,665 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.importer.tar;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.PooledGzipInputStream;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarBuffer;
+import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
+
+/**
+ * Index of the entries of a TAR file, built from their headers alone, from
+ * which the content of each entry is read as it is accessed.  The content of
+ * an uncompressed TAR is skipped over while indexing, and read back by position.
+ * A TAR.GZ must be inflated once while indexing; the start of each of its GZIP
+ * members is noted as a checkpoint from which an entry may later be inflated
+ * without inflating all before it.  A TAR.GZ written as a single member (or with
+ * members too far apart) is not indexed.
+ *
+ * @version $Revision: $
+ */
+final class TarFileIndex
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Most content to be inflated, past a checkpoint, in reading an entry
+    */
+   static final long MAX_CHECKPOINT_DISTANCE = 4 * 1024 * 1024;
+
+   /**
+    * Size of a TAR header, and the unit in which content is padded
+    */
+   private static final int RECORD_SIZE = TarBuffer.DEFAULT_RCDSIZE;
+
+   /**
+    * Number of values held of each entry in {@link TarFileIndex#fields}
+    */
+   private static final int FIELDS = 3;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * The TAR file
+    */
+   private final File file;
+
+   /**
+    * Names of the entries, in the order of the file
+    */
+   private final String[] names;
+
+   /**
+    * Position within the TAR of the content of the entry of the same index in {@link TarFileIndex#names}, 
+    * followed by its size and modification time
+    */
+   private final long[] fields;
+
+   /**
+    * Whether the entry of the same index in {@link TarFileIndex#names} is a directory
+    */
+   private final boolean[] directories;
+
+   /**
+    * Position within the file of each GZIP member; null if not compressed
+    */
+   private final long[] checkpointSources;
+
+   /**
+    * Position within the TAR of the content of each GZIP member; null if not compressed
+    */
+   private final long[] checkpoints;
+
+   /**
+    * Where {@link java.util.zip.Inflater}s are borrowed from; null if not compressed
+    */
+   private final CodecPool pool;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private TarFileIndex(final File file, final Scan scan, final long[] checkpointSources, final long[] checkpoints,
+         final CodecPool pool)
+   {
+      this.file = file;
+      this.names = scan.names.toArray(new String[scan.names.size()]);
+      this.fields = trim(scan.fields, scan.names.size() * FIELDS);
+      this.directories = new boolean[names.length];
+      System.arraycopy(scan.directories, 0, directories, 0, names.length);
+      this.checkpointSources = checkpointSources;
+      this.checkpoints = checkpoints;
+      this.pool = pool;
+   }
+
+   /**
+    * Indexes the specified uncompressed TAR file
+    *
+    * @param file
+    * @return
+    * @throws IOException If the file could not be read, or is not a valid TAR
+    */
+   static TarFileIndex index(final File file) throws IOException
+   {
+      final Scan scan = new Scan();
+      final InputStream in = new SeekingInputStream(new FileInputStream(file));
+      try
+      {
+         scan.scan(in, null);
+      }
+      finally
+      {
+         in.close();
+      }
+      if (scan.position > file.length())
+      {
+         throw new EOFException("Truncated TAR " + file);
+      }
+      return new TarFileIndex(file, scan, null, null, null);
+   }
+
+   /**
+    * Indexes the specified TAR.GZ file, returning null if its GZIP members are
+    * too far apart for entries to be read from them
+    *
+    * @param file
+    * @param pool
+    * @return
+    * @throws IOException If the file could not be read, or is not a valid TAR.GZ
+    */
+   static TarFileIndex indexGzip(final File file, final CodecPool pool) throws IOException
+   {
+      final Scan scan = new Scan();
+      final FileInputStream fileIn = new FileInputStream(file);
+      final CheckpointingInputStream in;
+      try
+      {
+         in = new CheckpointingInputStream(fileIn, pool);
+      }
+      catch (final IOException ioe)
+      {
+         fileIn.close();
+         throw ioe;
+      }
+      try
+      {
+         if (!scan.scan(in, in))
+         {
+            return null;
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+      return new TarFileIndex(file, scan, trim(in.sources, in.count), trim(in.positions, in.count), pool);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the number of entries
+    * @return
+    */
+   int size()
+   {
+      return names.length;
+   }
+
+   /**
+    * Obtains the name of the entry of the specified index
+    * @param index
+    * @return
+    */
+   String getName(final int index)
+   {
+      return names[index];
+   }
+
+   /**
+    * Obtains whether the entry of the specified index is a directory
+    * @param index
+    * @return
+    */
+   boolean isDirectory(final int index)
+   {
+      return directories[index];
+   }
+
+   /**
+    * Obtains an {@link Asset} reading the content of the entry of the specified index from the file
+    * @param index
+    * @return
+    */
+   Asset getAsset(final int index)
+   {
+      final int field = index * FIELDS;
+      return new EntryAsset(this, fields[field], fields[field + 1], fields[field + 2]);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Opens a stream to the specified region of the TAR
+    */
+   private InputStream open(final long offset, final long length) throws IOException
+   {
+      final FileInputStream fileIn = new FileInputStream(file);
+      try
+      {
+         if (checkpoints == null)
+         {
+            fileIn.getChannel().position(offset);
+            return new RegionInputStream(fileIn, length);
+         }
+
+         // Inflate from the last member starting at or before the region
+         int checkpoint = 0;
+         for (int low = 0, high = checkpoints.length - 1; low <= high;)
+         {
+            final int mid = (low + high) >>> 1;
+            if (checkpoints[mid] <= offset)
+            {
+               checkpoint = mid;
+               low = mid + 1;
+            }
+            else
+            {
+               high = mid - 1;
+            }
+         }
+         fileIn.getChannel().position(checkpointSources[checkpoint]);
+         final InputStream in = new PooledGzipInputStream(fileIn, pool);
+         try
+         {
+            skipFully(in, offset - checkpoints[checkpoint], pool);
+         }
+         catch (final IOException ioe)
+         {
+            in.close();
+            throw ioe;
+         }
+         return new RegionInputStream(in, length);
+      }
+      catch (final IOException ioe)
+      {
+         fileIn.close();
+         throw ioe;
+      }
+   }
+
+   private static void skipFully(final InputStream in, long count, final CodecPool pool) throws IOException
+   {
+      final byte[] buffer = pool.borrowBuffer();
+      try
+      {
+         while (count > 0)
+         {
+            final int read = in.read(buffer, 0, (int) Math.min(count, buffer.length));
+            if (read == -1)
+            {
+               throw new EOFException("Unexpected end of TAR");
+            }
+            count -= read;
+         }
+      }
+      finally
+      {
+         pool.returnBuffer(buffer);
+      }
+   }
+
+   private static long[] trim(final long[] values, final int count)
+   {
+      final long[] trimmed = new long[count];
+      System.arraycopy(values, 0, trimmed, 0, count);
+      return trimmed;
+   }
+
+   private static long[] grow(final long[] values)
+   {
+      final long[] grown = new long[values.length * 2];
+      System.arraycopy(values, 0, grown, 0, values.length);
+      return grown;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reads the headers of the entries of a TAR, skipping their content
+    */
+   private static final class Scan
+   {
+      private final List<String> names = new ArrayList<String>();
+
+      private long[] fields = new long[64 * FIELDS];
+
+      private boolean[] directories = new boolean[64];
+
+      /**
+       * Position within the TAR read to
+       */
+      private long position;
+
+      /**
+       * Reads all headers from the specified stream, returning false if the specified
+       * checkpoints (if any) fall too far apart
+       */
+      boolean scan(final InputStream in, final CheckpointingInputStream checkpoints) throws IOException
+      {
+         final byte[] header = new byte[RECORD_SIZE];
+         while (this.readRecord(in, header) && !isEndRecord(header))
+         {
+            final TarEntry entry = new TarEntry(header);
+            final int index = names.size();
+            if (index == directories.length)
+            {
+               fields = grow(fields);
+               final boolean[] grown = new boolean[index * 2];
+               System.arraycopy(directories, 0, grown, 0, index);
+               directories = grown;
+            }
+            names.add(entry.getName());
+            directories[index] = entry.isDirectory();
+            fields[index * FIELDS] = position;
+            fields[index * FIELDS + 1] = entry.getSize();
+            fields[index * FIELDS + 2] = entry.getModTime().getTime();
+
+            // Content is padded to a whole record
+            long remaining = (entry.getSize() + RECORD_SIZE - 1) / RECORD_SIZE * RECORD_SIZE;
+            if (checkpoints == null)
+            {
+               position += in.skip(remaining);
+               continue;
+            }
+            while (remaining > 0)
+            {
+               if (position - checkpoints.getLastPosition() > MAX_CHECKPOINT_DISTANCE)
+               {
+                  return false;
+               }
+               final int read = in.read(checkpoints.skipBuffer, 0, (int) Math.min(remaining,
+                     checkpoints.skipBuffer.length));
+               if (read == -1)
+               {
+                  throw new EOFException("Truncated TAR");
+               }
+               remaining -= read;
+               position += read;
+            }
+         }
+         return checkpoints == null || position - checkpoints.getLastPosition() <= MAX_CHECKPOINT_DISTANCE;
+      }
+
+      /**
+       * Reads a whole record, returning false at the end of the stream
+       */
+      private boolean readRecord(final InputStream in, final byte[] record) throws IOException
+      {
+         int count = 0;
+         while (count < record.length)
+         {
+            final int read = in.read(record, count, record.length - count);
+            if (read == -1)
+            {
+               return false;
+            }
+            count += read;
+         }
+         position += count;
+         return true;
+      }
+
+      private static boolean isEndRecord(final byte[] record)
+      {
+         for (final byte b : record)
+         {
+            if (b != 0)
+            {
+               return false;
+            }
+         }
+         return true;
+      }
+   }
+
+   /**
+    * Reads a file through a window of its content, such that reading many small records
+    * near one another needs few reads of the file; skipping moves the window 
+    * without reading
+    */
+   private static final class SeekingInputStream extends InputStream
+   {
+      private final FileInputStream in;
+
+      private final byte[] window = new byte[64 * 1024];
+
+      private long windowStart;
+
+      private int windowLength;
+
+      private long position;
+
+      SeekingInputStream(final FileInputStream in)
+      {
+         this.in = in;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         final byte[] b = new byte[1];
+         return this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+         if (position < windowStart || position >= windowStart + windowLength)
+         {
+            windowStart = position;
+            windowLength = Math.max(0, in.getChannel().read(ByteBuffer.wrap(window), position));
+            if (windowLength == 0)
+            {
+               return -1;
+            }
+         }
+         final int offset = (int) (position - windowStart);
+         final int read = Math.min(len, windowLength - offset);
+         System.arraycopy(window, offset, b, off, read);
+         position += read;
+         return read;
+      }
+
+      @Override
+      public long skip(final long n)
+      {
+         position += n;
+         return n;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Inflates a TAR.GZ, noting where each GZIP member starts
+    */
+   private static final class CheckpointingInputStream extends PooledGzipInputStream
+   {
+      private final CodecPool pool;
+
+      private final byte[] skipBuffer;
+
+      private long[] sources = new long[64];
+
+      private long[] positions = new long[64];
+
+      private int count = 1;
+
+      CheckpointingInputStream(final InputStream in, final CodecPool pool) throws IOException
+      {
+         super(in, pool);
+         this.pool = pool;
+         this.skipBuffer = pool.borrowBuffer();
+      }
+
+      @Override
+      protected void memberStarted(final long sourcePosition, final long position)
+      {
+         if (count == sources.length)
+         {
+            sources = grow(sources);
+            positions = grow(positions);
+         }
+         sources[count] = sourcePosition;
+         positions[count] = position;
+         count++;
+      }
+
+      long getLastPosition()
+      {
+         return positions[count - 1];
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         try
+         {
+            super.close();
+         }
+         finally
+         {
+            pool.returnBuffer(skipBuffer);
+         }
+      }
+   }
+
+   /**
+    * Reads a region of an underlying stream, which is closed with it
+    */
+   private static final class RegionInputStream extends InputStream
+   {
+      private final InputStream in;
+
+      private long remaining;
+
+      RegionInputStream(final InputStream in, final long length)
+      {
+         this.in = in;
+         this.remaining = length;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         if (remaining <= 0)
+         {
+            return -1;
+         }
+         final int b = in.read();
+         if (b == -1)
+         {
+            throw new EOFException("Unexpected end of TAR");
+         }
+         remaining--;
+         return b;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+         if (remaining <= 0)
+         {
+            return -1;
+         }
+         final int read = in.read(b, off, (int) Math.min(len, remaining));
+         if (read == -1)
+         {
+            throw new EOFException("Unexpected end of TAR");
+         }
+         remaining -= read;
+         return read;
+      }
+
+      @Override
+      public int available() throws IOException
+      {
+         return (int) Math.min(in.available(), remaining);
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * The content of an entry, read from the file
+    */
+   private static final class EntryAsset implements DescribableAsset
+   {
+      private final TarFileIndex index;
+
+      private final long offset;
+
+      private final long size;
+
+      private final long lastModified;
+
+      EntryAsset(final TarFileIndex index, final long offset, final long size, final long lastModified)
+      {
+         this.index = index;
+         this.offset = offset;
+         this.size = size;
+         this.lastModified = lastModified;
+      }
+
+      public InputStream openStream()
+      {
+         try
+         {
+            return index.open(offset, size);
+         }
+         catch (final IOException ioe)
+         {
+            throw new RuntimeException("Could not open " + this, ioe);
+         }
+      }
+
+      public long getSize()
+      {
+         return size;
+      }
+
+      public long getLastModified()
+      {
+         return lastModified;
+      }
+
+      public boolean isCompressed()
+      {
+         return false;
+      }
+
+      public long getCrc32()
+      {
+         return UNKNOWN;
+      }
+
+      @Override
+      public String toString()
+      {
+         return EntryAsset.class.getSimpleName() + " [file=" + index.file + ", offset=" + offset + ", size=" + size
+               + "]";
+      }
+   }
+}
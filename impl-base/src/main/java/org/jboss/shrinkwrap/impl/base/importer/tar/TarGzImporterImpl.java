@@ -16,6 +16,7 @@
  */
 package org.jboss.shrinkwrap.impl.base.importer.tar;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -52,7 +53,29 @@ public class TarGzImporterImpl extends TarImporterBase<TarGzInputStream, TarGzIm
    TarGzInputStream getInputStreamForRawStream(final InputStream in) throws IOException
    {
       assert in != null : "Specified inputstream was null";
-      return new TarGzInputStream(in);
+      return new TarGzInputStream(in, this.getCodecPool());
+   }
+
+   /**
+    * {@inheritDoc}
+    * Reads to the end of the GZIP stream so the pooled {@link java.util.zip.Inflater} is handed back.
+    * @see org.jboss.shrinkwrap.impl.base.importer.tar.TarImporterBase#importFinished(org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream)
+    */
+   @Override
+   void importFinished(final TarGzInputStream in) throws IOException
+   {
+      in.drain();
+   }
+
+   /**
+    * {@inheritDoc}
+    * Indexes the TAR within the GZIP content, if it may be read from the start of each member.
+    * @see org.jboss.shrinkwrap.impl.base.importer.tar.TarImporterBase#index(java.io.File)
+    */
+   @Override
+   TarFileIndex index(final File file) throws IOException
+   {
+      return TarFileIndex.indexGzip(file, this.getCodecPool());
    }
 
    /**
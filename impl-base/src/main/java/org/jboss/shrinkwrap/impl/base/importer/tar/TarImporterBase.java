@@ -16,21 +16,24 @@
  */
 package org.jboss.shrinkwrap.impl.base.importer.tar;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
-import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.StreamImporter;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
 import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.SpillStore;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
+import org.jboss.shrinkwrap.spi.Configurable;
 
 /**
  * Base of implementations used to import existing 
@@ -49,7 +52,6 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
    /**
     * Logger
     */
-   @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(TarImporterBase.class.getName());
 
    //-------------------------------------------------------------------------------------||
@@ -79,6 +81,28 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
     */
    abstract S getInputStreamForRawStream(InputStream in) throws IOException;
 
+   /**
+    * Called once all entries have been read from the specified stream, which
+    * is not to be closed; by default does nothing
+    * @param in
+    * @throws IOException
+    */
+   void importFinished(S in) throws IOException
+   {
+   }
+
+   /**
+    * Indexes the entries of the specified file, returning null if it may 
+    * not be indexed; by default indexes an uncompressed TAR
+    * @param file
+    * @return
+    * @throws IOException If the file could not be read
+    */
+   TarFileIndex index(File file) throws IOException
+   {
+      return TarFileIndex.index(file);
+   }
+
    //-------------------------------------------------------------------------------------||
    // Functional Methods -----------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -126,6 +150,7 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
    private I importFrom(final S stream) throws ArchiveImportException
    {
       Validate.notNull(stream, "Stream must be specified");
+      final SpillStore store = SpillStore.forImport(this.getConfiguration());
       try
       {
          TarEntry entry;
@@ -143,15 +168,9 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
                continue;
             }
 
-            ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
-            byte[] content = new byte[4096];
-            int readBytes;
-            while ((readBytes = stream.read(content, 0, content.length)) != -1)
-            {
-               output.write(content, 0, readBytes);
-            }
-            archive.add(new ByteArrayAsset(output.toByteArray()), entryName);
+            archive.add(store.read(stream, entry.getSize(), entry.getModTime().getTime()), entryName);
          }
+         this.importFinished(stream);
       }
       catch (final RuntimeException re)
       {
@@ -181,6 +200,11 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
          throw new IllegalArgumentException("Specified file for import is a directory: " + file);
       }
 
+      if (this.importIndexed(file))
+      {
+         return this.covarientReturn();
+      }
+
       final S archive;
       try
       {
@@ -191,8 +215,25 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
          throw new ArchiveImportException("Could not read archive file " + file, e);
       }
 
-      return this.importFrom(archive);
-
+      // We opened it, so we close it
+      try
+      {
+         return this.importFrom(archive);
+      }
+      finally
+      {
+         try
+         {
+            archive.close();
+         }
+         catch (final IOException ignore)
+         {
+            if (log.isLoggable(Level.FINER))
+            {
+               log.finer("Could not close stream due to: " + ignore.getMessage() + "; ignoring");
+            }
+         }
+      }
    }
 
    //-------------------------------------------------------------------------------------||
@@ -211,4 +252,76 @@ abstract class TarImporterBase<S extends TarInputStream, I extends StreamImporte
       return this.getInputStreamForRawStream(new FileInputStream(file));
    }
 
-}
\ No newline at end of file
+   /**
+    * Adds the entries of the specified file to the archive, to be read from the file
+    * as accessed, if so configured.  Otherwise, or if the file could not be indexed, 
+    * the file is to be imported as a stream.
+    * 
+    * @param file
+    * @return Whether the entries have been added
+    * @throws ArchiveImportException If the entries could not be added
+    */
+   private boolean importIndexed(final File file) throws ArchiveImportException
+   {
+      if (!this.getConfiguration().isIndexedTarImport())
+      {
+         return false;
+      }
+      final TarFileIndex index;
+      try
+      {
+         index = this.index(file);
+      }
+      catch (final IOException ioe)
+      {
+         log.log(Level.FINE, "Could not index " + file + ", importing as a stream", ioe);
+         return false;
+      }
+      if (index == null)
+      {
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not index " + file + " for random access, importing as a stream");
+         }
+         return false;
+      }
+
+      try
+      {
+         final Archive<?> archive = this.getArchive();
+         for (int i = 0; i < index.size(); i++)
+         {
+            if (index.isDirectory(i))
+            {
+               archive.addDirectory(index.getName(i));
+               continue;
+            }
+            archive.add(index.getAsset(i), index.getName(i));
+         }
+      }
+      catch (final RuntimeException re)
+      {
+         throw new ArchiveImportException("Could not import file " + file, re);
+      }
+      return true;
+   }
+
+   /**
+    * Obtains the {@link CodecPool} of the archive's configuration
+    * @return
+    */
+   CodecPool getCodecPool()
+   {
+      return CodecPool.of(this.getConfiguration());
+   }
+
+   /**
+    * Obtains the {@link Configuration} of the archive
+    * @return
+    */
+   private Configuration getConfiguration()
+   {
+      return this.getArchive().as(Configurable.class).getConfiguration();
+   }
+
+}
@@ -0,0 +1,824 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.importer.zip;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.impl.base.Validate;
+import org.jboss.shrinkwrap.impl.base.asset.AssetUtil;
+import org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.ZipDirectoryReader;
+
+/**
+ * MappedZip
+ *
+ * Read-only view of a ZIP file mapped into memory.  Only the names of the entries
+ * are read up front, from the central directory, and hashed; everything else about 
+ * an entry, including its content, is read from the mapping when asked for.  Names 
+ * are only sorted once the entries beneath a directory are first asked for.  
+ * Entries are addressed by their index in the central directory.  If an entry name 
+ * occurs more than once, the last occurrence is used, as when importing entry by entry.
+ * The location of each entry's content is checked up front, such that a malformed
+ * file is rejected by {@link MappedZip#map(File, CodecPool)}.
+ * Entries exported to another ZIP unchanged are copied as stored, see {@link RawZipEntryAsset}.
+ *
+ * As for any mapping, the file stays mapped until the view and all {@link Asset}s
+ * obtained from it are collected; a view never handed out may be unmapped at once
+ * by {@link MappedZip#release()}.
+ *
+ * Thread-safe.  The file must not change for as long as the view is in use.
+ *
+ * @version $Revision: $
+ */
+public final class MappedZip
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(MappedZip.class.getName());
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * The file mapped
+    */
+   private final File file;
+
+   /**
+    * The mapping of the whole file; only ever read at absolute positions, or through duplicates
+    */
+   private final ByteBuffer mapping;
+
+   /**
+    * Names of the entries, in the order of the central directory
+    */
+   private final String[] names;
+
+   /**
+    * Position of the central directory header of the entry of the same index in {@link MappedZip#names}
+    */
+   private final int[] headers;
+
+   /**
+    * Open addressing hash table of the index of each entry plus one, by name
+    */
+   private final int[] table;
+
+   /**
+    * Indexes of the entries in the order of their names; null until first needed
+    */
+   private volatile int[] sorted;
+
+   /**
+    * Pool of the {@link Inflater}s and buffers used to read content
+    */
+   private final CodecPool pool;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private MappedZip(final File file, final ByteBuffer mapping, final String[] names, final int[] headers,
+         final int[] table, final CodecPool pool)
+   {
+      this.file = file;
+      this.mapping = mapping;
+      this.names = names;
+      this.headers = headers;
+      this.table = table;
+      this.pool = pool;
+   }
+
+   /**
+    * Maps the specified ZIP file and reads the names of its entries
+    *
+    * @param file
+    * @param pool Pool of the codecs used to read content
+    * @return
+    * @throws IllegalArgumentException If either argument is not specified
+    * @throws ZipException If the file is not a ZIP file, or is malformed
+    * @throws IOException If the file could not be mapped
+    */
+   public static MappedZip map(final File file, final CodecPool pool) throws IllegalArgumentException, IOException
+   {
+      Validate.notNull(file, "File must be specified");
+      Validate.notNull(pool, "Pool must be specified");
+
+      final long[] directory;
+      final ByteBuffer mapping;
+      final RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try
+      {
+         final FileChannel channel = raf.getChannel();
+         final long length = channel.size();
+         if (length > Integer.MAX_VALUE)
+         {
+            throw new IOException("Too large to be mapped: " + file);
+         }
+         try
+         {
+            directory = ZipDirectoryReader.locate(channel);
+         }
+         catch (final ZipException ze)
+         {
+            final ZipException rethrown = new ZipException(ze.getMessage() + ": " + file);
+            rethrown.initCause(ze);
+            throw rethrown;
+         }
+         // The mapping remains valid once the file is closed
+         mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+      }
+      finally
+      {
+         raf.close();
+      }
+
+      try
+      {
+         return read(file, mapping, directory, pool);
+      }
+      catch (final IOException ioe)
+      {
+         unmap(mapping);
+         throw ioe;
+      }
+      catch (final RuntimeException re)
+      {
+         unmap(mapping);
+         throw re;
+      }
+   }
+
+   /**
+    * Reads and hashes the names of the entries of the specified mapping, checking 
+    * the location of each
+    * 
+    * @param directory The number of entries, and the offset of the central directory
+    */
+   private static MappedZip read(final File file, final ByteBuffer mapping, final long[] directory,
+         final CodecPool pool) throws IOException
+   {
+      // A later entry of the same name replaces the earlier
+      final int count = (int) directory[0];
+      String[] names = new String[count];
+      int[] headers = new int[count];
+      final int[] table = new int[tableSize(count)];
+      byte[] nameBuffer = new byte[256];
+      int unique = 0;
+      int pos = (int) directory[1];
+      for (int i = 0; i < count; i++)
+      {
+         final int headerLength = ZipDirectoryReader.getHeaderLength(mapping, pos);
+         if (headerLength < 0)
+         {
+            throw new ZipException("Invalid central directory header " + i + " in " + file);
+         }
+         final int nameLength = ZipDirectoryReader.getNameLength(mapping, pos);
+         if (getContentStart(mapping, pos) < 0)
+         {
+            throw new ZipException("Invalid location of entry " + i + " in " + file);
+         }
+         if (nameLength > nameBuffer.length)
+         {
+            nameBuffer = new byte[nameLength];
+         }
+         final String name = ZipDirectoryReader.getName(mapping, pos, nameBuffer);
+         final int slot = findSlot(table, names, name);
+         if (table[slot] == 0)
+         {
+            names[unique] = name;
+            headers[unique] = pos;
+            table[slot] = ++unique;
+         }
+         else
+         {
+            headers[table[slot] - 1] = pos;
+         }
+         pos += headerLength;
+      }
+      if (unique < count)
+      {
+         final String[] uniqueNames = new String[unique];
+         System.arraycopy(names, 0, uniqueNames, 0, unique);
+         names = uniqueNames;
+         final int[] uniqueHeaders = new int[unique];
+         System.arraycopy(headers, 0, uniqueHeaders, 0, unique);
+         headers = uniqueHeaders;
+      }
+      return new MappedZip(file, mapping, names, headers, table, pool);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Unmaps the file at once, rather than once collected.  Must only be called if 
+    * neither this view nor any {@link Asset} obtained from it is in use, as reading
+    * an unmapped file crashes the JVM; for instance, if never handed out.
+    */
+   public void release()
+   {
+      unmap(mapping);
+   }
+
+   /**
+    * Obtains the number of entries
+    * @return
+    */
+   public int size()
+   {
+      return names.length;
+   }
+
+   /**
+    * Obtains the index of the entry of the specified name, or -1 if there is none
+    *
+    * @param name
+    * @return
+    */
+   public int indexOf(final String name)
+   {
+      return table[findSlot(table, names, name)] - 1;
+   }
+
+   /**
+    * Obtains the indexes of the entries whose names start with the specified 
+    * directory prefix (ie. "META-INF/"), in the order of their names.  The 
+    * prefix must end with a slash, or be empty to obtain all entries.
+    *
+    * @param prefix
+    * @return
+    */
+   public int[] getIndexesBeneath(final String prefix)
+   {
+      if (prefix.length() == 0)
+      {
+         final int[] all = new int[names.length];
+         for (int i = 0; i < all.length; i++)
+         {
+            all[i] = i;
+         }
+         return all;
+      }
+
+      // Names beneath the directory sort before the first which differs in the slash
+      final int[] sorted = this.getSorted();
+      final int start = this.search(sorted, prefix);
+      final int end = this.search(sorted, prefix.substring(0, prefix.length() - 1) + (char) ('/' + 1));
+      final int[] indexes = new int[end - start];
+      System.arraycopy(sorted, start, indexes, 0, indexes.length);
+      return indexes;
+   }
+
+   /**
+    * Obtains the name of the entry of the specified index
+    *
+    * @param index
+    * @return
+    */
+   public String getName(final int index)
+   {
+      return names[index];
+   }
+
+   /**
+    * Returns whether the entry of the specified index is a directory
+    *
+    * @param index
+    * @return
+    */
+   public boolean isDirectory(final int index)
+   {
+      return names[index].endsWith("/");
+   }
+
+   /**
+    * Obtains an {@link Asset} whose content is that of the entry of the specified index
+    *
+    * @param index
+    * @return
+    */
+   public Asset getAsset(final int index)
+   {
+      return new MappedEntryAsset(this, index);
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.lang.Object#toString()
+    */
+   @Override
+   public String toString()
+   {
+      return MappedZip.class.getSimpleName() + "[" + file + "]";
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the indexes of all entries in the order of their names, sorting them if not yet done
+    */
+   private int[] getSorted()
+   {
+      int[] sorted = this.sorted;
+      if (sorted == null)
+      {
+         final Entry[] entries = new Entry[names.length];
+         for (int i = 0; i < entries.length; i++)
+         {
+            entries[i] = new Entry(names[i], i);
+         }
+         Arrays.sort(entries);
+         sorted = new int[entries.length];
+         for (int i = 0; i < sorted.length; i++)
+         {
+            sorted[i] = entries[i].index;
+         }
+         this.sorted = sorted;
+      }
+      return sorted;
+   }
+
+   /**
+    * Obtains the position within the specified sorted indexes of the first
+    * entry whose name is not less than the specified name
+    */
+   private int search(final int[] sorted, final String name)
+   {
+      int low = 0;
+      int high = sorted.length;
+      while (low < high)
+      {
+         final int mid = (low + high) >>> 1;
+         if (names[sorted[mid]].compareTo(name) < 0)
+         {
+            low = mid + 1;
+         }
+         else
+         {
+            high = mid;
+         }
+      }
+      return low;
+   }
+
+   /**
+    * Obtains a table size at least twice the specified count, as a power of two
+    */
+   private static int tableSize(final int count)
+   {
+      int size = 16;
+      while (size < count * 2)
+      {
+         size <<= 1;
+      }
+      return size;
+   }
+
+   /**
+    * Obtains the slot of the table holding the specified name, or the empty slot where it would go
+    */
+   private static int findSlot(final int[] table, final String[] names, final String name)
+   {
+      final int mask = table.length - 1;
+      int hash = name.hashCode();
+      hash ^= (hash >>> 20) ^ (hash >>> 12);
+      hash ^= (hash >>> 7) ^ (hash >>> 4);
+      for (int slot = hash & mask;; slot = (slot + 1) & mask)
+      {
+         final int entry = table[slot];
+         if (entry == 0 || names[entry - 1].equals(name))
+         {
+            return slot;
+         }
+      }
+   }
+
+   /**
+    * Obtains the position of the content of the entry of the specified central directory
+    * header, or -1 if its local header or content lie outside of the mapping
+    */
+   private static long getContentStart(final ByteBuffer mapping, final int header)
+   {
+      final long localHeader = ZipDirectoryReader.getField(mapping, header, ZipDirectoryReader.FIELD_LOCAL_HEADER);
+      final long compressedSize = ZipDirectoryReader.getField(mapping, header,
+            ZipDirectoryReader.FIELD_COMPRESSED_SIZE);
+      if (localHeader < 0 || localHeader > mapping.limit() || compressedSize < 0)
+      {
+         return -1L;
+      }
+      final int localHeaderLength = ZipDirectoryReader.getLocalHeaderLength(mapping, (int) localHeader);
+      if (localHeaderLength < 0)
+      {
+         return -1L;
+      }
+      final long start = localHeader + localHeaderLength;
+      return start + compressedSize > mapping.limit() ? -1L : start;
+   }
+
+   /**
+    * Unmaps the specified mapping where the JVM allows, else leaves it to be
+    * unmapped once collected
+    */
+   private static void unmap(final ByteBuffer mapping)
+   {
+      try
+      {
+         try
+         {
+            // Java 9 onwards
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), mapping);
+         }
+         catch (final NoSuchMethodException nsme)
+         {
+            // Up to Java 8, sun.nio.ch.DirectBuffer.cleaner().clean()
+            final Method cleaner = mapping.getClass().getMethod("cleaner");
+            cleaner.setAccessible(true);
+            final Object instance = cleaner.invoke(mapping);
+            if (instance != null)
+            {
+               final Method clean = instance.getClass().getMethod("clean");
+               clean.setAccessible(true);
+               clean.invoke(instance);
+            }
+         }
+      }
+      catch (final Exception e)
+      {
+         log.log(Level.FINEST, "Could not unmap; leaving to be unmapped once collected", e);
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Name of an entry along with its index, while sorting
+    */
+   private static final class Entry implements Comparable<Entry>
+   {
+      private final String name;
+
+      private final int index;
+
+      Entry(final String name, final int index)
+      {
+         this.name = name;
+         this.index = index;
+      }
+
+      public int compareTo(final Entry other)
+      {
+         return name.compareTo(other.name);
+      }
+   }
+
+   /**
+    * The content of an entry, read from the mapping, and passed through as stored 
+    * when exported to another ZIP
+    */
+   private static final class MappedEntryAsset implements RawZipEntryAsset
+   {
+      private final MappedZip zip;
+
+      private final int index;
+
+      MappedEntryAsset(final MappedZip zip, final int index)
+      {
+         this.zip = zip;
+         this.index = index;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.api.asset.Asset#openStream()
+       */
+      public InputStream openStream()
+      {
+         final ByteBuffer mapping = zip.mapping;
+         final int header = zip.headers[index];
+         final String name = zip.names[index];
+         final int method = ZipDirectoryReader.getMethod(mapping, header);
+         if (ZipDirectoryReader.isEncrypted(mapping, header))
+         {
+            throw new RuntimeException("Could not read encrypted entry " + name + " of " + zip.file);
+         }
+         if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED)
+         {
+            throw new RuntimeException("Could not read entry " + name + " of " + zip.file
+                  + " compressed by method " + method);
+         }
+         final ByteBuffer content = this.getContent();
+         return method == ZipEntry.DEFLATED ? new InflatingInputStream(content, zip.pool) : new ByteBufferInputStream(
+               content);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#isRawContentAvailable()
+       */
+      public boolean isRawContentAvailable()
+      {
+         final int method = this.getMethod();
+         return (method == ZipEntry.STORED || method == ZipEntry.DEFLATED)
+               && !ZipDirectoryReader.isEncrypted(zip.mapping, zip.headers[index]) && this.getSize() >= 0;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#openRawStream()
+       */
+      public InputStream openRawStream() throws IllegalStateException
+      {
+         if (!this.isRawContentAvailable())
+         {
+            throw new IllegalStateException("Raw content is not available for " + zip.names[index]);
+         }
+         return new ByteBufferInputStream(this.getContent());
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#getMethod()
+       */
+      public int getMethod()
+      {
+         return ZipDirectoryReader.getMethod(zip.mapping, zip.headers[index]);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset#getCompressedSize()
+       */
+      public long getCompressedSize()
+      {
+         return ZipDirectoryReader.getField(zip.mapping, zip.headers[index], ZipDirectoryReader.FIELD_COMPRESSED_SIZE);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getSize()
+       */
+      public long getSize()
+      {
+         return ZipDirectoryReader.getField(zip.mapping, zip.headers[index], ZipDirectoryReader.FIELD_SIZE);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getLastModified()
+       */
+      public long getLastModified()
+      {
+         final long time = ZipDirectoryReader.getDosTime(zip.mapping, zip.headers[index]);
+         final Calendar calendar = Calendar.getInstance();
+         calendar.clear();
+         calendar.set((int) ((time >> 25) & 0x7f) + 1980, (int) ((time >> 21) & 0x0f) - 1,
+               (int) ((time >> 16) & 0x1f), (int) ((time >> 11) & 0x1f), (int) ((time >> 5) & 0x3f),
+               (int) ((time << 1) & 0x3e));
+         return calendar.getTimeInMillis();
+      }
+
+      /**
+       * Determined by the extension of the entry name (ie. a nested JAR), as
+       * the entry itself is inflated upon being read
+       * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#isCompressed()
+       */
+      public boolean isCompressed()
+      {
+         return AssetUtil.isCompressedFormat(zip.names[index]);
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see org.jboss.shrinkwrap.api.asset.DescribableAsset#getCrc32()
+       */
+      public long getCrc32()
+      {
+         return ZipDirectoryReader.getCrc32(zip.mapping, zip.headers[index]);
+      }
+
+      /**
+       * Obtains the content as stored in the mapping, its location checked upon being mapped
+       */
+      private ByteBuffer getContent()
+      {
+         final int header = zip.headers[index];
+         final long start = getContentStart(zip.mapping, header);
+         final ByteBuffer content = zip.mapping.duplicate();
+         content.limit((int) (start + this.getCompressedSize()));
+         content.position((int) start);
+         return content;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.lang.Object#toString()
+       */
+      @Override
+      public String toString()
+      {
+         return MappedEntryAsset.class.getSimpleName() + "[" + zip.file + "!/" + zip.names[index] + "]";
+      }
+   }
+
+   /**
+    * Reads stored content from the mapping
+    */
+   private static final class ByteBufferInputStream extends InputStream
+   {
+      private final ByteBuffer content;
+
+      ByteBufferInputStream(final ByteBuffer content)
+      {
+         this.content = content;
+      }
+
+      @Override
+      public int read()
+      {
+         return content.hasRemaining() ? content.get() & 0xFF : -1;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len)
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+         if (!content.hasRemaining())
+         {
+            return -1;
+         }
+         final int n = Math.min(len, content.remaining());
+         content.get(b, off, n);
+         return n;
+      }
+
+      @Override
+      public long skip(final long n)
+      {
+         final int skipped = (int) Math.max(0, Math.min(n, content.remaining()));
+         content.position(content.position() + skipped);
+         return skipped;
+      }
+
+      @Override
+      public int available()
+      {
+         return content.remaining();
+      }
+   }
+
+   /**
+    * Inflates deflated content from the mapping, using pooled {@link Inflater}s and buffers
+    */
+   private static final class InflatingInputStream extends InputStream
+   {
+      private final ByteBuffer content;
+
+      private final CodecPool pool;
+
+      private Inflater inflater;
+
+      private byte[] input;
+
+      private final byte[] single = new byte[1];
+
+      /**
+       * Whether the dummy byte the {@link Inflater} may need past the end of the content was supplied
+       */
+      private boolean padded;
+
+      InflatingInputStream(final ByteBuffer content, final CodecPool pool)
+      {
+         this.content = content;
+         this.pool = pool;
+         this.inflater = pool.borrowInflater();
+         this.input = pool.borrowBuffer();
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         if (inflater == null)
+         {
+            throw new IOException("Stream closed");
+         }
+         if (off < 0 || len < 0 || off + len > b.length)
+         {
+            throw new IndexOutOfBoundsException();
+         }
+         if (len == 0)
+         {
+            return 0;
+         }
+         try
+         {
+            while (true)
+            {
+               final int n = inflater.inflate(b, off, len);
+               if (n > 0)
+               {
+                  return n;
+               }
+               if (inflater.finished() || inflater.needsDictionary())
+               {
+                  return -1;
+               }
+               if (inflater.needsInput())
+               {
+                  if (content.hasRemaining())
+                  {
+                     final int chunk = Math.min(input.length, content.remaining());
+                     content.get(input, 0, chunk);
+                     inflater.setInput(input, 0, chunk);
+                  }
+                  else if (!padded)
+                  {
+                     padded = true;
+                     input[0] = 0;
+                     inflater.setInput(input, 0, 1);
+                  }
+                  else
+                  {
+                     throw new EOFException("Unexpected end of ZIP entry");
+                  }
+               }
+            }
+         }
+         catch (final DataFormatException dfe)
+         {
+            final ZipException ze = new ZipException("Invalid deflated content");
+            ze.initCause(dfe);
+            throw ze;
+         }
+      }
+
+      @Override
+      public void close()
+      {
+         if (inflater != null)
+         {
+            pool.returnInflater(inflater);
+            pool.returnBuffer(input);
+            inflater = null;
+            input = null;
+         }
+      }
+   }
+}
@@ -16,25 +16,29 @@
  */
 package org.jboss.shrinkwrap.impl.base.importer.zip;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 import org.jboss.shrinkwrap.api.Archive;
-import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.impl.base.AssignableBase;
+import org.jboss.shrinkwrap.impl.base.MemoryMapArchiveBase;
 import org.jboss.shrinkwrap.impl.base.Validate;
 import org.jboss.shrinkwrap.impl.base.asset.ZipFileEntryAsset;
-import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.SpillStore;
 import org.jboss.shrinkwrap.impl.base.path.BasicPath;
+import org.jboss.shrinkwrap.spi.Configurable;
 
 /**
  * Used to import existing Zip files/streams into the given {@link Archive}  
@@ -51,7 +55,6 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
    /**
     * Logger
     */
-   @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(ZipImporterImpl.class.getName());
 
    //-------------------------------------------------------------------------------------||
@@ -104,6 +107,7 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
       {
          // Wrap in ZipInputStream if we haven't been given one
          final ZipInputStream zipStream = new ZipInputStream(stream);
+         final SpillStore store = SpillStore.forImport(this.getConfiguration());
 
          ZipEntry entry;
          while ((entry = zipStream.getNextEntry()) != null)
@@ -121,9 +125,7 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
                continue;
             }
 
-            final ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
-            IOUtil.copy(zipStream, output);
-            archive.add(new ByteArrayAsset(output.toByteArray()), entryName);
+            archive.add(store.read(zipStream, entry.getSize(), entry.getTime()), entryName);
             zipStream.closeEntry();
          }
       }
@@ -142,6 +144,11 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
    {
       Validate.notNull(file, "File must be specified");
 
+      if (this.importMapped(file))
+      {
+         return this;
+      }
+
       final ZipFile zipFile;
       try
       {
@@ -165,6 +172,11 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
    {
       Validate.notNull(file, "File must be specified");
 
+      if (this.importMapped(new File(file.getName())))
+      {
+         return this;
+      }
+
       try
       {
          Enumeration<? extends ZipEntry> entries = file.entries();
@@ -194,4 +206,62 @@ public class ZipImporterImpl extends AssignableBase<Archive<?>> implements ZipIm
       }
       return this;
    }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Backs the archive by a memory-mapped view of the specified file if so configured,
+    * and the archive is empty.  Otherwise, or if the file could not be mapped, the
+    * file is to be imported entry by entry.
+    * 
+    * @param file
+    * @return Whether the archive is now backed by the file
+    * @throws ArchiveImportException If the file is malformed
+    */
+   private boolean importMapped(final File file) throws ArchiveImportException
+   {
+      final Archive<?> archive = this.getArchive();
+      if (!(archive instanceof MemoryMapArchiveBase<?>))
+      {
+         return false;
+      }
+      final MemoryMapArchiveBase<?> target = (MemoryMapArchiveBase<?>) archive;
+      final Configuration configuration = this.getConfiguration();
+      if (!configuration.isMappedZipImport() || !target.isMountable())
+      {
+         return false;
+      }
+      final MappedZip zip;
+      try
+      {
+         zip = MappedZip.map(file, CodecPool.of(configuration));
+      }
+      catch (final ZipException ze)
+      {
+         throw new ArchiveImportException("Could not import file", ze);
+      }
+      catch (final IOException ioe)
+      {
+         log.log(Level.FINE, "Could not map " + file + ", importing entry by entry", ioe);
+         return false;
+      }
+      if (!target.mount(zip))
+      {
+         // Content added concurrently; never handed out
+         zip.release();
+         return false;
+      }
+      return true;
+   }
+
+   /**
+    * Obtains the {@link Configuration} of the archive
+    * @return
+    */
+   private Configuration getConfiguration()
+   {
+      return this.getArchive().as(Configurable.class).getConfiguration();
+   }
 }
@@ -0,0 +1,270 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.jboss.shrinkwrap.api.Configuration;
+import org.jboss.shrinkwrap.api.Domain;
+
+/**
+ * Pool of {@link Deflater}s (by compression level), {@link Inflater}s and byte buffers
+ * (by size) reused across exports and imports, sparing the allocation of native 
+ * zlib state and short-lived arrays for each.  One pool exists per {@link Configuration}, 
+ * and so per {@link Domain}, holding idle instances up to twice its compression 
+ * parallelism; a shared pool serves callers with no {@link Configuration} at hand.
+ * 
+ * All {@link Deflater}s and {@link Inflater}s are in raw mode (no ZLIB header or 
+ * checksum), as used by ZIP and GZIP.  Instances borrowed must not be used once returned. 
+ * Thread-safe.
+ *
+ * @version $Revision: $
+ */
+public final class CodecPool
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Size of the buffers obtained via {@link CodecPool#borrowBuffer()}
+    */
+   public static final int BUFFER_SIZE = 64 * 1024;
+
+   /**
+    * Pools by the {@link Configuration} they serve
+    */
+   private static final Map<Configuration, CodecPool> pools = new WeakHashMap<Configuration, CodecPool>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Maximum number of idle instances held of each kind
+    */
+   private final int maxIdle;
+
+   /**
+    * Idle {@link Deflater}s, by level
+    */
+   private final Map<Integer, LinkedList<Deflater>> deflaters = new HashMap<Integer, LinkedList<Deflater>>();
+
+   /**
+    * Idle {@link Inflater}s
+    */
+   private final LinkedList<Inflater> inflaters = new LinkedList<Inflater>();
+
+   /**
+    * Idle buffers, by size
+    */
+   private final Map<Integer, LinkedList<byte[]>> buffers = new HashMap<Integer, LinkedList<byte[]>>();
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private CodecPool(final int parallelism)
+   {
+      this.maxIdle = Math.max(2, parallelism * 2);
+   }
+
+   /**
+    * Obtains the pool serving the specified {@link Configuration}
+    * @param configuration
+    * @return
+    * @throws IllegalArgumentException If the configuration is not specified
+    */
+   public static CodecPool of(final Configuration configuration) throws IllegalArgumentException
+   {
+      if (configuration == null)
+      {
+         throw new IllegalArgumentException("configuration must be specified");
+      }
+      synchronized (pools)
+      {
+         CodecPool pool = pools.get(configuration);
+         if (pool == null)
+         {
+            pool = new CodecPool(configuration.getCompressionParallelism());
+            pools.put(configuration, pool);
+         }
+         return pool;
+      }
+   }
+
+   /**
+    * Obtains the pool shared by callers with no {@link Configuration}
+    * @return
+    */
+   public static CodecPool shared()
+   {
+      return Holder.INSTANCE;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains a raw {@link Deflater} of the specified level, to be handed back via 
+    * {@link CodecPool#returnDeflater(int, Deflater)}
+    * @param level
+    * @return
+    */
+   public Deflater borrowDeflater(final int level)
+   {
+      synchronized (this)
+      {
+         final LinkedList<Deflater> idle = deflaters.get(level);
+         if (idle != null && !idle.isEmpty())
+         {
+            return idle.removeFirst();
+         }
+      }
+      return new Deflater(level, true);
+   }
+
+   /**
+    * Hands back a {@link Deflater} obtained via {@link CodecPool#borrowDeflater(int)}
+    * for the specified level
+    * @param level
+    * @param deflater
+    */
+   public void returnDeflater(final int level, final Deflater deflater)
+   {
+      deflater.reset();
+      synchronized (this)
+      {
+         LinkedList<Deflater> idle = deflaters.get(level);
+         if (idle == null)
+         {
+            idle = new LinkedList<Deflater>();
+            deflaters.put(level, idle);
+         }
+         if (idle.size() < maxIdle)
+         {
+            idle.addFirst(deflater);
+            return;
+         }
+      }
+      deflater.end();
+   }
+
+   /**
+    * Obtains a raw {@link Inflater}, to be handed back via 
+    * {@link CodecPool#returnInflater(Inflater)}
+    * @return
+    */
+   public Inflater borrowInflater()
+   {
+      synchronized (this)
+      {
+         if (!inflaters.isEmpty())
+         {
+            return inflaters.removeFirst();
+         }
+      }
+      return new Inflater(true);
+   }
+
+   /**
+    * Hands back an {@link Inflater} obtained via {@link CodecPool#borrowInflater()}
+    * @param inflater
+    */
+   public void returnInflater(final Inflater inflater)
+   {
+      inflater.reset();
+      synchronized (this)
+      {
+         if (inflaters.size() < maxIdle)
+         {
+            inflaters.addFirst(inflater);
+            return;
+         }
+      }
+      inflater.end();
+   }
+
+   /**
+    * Obtains a buffer of {@link CodecPool#BUFFER_SIZE} bytes, to be handed back via
+    * {@link CodecPool#returnBuffer(byte[])}
+    * @return
+    */
+   public byte[] borrowBuffer()
+   {
+      return this.borrowBuffer(BUFFER_SIZE);
+   }
+
+   /**
+    * Obtains a buffer of the specified size, to be handed back via
+    * {@link CodecPool#returnBuffer(byte[])}.  Its content is undefined.
+    * @param size
+    * @return
+    */
+   public byte[] borrowBuffer(final int size)
+   {
+      synchronized (this)
+      {
+         final LinkedList<byte[]> idle = buffers.get(size);
+         if (idle != null && !idle.isEmpty())
+         {
+            return idle.removeFirst();
+         }
+      }
+      return new byte[size];
+   }
+
+   /**
+    * Hands back a buffer obtained via {@link CodecPool#borrowBuffer(int)}
+    * @param buffer
+    */
+   public void returnBuffer(final byte[] buffer)
+   {
+      synchronized (this)
+      {
+         LinkedList<byte[]> idle = buffers.get(buffer.length);
+         if (idle == null)
+         {
+            idle = new LinkedList<byte[]>();
+            buffers.put(buffer.length, idle);
+         }
+         if (idle.size() < maxIdle)
+         {
+            idle.addFirst(buffer);
+         }
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Defers creation of the shared pool until first requested
+    */
+   private static final class Holder
+   {
+      private static final CodecPool INSTANCE = new CodecPool(Runtime.getRuntime().availableProcessors());
+   }
+}
@@ -0,0 +1,100 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazily-created pool of daemon Threads shared by all exports which compress
+ * in parallel but have not been configured with an {@link ExecutorService}.  
+ * On single-processor machines there is no pool, and compression takes place
+ * upon the calling Thread.
+ *
+ * @version $Revision: $
+ */
+public final class CompressionPool
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Prefix of the names given to pooled Threads
+    */
+   private static final String THREAD_NAME_PREFIX = "ShrinkWrap Compression ";
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Internal constructor; should not be called
+    */
+   private CompressionPool()
+   {
+      throw new UnsupportedOperationException("No instances should be created; stateless class");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the shared pool, or null if there is only one processor available
+    * @return
+    */
+   public static ExecutorService get()
+   {
+      return Holder.INSTANCE;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Defers creation of the pool until first requested
+    */
+   private static final class Holder
+   {
+      private static final ExecutorService INSTANCE = create();
+
+      private static ExecutorService create()
+      {
+         final int threads = Runtime.getRuntime().availableProcessors();
+         if (threads < 2)
+         {
+            return null;
+         }
+         final AtomicInteger counter = new AtomicInteger();
+         return Executors.newFixedThreadPool(threads, new ThreadFactory()
+         {
+            @Override
+            public Thread newThread(final Runnable r)
+            {
+               final Thread thread = new Thread(r, THREAD_NAME_PREFIX + counter.incrementAndGet());
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+      }
+   }
+}
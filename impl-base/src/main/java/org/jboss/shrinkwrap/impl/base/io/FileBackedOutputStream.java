@@ -0,0 +1,260 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link OutputStream} collecting content of unknown length, held in memory 
+ * until it exceeds a threshold and in a temporary file thereafter, so that 
+ * buffering large content does not exhaust the heap.  Once written, the content
+ * may be replayed any number of times via {@link FileBackedOutputStream#writeTo(OutputStream)}.
+ * {@link FileBackedOutputStream#reset()} discards the content so the instance may
+ * be reused; {@link FileBackedOutputStream#close()} additionally releases the 
+ * temporary file, if any.
+ * 
+ * Not thread-safe.
+ *
+ * @version $Revision: $
+ */
+public final class FileBackedOutputStream extends OutputStream
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(FileBackedOutputStream.class.getName());
+
+   /**
+    * Prefix of temporary files
+    */
+   private static final String TEMP_FILE_PREFIX = "shrinkwrap-";
+
+   /**
+    * Suffix of temporary files
+    */
+   private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+   /**
+    * Size of the buffer used when writing to and reading from the temporary file
+    */
+   private static final int FILE_BUFFER_SIZE = 8192;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of bytes above which content is moved to a temporary file
+    */
+   private final int threshold;
+
+   /**
+    * Content while held in memory
+    */
+   private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+
+   /**
+    * Temporary file, once the threshold has been exceeded
+    */
+   private File file;
+
+   /**
+    * Stream to {@link FileBackedOutputStream#file}, while writing
+    */
+   private OutputStream fileOut;
+
+   /**
+    * Number of bytes written since creation or the last reset
+    */
+   private long size;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance holding up to the specified number of bytes in memory
+    * @param threshold
+    * @throws IllegalArgumentException If the threshold is negative
+    */
+   public FileBackedOutputStream(final int threshold) throws IllegalArgumentException
+   {
+      if (threshold < 0)
+      {
+         throw new IllegalArgumentException("Threshold must not be negative");
+      }
+      this.threshold = threshold;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(int)
+    */
+   @Override
+   public void write(final int b) throws IOException
+   {
+      this.target(1).write(b);
+      size++;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.target(len).write(b, off, len);
+      size += len;
+   }
+
+   /**
+    * Discards the content and releases the temporary file, if any
+    * @see java.io.OutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      this.reset();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the number of bytes written since creation or the last reset
+    * @return
+    */
+   public long size()
+   {
+      return size;
+   }
+
+   /**
+    * Writes all content to the specified target
+    * @param out
+    * @throws IOException
+    */
+   public void writeTo(final OutputStream out) throws IOException
+   {
+      this.writeTo(out, file == null ? null : new byte[FILE_BUFFER_SIZE]);
+   }
+
+   /**
+    * Writes all content to the specified target, reading the temporary file, if any,
+    * through the specified buffer
+    * @param out
+    * @param buffer
+    * @throws IOException
+    */
+   public void writeTo(final OutputStream out, final byte[] buffer) throws IOException
+   {
+      if (file == null)
+      {
+         memory.writeTo(out);
+         return;
+      }
+
+      fileOut.flush();
+      final InputStream in = new FileInputStream(file);
+      try
+      {
+         int read;
+         while ((read = in.read(buffer)) != -1)
+         {
+            out.write(buffer, 0, read);
+         }
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Discards all content, deleting the temporary file if one was created
+    * @throws IOException
+    */
+   public void reset() throws IOException
+   {
+      memory.reset();
+      size = 0;
+      if (file == null)
+      {
+         return;
+      }
+      try
+      {
+         fileOut.close();
+      }
+      finally
+      {
+         if (!file.delete() && log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not delete temporary file " + file.getAbsolutePath());
+         }
+         file = null;
+         fileOut = null;
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the stream to which the specified number of additional bytes 
+    * should be written, moving to a temporary file if they'd exceed the threshold
+    */
+   private OutputStream target(final int length) throws IOException
+   {
+      if (file == null && size + length > threshold)
+      {
+         file = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+         fileOut = new BufferedOutputStream(new FileOutputStream(file), FILE_BUFFER_SIZE);
+         memory.writeTo(fileOut);
+         memory.reset();
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Exceeded " + threshold + "b in memory; buffering to " + file.getAbsolutePath());
+         }
+      }
+      return file == null ? memory : fileOut;
+   }
+}
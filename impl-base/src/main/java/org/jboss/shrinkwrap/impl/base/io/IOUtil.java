@@ -150,11 +150,19 @@ public final class IOUtil
     */
    public static void copy(InputStream input, OutputStream output) throws IOException
    {
-      final byte[] buffer = new byte[4096];
-      int read = 0;
-      while ((read = input.read(buffer)) != -1)
+      final CodecPool pool = CodecPool.shared();
+      final byte[] buffer = pool.borrowBuffer();
+      try
+      {
+         int read = 0;
+         while ((read = input.read(buffer)) != -1)
+         {
+            output.write(buffer, 0, read);
+         }
+      }
+      finally
       {
-         output.write(buffer, 0, read);
+         pool.returnBuffer(buffer);
       }
 
       output.flush();
@@ -0,0 +1,496 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link OutputStream} writing the GZIP format, splitting its input into 
+ * fixed-size blocks which are compressed concurrently upon an {@link ExecutorService}.
+ * Each block is encoded as a complete GZIP member; members are written in order, 
+ * and their concatenation is itself a valid GZIP stream (RFC 1952, section 2.2) 
+ * as read by <code>gzip -d</code>, and by the {@link GZIPInputStream} of Java 7 
+ * onwards; that of earlier versions stops after the first member.  Block boundaries 
+ * depend only upon the block size, so the output is byte-identical regardless of 
+ * the number of Threads (or whether an {@link ExecutorService} is used at all).
+ * Blocks, {@link Deflater}s and the buffers into which members are encoded are 
+ * borrowed from a {@link CodecPool}.
+ * 
+ * Not thread-safe.
+ *
+ * @version $Revision: $
+ */
+public class ParallelGzipOutputStream extends OutputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Member header: magic, DEFLATE, no flags, no modification time, no extra flags, 
+    * unknown OS; matches that written by {@link java.util.zip.GZIPOutputStream}
+    */
+   private static final byte[] HEADER =
+   {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+   /**
+    * Length of the CRC32 and ISIZE trailing each member
+    */
+   private static final int TRAILER_LENGTH = 8;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Underlying target
+    */
+   private final OutputStream out;
+
+   /**
+    * Where compression tasks are run, or null to compress upon the calling Thread
+    */
+   private final ExecutorService executor;
+
+   /**
+    * Compression level of each {@link Deflater}
+    */
+   private final int level;
+
+   /**
+    * Where blocks, {@link Deflater}s and member buffers are borrowed from
+    */
+   private final CodecPool pool;
+
+   /**
+    * Size of the buffers into which members are encoded; enough for any block
+    */
+   private final int memberSize;
+
+   /**
+    * Size of the uncompressed blocks
+    */
+   private final int blockSize;
+
+   /**
+    * Maximum number of blocks awaiting compression at any one time
+    */
+   private final int maxPending;
+
+   /**
+    * Blocks handed off for compression, but not yet written, in order
+    */
+   private final LinkedList<Future<Member>> pending = new LinkedList<Future<Member>>();
+
+   /**
+    * The block currently being filled
+    */
+   private byte[] block;
+
+   /**
+    * Number of bytes in the current block
+    */
+   private int count;
+
+   /**
+    * Whether at least one member has been handed off; an empty stream still needs one
+    */
+   private boolean memberStarted;
+
+   /**
+    * Whether all members have been written
+    */
+   private boolean finished;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new stream writing to the specified target, compressing blocks of the
+    * specified size at the specified level upon the specified {@link ExecutorService} 
+    * (or the calling Thread if null), holding no more than the specified number
+    * of blocks in compression at any one time
+    * 
+    * @param out
+    * @param executor
+    * @param level
+    * @param blockSize
+    * @param parallelism
+    * @throws IllegalArgumentException If the target is not specified, or the block size or parallelism is not positive
+    */
+   public ParallelGzipOutputStream(final OutputStream out, final ExecutorService executor, final int level,
+         final int blockSize, final int parallelism) throws IllegalArgumentException
+   {
+      this(out, executor, level, blockSize, parallelism, CodecPool.shared());
+   }
+
+   /**
+    * Creates a new stream as {@link ParallelGzipOutputStream#ParallelGzipOutputStream(OutputStream, ExecutorService, int, int, int)},
+    * borrowing from the specified {@link CodecPool}
+    * 
+    * @param out
+    * @param executor
+    * @param level
+    * @param blockSize
+    * @param parallelism
+    * @param pool
+    * @throws IllegalArgumentException If the target or pool is not specified, or the block size or parallelism is not positive
+    */
+   public ParallelGzipOutputStream(final OutputStream out, final ExecutorService executor, final int level,
+         final int blockSize, final int parallelism, final CodecPool pool) throws IllegalArgumentException
+   {
+      if (out == null)
+      {
+         throw new IllegalArgumentException("Target must be specified");
+      }
+      if (blockSize < 1)
+      {
+         throw new IllegalArgumentException("Block size must be positive");
+      }
+      if (parallelism < 1)
+      {
+         throw new IllegalArgumentException("Parallelism must be positive");
+      }
+      if (pool == null)
+      {
+         throw new IllegalArgumentException("pool must be specified");
+      }
+      this.out = out;
+      this.executor = executor;
+      this.level = level;
+      this.pool = pool;
+      this.blockSize = blockSize;
+      // Stored blocks grow by a few bytes per 16KB; this is more than enough
+      this.memberSize = HEADER.length + blockSize + (blockSize >> 3) + 64 + TRAILER_LENGTH;
+      // Without an executor there's nothing to gain by holding compressed blocks back
+      this.maxPending = this.executor == null ? 0 : parallelism;
+      this.block = pool.borrowBuffer(blockSize);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(int)
+    */
+   @Override
+   public void write(final int b) throws IOException
+   {
+      this.ensureOpen();
+      block[count++] = (byte) b;
+      if (count == blockSize)
+      {
+         this.submitBlock();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#write(byte[], int, int)
+    */
+   @Override
+   public void write(final byte[] b, int off, int len) throws IOException
+   {
+      this.ensureOpen();
+      if (off < 0 || len < 0 || off + len > b.length)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+      while (len > 0)
+      {
+         final int copied = Math.min(len, blockSize - count);
+         System.arraycopy(b, off, block, count, copied);
+         count += copied;
+         off += copied;
+         len -= copied;
+         if (count == blockSize)
+         {
+            this.submitBlock();
+         }
+      }
+   }
+
+   /**
+    * Flushes those members already compressed.  Buffered content is not forced 
+    * into a member of its own, as that would make the output depend upon 
+    * when flushes occur.
+    * 
+    * @see java.io.OutputStream#flush()
+    */
+   @Override
+   public void flush() throws IOException
+   {
+      if (!finished)
+      {
+         this.writePending(false);
+      }
+      out.flush();
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.OutputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      try
+      {
+         this.finish();
+      }
+      finally
+      {
+         this.release();
+         out.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Compresses and writes all remaining content without closing the underlying target
+    * @throws IOException
+    */
+   public void finish() throws IOException
+   {
+      if (finished)
+      {
+         return;
+      }
+      if (count > 0 || !memberStarted)
+      {
+         this.submitBlock();
+      }
+      this.writePending(true);
+      out.flush();
+      finished = true;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Hands off the current block for compression and starts a new one
+    */
+   private void submitBlock() throws IOException
+   {
+      final FutureTask<Member> task = new FutureTask<Member>(new MemberTask(block, count, level, pool,
+            memberSize));
+      memberStarted = true;
+      block = pool.borrowBuffer(blockSize);
+      count = 0;
+
+      pending.add(task);
+      if (executor == null)
+      {
+         task.run();
+      }
+      else
+      {
+         executor.execute(task);
+      }
+      this.writePending(false);
+   }
+
+   /**
+    * Writes compressed members in order.  If "all" is set, blocks until every pending
+    * member is written, else only blocks while we're holding too many blocks
+    */
+   private void writePending(final boolean all) throws IOException
+   {
+      while (!pending.isEmpty())
+      {
+         final Future<Member> head = pending.getFirst();
+         if (!all && pending.size() <= maxPending && !head.isDone())
+         {
+            return;
+         }
+         pending.removeFirst();
+         final Member member = await(head);
+         out.write(member.data, 0, member.length);
+         if (member.data.length == memberSize)
+         {
+            pool.returnBuffer(member.data);
+         }
+      }
+   }
+
+   /**
+    * Abandons pending work and hands back the current block
+    */
+   private void release()
+   {
+      for (final Future<Member> future : pending)
+      {
+         future.cancel(false);
+      }
+      pending.clear();
+      if (block != null)
+      {
+         pool.returnBuffer(block);
+         block = null;
+      }
+   }
+
+   private void ensureOpen() throws IOException
+   {
+      if (finished)
+      {
+         throw new IOException("Stream is finished");
+      }
+   }
+
+   /**
+    * Obtains the result of the specified compression task
+    */
+   private static Member await(final Future<Member> future) throws IOException
+   {
+      try
+      {
+         return future.get();
+      }
+      catch (final InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+         throw new IOException("Interrupted while awaiting compression of GZIP block");
+      }
+      catch (final ExecutionException ee)
+      {
+         final IOException ioe = new IOException("Could not compress GZIP block");
+         ioe.initCause(ee.getCause());
+         throw ioe;
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * A GZIP member, encoded into the start of a buffer
+    */
+   private static final class Member
+   {
+      final byte[] data;
+
+      final int length;
+
+      Member(final byte[] data, final int length)
+      {
+         this.data = data;
+         this.length = length;
+      }
+   }
+
+   /**
+    * Encodes a single block as a complete GZIP member, handing back the block when done
+    */
+   private static final class MemberTask implements Callable<Member>
+   {
+      private final byte[] content;
+
+      private final int length;
+
+      private final int level;
+
+      private final CodecPool pool;
+
+      private final int memberSize;
+
+      MemberTask(final byte[] content, final int length, final int level, final CodecPool pool,
+            final int memberSize)
+      {
+         this.content = content;
+         this.length = length;
+         this.level = level;
+         this.pool = pool;
+         this.memberSize = memberSize;
+      }
+
+      /**
+       * {@inheritDoc}
+       * @see java.util.concurrent.Callable#call()
+       */
+      @Override
+      public Member call() throws Exception
+      {
+         final CRC32 crc = new CRC32();
+         crc.update(content, 0, length);
+
+         byte[] member = pool.borrowBuffer(memberSize);
+         System.arraycopy(HEADER, 0, member, 0, HEADER.length);
+         int position = HEADER.length;
+
+         final Deflater deflater = pool.borrowDeflater(level);
+         try
+         {
+            deflater.setInput(content, 0, length);
+            deflater.finish();
+            while (!deflater.finished())
+            {
+               // Leave room for the trailer
+               if (position == member.length - TRAILER_LENGTH)
+               {
+                  final byte[] grown = new byte[member.length * 2];
+                  System.arraycopy(member, 0, grown, 0, position);
+                  member = grown;
+               }
+               position += deflater.deflate(member, position, member.length - TRAILER_LENGTH - position);
+            }
+         }
+         finally
+         {
+            pool.returnDeflater(level, deflater);
+            pool.returnBuffer(content);
+         }
+
+         // Trailer
+         writeIntLE(member, position, crc.getValue());
+         writeIntLE(member, position + 4, length);
+         return new Member(member, position + TRAILER_LENGTH);
+      }
+
+      private static void writeIntLE(final byte[] b, final int off, final long value)
+      {
+         b[off] = (byte) value;
+         b[off + 1] = (byte) (value >> 8);
+         b[off + 2] = (byte) (value >> 16);
+         b[off + 3] = (byte) (value >> 24);
+      }
+   }
+}
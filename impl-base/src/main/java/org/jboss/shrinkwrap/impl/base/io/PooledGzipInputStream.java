@@ -0,0 +1,479 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * {@link InputStream} reading the GZIP format, as does {@link GZIPInputStream}, 
+ * but inflating with an {@link Inflater} and input buffer borrowed from a 
+ * {@link CodecPool}.  These are handed back once the end of the stream is 
+ * reached, or upon {@link PooledGzipInputStream#close()}, whichever comes first.
+ * Concatenated members (as written by {@link ParallelGzipOutputStream}) are read 
+ * as one stream; anything following the last member which is not itself a 
+ * member is ignored.  Subclasses may learn where each member after the first begins
+ * via {@link PooledGzipInputStream#memberStarted(long, long)}, as inflation may resume 
+ * from there.
+ * 
+ * Not thread-safe.
+ *
+ * @version $Revision: $
+ */
+public class PooledGzipInputStream extends InputStream
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static final int MAGIC_1 = 0x1f;
+
+   private static final int MAGIC_2 = 0x8b;
+
+   private static final int METHOD_DEFLATED = 8;
+
+   private static final int FLAG_HEADER_CRC = 0x02;
+
+   private static final int FLAG_EXTRA = 0x04;
+
+   private static final int FLAG_NAME = 0x08;
+
+   private static final int FLAG_COMMENT = 0x10;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Underlying source
+    */
+   private final InputStream in;
+
+   /**
+    * Where the {@link Inflater} and input buffer are borrowed from
+    */
+   private final CodecPool pool;
+
+   /**
+    * Checksum of the content of the current member
+    */
+   private final CRC32 crc = new CRC32();
+
+   /**
+    * Single-byte buffer for {@link PooledGzipInputStream#read()}
+    */
+   private final byte[] single = new byte[1];
+
+   /**
+    * Borrowed; null once handed back
+    */
+   private Inflater inflater;
+
+   /**
+    * Borrowed input buffer; null once handed back
+    */
+   private byte[] input;
+
+   /**
+    * Position of the next unconsumed byte in the input buffer
+    */
+   private int inputPosition;
+
+   /**
+    * Number of valid bytes in the input buffer
+    */
+   private int inputLength;
+
+   /**
+    * Length of the content of the current member read so far
+    */
+   private long memberSize;
+
+   /**
+    * Number of bytes read from the source
+    */
+   private long sourceRead;
+
+   /**
+    * Length of the content of all members read so far
+    */
+   private long contentRead;
+
+   /**
+    * Whether the next read must begin with a member header
+    */
+   private boolean atMemberStart = true;
+
+   /**
+    * Whether the end of the last member has been reached
+    */
+   private boolean eof;
+
+   /**
+    * Whether this stream has been closed
+    */
+   private boolean closed;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new stream reading the GZIP content of the specified source, the header 
+    * of whose first member is read immediately
+    * 
+    * @param in
+    * @param pool
+    * @throws IllegalArgumentException If the source or pool is not specified
+    * @throws IOException If the first member header could not be read or is invalid
+    */
+   public PooledGzipInputStream(final InputStream in, final CodecPool pool) throws IllegalArgumentException,
+         IOException
+   {
+      if (in == null)
+      {
+         throw new IllegalArgumentException("Source must be specified");
+      }
+      if (pool == null)
+      {
+         throw new IllegalArgumentException("pool must be specified");
+      }
+      this.in = in;
+      this.pool = pool;
+      this.inflater = pool.borrowInflater();
+      this.input = pool.borrowBuffer();
+
+      // As GZIPInputStream, fail early on what's not GZIP
+      try
+      {
+         this.readHeader(true);
+      }
+      catch (final IOException ioe)
+      {
+         this.release();
+         throw ioe;
+      }
+      atMemberStart = false;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Required Implementations -----------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#read()
+    */
+   @Override
+   public int read() throws IOException
+   {
+      return this.read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Overridden Implementations ---------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#read(byte[], int, int)
+    */
+   @Override
+   public int read(final byte[] b, final int off, final int len) throws IOException
+   {
+      this.ensureOpen();
+      if (off < 0 || len < 0 || off + len > b.length)
+      {
+         throw new IndexOutOfBoundsException();
+      }
+      if (len == 0)
+      {
+         return 0;
+      }
+
+      while (!eof)
+      {
+         if (atMemberStart)
+         {
+            if (!this.readHeader(false))
+            {
+               eof = true;
+               this.release();
+               break;
+            }
+            atMemberStart = false;
+         }
+
+         final int read = this.inflate(b, off, len);
+         if (read > 0)
+         {
+            return read;
+         }
+      }
+      return -1;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#available()
+    */
+   @Override
+   public int available() throws IOException
+   {
+      this.ensureOpen();
+      return eof ? 0 : 1;
+   }
+
+   /**
+    * {@inheritDoc}
+    * @see java.io.InputStream#close()
+    */
+   @Override
+   public void close() throws IOException
+   {
+      if (closed)
+      {
+         return;
+      }
+      closed = true;
+      this.release();
+      in.close();
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Called as the header of each member after the first has been read, with 
+    * the position of the header within the source and that of the content of 
+    * the member within this stream; by default does nothing
+    * 
+    * @param sourcePosition
+    * @param position
+    */
+   protected void memberStarted(final long sourcePosition, final long position)
+   {
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Inflates into the specified buffer, returning the number of bytes inflated; 
+    * 0 if the current member was completed, in which case its trailer has been verified
+    */
+   private int inflate(final byte[] b, final int off, final int len) throws IOException
+   {
+      while (true)
+      {
+         final int inflated;
+         try
+         {
+            inflated = inflater.inflate(b, off, len);
+         }
+         catch (final DataFormatException dfe)
+         {
+            final ZipException ze = new ZipException("Invalid GZIP data: " + dfe.getMessage());
+            ze.initCause(dfe);
+            throw ze;
+         }
+         if (inflated > 0)
+         {
+            crc.update(b, off, inflated);
+            memberSize += inflated;
+            contentRead += inflated;
+            return inflated;
+         }
+         if (inflater.finished())
+         {
+            // What the inflater didn't consume is the trailer, and perhaps the next member
+            inputPosition = inputLength - inflater.getRemaining();
+            this.readTrailer();
+            inflater.reset();
+            atMemberStart = true;
+            return 0;
+         }
+         if (inflater.needsDictionary())
+         {
+            throw new ZipException("Invalid GZIP data: preset dictionary required");
+         }
+         if (inflater.needsInput())
+         {
+            if (!this.fill())
+            {
+               throw new EOFException("Unexpected end of GZIP stream");
+            }
+            inflater.setInput(input, inputPosition, inputLength - inputPosition);
+            inputPosition = inputLength;
+         }
+      }
+   }
+
+   /**
+    * Reads a member header, returning false if there is no further member
+    * (which is an error for the first)
+    */
+   private boolean readHeader(final boolean first) throws IOException
+   {
+      long sourcePosition = 0;
+      if (!first)
+      {
+         // Anything other than another member is ignored, as does GZIPInputStream
+         if (!this.fill() || (input[inputPosition] & 0xFF) != MAGIC_1)
+         {
+            return false;
+         }
+         sourcePosition = sourceRead - (inputLength - inputPosition);
+         inputPosition++;
+         if (!this.fill() || (input[inputPosition] & 0xFF) != MAGIC_2)
+         {
+            return false;
+         }
+         inputPosition++;
+      }
+      else if (this.readByte() != MAGIC_1 || this.readByte() != MAGIC_2)
+      {
+         throw new ZipException("Not in GZIP format");
+      }
+
+      if (this.readByte() != METHOD_DEFLATED)
+      {
+         throw new ZipException("Unsupported GZIP compression method");
+      }
+      final int flags = this.readByte();
+      // Modification time, extra flags, OS
+      this.skipBytes(6);
+      if ((flags & FLAG_EXTRA) != 0)
+      {
+         this.skipBytes(this.readByte() | this.readByte() << 8);
+      }
+      if ((flags & FLAG_NAME) != 0)
+      {
+         while (this.readByte() != 0)
+         {
+            // Skip to the terminator
+         }
+      }
+      if ((flags & FLAG_COMMENT) != 0)
+      {
+         while (this.readByte() != 0)
+         {
+            // Skip to the terminator
+         }
+      }
+      if ((flags & FLAG_HEADER_CRC) != 0)
+      {
+         this.skipBytes(2);
+      }
+
+      crc.reset();
+      memberSize = 0;
+      if (!first)
+      {
+         this.memberStarted(sourcePosition, contentRead);
+      }
+      return true;
+   }
+
+   /**
+    * Reads and verifies the trailer of the current member
+    */
+   private void readTrailer() throws IOException
+   {
+      final long expectedCrc = this.readIntLE();
+      final long expectedSize = this.readIntLE();
+      if (expectedCrc != crc.getValue() || expectedSize != (memberSize & 0xFFFFFFFFL))
+      {
+         throw new ZipException("Corrupt GZIP trailer");
+      }
+   }
+
+   private long readIntLE() throws IOException
+   {
+      return (this.readByte() | this.readByte() << 8 | this.readByte() << 16 | (long) this.readByte() << 24);
+   }
+
+   private int readByte() throws IOException
+   {
+      if (!this.fill())
+      {
+         throw new EOFException("Unexpected end of GZIP stream");
+      }
+      return input[inputPosition++] & 0xFF;
+   }
+
+   private void skipBytes(int count) throws IOException
+   {
+      while (count-- > 0)
+      {
+         this.readByte();
+      }
+   }
+
+   /**
+    * Ensures there is unconsumed input, reading more if required; returns false at the end of the source 
+    */
+   private boolean fill() throws IOException
+   {
+      while (inputPosition == inputLength)
+      {
+         final int read = in.read(input, 0, input.length);
+         if (read == -1)
+         {
+            return false;
+         }
+         inputPosition = 0;
+         inputLength = read;
+         sourceRead += read;
+      }
+      return true;
+   }
+
+   /**
+    * Hands back what was borrowed, if not already done
+    */
+   private void release()
+   {
+      if (inflater != null)
+      {
+         pool.returnInflater(inflater);
+         inflater = null;
+      }
+      if (input != null)
+      {
+         pool.returnBuffer(input);
+         input = null;
+      }
+   }
+
+   private void ensureOpen() throws IOException
+   {
+      if (closed)
+      {
+         throw new IOException("Stream closed");
+      }
+   }
+}
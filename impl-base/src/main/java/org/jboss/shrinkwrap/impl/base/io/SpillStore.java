@@ -0,0 +1,658 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jboss.shrinkwrap.api.Configuration;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+
+/**
+ * Reads the content of entries imported from a stream (ie. ZIP or TAR) into
+ * {@link Asset}s, holding each in memory if no larger than a threshold, and
+ * while the total held stays within a budget.  All other content is appended
+ * to a single temporary file, from which its {@link Asset} reads the region it
+ * was written to.  The temporary file is deleted once none of its {@link Asset}s
+ * are referenced any longer, by a daemon Thread watching for them to be collected.
+ *
+ * Content held in memory is read directly into an array of its size where
+ * known (though no larger than {@link #MAX_PRESIZED_CAPACITY} up front, as the
+ * size is taken from the untrusted header of the entry), and never copied thereafter.  Not thread-safe, though the {@link Asset}s
+ * obtained are.
+ *
+ * @version $Revision: $
+ */
+public final class SpillStore
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Logger
+    */
+   private static final Logger log = Logger.getLogger(SpillStore.class.getName());
+
+   /**
+    * Prefix of temporary files
+    */
+   private static final String TEMP_FILE_PREFIX = "shrinkwrap-import-";
+
+   /**
+    * Suffix of temporary files
+    */
+   private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+   /**
+    * Size of the array first used for content of unknown length
+    */
+   private static final int INITIAL_CAPACITY = 8192;
+
+   /**
+    * Largest array allocated for content before it has been read; content
+    * declaring a greater size is read into an array grown as it arrives
+    */
+   static final int MAX_PRESIZED_CAPACITY = 1024 * 1024;
+
+   /**
+    * Name of the Thread deleting temporary files no longer referenced
+    */
+   private static final String CLEANER_THREAD_NAME = "ShrinkWrap Import Cleaner";
+
+   /**
+    * Size of the buffer used when writing to and reading from the temporary file
+    */
+   private static final int FILE_BUFFER_SIZE = 8192;
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of bytes above which the content of an entry is written to the temporary file
+    */
+   private final int threshold;
+
+   /**
+    * Number of bytes of content, in total, to be held in memory
+    */
+   private final long heapBudget;
+
+   /**
+    * Pool lending the buffers used when reading
+    */
+   private final CodecPool pool;
+
+   /**
+    * Number of bytes of content held in memory so far
+    */
+   private long heapUsed;
+
+   /**
+    * The temporary file, once content has been written to it
+    */
+   private SpillFile file;
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new instance holding content of up to the specified threshold in memory,
+    * up to the specified budget in total
+    *
+    * @param threshold
+    * @param heapBudget
+    * @param pool
+    * @throws IllegalArgumentException If the threshold or budget is negative, or the pool is not specified
+    */
+   public SpillStore(final int threshold, final long heapBudget, final CodecPool pool)
+         throws IllegalArgumentException
+   {
+      if (threshold < 0)
+      {
+         throw new IllegalArgumentException("Threshold must not be negative");
+      }
+      if (heapBudget < 0)
+      {
+         throw new IllegalArgumentException("Heap budget must not be negative");
+      }
+      if (pool == null)
+      {
+         throw new IllegalArgumentException("pool must be specified");
+      }
+      this.threshold = threshold;
+      this.heapBudget = heapBudget;
+      this.pool = pool;
+   }
+
+   /**
+    * Creates a new instance for a single import under the specified {@link Configuration};
+    * unless the configuration allows spilling imports, all content is held in memory
+    *
+    * @param configuration
+    * @return
+    * @throws IllegalArgumentException If the configuration is not specified
+    */
+   public static SpillStore forImport(final Configuration configuration) throws IllegalArgumentException
+   {
+      if (configuration == null)
+      {
+         throw new IllegalArgumentException("configuration must be specified");
+      }
+      if (!configuration.isSpillingImport())
+      {
+         return new SpillStore(Integer.MAX_VALUE, Long.MAX_VALUE, CodecPool.of(configuration));
+      }
+      return new SpillStore(configuration.getSpillThreshold(), configuration.getImportHeapBudget(), CodecPool
+            .of(configuration));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Reads the remaining content of the specified stream, which is not closed, into
+    * a new {@link Asset}
+    *
+    * @param in
+    * @param size The length of the content if known, else {@link DescribableAsset#UNKNOWN}
+    * @param lastModified The modification time of the content if known, else {@link DescribableAsset#UNKNOWN}
+    * @return
+    * @throws IOException If the content could not be read or written
+    */
+   public DescribableAsset read(final InputStream in, final long size, final long lastModified)
+         throws IOException
+   {
+      final byte[] buffer = pool.borrowBuffer();
+      try
+      {
+         // Most this entry may hold in memory
+         final long limit = Math.min(threshold, heapBudget - heapUsed);
+         if (size > limit)
+         {
+            return this.spill(in, new byte[0], 0, buffer, 0, lastModified);
+         }
+
+         byte[] content = new byte[(int) (size >= 0 ? Math.min(size, MAX_PRESIZED_CAPACITY) : Math.min(
+               INITIAL_CAPACITY, limit))];
+         int count = 0;
+         while (true)
+         {
+            if (count < content.length)
+            {
+               final int read = in.read(content, count, content.length - count);
+               if (read == -1)
+               {
+                  break;
+               }
+               count += read;
+               continue;
+            }
+
+            // Full; grow only if there's more, and it fits
+            final int read = in.read(buffer, 0, buffer.length);
+            if (read == -1)
+            {
+               break;
+            }
+            if (count + read > limit)
+            {
+               return this.spill(in, content, count, buffer, read, lastModified);
+            }
+            long capacity = Math.min(Math.max(content.length * 2L, count + read), limit);
+            if (count + read <= size)
+            {
+               // Don't overshoot the declared size, so as not to copy again once read
+               capacity = Math.min(capacity, size);
+            }
+            final byte[] grown = new byte[(int) capacity];
+            System.arraycopy(content, 0, grown, 0, count);
+            System.arraycopy(buffer, 0, grown, count, read);
+            content = grown;
+            count += read;
+         }
+         if (count < content.length)
+         {
+            final byte[] trimmed = new byte[count];
+            System.arraycopy(content, 0, trimmed, 0, count);
+            content = trimmed;
+         }
+         heapUsed += count;
+         return new HeapAsset(content, lastModified);
+      }
+      finally
+      {
+         pool.returnBuffer(buffer);
+      }
+   }
+
+   /**
+    * Obtains the number of bytes of content held in memory so far
+    * @return
+    */
+   public long getHeapUsed()
+   {
+      return heapUsed;
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Writes the specified content already read, then the remainder of the specified
+    * stream, to the temporary file, returning an {@link Asset} reading it back
+    */
+   private DescribableAsset spill(final InputStream in, final byte[] content, final int count,
+         final byte[] buffer, final int read, final long lastModified) throws IOException
+   {
+      if (file == null)
+      {
+         file = new SpillFile();
+      }
+      final long start = file.length;
+      file.write(content, 0, count);
+      file.write(buffer, 0, read);
+      int more;
+      while ((more = in.read(buffer, 0, buffer.length)) != -1)
+      {
+         file.write(buffer, 0, more);
+      }
+      file.flush();
+      return new FileRegionAsset(file, start, file.length - start, lastModified);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * A temporary file to which content is appended, and from which it is read
+    * back at random; deleted by the {@link Cleaner} once no longer referenced
+    */
+   private static final class SpillFile
+   {
+      private final File file;
+
+      private final FileChannel channel;
+
+      private final OutputStream out;
+
+      /**
+       * Number of bytes written
+       */
+      private long length;
+
+      SpillFile() throws IOException
+      {
+         file = File.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+         final RandomAccessFile raf;
+         try
+         {
+            raf = new RandomAccessFile(file, "rw");
+         }
+         catch (final IOException ioe)
+         {
+            file.delete();
+            throw ioe;
+         }
+         Cleaner.register(this, file, raf);
+         channel = raf.getChannel();
+         out = new BufferedOutputStream(Channels.newOutputStream(channel), FILE_BUFFER_SIZE);
+         if (log.isLoggable(Level.FINER))
+         {
+            log.finer("Spilling imported content to " + file.getAbsolutePath());
+         }
+      }
+
+      void write(final byte[] b, final int off, final int len) throws IOException
+      {
+         out.write(b, off, len);
+         length += len;
+      }
+
+      void flush() throws IOException
+      {
+         out.flush();
+      }
+
+      /**
+       * Reads into the specified buffer from the specified position, returning the
+       * number of bytes read
+       */
+      int read(final ByteBuffer dst, final long position) throws IOException
+      {
+         return channel.read(dst, position);
+      }
+   }
+
+   /**
+    * Closes and deletes each temporary file once its {@link SpillFile} has been
+    * collected; unlike finalization, the file is not reachable from the reference
+    * so is released as soon as the collector notices, and nothing is kept for the
+    * life of the JVM as by {@link File#deleteOnExit()}
+    */
+   private static final class Cleaner extends PhantomReference<SpillFile>
+   {
+      /**
+       * Queue to which references are enqueued once their {@link SpillFile} is collected
+       */
+      private static final ReferenceQueue<SpillFile> QUEUE = new ReferenceQueue<SpillFile>();
+
+      /**
+       * References not yet enqueued, held so as not to be collected themselves
+       */
+      private static final Set<Cleaner> PENDING = Collections.synchronizedSet(new HashSet<Cleaner>());
+
+      private final File file;
+
+      private final RandomAccessFile raf;
+
+      private Cleaner(final SpillFile referent, final File file, final RandomAccessFile raf)
+      {
+         super(referent, QUEUE);
+         this.file = file;
+         this.raf = raf;
+      }
+
+      /**
+       * Deletes the specified file, closing the specified handle upon it, once the
+       * specified {@link SpillFile} is no longer referenced
+       */
+      static void register(final SpillFile referent, final File file, final RandomAccessFile raf)
+      {
+         PENDING.add(new Cleaner(referent, file, raf));
+         CleanerThread.start();
+      }
+
+      void clean()
+      {
+         PENDING.remove(this);
+         try
+         {
+            raf.close();
+         }
+         catch (final IOException ioe)
+         {
+            // Delete anyway
+         }
+         if (!file.delete() && log.isLoggable(Level.FINER))
+         {
+            log.finer("Could not delete temporary file " + file.getAbsolutePath());
+         }
+      }
+   }
+
+   /**
+    * Defers starting the daemon Thread cleaning up after each {@link SpillFile}
+    * until the first is created
+    */
+   private static final class CleanerThread
+   {
+      static
+      {
+         final Thread thread = new Thread(CLEANER_THREAD_NAME)
+         {
+            @Override
+            public void run()
+            {
+               while (true)
+               {
+                  final Reference<? extends SpillFile> reference;
+                  try
+                  {
+                     reference = Cleaner.QUEUE.remove();
+                  }
+                  catch (final InterruptedException ie)
+                  {
+                     continue;
+                  }
+                  ((Cleaner) reference).clean();
+               }
+            }
+         };
+         thread.setDaemon(true);
+         // Don't pin the ClassLoader of whichever application first spilled
+         thread.setContextClassLoader(null);
+         thread.start();
+      }
+
+      /**
+       * Ensures the Thread has been started
+       */
+      static void start()
+      {
+         // Started upon initialization of this class
+      }
+   }
+
+   /**
+    * Content held in memory, as read; never copied
+    */
+   private static final class HeapAsset implements DescribableAsset
+   {
+      private final byte[] content;
+
+      private final long lastModified;
+
+      private volatile long crc32 = UNKNOWN;
+
+      HeapAsset(final byte[] content, final long lastModified)
+      {
+         this.content = content;
+         this.lastModified = lastModified;
+      }
+
+      public InputStream openStream()
+      {
+         return new ByteArrayInputStream(content);
+      }
+
+      public long getSize()
+      {
+         return content.length;
+      }
+
+      public long getLastModified()
+      {
+         return lastModified;
+      }
+
+      public boolean isCompressed()
+      {
+         return false;
+      }
+
+      public long getCrc32()
+      {
+         long crc32 = this.crc32;
+         if (crc32 == UNKNOWN)
+         {
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+            crc32 = crc.getValue();
+            this.crc32 = crc32;
+         }
+         return crc32;
+      }
+
+      @Override
+      public String toString()
+      {
+         return HeapAsset.class.getSimpleName() + " [content size=" + content.length + "bytes]";
+      }
+   }
+
+   /**
+    * Content written to a region of a {@link SpillFile}
+    */
+   private static final class FileRegionAsset implements DescribableAsset
+   {
+      private final SpillFile file;
+
+      private final long start;
+
+      private final long length;
+
+      private final long lastModified;
+
+      private volatile long crc32 = UNKNOWN;
+
+      FileRegionAsset(final SpillFile file, final long start, final long length, final long lastModified)
+      {
+         this.file = file;
+         this.start = start;
+         this.length = length;
+         this.lastModified = lastModified;
+      }
+
+      public InputStream openStream()
+      {
+         return new RegionInputStream(file, start, length);
+      }
+
+      public long getSize()
+      {
+         return length;
+      }
+
+      public long getLastModified()
+      {
+         return lastModified;
+      }
+
+      public boolean isCompressed()
+      {
+         return false;
+      }
+
+      public long getCrc32()
+      {
+         long crc32 = this.crc32;
+         if (crc32 == UNKNOWN)
+         {
+            final CRC32 crc = new CRC32();
+            final InputStream in = this.openStream();
+            try
+            {
+               final byte[] buffer = new byte[FILE_BUFFER_SIZE];
+               int read;
+               while ((read = in.read(buffer)) != -1)
+               {
+                  crc.update(buffer, 0, read);
+               }
+            }
+            catch (final IOException ioe)
+            {
+               throw new RuntimeException("Could not read " + this, ioe);
+            }
+            crc32 = crc.getValue();
+            this.crc32 = crc32;
+         }
+         return crc32;
+      }
+
+      @Override
+      public String toString()
+      {
+         return FileRegionAsset.class.getSimpleName() + " [file=" + file.file + ", start=" + start + ", length="
+               + length + "]";
+      }
+   }
+
+   /**
+    * Reads a region of a {@link SpillFile} by position, such that any number
+    * may read concurrently
+    */
+   private static final class RegionInputStream extends InputStream
+   {
+      private final SpillFile file;
+
+      private final long end;
+
+      private long position;
+
+      RegionInputStream(final SpillFile file, final long start, final long length)
+      {
+         this.file = file;
+         this.position = start;
+         this.end = start + length;
+      }
+
+      @Override
+      public int read() throws IOException
+      {
+         final byte[] b = new byte[1];
+         return this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+      }
+
+      @Override
+      public int read(final byte[] b, final int off, final int len) throws IOException
+      {
+         if (len == 0)
+         {
+            return 0;
+         }
+         if (position >= end)
+         {
+            return -1;
+         }
+         final int read = file.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+         if (read == -1)
+         {
+            throw new IOException("Unexpected end of " + file.file);
+         }
+         position += read;
+         return read;
+      }
+
+      @Override
+      public long skip(final long n)
+      {
+         final long skipped = Math.max(0, Math.min(n, end - position));
+         position += skipped;
+         return skipped;
+      }
+
+      @Override
+      public int available()
+      {
+         return (int) Math.min(Integer.MAX_VALUE, end - position);
+      }
+   }
+}
@@ -0,0 +1,399 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipException;
+
+/**
+ * Reads the central directory of a ZIP file: locates it by way of the end record
+ * (and ZIP64 end record, if the values don't fit), and reads the fields of its
+ * headers, including those moved to the ZIP64 extra field.
+ *
+ * Headers are read from {@link ByteBuffer}s in little-endian order, at absolute
+ * positions, such that the same methods serve a directory read into memory and
+ * a whole file mapped.
+ *
+ * @version $Revision: $
+ */
+public final class ZipDirectoryReader
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Index of the size, among the fields which may be moved to the ZIP64 extra field
+    */
+   public static final int FIELD_SIZE = 0;
+
+   /**
+    * Index of the compressed size, among the fields which may be moved to the ZIP64 extra field
+    */
+   public static final int FIELD_COMPRESSED_SIZE = 1;
+
+   /**
+    * Index of the offset of the local header, among the fields which may be moved to the
+    * ZIP64 extra field
+    */
+   public static final int FIELD_LOCAL_HEADER = 2;
+
+   /**
+    * Length of a local header, up to its name
+    */
+   public static final int LOCAL_HEADER_LENGTH = 30;
+
+   /**
+    * Length of a central directory header, up to its name
+    */
+   public static final int CENTRAL_HEADER_LENGTH = 46;
+
+   private static final int SIG_LOCAL_HEADER = 0x04034b50;
+
+   private static final int SIG_CENTRAL_HEADER = 0x02014b50;
+
+   private static final int SIG_END = 0x06054b50;
+
+   private static final int SIG_ZIP64_END = 0x06064b50;
+
+   private static final int SIG_ZIP64_LOCATOR = 0x07064b50;
+
+   private static final int ZIP64_EXTRA_ID = 0x0001;
+
+   private static final int FLAG_ENCRYPTED = 0x0001;
+
+   private static final int END_LENGTH = 22;
+
+   private static final int ZIP64_LOCATOR_LENGTH = 20;
+
+   private static final int ZIP64_END_LENGTH = 56;
+
+   private static final long MAGIC_16 = 0xFFFFL;
+
+   private static final long MAGIC_32 = 0xFFFFFFFFL;
+
+   /**
+    * Position within a central directory header of each field which may be moved to
+    * the ZIP64 extra field, by index
+    */
+   private static final int[] ZIP64_FIELDS =
+   {24, 20, 42};
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Internal constructor; should not be called
+    */
+   private ZipDirectoryReader()
+   {
+      throw new UnsupportedOperationException("No instances should be created; stateless class");
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Locates the central directory of the specified ZIP file
+    *
+    * @param channel
+    * @return The number of entries, the offset of the directory and its length
+    * @throws ZipException If the file is not a ZIP file, or its end records are malformed
+    * @throws IOException If the file could not be read
+    */
+   public static long[] locate(final FileChannel channel) throws IOException
+   {
+      // Find the end record, searching back over its comment
+      final long length = channel.size();
+      final int tailLength = (int) Math.min(length, END_LENGTH + MAGIC_16);
+      final ByteBuffer tail = read(channel, length - tailLength, tailLength);
+      int end = -1;
+      for (int i = tailLength - END_LENGTH; i >= 0; i--)
+      {
+         if (tail.getInt(i) == SIG_END)
+         {
+            end = i;
+            break;
+         }
+      }
+      if (end < 0)
+      {
+         throw new ZipException("Not a ZIP file");
+      }
+      final long endPosition = length - tailLength + end;
+      long count = getShort(tail, end + 10);
+      long directoryLength = getInt(tail, end + 12);
+      long directoryOffset = getInt(tail, end + 16);
+
+      // Moved to the ZIP64 end record if they don't fit
+      if (count == MAGIC_16 || directoryLength == MAGIC_32 || directoryOffset == MAGIC_32)
+      {
+         final long locator = endPosition - ZIP64_LOCATOR_LENGTH;
+         if (locator < 0 || read(channel, locator, ZIP64_LOCATOR_LENGTH).getInt(0) != SIG_ZIP64_LOCATOR)
+         {
+            throw new ZipException("No ZIP64 end record");
+         }
+         final long zip64End = read(channel, locator + 8, 8).getLong(0);
+         if (zip64End < 0 || zip64End + ZIP64_END_LENGTH > locator)
+         {
+            throw new ZipException("Invalid ZIP64 end record");
+         }
+         final ByteBuffer record = read(channel, zip64End, ZIP64_END_LENGTH);
+         if (record.getInt(0) != SIG_ZIP64_END)
+         {
+            throw new ZipException("Invalid ZIP64 end record");
+         }
+         count = record.getLong(32);
+         directoryLength = record.getLong(40);
+         directoryOffset = record.getLong(48);
+      }
+      if (count < 0 || directoryLength < 0 || directoryOffset < 0 || directoryOffset + directoryLength > endPosition
+            || count > directoryLength / CENTRAL_HEADER_LENGTH)
+      {
+         throw new ZipException("Invalid central directory");
+      }
+      return new long[]
+      {count, directoryOffset, directoryLength};
+   }
+
+   /**
+    * Reads the specified range of the file into a little-endian {@link ByteBuffer}
+    *
+    * @param channel
+    * @param position
+    * @param length
+    * @return
+    * @throws EOFException If the file ends before the range
+    * @throws IOException If the file could not be read
+    */
+   public static ByteBuffer read(final FileChannel channel, final long position, final int length)
+         throws IOException
+   {
+      final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+      while (buffer.hasRemaining())
+      {
+         if (channel.read(buffer, position + buffer.position()) < 0)
+         {
+            throw new EOFException("Unexpected end of ZIP file");
+         }
+      }
+      buffer.clear();
+      return buffer;
+   }
+
+   /**
+    * Obtains the length of the central directory header at the specified position,
+    * including its name, extra field and comment, or -1 if there is no header there,
+    * or it does not fit the buffer
+    *
+    * @param buffer
+    * @param header
+    * @return
+    */
+   public static int getHeaderLength(final ByteBuffer buffer, final int header)
+   {
+      if (header < 0 || header + CENTRAL_HEADER_LENGTH > buffer.limit()
+            || buffer.getInt(header) != SIG_CENTRAL_HEADER)
+      {
+         return -1;
+      }
+      final int length = CENTRAL_HEADER_LENGTH + getShort(buffer, header + 28) + getShort(buffer, header + 30)
+            + getShort(buffer, header + 32);
+      return header + length > buffer.limit() ? -1 : length;
+   }
+
+   /**
+    * Returns whether the entry of the specified central directory header is encrypted
+    *
+    * @param buffer
+    * @param header
+    * @return
+    */
+   public static boolean isEncrypted(final ByteBuffer buffer, final int header)
+   {
+      return (getShort(buffer, header + 8) & FLAG_ENCRYPTED) != 0;
+   }
+
+   /**
+    * Obtains the compression method of the entry of the specified central directory header
+    *
+    * @param buffer
+    * @param header
+    * @return
+    */
+   public static int getMethod(final ByteBuffer buffer, final int header)
+   {
+      return getShort(buffer, header + 10);
+   }
+
+   /**
+    * Obtains the modification time of the entry of the specified central directory
+    * header, in MS-DOS format
+    *
+    * @param buffer
+    * @param header
+    * @return
+    */
+   public static long getDosTime(final ByteBuffer buffer, final int header)
+   {
+      return getInt(buffer, header + 12);
+   }
+
+   /**
+    * Obtains the CRC-32 of the entry of the specified central directory header
+    *
+    * @param buffer
+    * @param header
+    * @return
+    */
+   public static long getCrc32(final ByteBuffer buffer, final int header)
+   {
+      return getInt(buffer, header + 16);
+   }
+
+   /**
+    * Obtains the length of the encoded name of the entry of the specified central directory header
+    *
+    * @param buffer
+    * @param header
+    * @return
+    */
+   public static int getNameLength(final ByteBuffer buffer, final int header)
+   {
+      return getShort(buffer, header + 28);
+   }
+
+   /**
+    * Obtains the name of the entry of the specified central directory header, decoded
+    * as UTF-8 as does {@link java.util.zip.ZipFile} by default
+    *
+    * @param buffer
+    * @param header
+    * @param nameBuffer Buffer to decode the name in, at least as long as
+    *    {@link ZipDirectoryReader#getNameLength(ByteBuffer, int)}
+    * @return
+    */
+   public static String getName(final ByteBuffer buffer, final int header, final byte[] nameBuffer)
+   {
+      final int pos = header + CENTRAL_HEADER_LENGTH;
+      final int length = getNameLength(buffer, header);
+      boolean ascii = true;
+      for (int i = 0; i < length; i++)
+      {
+         final byte b = buffer.get(pos + i);
+         nameBuffer[i] = b;
+         ascii &= b >= 0;
+      }
+      if (ascii)
+      {
+         final char[] chars = new char[length];
+         for (int i = 0; i < length; i++)
+         {
+            chars[i] = (char) nameBuffer[i];
+         }
+         return new String(chars);
+      }
+      try
+      {
+         return new String(nameBuffer, 0, length, "UTF-8");
+      }
+      catch (final UnsupportedEncodingException uee)
+      {
+         throw new RuntimeException("All JVMs must support UTF-8", uee);
+      }
+   }
+
+   /**
+    * Obtains the value of a field of the specified central directory header, which
+    * may have been moved to its ZIP64 extra field.  Fields appear there in the order
+    * size, compressed size, offset of the local header, and only if moved.
+    *
+    * @param buffer
+    * @param header
+    * @param field One of {@link ZipDirectoryReader#FIELD_SIZE}, {@link ZipDirectoryReader#FIELD_COMPRESSED_SIZE}
+    *    and {@link ZipDirectoryReader#FIELD_LOCAL_HEADER}
+    * @return The value, or -1 if moved but missing from the extra field
+    */
+   public static long getField(final ByteBuffer buffer, final int header, final int field)
+   {
+      final long value = getInt(buffer, header + ZIP64_FIELDS[field]);
+      if (value != MAGIC_32)
+      {
+         return value;
+      }
+      int skip = 0;
+      for (int i = 0; i < field; i++)
+      {
+         if (getInt(buffer, header + ZIP64_FIELDS[i]) == MAGIC_32)
+         {
+            skip += 8;
+         }
+      }
+      int extra = header + CENTRAL_HEADER_LENGTH + getNameLength(buffer, header);
+      final int extraEnd = extra + getShort(buffer, header + 30);
+      while (extra + 4 <= extraEnd)
+      {
+         final int dataLength = getShort(buffer, extra + 2);
+         if (getShort(buffer, extra) == ZIP64_EXTRA_ID)
+         {
+            final int pos = extra + 4 + skip;
+            return pos + 8 <= extraEnd ? buffer.getLong(pos) : -1L;
+         }
+         extra += 4 + dataLength;
+      }
+      return -1L;
+   }
+
+   /**
+    * Obtains the length of the local header at the specified position, including
+    * its name and extra field, or -1 if there is no local header there
+    *
+    * @param buffer
+    * @param localHeader
+    * @return
+    */
+   public static int getLocalHeaderLength(final ByteBuffer buffer, final int localHeader)
+   {
+      if (localHeader < 0 || localHeader + LOCAL_HEADER_LENGTH > buffer.limit()
+            || buffer.getInt(localHeader) != SIG_LOCAL_HEADER)
+      {
+         return -1;
+      }
+      return LOCAL_HEADER_LENGTH + getShort(buffer, localHeader + 26) + getShort(buffer, localHeader + 28);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static int getShort(final ByteBuffer buffer, final int pos)
+   {
+      return buffer.getShort(pos) & 0xFFFF;
+   }
+
+   private static long getInt(final ByteBuffer buffer, final int pos)
+   {
+      return buffer.getInt(pos) & MAGIC_32;
+   }
+}
@@ -18,26 +18,61 @@ package org.jboss.shrinkwrap.impl.base.io.tar;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.GZIPInputStream;
+
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.PooledGzipInputStream;
 
 /**
  * The {@link TarGzInputStream} reads a UNIX TAR archive, further 
  * encoded in GZIP compresssion, as an InputStream.
  * Methods are provided to position at each successive entry in
  * the archive, and the read each entry as a normal input stream
- * using read().
+ * using read().  Inflation uses an {@link java.util.zip.Inflater} borrowed
+ * from a {@link CodecPool}; the shared pool unless otherwise specified.
  * 
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  */
 public class TarGzInputStream extends TarInputStream
 {
 
+   /**
+    * The decompressed stream from which the TAR is read
+    */
+   private final PooledGzipInputStream gzip;
+
    /**
     * @param is
     */
    public TarGzInputStream(InputStream is) throws IOException
    {
-      super(new GZIPInputStream(is));
+      this(is, CodecPool.shared());
+   }
+
+   /**
+    * @param is
+    * @param pool
+    */
+   public TarGzInputStream(InputStream is, CodecPool pool) throws IOException
+   {
+      this(new PooledGzipInputStream(is, pool));
+   }
+
+   private TarGzInputStream(PooledGzipInputStream gzip)
+   {
+      super(gzip);
+      this.gzip = gzip;
+   }
+
+   private TarGzInputStream(PooledGzipInputStream gzip, int blockSize)
+   {
+      super(gzip, blockSize);
+      this.gzip = gzip;
+   }
+
+   private TarGzInputStream(PooledGzipInputStream gzip, int blockSize, int recordSize)
+   {
+      super(gzip, blockSize, recordSize);
+      this.gzip = gzip;
    }
 
    /**
@@ -46,7 +81,7 @@ public class TarGzInputStream extends TarInputStream
     */
    public TarGzInputStream(InputStream is, int blockSize) throws IOException
    {
-      super(new GZIPInputStream(is), blockSize);
+      this(new PooledGzipInputStream(is, CodecPool.shared()), blockSize);
    }
 
    /**
@@ -56,7 +91,22 @@ public class TarGzInputStream extends TarInputStream
     */
    public TarGzInputStream(InputStream is, int blockSize, int recordSize) throws IOException
    {
-      super(new GZIPInputStream(is), blockSize, recordSize);
+      this(new PooledGzipInputStream(is, CodecPool.shared()), blockSize, recordSize);
+   }
+
+   /**
+    * Reads what remains of the GZIP stream following the TAR (ie. padding and the trailer),
+    * so the pooled {@link java.util.zip.Inflater} is handed back without the underlying 
+    * stream having to be closed
+    * @throws IOException
+    */
+   public void drain() throws IOException
+   {
+      while (gzip.skip(Long.MAX_VALUE) > 0)
+      {
+         // Until exhausted
+      }
+      gzip.read();
    }
 
 }
@@ -6,11 +6,17 @@
 
 package org.jboss.shrinkwrap.impl.base.io.tar;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.FileBackedOutputStream;
+import org.jboss.shrinkwrap.impl.base.io.ParallelGzipOutputStream;
+
 
 // we extend TarOutputStream to have the same type, 
 // BUT, we don't use ANY methods. It's all about 
@@ -30,8 +36,8 @@ class		TarGzOutputStream
 extends		TarOutputStreamImpl
 	{
     private TarOutputStreamImpl			tos = null;
-    private GZIPOutputStream		gzip = null;
-    private ByteArrayOutputStream	bos = null;
+    private OutputStream		gzip = null;
+    private FileBackedOutputStream	bos = null;
     private TarEntry				currentEntry = null;
 
 	public
@@ -41,7 +47,49 @@ extends		TarOutputStreamImpl
 		super( null );
 		this.gzip = new GZIPOutputStream( out );
 		this.tos = new TarOutputStreamImpl( this.gzip );
-		this.bos = new ByteArrayOutputStream();
+		this.bos = new FileBackedOutputStream( ConfigurationBuilder.DEFAULT_SPILL_THRESHOLD );
+		}
+
+	/**
+	 * Creates a stream whose GZIP encoding is a single member, 
+	 * compressed upon the calling Thread.  Entries of unknown size 
+	 * are buffered in memory up to the specified number of bytes, 
+	 * and in a temporary file thereafter.
+	 */
+	public
+	TarGzOutputStream( OutputStream out, int spillThreshold )
+		throws IOException
+		{
+		super( null );
+		this.gzip = new GZIPOutputStream( out );
+		this.tos = new TarOutputStreamImpl( this.gzip );
+		this.bos = new FileBackedOutputStream( spillThreshold );
+		}
+
+	/**
+	 * Creates a stream whose GZIP encoding is split into blocks 
+	 * of the specified size, compressed concurrently upon the 
+	 * specified {@link ExecutorService} (or the calling Thread 
+	 * if null) and written as a series of GZIP members.  Entries 
+	 * of unknown size are buffered in memory up to the specified 
+	 * number of bytes, and in a temporary file thereafter.  Blocks 
+	 * and compressors are borrowed from the specified {@link CodecPool}.
+	 *
+	 * Exports only write this form under multi-member GZIP, which 
+	 * is off by default; it is the only TAR.GZ form that may be 
+	 * indexed upon import, so TAR.GZ files exported by default are 
+	 * always imported as a stream.
+	 *
+	 * @see ParallelGzipOutputStream
+	 */
+	public
+	TarGzOutputStream( OutputStream out, ExecutorService executor, int blockSize, int parallelism, int spillThreshold, CodecPool pool )
+		throws IOException
+		{
+		super( null );
+		this.gzip = new ParallelGzipOutputStream( out, executor, Deflater.DEFAULT_COMPRESSION, blockSize, parallelism, pool );
+		this.tos = new TarOutputStreamImpl( this.gzip );
+		this.bos = new FileBackedOutputStream( spillThreshold );
 		}
 
 	// proxy all methods, but buffer if unknown size
@@ -74,9 +122,16 @@ extends		TarOutputStreamImpl
 	close()
 		throws IOException
 		{
-	   this.flush();
-		this.tos.close();
-		this.gzip.finish();
+		try
+			{
+			this.flush();
+			// Closing the TAR stream finishes and closes the GZIP encoding
+			this.tos.close();
+			}
+		finally
+			{
+			this.bos.close();
+			}
 		}
 
 	public int
@@ -114,7 +169,7 @@ extends		TarOutputStreamImpl
 			this.bos.writeTo( this.tos );
 			this.tos.closeEntry();
 			this.currentEntry = null; 
-			this.bos = new ByteArrayOutputStream();
+			this.bos.reset();
 			}
 		}
 
@@ -6,11 +6,13 @@
 
 package org.jboss.shrinkwrap.impl.base.io.tar;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.impl.base.io.FileBackedOutputStream;
+
 // we extend TarOutputStream to have the same type, 
 // BUT, we don't use ANY methods. It's all about 
 // typing.
@@ -33,15 +35,25 @@ public class TarOutputStream extends TarOutputStreamImpl
 {
    private TarOutputStreamImpl tos = null;
 
-   private ByteArrayOutputStream bos = null;
+   private FileBackedOutputStream bos = null;
 
    private TarEntry currentEntry = null;
 
    public TarOutputStream(OutputStream out) throws IOException
+   {
+      this(out, ConfigurationBuilder.DEFAULT_SPILL_THRESHOLD);
+   }
+
+   /**
+    * Creates a stream buffering entries of unknown size in memory
+    * up to the specified number of bytes, and in a temporary file
+    * thereafter
+    */
+   public TarOutputStream(OutputStream out, int spillThreshold) throws IOException
    {
       super(null);
       this.tos = new TarOutputStreamImpl(out);
-      this.bos = new ByteArrayOutputStream();
+      this.bos = new FileBackedOutputStream(spillThreshold);
    }
 
    // proxy all methods, but buffer if unknown size
@@ -68,8 +80,15 @@ public class TarOutputStream extends TarOutputStreamImpl
 
    public void close() throws IOException
    {
-      this.flush();
-      this.tos.close();
+      try
+      {
+         this.flush();
+         this.tos.close();
+      }
+      finally
+      {
+         this.bos.close();
+      }
    }
 
    public int getRecordSize()
@@ -102,7 +121,7 @@ public class TarOutputStream extends TarOutputStreamImpl
          this.bos.writeTo(this.tos);
          this.tos.closeEntry();
          this.currentEntry = null;
-         this.bos = new ByteArrayOutputStream();
+         this.bos.reset();
       }
    }
 
@@ -24,6 +24,10 @@ import org.jboss.shrinkwrap.api.ArchivePath;
 /**
  * A Path which may be optionally prefixed with some common
  * namespace context at construction time.  Thread-safe.
+ * 
+ * The context is normalized once at construction; equality and 
+ * hashing operate upon the precomputed form, and the parent is 
+ * resolved at most once and shared thereafter (see {@link PathInterner}).
  *
  * @author <a href="mailto:andrew.rubinger@jboss.org">ALR</a>
  * @author <a href="mailto:aslak@conduct.no">Aslak Knutsen</a>
@@ -51,6 +55,23 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
     */
    private final String context;
 
+   /**
+    * The context with any following slash removed, used for 
+    * equality such that "/dir/" and "/dir" are equal
+    */
+   private final String normalized;
+
+   /**
+    * Hash code of the normalized context, computed at construction
+    */
+   private final int hash;
+
+   /**
+    * The parent of this path, lazily resolved; null if not yet 
+    * obtained or if this path is the root
+    */
+   private volatile ArchivePath parent;
+
    //-------------------------------------------------------------------------------------||
    // Constructor ------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -78,6 +99,23 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
          log.finer("Resolved \"" + context + "\" to absolute form: " + resolvedContext);
       }
       this.context = resolvedContext;
+      this.normalized = PathUtil.optionallyRemoveFollowingSlash(resolvedContext);
+      this.hash = 31 + normalized.hashCode();
+   }
+
+   /**
+    * Creates a copy of the specified Path which uses the specified 
+    * (equal) parent.
+    * 
+    * @param path
+    * @param parent
+    */
+   private BasicPath(final BasicPath path, final ArchivePath parent)
+   {
+      this.context = path.context;
+      this.normalized = path.normalized;
+      this.hash = path.hash;
+      this.parent = parent;
    }
 
    /**
@@ -149,7 +187,19 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
    @Override
    public ArchivePath getParent()
    {
-      return PathUtil.getParent(this);
+      // Root has no parent
+      if (normalized.length() == 0)
+      {
+         return null;
+      }
+      ArchivePath resolved = parent;
+      if (resolved == null)
+      {
+         // Racing threads will resolve equal values, so no need to lock
+         resolved = PathUtil.getParent(this);
+         parent = resolved;
+      }
+      return resolved;
    }
 
    /**
@@ -167,8 +217,8 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       /*
        * Check for parent relationship
        */
-      final ArchivePath parentOfSpecified = PathUtil.getParent(path);
-      final ArchivePath parentOfThis = PathUtil.getParent(this);
+      final ArchivePath parentOfSpecified = path.getParent();
+      final ArchivePath parentOfThis = this.getParent();
       // If we're the parent of the specified, we're less
       if (this.equals(parentOfSpecified))
       {
@@ -188,6 +238,27 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       return adjusted;
    }
    
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Returns a Path equal to this one which uses the specified parent, 
+    * or this instance if the parent is already in use.  
+    * 
+    * @param parent A Path equal to that of {@link BasicPath#getParent()}
+    * @return
+    */
+   BasicPath withParent(final ArchivePath parent)
+   {
+      assert parent != null && parent.equals(this.getParent()) : "Parent must be equal to the existing parent";
+      if (this.getParent() == parent)
+      {
+         return this;
+      }
+      return new BasicPath(this, parent);
+   }
+
    //-------------------------------------------------------------------------------------||
    // Overridden Implementations ---------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -199,10 +270,7 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
    @Override
    public int hashCode()
    {
-      final int prime = 31;
-      int result = 1;
-      result = prime * result + ((context == null) ? 0 : context.hashCode());
-      return result;
+      return hash;
    }
 
    /**
@@ -219,23 +287,9 @@ public class BasicPath implements ArchivePath, Comparable<ArchivePath>
       if (getClass() != obj.getClass())
          return false;
       final BasicPath other = (BasicPath) obj;
-      
-      if (context == null)
-      {
-         if (other.context != null)
-            return false;
-      }
-      
-      // Ensure we treat following slashes equally
-      final String adjustedContext = PathUtil.optionallyRemoveFollowingSlash(context);
-      final String adjustedOther = PathUtil.optionallyRemoveFollowingSlash(other.context);
-      if (!adjustedContext.equals(adjustedOther))
-      {
-         return false;
-      }
-       
-      // No match
-      return true;
+
+      // Following slashes are already removed from the normalized form
+      return hash == other.hash && normalized.equals(other.normalized);
    }
 
    /**
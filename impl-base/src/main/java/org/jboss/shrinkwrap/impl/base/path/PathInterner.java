@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.path;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Configuration;
+import org.jboss.shrinkwrap.api.Domain;
+
+/**
+ * Canonicalizes the parent chains of {@link BasicPath}s such that all paths 
+ * beneath the same directory share a single instance of it, and so of all of its 
+ * ancestors.  One interner exists per {@link Configuration}, and so per {@link Domain}, 
+ * letting archives with a common layout (ie. "WEB-INF/classes/org/...") hold each 
+ * directory path once.  Directories are held weakly, and are released once no 
+ * path references them.  Thread-safe.
+ *
+ * @version $Revision: $
+ */
+public final class PathInterner
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Interners by the {@link Configuration} they serve
+    */
+   private static final Map<Configuration, PathInterner> interners = new WeakHashMap<Configuration, PathInterner>();
+
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Canonical directory paths, keyed by themselves
+    */
+   private final Map<BasicPath, WeakReference<BasicPath>> directories = new WeakHashMap<BasicPath, WeakReference<BasicPath>>();
+
+   //-------------------------------------------------------------------------------------||
+   // Constructor ------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates a new interner; use {@link PathInterner#of(Configuration)}
+    */
+   private PathInterner()
+   {
+
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Functional Methods -----------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the interner for the specified {@link Configuration}
+    * 
+    * @param configuration
+    * @return
+    * @throws IllegalArgumentException If the configuration is not specified
+    */
+   public static PathInterner of(final Configuration configuration) throws IllegalArgumentException
+   {
+      if (configuration == null)
+      {
+         throw new IllegalArgumentException("configuration must be specified");
+      }
+      synchronized (interners)
+      {
+         PathInterner interner = interners.get(configuration);
+         if (interner == null)
+         {
+            interner = new PathInterner();
+            interners.put(configuration, interner);
+         }
+         return interner;
+      }
+   }
+
+   /**
+    * Returns a path equal to that specified whose parent is the canonical 
+    * instance of its directory.  Paths other than {@link BasicPath}s, and those 
+    * without a parent, are returned as-is.
+    * 
+    * @param path
+    * @return
+    */
+   public ArchivePath intern(final ArchivePath path)
+   {
+      if (path == null || path.getClass() != BasicPath.class)
+      {
+         return path;
+      }
+      final BasicPath basicPath = (BasicPath) path;
+      final ArchivePath parent = basicPath.getParent();
+      if (parent == null)
+      {
+         return path;
+      }
+      return basicPath.withParent(this.internDirectory((BasicPath) parent));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Obtains the canonical instance of the specified directory, registering 
+    * it (with its canonical ancestors) if none exists
+    * 
+    * @param directory
+    * @return
+    */
+   private BasicPath internDirectory(final BasicPath directory)
+   {
+      BasicPath canonical = this.lookup(directory);
+      if (canonical != null)
+      {
+         return canonical;
+      }
+
+      // Canonicalize the ancestors first, outside of the lock
+      final ArchivePath parent = directory.getParent();
+      final BasicPath candidate = parent == null ? directory : directory.withParent(this
+            .internDirectory((BasicPath) parent));
+
+      synchronized (directories)
+      {
+         // Another thread may have registered the directory meanwhile
+         canonical = this.lookup(candidate);
+         if (canonical == null)
+         {
+            canonical = candidate;
+            directories.put(canonical, new WeakReference<BasicPath>(canonical));
+         }
+         return canonical;
+      }
+   }
+
+   /**
+    * Obtains the registered canonical instance of the specified directory, if any
+    * 
+    * @param directory
+    * @return
+    */
+   private BasicPath lookup(final BasicPath directory)
+   {
+      synchronized (directories)
+      {
+         final WeakReference<BasicPath> reference = directories.get(directory);
+         return reference == null ? null : reference.get();
+      }
+   }
+}
@@ -26,6 +26,7 @@ import org.jboss.shrinkwrap.api.Assignable;
 import org.jboss.shrinkwrap.api.Configuration;
 import org.jboss.shrinkwrap.api.ConfigurationBuilder;
 import org.jboss.shrinkwrap.api.ExtensionLoader;
+import org.jboss.shrinkwrap.api.exporter.ZipCompression;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -97,6 +98,155 @@ public class ConfigurationBuilderTestCase
       Assert.assertNotNull("The builder should default an " + ExtensionLoader.class.getSimpleName(), loader);
    }
 
+   /**
+    * Ensures that the compression properties are defaulted as contracted
+    */
+   @Test
+   public void defaultsCompression()
+   {
+      // Build and default
+      builder.build();
+
+      // Test
+      Assert.assertEquals("The builder should default the compression block size",
+            ConfigurationBuilder.DEFAULT_COMPRESSION_BLOCK_SIZE, builder.getCompressionBlockSize());
+      Assert.assertEquals("The builder should default the compression parallelism to the available processors",
+            Runtime.getRuntime().availableProcessors(), builder.getCompressionParallelism());
+   }
+
+   /**
+    * Ensures that GZIP encodings are written as a single member unless told otherwise
+    */
+   @Test
+   public void defaultsMultiMemberGzip()
+   {
+      Assert.assertFalse("The builder should default to a single GZIP member", new ConfigurationBuilder().build()
+            .isMultiMemberGzip());
+      Assert.assertTrue("Building should not override the user-supplied multi-member GZIP", builder
+            .multiMemberGzip(true).build().isMultiMemberGzip());
+   }
+
+   /**
+    * Ensures that the ZIP compression policy is defaulted, and a user-supplied 
+    * policy is not overridden
+    */
+   @Test
+   public void defaultsZipCompression()
+   {
+      Assert.assertNotNull("The builder should default the ZIP compression policy", new ConfigurationBuilder()
+            .build().getZipCompression());
+      final ZipCompression store = ZipCompression.store();
+      Assert.assertSame("Building should not override the user-supplied ZIP compression policy", store, builder
+            .zipCompression(store).build().getZipCompression());
+   }
+
+   /**
+    * Ensures that the spill threshold is defaulted as contracted, and 
+    * a user-supplied value is not overridden
+    */
+   @Test
+   public void defaultsSpillThreshold()
+   {
+      Assert.assertEquals("The builder should default the spill threshold",
+            ConfigurationBuilder.DEFAULT_SPILL_THRESHOLD, new ConfigurationBuilder().build().getSpillThreshold());
+      Assert.assertEquals("Building should not override the user-supplied spill threshold", 0, builder
+            .spillThreshold(0).build().getSpillThreshold());
+   }
+
+   /**
+    * Ensures that path interning is disabled by default, and 
+    * a user-supplied value is not overridden
+    */
+   @Test
+   public void defaultsInternPaths()
+   {
+      Assert.assertFalse("The builder should default to not interning paths", new ConfigurationBuilder().build()
+            .isInternPaths());
+      Assert.assertTrue("Building should not override the user-supplied interning of paths", builder.internPaths(
+            true).build().isInternPaths());
+   }
+
+   /**
+    * Ensures that packages are scanned upon the calling Thread by default, and 
+    * a user-supplied value is not overridden
+    */
+   @Test
+   public void defaultsParallelPackageScan()
+   {
+      Assert.assertFalse("The builder should default to a sequential package scan", new ConfigurationBuilder()
+            .build().isParallelPackageScan());
+      Assert.assertTrue("Building should not override the user-supplied parallel package scan", builder
+            .parallelPackageScan(true).build().isParallelPackageScan());
+   }
+
+   /**
+    * Ensures that ZIP files are imported eagerly unless told otherwise
+    */
+   @Test
+   public void defaultsMappedZipImport()
+   {
+      Assert.assertFalse("The builder should default to an eager ZIP import", new ConfigurationBuilder().build()
+            .isMappedZipImport());
+      Assert.assertTrue("Building should not override the user-supplied mapped ZIP import", builder.mappedZipImport(
+            true).build().isMappedZipImport());
+   }
+
+   /**
+    * Ensures that imported content is held in memory unless told otherwise, and
+    * that the import heap budget is defaulted as contracted
+    */
+   @Test
+   public void defaultsSpillingImport()
+   {
+      final Configuration defaults = new ConfigurationBuilder().build();
+      Assert.assertFalse("The builder should default to holding imported content in memory", defaults
+            .isSpillingImport());
+      Assert.assertEquals("The builder should default the import heap budget",
+            ConfigurationBuilder.DEFAULT_IMPORT_HEAP_BUDGET, defaults.getImportHeapBudget());
+      final Configuration configuration = builder.spillingImport(true).importHeapBudget(0).build();
+      Assert.assertTrue("Building should not override the user-supplied spilling import", configuration
+            .isSpillingImport());
+      Assert.assertEquals("Building should not override the user-supplied import heap budget", 0, configuration
+            .getImportHeapBudget());
+   }
+
+   /**
+    * Ensures that TAR files are imported as a stream unless told otherwise
+    */
+   @Test
+   public void defaultsIndexedTarImport()
+   {
+      Assert.assertFalse("The builder should default to a streamed TAR import", new ConfigurationBuilder().build()
+            .isIndexedTarImport());
+      Assert.assertTrue("Building should not override the user-supplied indexed TAR import", builder
+            .indexedTarImport(true).build().isIndexedTarImport());
+   }
+
+   /**
+    * Ensures that building does not override user-supplied compression properties
+    */
+   @Test
+   public void allowsUserDefinedCompression()
+   {
+      // Supply and build
+      final Configuration configuration = builder.compressionBlockSize(1024).compressionParallelism(3).build();
+
+      // Test
+      Assert.assertEquals("Building should not override the user-supplied block size", 1024, configuration
+            .getCompressionBlockSize());
+      Assert.assertEquals("Building should not override the user-supplied parallelism", 3, configuration
+            .getCompressionParallelism());
+   }
+
+   /**
+    * Ensures that non-positive compression properties are rejected
+    */
+   @Test(expected = IllegalArgumentException.class)
+   public void rejectsNonPositiveCompressionParallelism()
+   {
+      builder.compressionParallelism(0);
+   }
+
    /**
     * Ensures that building does not override a user-supplied 
     * {@link ExecutorService}
@@ -24,6 +24,7 @@ import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.api.Filters;
+import org.jboss.shrinkwrap.impl.base.filter.PrefixedFilter;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -86,6 +87,37 @@ public class FiltersTestCase
             filteredPaths.get(0));
    }
 
+   @Test
+   public void shouldIncludePathPrefix() throws Exception 
+   {
+      List<ArchivePath> paths = Arrays.asList(
+            ArchivePaths.create("/WEB-INF/classes/A.class"), ArchivePaths.create("/WEB-INF/classesB.class"),
+            ArchivePaths.create("/WEB-INF/lib/a.jar"));
+      List<ArchivePath> filteredPaths = executeFilter(ArchivePath.class, paths, Filters.includePrefix("/WEB-INF/classes"));
+      
+      Assert.assertEquals(
+            "Should contain both starting with the prefix", 
+            Arrays.asList(paths.get(0), paths.get(1)),
+            filteredPaths);
+   }
+
+   @Test
+   public void shouldExposeLiteralPrefixOfPathRegExp() throws Exception 
+   {
+      Assert.assertEquals("/WEB-INF/classes/", prefixOf(Filters.include("/WEB-INF/classes/.*")));
+      Assert.assertEquals("/WEB-INF/classes/", prefixOf(Filters.include("^/WEB-INF/classes/[^/]*")));
+      Assert.assertEquals("Escaped characters are literal", "/org/Outer$", prefixOf(Filters.include("/org/Outer\\$.*")));
+      Assert.assertEquals("Optional characters are not part of the prefix", "/a/", prefixOf(Filters.include("/a/b?c")));
+      Assert.assertEquals("Required repetitions are part of the prefix", "/a/b", prefixOf(Filters.include("/a/b+c")));
+      Assert.assertNull("Alternation has no prefix", prefixOf(Filters.include("/a/.*|/b/.*")));
+      Assert.assertNull("Leading wildcards have no prefix", prefixOf(Filters.include(".*META-INF.*")));
+   }
+
+   private String prefixOf(Filter<ArchivePath> filter)
+   {
+      return ((PrefixedFilter) filter).getPrefix();
+   }
+
    private <T> List<T> executeFilter(Class<T> clazz, List<T> items, Filter<T> filter) 
    {
       List<T> result = new ArrayList<T>();
@@ -0,0 +1,316 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.Assert;
+
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * PackageScanCacheTestCase
+ *
+ * Ensures that the {@link PackageScanCache} finds the classes of a package
+ * in JARs and directories, and notices changes to them.
+ *
+ * @version $Revision: $
+ */
+public class PackageScanCacheTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Instance Members -------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private File root;
+
+   //-------------------------------------------------------------------------------------||
+   // Lifecycle --------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Before
+   public void createRoot()
+   {
+      root = new File(System.getProperty("java.io.tmpdir"), "scan-" + System.nanoTime());
+      Assert.assertTrue(root.mkdirs());
+   }
+
+   @After
+   public void deleteRoot()
+   {
+      delete(root);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   @Test
+   public void shouldFindClassesInDirectory() throws Exception
+   {
+      final File classes = new File(root, "classes");
+      touch(new File(classes, "org/test/A.class"));
+      touch(new File(classes, "org/test/sub/B.class"));
+      touch(new File(classes, "org/test/readme.txt"));
+
+      final PackageScanCache cache = new PackageScanCache();
+      final ClassLoader cl = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+
+      Assert.assertEquals(Arrays.asList("org.test.A"), scan(cl, cache, false));
+      Assert.assertEquals(Arrays.asList("org.test.A", "org.test.sub.B"), scan(cl, cache, true));
+   }
+
+   @Test
+   public void shouldFindClassesInJar() throws Exception
+   {
+      final File jar = new File(root, "test.jar");
+      writeJar(jar, "org/", "org/test/", "org/test/A.class", "org/test/sub/", "org/test/sub/B.class", "org/testing/",
+            "org/testing/C.class");
+
+      final PackageScanCache cache = new PackageScanCache();
+      final ClassLoader cl = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null);
+
+      Assert.assertEquals(Arrays.asList("org.test.A"), scan(cl, cache, false));
+      Assert.assertEquals(Arrays.asList("org.test.A", "org.test.sub.B"), scan(cl, cache, true));
+   }
+
+   @Test
+   public void shouldNoticeChangedDirectory() throws Exception
+   {
+      final File classes = new File(root, "classes");
+      final File pkg = new File(classes, "org/test");
+      touch(new File(pkg, "A.class"));
+
+      final PackageScanCache cache = new PackageScanCache();
+      final ClassLoader cl = new URLClassLoader(new URL[]{classes.toURI().toURL()}, null);
+      Assert.assertEquals(Arrays.asList("org.test.A"), scan(cl, cache, false));
+
+      touch(new File(pkg, "B.class"));
+      // Don't rely on the file system's timestamp granularity
+      Assert.assertTrue(pkg.setLastModified(pkg.lastModified() + 2000));
+
+      Assert.assertEquals(Arrays.asList("org.test.A", "org.test.B"), scan(cl, cache, false));
+   }
+
+   @Test
+   public void shouldNoticeChangedJar() throws Exception
+   {
+      final File jar = new File(root, "test.jar");
+      writeJar(jar, "org/", "org/test/", "org/test/A.class");
+
+      final PackageScanCache cache = new PackageScanCache();
+      final ClassLoader cl = new URLClassLoader(new URL[]{jar.toURI().toURL()}, null);
+      Assert.assertEquals(Arrays.asList("org.test.A"), scan(cl, cache, false));
+
+      writeJar(jar, "org/", "org/test/", "org/test/A.class", "org/test/B.class");
+
+      Assert.assertEquals(Arrays.asList("org.test.A", "org.test.B"), scan(cl, cache, false));
+   }
+
+   @Test
+   public void shouldFindSameClassesInSameOrderInParallel() throws Exception
+   {
+      final File classes = new File(root, "classes");
+      for (final String name : new String[]
+      {"A", "b/B", "b/c/C", "b/c/D", "d/E", "d/F", "e/f/g/G", "H"})
+      {
+         touch(new File(classes, "org/test/" + name + ".class"));
+      }
+      final File jar = new File(root, "test.jar");
+      writeJar(jar, "org/", "org/test/", "org/test/I.class", "org/test/j/", "org/test/j/J.class");
+      final ClassLoader cl = new URLClassLoader(new URL[]
+      {classes.toURI().toURL(), jar.toURI().toURL()}, null);
+
+      final List<String> expected = new PackageScanCache().getClasses(cl, "org.test", "org/test", true);
+      Assert.assertEquals(Arrays.asList("org.test.A", "org.test.H", "org.test.b.B", "org.test.b.c.C",
+            "org.test.b.c.D", "org.test.d.E", "org.test.d.F", "org.test.e.f.g.G", "org.test.I", "org.test.j.J"),
+            expected);
+
+      final ExecutorService service = Executors.newFixedThreadPool(2);
+      try
+      {
+         Assert.assertEquals(expected, new PackageScanCache(service).getClasses(cl, "org.test", "org/test", true));
+      }
+      finally
+      {
+         service.shutdownNow();
+      }
+   }
+
+   @Test
+   public void shouldScanUponThreadOfOwnService() throws Exception
+   {
+      final File classes = new File(root, "classes");
+      for (final String name : new String[]
+      {"A", "b/B", "c/C", "d/D"})
+      {
+         touch(new File(classes, "org/test/" + name + ".class"));
+      }
+      final File jar = new File(root, "test.jar");
+      writeJar(jar, "org/", "org/test/", "org/test/E.class");
+      final ClassLoader cl = new URLClassLoader(new URL[]
+      {classes.toURI().toURL(), jar.toURI().toURL()}, null);
+
+      // A single Thread, already busy scanning
+      final ExecutorService service = Executors.newSingleThreadExecutor();
+      try
+      {
+         final PackageScanCache cache = new PackageScanCache(service);
+         final Future<List<String>> found = service.submit(new Callable<List<String>>()
+         {
+            public List<String> call() throws IOException
+            {
+               return cache.getClasses(cl, "org.test", "org/test", true);
+            }
+         });
+         Assert.assertEquals(Arrays.asList("org.test.A", "org.test.b.B", "org.test.c.C", "org.test.d.D",
+               "org.test.E"), found.get(10, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         service.shutdownNow();
+      }
+   }
+
+   @Test
+   public void shouldScanFirstOfSameClassInSeveralRoots() throws Exception
+   {
+      final File first = new File(root, "first");
+      final File second = new File(root, "second");
+      write(new File(first, "org/test/A.class"), "first");
+      write(new File(second, "org/test/A.class"), "second");
+      write(new File(second, "org/test/B.class"), "second");
+      final ClassLoader cl = new URLClassLoader(new URL[]
+      {first.toURI().toURL(), second.toURI().toURL()}, null);
+
+      final Map<String, String> found = new TreeMap<String, String>();
+      URLPackageScanner.newInstance(false, cl, new URLPackageScanner.ResourceCallback()
+      {
+         public void classFound(final String className, final Asset resource)
+         {
+            Assert.assertNull("Class should be found once: " + className, found.put(className, new String(IOUtil
+                  .asByteArray(resource.openStream()))));
+         }
+
+         public void classFound(final String className)
+         {
+            Assert.fail("Class file should be supplied");
+         }
+      }, "org.test", new PackageScanCache()).scanPackage();
+
+      final Map<String, String> expected = new TreeMap<String, String>();
+      expected.put("org.test.A", "first");
+      expected.put("org.test.B", "second");
+      Assert.assertEquals("Class should be taken from the first root holding it", expected, found);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private List<String> scan(final ClassLoader cl, final PackageScanCache cache, final boolean recursive)
+         throws IOException
+   {
+      final List<String> found = new ArrayList<String>();
+      for (final String path : cache.getRoots(cl, "org/test"))
+      {
+         final File file = new File(path);
+         found.addAll(file.isDirectory()
+               ? cache.getDirectoryClasses(file, "org.test", recursive)
+               : cache.getJarClasses(file, "org/test", recursive));
+      }
+      Collections.sort(found);
+      return found;
+   }
+
+   private static void touch(final File file) throws IOException
+   {
+      file.getParentFile().mkdirs();
+      new FileOutputStream(file).close();
+   }
+
+   private static void write(final File file, final String content) throws IOException
+   {
+      file.getParentFile().mkdirs();
+      final FileOutputStream out = new FileOutputStream(file);
+      try
+      {
+         out.write(content.getBytes());
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private static void writeJar(final File jar, final String... entries) throws IOException
+   {
+      final long lastModified = jar.exists() ? jar.lastModified() : 0;
+      final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar));
+      try
+      {
+         for (final String entry : entries)
+         {
+            out.putNextEntry(new ZipEntry(entry));
+            out.closeEntry();
+         }
+      }
+      finally
+      {
+         out.close();
+      }
+      // Don't rely on the file system's timestamp granularity
+      if (lastModified != 0)
+      {
+         Assert.assertTrue(jar.setLastModified(lastModified + 2000));
+      }
+   }
+
+   private static void delete(final File file)
+   {
+      final File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (final File child : children)
+         {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+}
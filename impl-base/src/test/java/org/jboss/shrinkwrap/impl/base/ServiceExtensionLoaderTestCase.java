@@ -16,6 +16,18 @@
  */
 package org.jboss.shrinkwrap.impl.base;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import junit.framework.Assert;
 
 import org.jboss.shrinkwrap.api.Archive;
@@ -67,6 +79,72 @@ public class ServiceExtensionLoaderTestCase
       );      
    }
    
+   @Test
+   public void shouldLoadConcurrently() throws Exception {
+      final ServiceExtensionLoader loader = new ServiceExtensionLoader();
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, "test.jar");
+      final int threads = 8;
+      final ExecutorService service = Executors.newFixedThreadPool(threads);
+      try
+      {
+         final List<Future<Extension>> futures = new ArrayList<Future<Extension>>();
+         for (int i = 0; i < threads * 16; i++)
+         {
+            futures.add(service.submit(new Callable<Extension>()
+            {
+               public Extension call() throws Exception
+               {
+                  return loader.load(Extension.class, archive);
+               }
+            }));
+         }
+         for (final Future<Extension> future : futures)
+         {
+            Assert.assertTrue(future.get().getClass() == ExtensionImpl.class);
+         }
+      }
+      finally
+      {
+         service.shutdownNow();
+      }
+   }
+
+   @Test
+   public void shouldPreferGeneratedExtensionRegistry() throws Exception {
+      final File classes = new File(System.getProperty("java.io.tmpdir"), "registry-" + System.nanoTime());
+      final File services = new File(classes, "META-INF/services");
+      Assert.assertTrue(services.mkdirs());
+      final Writer writer = new FileWriter(new File(services, Extension.class.getName()));
+      try
+      {
+         writer.write("implementingClassName=" + ExtensionImpl2.class.getName() + "\nextension=.ext\n");
+      }
+      finally
+      {
+         writer.close();
+      }
+      final File registry = ExtensionRegistryGenerator.generate(classes);
+      Assert.assertNotNull("Registry should have been written", registry);
+      // Only the registry should be consulted, not the services file it was generated from
+      Assert.assertTrue(new File(services, Extension.class.getName()).delete());
+
+      final Thread thread = Thread.currentThread();
+      final ClassLoader oldCl = thread.getContextClassLoader();
+      thread.setContextClassLoader(new URLClassLoader(new URL[]{classes.toURI().toURL()}, oldCl));
+      try
+      {
+         final ServiceExtensionLoader loader = new ServiceExtensionLoader();
+         Extension extension = loader.load(Extension.class, ShrinkWrap.create(JavaArchive.class, "test.jar"));
+         Assert.assertTrue(extension.getClass() == ExtensionImpl2.class);
+         Assert.assertEquals(".ext", loader.getExtensionFromExtensionMapping(Extension.class));
+      }
+      finally
+      {
+         thread.setContextClassLoader(oldCl);
+         registry.delete();
+      }
+   }
+
    @Test(expected = RuntimeException.class)
    public void shouldThrowExceptionOnMissingExtension() throws Exception {
       new ServiceExtensionLoader().load(MissingExtension.class, ShrinkWrap.create(JavaArchive.class, "test.jar"));
@@ -211,6 +211,24 @@ public class ShrinkWrapTestCase
 
    }
 
+   /**
+    * Ensures that an override added via the {@link ExtensionLoader} is honoured
+    * by archives which have already obtained views of the overridden type
+    * @throws Exception
+    */
+   @Test
+   public void shouldHonourOverrideAddedAfterView() throws Exception
+   {
+      final Domain domain = ShrinkWrap.createDomain();
+      final JavaArchive archive = domain.getArchiveFactory().create(JavaArchive.class, "test.jar");
+      Assert.assertFalse("Should not yet be overridden", archive.as(JavaArchive.class) instanceof MockJavaArchiveImpl);
+
+      domain.getConfiguration().getExtensionLoader().addOverride(JavaArchive.class, MockJavaArchiveImpl.class);
+
+      Assert.assertEquals("Should have overridden the JavaArchive view already obtained", MockJavaArchiveImpl.class,
+            archive.as(JavaArchive.class).getClass());
+   }
+
    @Test
    public void shouldCreateArchiveWithCorrectExtensionForJavaArchive() throws Exception
    {
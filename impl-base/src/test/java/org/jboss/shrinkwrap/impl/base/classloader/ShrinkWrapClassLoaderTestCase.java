@@ -18,13 +18,22 @@ package org.jboss.shrinkwrap.impl.base.classloader;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.security.CodeSource;
+import java.util.Collections;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePaths;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.classloader.ShrinkWrapClassLoader;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -159,10 +168,247 @@ public class ShrinkWrapClassLoaderTestCase
 
    }
 
+   /**
+    * Ensures each request for a resource gets a stream with its full content
+    */
+   @Test
+   public void shouldReadResourceRepeatedly() throws IOException
+   {
+      final String resourceName = getResourceNameOfClass(applicationClassLoaderClass);
+      final int size = count(shrinkWrapClassLoader.getResourceAsStream(resourceName));
+
+      Assert.assertTrue("Resource should have content", size > 0);
+      Assert.assertEquals("Resource should be read in full again", size,
+            count(shrinkWrapClassLoader.getResourceAsStream(resourceName)));
+   }
+
+   /**
+    * Ensures the package of a loaded class is defined
+    */
+   @Test
+   public void shouldDefinePackageOfLoadedClass() throws ClassNotFoundException
+   {
+      final Class<?> loadedTestClass = Class.forName(applicationClassLoaderClass.getName(), false,
+            shrinkWrapClassLoader);
+
+      Assert.assertNotNull("Package of loaded class should be defined", loadedTestClass.getPackage());
+      Assert.assertEquals(applicationClassLoaderClass.getPackage().getName(), loadedTestClass.getPackage().getName());
+   }
+
+   /**
+    * Ensures classes not in the archive are not found
+    */
+   @Test(expected = ClassNotFoundException.class)
+   public void shouldNotFindClassNotInArchive() throws ClassNotFoundException
+   {
+      Class.forName(applicationClassLoaderClass.getName() + "Missing", false, shrinkWrapClassLoader);
+   }
+
+   /**
+    * Ensures resources not in the archive are not found
+    */
+   @Test
+   public void shouldNotFindResourceNotInArchive()
+   {
+      Assert.assertNull(shrinkWrapClassLoader.getResource("org/missing/Missing.class"));
+      Assert.assertNull(shrinkWrapClassLoader.getResource(getResourceNameOfClass(applicationClassLoaderClass)
+            + ".missing"));
+   }
+
+   /**
+    * Ensures classes are loaded from the <code>WEB-INF/classes</code> of a web archive
+    */
+   @Test
+   public void shouldLoadClassFromWebArchiveClasses() throws Exception
+   {
+      final WebArchive war = ShrinkWrap.create(WebArchive.class).addClass(applicationClassLoaderClass);
+
+      assertLoadsFromArchive(war);
+   }
+
+   /**
+    * Ensures classes are loaded from a library added to a web archive as an {@link Archive}
+    */
+   @Test
+   public void shouldLoadClassFromNestedArchiveLibrary() throws Exception
+   {
+      final WebArchive war = ShrinkWrap.create(WebArchive.class).addLibrary(archive);
+
+      assertLoadsFromArchive(war);
+   }
+
+   /**
+    * Ensures classes are loaded from a library added to a web archive as JAR content
+    */
+   @Test
+   public void shouldLoadClassFromNestedJarLibrary() throws Exception
+   {
+      final ByteArrayAsset jar = new ByteArrayAsset(archive.as(ZipExporter.class).exportAsInputStream());
+      final WebArchive war = ShrinkWrap.create(WebArchive.class).add(jar, "WEB-INF/lib/library.jar");
+
+      assertLoadsFromArchive(war);
+   }
+
+   /**
+    * Ensures classes and libraries added to an {@link Archive} after the 
+    * {@link ShrinkWrapClassLoader} is created are found
+    */
+   @Test
+   public void shouldSeeContentAddedAfterCreation() throws Exception
+   {
+      final JavaArchive jar = ShrinkWrap.create(JavaArchive.class);
+      final WebArchive war = ShrinkWrap.create(WebArchive.class);
+      final ShrinkWrapClassLoader cl = new ShrinkWrapClassLoader((ClassLoader) null, jar, war);
+      try
+      {
+         final String resourceName = getResourceNameOfClass(applicationClassLoaderClass);
+         Assert.assertNull("Resource should not be found before being added", cl.getResource(resourceName));
+         jar.addClass(applicationClassLoaderClass);
+         Assert.assertNotNull("Resource should be found once added", cl.getResource(resourceName));
+         war.addLibrary(archive);
+         Assert.assertEquals("Resource should be found in the library once added", 2, Collections.list(
+               cl.getResources(resourceName)).size());
+      }
+      finally
+      {
+         cl.close();
+      }
+   }
+
+   /**
+    * Ensures a library removed from a web archive after it was searched is no longer found
+    */
+   @Test
+   public void shouldNotSeeLibraryRemovedAfterLookup() throws Exception
+   {
+      final WebArchive war = ShrinkWrap.create(WebArchive.class).addLibrary(archive);
+      final ShrinkWrapClassLoader cl = new ShrinkWrapClassLoader((ClassLoader) null, war);
+      try
+      {
+         final String resourceName = getResourceNameOfClass(applicationClassLoaderClass);
+         Assert.assertNotNull("Resource should be found in the library", cl.getResource(resourceName));
+         war.delete(ArchivePaths.create("WEB-INF/lib", archive.getName()));
+         Assert.assertNull("Resource should not be found once the library is removed", cl
+               .getResource(resourceName));
+      }
+      finally
+      {
+         cl.close();
+      }
+   }
+
+   /**
+    * Ensures <code>WEB-INF/classes</code> is only searched in web archives
+    */
+   @Test
+   public void shouldNotSearchWebClassesOfPlainArchive() throws Exception
+   {
+      final String resourceName = getResourceNameOfClass(applicationClassLoaderClass);
+      final JavaArchive jar = ShrinkWrap.create(JavaArchive.class).add(
+            new ByteArrayAsset(IOUtil.asByteArray(archive.get(resourceName).getAsset().openStream())),
+            "WEB-INF/classes/" + resourceName);
+      final ShrinkWrapClassLoader cl = new ShrinkWrapClassLoader((ClassLoader) null, jar);
+      try
+      {
+         Assert.assertNull("WEB-INF/classes of a plain archive should not be searched", cl
+               .getResource(resourceName));
+         Assert.assertNotNull("Content should be found by its full name", cl.getResource("WEB-INF/classes/"
+               + resourceName));
+      }
+      finally
+      {
+         cl.close();
+      }
+   }
+
+   /**
+    * Ensures classes are defined with a {@link CodeSource} locating their class path root
+    */
+   @Test
+   public void shouldDefineClassWithCodeSource() throws Exception
+   {
+      final Class<?> loadedTestClass = Class.forName(applicationClassLoaderClass.getName(), false,
+            shrinkWrapClassLoader);
+      final CodeSource codeSource = loadedTestClass.getProtectionDomain().getCodeSource();
+      Assert.assertNotNull("Class should be defined with a code source", codeSource);
+      Assert.assertEquals("Code source should locate the archive", "/" + archive.getName() + "/", codeSource
+            .getLocation().getPath());
+   }
+
+   /**
+    * Ensures the names of a library held as JAR content are decoded as UTF-8 only where
+    * flagged as such, and otherwise as CP437
+    */
+   @Test
+   public void shouldDecodeNamesOfNestedJarLibraryByFlag() throws Exception
+   {
+      final byte[] jar = IOUtil.asByteArray(ShrinkWrap.create(JavaArchive.class).add(new StringAsset("content"),
+            "\u00e9.txt").as(ZipExporter.class).exportAsInputStream());
+      assertFindsInLibrary(jar, "\u00e9.txt");
+
+      // Clear the UTF-8 flag of the local and central directory headers
+      for (int i = 0; i + 10 < jar.length; i++)
+      {
+         if (jar[i] == 0x50 && jar[i + 1] == 0x4b && jar[i + 2] == 0x03 && jar[i + 3] == 0x04)
+         {
+            jar[i + 7] &= ~0x08;
+         }
+         else if (jar[i] == 0x50 && jar[i + 1] == 0x4b && jar[i + 2] == 0x01 && jar[i + 3] == 0x02)
+         {
+            jar[i + 9] &= ~0x08;
+         }
+      }
+      // The UTF-8 bytes of the name, 0xC3 0xA9, in CP437
+      assertFindsInLibrary(jar, "\u251c\u2310.txt");
+   }
+
    //-------------------------------------------------------------------------------------||
    // Internal Helper Methods ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
+   /**
+    * Ensures the test class and its content are obtained from the specified {@link Archive}
+    */
+   private static void assertLoadsFromArchive(final Archive<?> archive) throws Exception
+   {
+      final ShrinkWrapClassLoader cl = new ShrinkWrapClassLoader((ClassLoader) null, archive);
+      try
+      {
+         final Class<?> loadedTestClass = Class.forName(applicationClassLoaderClass.getName(), false, cl);
+         Assert.assertSame("Test class should have been loaded via the archive ClassLoader", cl, loadedTestClass
+               .getClassLoader());
+
+         final String resourceName = getResourceNameOfClass(applicationClassLoaderClass);
+         final int expected = count(ShrinkWrapClassLoaderTestCase.class.getClassLoader().getResourceAsStream(
+               resourceName));
+         Assert.assertEquals("Resource content should be that of the test class", expected, count(cl
+               .getResourceAsStream(resourceName)));
+      }
+      finally
+      {
+         cl.close();
+      }
+   }
+
+   /**
+    * Ensures the named resource is found in the specified JAR content added as a library
+    */
+   private static void assertFindsInLibrary(final byte[] jar, final String resourceName) throws Exception
+   {
+      final WebArchive war = ShrinkWrap.create(WebArchive.class).add(new ByteArrayAsset(jar),
+            "WEB-INF/lib/library.jar");
+      final ShrinkWrapClassLoader cl = new ShrinkWrapClassLoader((ClassLoader) null, war);
+      try
+      {
+         Assert.assertEquals("Resource should be found by its decoded name: " + resourceName, "content".length(),
+               count(cl.getResourceAsStream(resourceName)));
+      }
+      finally
+      {
+         cl.close();
+      }
+   }
+
    /**
     * Obtains the resource name for a given class
     */
@@ -175,4 +421,27 @@ public class ShrinkWrapClassLoaderTestCase
       sb.append(".class");
       return sb.toString();
    }
+
+   /**
+    * Reads the specified stream to its end, returning the number of bytes read
+    */
+   private static int count(final InputStream in) throws IOException
+   {
+      Assert.assertNotNull("Stream should be opened", in);
+      try
+      {
+         final byte[] buffer = new byte[1024];
+         int count = 0;
+         int read;
+         while ((read = in.read(buffer)) != -1)
+         {
+            count += read;
+         }
+         return count;
+      }
+      finally
+      {
+         in.close();
+      }
+   }
 }
\ No newline at end of file
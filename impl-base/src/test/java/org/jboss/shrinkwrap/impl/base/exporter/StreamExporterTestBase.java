@@ -16,6 +16,7 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -87,6 +88,16 @@ public abstract class StreamExporterTestBase extends ExportTestBase
     */
    protected abstract InputStream getContentsFromExportedFile(File file, ArchivePath path) throws IOException;
 
+   /**
+    * Whether the exporter under test is expected to submit work to the 
+    * configured {@link ExecutorService}
+    * @return
+    */
+   protected boolean isExecutorServiceUsed()
+   {
+      return false;
+   }
+
    //-------------------------------------------------------------------------------------||
    // Tests ------------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -115,12 +126,13 @@ public abstract class StreamExporterTestBase extends ExportTestBase
    }
 
    /**
-    * Ensures that the export write task uses the {@link ExecutorService}
-    * that we've configured, and leaves it running (does not shut it down)
+    * Ensures that the export is encoded upon the reading {@link Thread}, only 
+    * submitting jobs to the configured {@link ExecutorService} if the exporter
+    * parallelizes its work, and leaves it running (does not shut it down)
     * @throws Exception
     */
    @Test
-   public void exportUsesOurExecutorService() throws Exception
+   public void exportAsInputStreamLeavesExecutorServiceRunning() throws Exception
    {
       // Make a custom ES
       final CountingExecutorService service = new CountingExecutorService();
@@ -145,9 +157,8 @@ public abstract class StreamExporterTestBase extends ExportTestBase
       };
       IOUtil.copyWithClose(content, sink);
 
-      // Ensure the ES was used (one job was submitted to it)
-      Assert.assertEquals("Custom " + ExecutorService.class.getSimpleName() + " was not used by export process", 1,
-            service.counter);
+      // Ensure the ES was used only if expected
+      this.assertExecutorServiceUsage(service);
 
       // Ensure the ES was not shut down by the export process
       Assert.assertFalse("Export should not shut down a user-supplied " + ExecutorService.class.getName(),
@@ -157,6 +168,99 @@ public abstract class StreamExporterTestBase extends ExportTestBase
       service.shutdown();
    }
 
+   /**
+    * Ensures that an archive nested within another is exported without
+    * starting any Threads per export
+    * @throws Exception
+    */
+   @Test
+   public void exportNestedUsesNoAdditionalThreads() throws Exception
+   {
+      // Get an archive instance
+      final Archive<?> archive = createArchiveWithNestedArchives();
+
+      // Warm up any shared pools
+      IOUtil.asByteArray(this.exportAsInputStream(archive));
+
+      // Watch for new Threads while reading the full content
+      final int threadsBefore = Thread.activeCount();
+      final byte[] exported = IOUtil.asByteArray(this.exportAsInputStream(archive));
+      final int threadsAfter = Thread.activeCount();
+
+      // Ensure
+      Assert.assertTrue("Export should have yielded content", exported.length > 0);
+      Assert.assertTrue("Export should not have started any Threads", threadsAfter <= threadsBefore);
+   }
+
+   /**
+    * Ensures that the exported {@link InputStream} may be closed before it's 
+    * fully read, and that a partially-read stream is consistent with a full export
+    * @throws Exception
+    */
+   @Test
+   public void exportAsInputStreamMayBeClosedEarly() throws Exception
+   {
+      // Get an archive instance
+      final Archive<?> archive = createArchiveWithAssets();
+
+      // Read a single byte and close
+      final InputStream in = this.exportAsInputStream(archive);
+      Assert.assertTrue("Export should have yielded content", in.read() != -1);
+      in.close();
+
+      // Further reads are not permitted
+      boolean gotExpectedException = false;
+      try
+      {
+         in.read();
+      }
+      catch (final IOException ioe)
+      {
+         gotExpectedException = true;
+      }
+      Assert.assertTrue("Reading a closed export stream should fail", gotExpectedException);
+   }
+
+   /**
+    * Ensures that exporting to an {@link OutputStream} is done upon the calling
+    * {@link Thread}, only submitting jobs to the configured {@link ExecutorService}
+    * if the exporter parallelizes its work, and leaves it running
+    * @throws Exception
+    */
+   @Test
+   public void exportToOutStreamLeavesExecutorServiceRunning() throws Exception
+   {
+      // Make a custom ES
+      final CountingExecutorService service = new CountingExecutorService();
+
+      // Create a custom configuration
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().executorService(service).build());
+
+      // Make an archive using the new configuration
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class, "test.jar")
+            .addClass(StreamExporterTestBase.class);
+
+      // Export and remember if we've been closed
+      final ByteArrayOutputStream out = new ByteArrayOutputStream()
+      {
+         @Override
+         public void close() throws IOException
+         {
+            throw new IllegalStateException("Export should not close the target");
+         }
+      };
+      archive.as(this.getExporterClass()).exportTo(out);
+
+      // Ensure the ES was used only if expected, and that we've gotten some content
+      this.assertExecutorServiceUsage(service);
+      Assert.assertTrue("Export should have written content", out.size() > 0);
+      Assert.assertFalse("Export should not shut down a user-supplied " + ExecutorService.class.getName(),
+            service.isShutdown());
+
+      // Shut down the ES (clean up)
+      service.shutdown();
+   }
+
    /**
     * Test to ensure that the export process accepts an archive
     * with only directories, no assets.
@@ -362,6 +466,26 @@ public abstract class StreamExporterTestBase extends ExportTestBase
 
    }
 
+   @Test(expected = ArchiveExportException.class)
+   public void testExportToOutStreamThrowsArchiveExceptionOnAssetWriteFailure() throws IOException
+   {
+      log.info("testExportToOutStreamThrowsArchiveExceptionOnAssetWriteFailure");
+      Archive<?> archive = createArchiveWithAssets();
+
+      archive.add(new Asset()
+      {
+         @Override
+         public InputStream openStream()
+         {
+            throw new RuntimeException("Mock Exception from an Asset write");
+         }
+
+      }, PATH_ONE);
+
+      // Export
+      archive.as(this.getExporterClass()).exportTo(new ByteArrayOutputStream());
+   }
+
    //-------------------------------------------------------------------------------------||
    // Helper Methods ---------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -426,6 +550,25 @@ public abstract class StreamExporterTestBase extends ExportTestBase
       }
    }
 
+   /**
+    * Ensures the specified {@link ExecutorService} has been used if, and only if,
+    * the exporter under test is expected to do so
+    * @param service
+    */
+   private void assertExecutorServiceUsage(final CountingExecutorService service)
+   {
+      if (this.isExecutorServiceUsed())
+      {
+         Assert.assertTrue("Custom " + ExecutorService.class.getSimpleName() + " was not used by export process",
+               service.counter > 0);
+      }
+      else
+      {
+         Assert.assertEquals("Export should not submit jobs to the " + ExecutorService.class.getSimpleName(), 0,
+               service.counter);
+      }
+   }
+
    /**
     * Test implementation of an {@link ExecutorService} which 
     * counts all jobs submitted.
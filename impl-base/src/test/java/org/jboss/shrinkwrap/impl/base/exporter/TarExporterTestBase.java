@@ -16,18 +16,31 @@
  */
 package org.jboss.shrinkwrap.impl.base.exporter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
+import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.exporter.ArchiveExportException;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
 import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarEntry;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
 import org.jboss.shrinkwrap.impl.base.path.PathUtil;
 import org.junit.Assert;
+import org.junit.Test;
 
 /**
  * TestCase to ensure that the TAR exporters are working as
@@ -94,7 +107,117 @@ public abstract class TarExporterTestBase extends StreamExporterTestBase
    // Tests ------------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
-   // Inherited
+   /**
+    * Ensures that {@link Asset}s able to report their size are exported intact
+    * @throws Exception
+    */
+   @Test
+   public void exportAssetsOfKnownSize() throws Exception
+   {
+      // Make content of known size
+      final File tempDirectory = createTempDirectory("exportAssetsOfKnownSize");
+      final File file = new File(tempDirectory, "content.txt");
+      final OutputStream out = new FileOutputStream(file);
+      IOUtil.copyWithClose(ASSET_ONE.openStream(), out);
+      final Asset fileAsset = new FileAsset(file);
+      final Asset byteArrayAsset = new ByteArrayAsset(IOUtil.asByteArray(ASSET_TWO.openStream()));
+      final ArchivePath filePath = ArchivePaths.create("file.txt");
+      final ArchivePath byteArrayPath = ArchivePaths.create("nested/bytes.txt");
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE + this.getArchiveExtension())
+            .add(fileAsset, filePath).add(byteArrayAsset, byteArrayPath);
+
+      // Export and check
+      final File exported = new File(tempDirectory, archive.getName());
+      archive.as(this.getExporterClass()).exportTo(exported);
+      this.ensureAssetInExportedFile(exported, filePath, fileAsset);
+      this.ensureAssetInExportedFile(exported, byteArrayPath, byteArrayAsset);
+   }
+
+   /**
+    * Ensures that the modification time of an {@link Asset} able to
+    * report it is preserved in the exported entry
+    * @throws Exception
+    */
+   @Test
+   public void exportPreservesLastModified() throws Exception
+   {
+      // Make a file with a known modification time
+      final File tempDirectory = createTempDirectory("exportPreservesLastModified");
+      final File file = new File(tempDirectory, "content.txt");
+      IOUtil.copyWithClose(ASSET_ONE.openStream(), new FileOutputStream(file));
+      final long lastModified = 1000000000000L;
+      file.setLastModified(lastModified);
+
+      // Export
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE + this.getArchiveExtension())
+            .add(new FileAsset(file), "content.txt");
+      final File exported = new File(tempDirectory, archive.getName());
+      archive.as(this.getExporterClass()).exportTo(exported);
+
+      // TAR times have a resolution of 1 second
+      final TarInputStream in = this.getTarInputStreamFromFile(exported);
+      try
+      {
+         final TarEntry entry = in.getNextEntry();
+         Assert.assertEquals("Modification time should be preserved", file.lastModified() / 1000, entry
+               .getModTime().getTime() / 1000);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Ensures that {@link Asset}s of unknown size are exported intact when 
+    * buffered to disk
+    * @throws Exception
+    */
+   @Test
+   public void exportAssetsOfUnknownSizeBeyondSpillThreshold() throws Exception
+   {
+      // Buffer no more than a few bytes in memory
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().spillThreshold(16).build());
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class,
+            NAME_ARCHIVE + this.getArchiveExtension());
+      final StringBuilder content = new StringBuilder();
+      for (int i = 0; i < 1000; i++)
+      {
+         content.append("Line ").append(i).append('\n');
+      }
+      final Asset asset = new UnknownSizeAsset(new StringAsset(content.toString()));
+      final ArchivePath path = ArchivePaths.create("large.txt");
+      archive.add(asset, path).add(asset, "another.txt");
+
+      // Export and check
+      final File tempDirectory = createTempDirectory("exportAssetsOfUnknownSizeBeyondSpillThreshold");
+      final File exported = new File(tempDirectory, archive.getName());
+      archive.as(this.getExporterClass()).exportTo(exported);
+      this.ensureAssetInExportedFile(exported, path, asset);
+      this.ensureAssetInExportedFile(exported, ArchivePaths.create("another.txt"), asset);
+   }
+
+   /**
+    * Ensures that the size reported by an {@link Asset} is relied upon; an 
+    * {@link Asset} yielding less content than reported may not be exported
+    * @throws Exception
+    */
+   @Test(expected = ArchiveExportException.class)
+   public void exportAssetShorterThanReportedSizeFails() throws Exception
+   {
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE + this.getArchiveExtension());
+      archive.add(new ByteArrayAsset(new byte[]
+      {1, 2, 3})
+      {
+         @Override
+         public long getSize()
+         {
+            return 10;
+         }
+      }, "short.bin");
+
+      archive.as(this.getExporterClass()).exportTo(new ByteArrayOutputStream());
+   }
 
    //-------------------------------------------------------------------------------------||
    // Internal Helper Methods ------------------------------------------------------------||
@@ -150,4 +273,26 @@ public abstract class TarExporterTestBase extends StreamExporterTestBase
       return null;
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Inner Classes ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Hides whether the delegate {@link Asset} is able to report its size
+    */
+   private static final class UnknownSizeAsset implements Asset
+   {
+      private final Asset delegate;
+
+      UnknownSizeAsset(final Asset delegate)
+      {
+         this.delegate = delegate;
+      }
+
+      @Override
+      public InputStream openStream()
+      {
+         return delegate.openStream();
+      }
+   }
 }
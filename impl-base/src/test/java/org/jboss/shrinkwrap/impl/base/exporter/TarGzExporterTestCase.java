@@ -19,11 +19,29 @@ package org.jboss.shrinkwrap.impl.base.exporter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
 
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.api.importer.TarGzImporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
+import org.junit.Assert;
+import org.junit.Test;
 
 /**
  * TestCase to ensure that the {@link TarGzExporter} correctly exports
@@ -43,6 +61,11 @@ public final class TarGzExporterTestCase extends TarExporterTestBase
     */
    private static final String EXTENSION = ".tar.gz";
 
+   /**
+    * Compression block size small enough that archives span many blocks
+    */
+   private static final int BLOCK_SIZE = 1024;
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -81,5 +104,91 @@ public final class TarGzExporterTestCase extends TarExporterTestBase
    // Tests ------------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
-   // Inherited
+   /**
+    * Ensures that an archive is by default compressed as a single GZIP member, 
+    * readable in full by a {@link GZIPInputStream} stopping after the first
+    * @throws Exception
+    */
+   @Test
+   public void exportIsSingleMemberByDefault() throws Exception
+   {
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().compressionBlockSize(BLOCK_SIZE));
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class, NAME_ARCHIVE + EXTENSION);
+      for (int i = 0; i < 32; i++)
+      {
+         archive.add(new StringAsset("Entry " + i), "entry" + i + ".txt");
+      }
+      // Each entry takes two TAR records, so the TAR spans many blocks
+      final byte[] exported = IOUtil.asByteArray(archive.as(TarGzExporter.class).exportAsInputStream());
+
+      // Inflate the first member, past its 10-byte header
+      final Inflater inflater = new Inflater(true);
+      try
+      {
+         inflater.setInput(exported, 10, exported.length - 10);
+         final byte[] buffer = new byte[4096];
+         while (!inflater.finished())
+         {
+            Assert.assertFalse("Member should be complete", inflater.inflate(buffer) == 0
+                  && inflater.needsInput());
+         }
+         Assert.assertEquals("Only the CRC-32 and size should follow the first member", 8, inflater
+               .getRemaining());
+      }
+      finally
+      {
+         inflater.end();
+      }
+   }
+
+   /**
+    * Ensures that an archive compressed in many parallel blocks may be read
+    * both as plain GZIP and by the {@link TarGzImporter}
+    * @throws Exception
+    */
+   @Test
+   public void exportInParallelBlocksIsReadable() throws Exception
+   {
+      final ExecutorService service = Executors.newFixedThreadPool(4);
+      try
+      {
+         // Export with small blocks so that content spans many of them
+         final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().executorService(service)
+               .multiMemberGzip(true).compressionBlockSize(BLOCK_SIZE).compressionParallelism(4).build());
+         final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class, NAME_ARCHIVE + EXTENSION);
+         for (int i = 0; i < 32; i++)
+         {
+            final StringBuilder content = new StringBuilder();
+            for (int j = 0; j < i * 50; j++)
+            {
+               content.append("Line ").append(j).append(" of entry ").append(i).append('\n');
+            }
+            archive.add(new StringAsset(content.toString()), "dir" + (i % 3) + "/entry" + i + ".txt");
+         }
+         final File tempDirectory = createTempDirectory("exportInParallelBlocksIsReadable");
+         final File exported = new File(tempDirectory, NAME_ARCHIVE + EXTENSION);
+         archive.as(TarGzExporter.class).exportTo(exported);
+         Assert.assertTrue("Export should span many blocks", exported.length() > BLOCK_SIZE);
+
+         // Read as plain GZIP
+         for (final Map.Entry<ArchivePath, Node> entry : archive.getContent().entrySet())
+         {
+            final Asset asset = entry.getValue().getAsset();
+            if (asset != null)
+            {
+               this.ensureAssetInExportedFile(exported, entry.getKey(), asset);
+            }
+         }
+
+         // And import
+         final Archive<?> imported = ShrinkWrap.create(TarGzImporter.class, NAME_ARCHIVE + EXTENSION).importFrom(
+               exported).as(GenericArchive.class);
+         Assert.assertEquals("Imported archive should have all content", archive.getContent().keySet(), imported
+               .getContent().keySet());
+      }
+      finally
+      {
+         service.shutdown();
+      }
+   }
 }
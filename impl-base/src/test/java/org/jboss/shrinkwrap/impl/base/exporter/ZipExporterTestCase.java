@@ -17,19 +17,42 @@
 package org.jboss.shrinkwrap.impl.base.exporter;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Filter;
+import org.jboss.shrinkwrap.api.Domain;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
+import org.jboss.shrinkwrap.api.exporter.ZipCompression;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
-import org.jboss.shrinkwrap.impl.base.exporter.zip.JdkZipExporterDelegate;
+import org.jboss.shrinkwrap.impl.base.asset.RawZipEntryAsset;
+import org.jboss.shrinkwrap.impl.base.exporter.zip.ZipExporterDelegate;
 import org.jboss.shrinkwrap.impl.base.io.IOUtil;
 import org.jboss.shrinkwrap.impl.base.path.PathUtil;
 import org.junit.Assert;
@@ -117,12 +140,521 @@ public final class ZipExporterTestCase extends StreamExporterTestBase
       return EXTENSION;
    }
 
+   /**
+    * {@inheritDoc}
+    * @see org.jboss.shrinkwrap.impl.base.exporter.StreamExporterTestBase#isExecutorServiceUsed()
+    */
+   @Override
+   protected boolean isExecutorServiceUsed()
+   {
+      // Entries are compressed in parallel
+      return true;
+   }
+
    //-------------------------------------------------------------------------------------||
    // Tests ------------------------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
    /**
-    * Test to ensure that the {@link JdkZipExporterDelegate} does not accept 
+    * Ensures that the exported ZIP is the same regardless of the number
+    * of Threads used in compression
+    * @throws Exception
+    */
+   @Test
+   public void exportIsIdenticalRegardlessOfThreadCount() throws Exception
+   {
+      final ExecutorService single = Executors.newSingleThreadExecutor();
+      final ExecutorService several = Executors.newFixedThreadPool(4);
+      try
+      {
+         // Export the same content with each
+         final File tempDirectory = createTempDirectory("exportIsIdenticalRegardlessOfThreadCount");
+         final File singleExported = new File(tempDirectory, "single" + EXTENSION);
+         final File severalExported = new File(tempDirectory, "several" + EXTENSION);
+         this.createArchiveWithManyEntries(single).as(ZipExporter.class).exportTo(singleExported);
+         this.createArchiveWithManyEntries(several).as(ZipExporter.class).exportTo(severalExported);
+
+         // Compare entry by entry, in order
+         final ZipFile singleZip = new ZipFile(singleExported);
+         try
+         {
+            final ZipFile severalZip = new ZipFile(severalExported);
+            try
+            {
+               final List<? extends ZipEntry> singleEntries = Collections.list(singleZip.entries());
+               final List<? extends ZipEntry> severalEntries = Collections.list(severalZip.entries());
+               Assert.assertEquals("Exports should have the same number of entries", singleEntries.size(),
+                     severalEntries.size());
+               for (int i = 0; i < singleEntries.size(); i++)
+               {
+                  final ZipEntry expected = singleEntries.get(i);
+                  final ZipEntry actual = severalEntries.get(i);
+                  Assert.assertEquals("Entries should be in the same order", expected.getName(), actual.getName());
+                  Assert.assertEquals("Entries should have the same method", expected.getMethod(), actual
+                        .getMethod());
+                  Assert.assertEquals("Entries should have the same CRC", expected.getCrc(), actual.getCrc());
+                  Assert.assertEquals("Entries should compress the same", expected.getCompressedSize(),
+                        actual.getCompressedSize());
+               }
+            }
+            finally
+            {
+               severalZip.close();
+            }
+         }
+         finally
+         {
+            singleZip.close();
+         }
+
+         // And in total
+         Assert.assertEquals("Exports should have the same size", singleExported.length(), severalExported.length());
+      }
+      finally
+      {
+         single.shutdown();
+         several.shutdown();
+      }
+   }
+
+   /**
+    * Ensures that the modification time of an {@link Asset} able to
+    * report it is preserved in the exported entry
+    * @throws Exception
+    */
+   @Test
+   public void exportPreservesLastModified() throws Exception
+   {
+      // Make a file with a known modification time
+      final File tempDirectory = createTempDirectory("exportPreservesLastModified");
+      final File file = new File(tempDirectory, "content.txt");
+      IOUtil.copyWithClose(new ByteArrayInputStream(new byte[]
+      {1, 2, 3}), new FileOutputStream(file));
+      final long lastModified = 1000000000000L;
+      file.setLastModified(lastModified);
+
+      // Export
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE + EXTENSION).add(
+            new FileAsset(file), "content.txt");
+      final File exported = new File(tempDirectory, archive.getName());
+      archive.as(ZipExporter.class).exportTo(exported);
+
+      // ZIP times have a resolution of 2 seconds
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         final long time = zip.getEntry("content.txt").getTime();
+         Assert.assertTrue("Modification time should be preserved, was " + time,
+               Math.abs(time - file.lastModified()) <= 2000);
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Ensures that the {@link ZipCompression} policy decides how each entry is compressed,
+    * rules first, then (if so configured) whether the content is already compressed
+    * @throws Exception
+    */
+   @Test
+   public void exportAppliesCompressionPolicy() throws Exception
+   {
+      final ZipCompression policy = ZipCompression.deflate(ZipCompression.BEST_SPEED).forPaths(
+            ZipCompression.STORED, new Filter<ArchivePath>()
+            {
+               @Override
+               public boolean include(final ArchivePath object)
+               {
+                  return object.get().startsWith("/stored/");
+               }
+            }).forExtensions(ZipCompression.STORED, "PNG").storeCompressedAssets(true);
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().zipCompression(policy).build());
+      final JavaArchive nested = domain.getArchiveFactory().create(JavaArchive.class, "nested.jar").add(
+            new StringAsset("nested"), "nested.txt");
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class, NAME_ARCHIVE + EXTENSION)
+            .add(new StringAsset("deflated"), "deflated.txt").add(new StringAsset("stored"), "stored/stored.txt")
+            .add(new ByteArrayAsset(new byte[]
+            {1, 2, 3}), "image.png").add(nested, ArchivePaths.root(), ZipExporter.class);
+
+      final File exported = new File(createTempDirectory("exportAppliesCompressionPolicy"), archive.getName());
+      archive.as(ZipExporter.class).exportTo(exported);
+
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         Assert.assertEquals(ZipEntry.DEFLATED, zip.getEntry("deflated.txt").getMethod());
+         Assert.assertEquals("Rules for paths should apply", ZipEntry.STORED, zip.getEntry("stored/stored.txt")
+               .getMethod());
+         Assert.assertEquals("Rules for extensions should apply", ZipEntry.STORED, zip.getEntry("image.png")
+               .getMethod());
+         Assert.assertEquals("Nested archives should be stored", ZipEntry.STORED, zip.getEntry("nested.jar")
+               .getMethod());
+         Assert.assertEquals("stored", new String(IOUtil.asByteArray(zip.getInputStream(zip
+               .getEntry("stored/stored.txt")))));
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Ensures that the default {@link ZipCompression} policy deflates all entries,
+    * including those already compressed
+    * @throws Exception
+    */
+   @Test
+   public void exportDeflatesAllByDefault() throws Exception
+   {
+      final JavaArchive nested = ShrinkWrap.create(JavaArchive.class, "nested.jar").add(new StringAsset("nested"),
+            "nested.txt");
+      final Archive<?> archive = ShrinkWrap.create(JavaArchive.class, NAME_ARCHIVE + EXTENSION).add(
+            new StringAsset("deflated"), "deflated.txt").add(nested, ArchivePaths.root(), ZipExporter.class);
+
+      final File exported = new File(createTempDirectory("exportDeflatesAllByDefault"), archive.getName());
+      archive.as(ZipExporter.class).exportTo(exported);
+
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         Assert.assertEquals(ZipEntry.DEFLATED, zip.getEntry("deflated.txt").getMethod());
+         Assert.assertEquals("Nested archives should be deflated", ZipEntry.DEFLATED, zip.getEntry("nested.jar")
+               .getMethod());
+      }
+      finally
+      {
+         zip.close();
+      }
+   }
+
+   /**
+    * Ensures that all entries are stored under the fast local deploy profile, including 
+    * those too large to be buffered whether or not their checksum is known up front, 
+    * and that the result may be read via both the central directory and the local headers
+    * @throws Exception
+    */
+   @Test
+   public void exportStoredProfile() throws Exception
+   {
+      final byte[] large = new byte[9 * 1024 * 1024];
+      for (int i = 0; i < large.length; i++)
+      {
+         large[i] = (byte) (i % 251);
+      }
+      // Of known size, but unknown checksum
+      final File tempDirectory = createTempDirectory("exportStoredProfile");
+      final File file = new File(tempDirectory, "file.bin");
+      IOUtil.copyWithClose(new ByteArrayInputStream(large), new FileOutputStream(file));
+
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().zipCompression(
+            ZipCompression.store()).build());
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class, NAME_ARCHIVE + EXTENSION)
+            .add(new StringAsset("small"), "small.txt").add(new ByteArrayAsset(large), "known.bin").add(
+                  new FileAsset(file), "file.bin").add(new Asset()
+            {
+               @Override
+               public InputStream openStream()
+               {
+                  return new ByteArrayInputStream(large);
+               }
+            }, "unknown.bin").add(new StringAsset("last"), "last.txt");
+
+      final File exported = new File(tempDirectory, archive.getName());
+      archive.as(ZipExporter.class).exportTo(exported);
+
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         for (final String name : new String[]
+         {"small.txt", "known.bin", "file.bin", "unknown.bin", "last.txt"})
+         {
+            Assert.assertEquals(name + " should be stored", ZipEntry.STORED, zip.getEntry(name).getMethod());
+         }
+         Assert.assertArrayEquals(large, IOUtil.asByteArray(zip.getInputStream(zip.getEntry("file.bin"))));
+         Assert.assertArrayEquals(large, IOUtil.asByteArray(zip.getInputStream(zip.getEntry("unknown.bin"))));
+      }
+      finally
+      {
+         zip.close();
+      }
+
+      final ZipInputStream zis = new ZipInputStream(new FileInputStream(exported));
+      try
+      {
+         int entries = 0;
+         ZipEntry entry;
+         while ((entry = zis.getNextEntry()) != null)
+         {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            IOUtil.copy(zis, content);
+            if (entry.getName().endsWith(".bin"))
+            {
+               Assert.assertArrayEquals(large, content.toByteArray());
+            }
+            entries++;
+         }
+         Assert.assertEquals(5, entries);
+      }
+      finally
+      {
+         zis.close();
+      }
+   }
+
+   /**
+    * Ensures that entries of a ZIP imported as a memory-mapped view are copied
+    * as stored, rather than inflated and deflated again
+    * @throws Exception
+    */
+   @Test
+   public void exportPassesThroughMappedEntries() throws Exception
+   {
+      // Deflated at a level the export would not use
+      final File tempDirectory = createTempDirectory("exportPassesThroughMappedEntries");
+      final File source = new File(tempDirectory, "source.jar");
+      final byte[] content = new byte[64 * 1024];
+      for (int i = 0; i < content.length; i++)
+      {
+         content[i] = (byte) (i * i % 251);
+      }
+      final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(source));
+      try
+      {
+         zos.setLevel(Deflater.BEST_SPEED);
+         zos.putNextEntry(new ZipEntry("deflated.bin"));
+         zos.write(content);
+      }
+      finally
+      {
+         zos.close();
+      }
+
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().mappedZipImport(true));
+      final Archive<?> archive = domain.getArchiveFactory().create(ZipImporter.class, "source.jar").importFrom(
+            source).as(JavaArchive.class);
+      final Asset asset = archive.get("deflated.bin").getAsset();
+      Assert.assertTrue("Mapped entry should be readable as stored", asset instanceof RawZipEntryAsset
+            && ((RawZipEntryAsset) asset).isRawContentAvailable());
+      final File exported = new File(tempDirectory, NAME_ARCHIVE + EXTENSION);
+      archive.as(ZipExporter.class).exportTo(exported);
+
+      final ZipFile sourceZip = new ZipFile(source);
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         final ZipEntry original = sourceZip.getEntry("deflated.bin");
+         final ZipEntry copied = zip.getEntry("deflated.bin");
+         Assert.assertEquals(original.getCrc(), copied.getCrc());
+         Assert.assertEquals("Entry should be copied as stored", original.getCompressedSize(), copied
+               .getCompressedSize());
+         Assert.assertArrayEquals(content, IOUtil.asByteArray(zip.getInputStream(copied)));
+      }
+      finally
+      {
+         zip.close();
+         sourceZip.close();
+      }
+   }
+
+   /**
+    * Ensures that entries imported from a ZIP and left unchanged are copied
+    * as stored, alongside new content
+    * @throws Exception
+    */
+   @Test
+   public void exportPassesThroughImportedEntries() throws Exception
+   {
+      // Make a ZIP with both a deflated and a stored entry
+      final File tempDirectory = createTempDirectory("exportPassesThroughImportedEntries");
+      final File source = new File(tempDirectory, "source.jar");
+      final byte[] deflated = new byte[64 * 1024];
+      for (int i = 0; i < deflated.length; i++)
+      {
+         deflated[i] = (byte) (i % 13);
+      }
+      final byte[] stored = "stored content".getBytes();
+      final ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(source));
+      try
+      {
+         zos.putNextEntry(new ZipEntry("deflated.bin"));
+         zos.write(deflated);
+         final ZipEntry storedEntry = new ZipEntry("stored.jar");
+         final CRC32 crc = new CRC32();
+         crc.update(stored);
+         storedEntry.setMethod(ZipEntry.STORED);
+         storedEntry.setSize(stored.length);
+         storedEntry.setCrc(crc.getValue());
+         zos.putNextEntry(storedEntry);
+         zos.write(stored);
+      }
+      finally
+      {
+         zos.close();
+      }
+
+      // Import, add to, and export again, storing what's stored already
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().zipCompression(
+            ZipCompression.deflate().storeCompressedAssets(true)));
+      final ZipFile sourceZip = new ZipFile(source);
+      final File exported = new File(tempDirectory, NAME_ARCHIVE + EXTENSION);
+      try
+      {
+         final Archive<?> archive = domain.getArchiveFactory().create(ZipImporter.class, "source.jar").importFrom(
+               sourceZip).as(JavaArchive.class);
+         archive.add(new StringAsset("added"), "added.txt");
+         archive.as(ZipExporter.class).exportTo(exported);
+      }
+      finally
+      {
+         sourceZip.close();
+      }
+
+      // Entries should be as they were, and readable
+      final ZipFile sourceAgain = new ZipFile(source);
+      final ZipFile zip = new ZipFile(exported);
+      try
+      {
+         for (final String name : new String[]
+         {"deflated.bin", "stored.jar"})
+         {
+            final ZipEntry original = sourceAgain.getEntry(name);
+            final ZipEntry copied = zip.getEntry(name);
+            Assert.assertNotNull(name + " should be exported", copied);
+            Assert.assertEquals(original.getMethod(), copied.getMethod());
+            Assert.assertEquals(original.getCrc(), copied.getCrc());
+            Assert.assertEquals(original.getCompressedSize(), copied.getCompressedSize());
+         }
+         Assert.assertArrayEquals(deflated, IOUtil.asByteArray(zip.getInputStream(zip.getEntry("deflated.bin"))));
+         Assert.assertArrayEquals(stored, IOUtil.asByteArray(zip.getInputStream(zip.getEntry("stored.jar"))));
+         Assert.assertEquals("added", new String(IOUtil.asByteArray(zip.getInputStream(zip.getEntry("added.txt")))));
+      }
+      finally
+      {
+         zip.close();
+         sourceAgain.close();
+      }
+
+      // And via the local headers
+      final ZipInputStream zis = new ZipInputStream(new FileInputStream(exported));
+      try
+      {
+         int entries = 0;
+         ZipEntry entry;
+         while ((entry = zis.getNextEntry()) != null)
+         {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            IOUtil.copy(zis, content);
+            if (entry.getName().equals("deflated.bin"))
+            {
+               Assert.assertArrayEquals(deflated, content.toByteArray());
+            }
+            entries++;
+         }
+         Assert.assertEquals(3, entries);
+      }
+      finally
+      {
+         zis.close();
+      }
+   }
+
+   /**
+    * Ensures that an entry whose name is too long for its headers to be assembled 
+    * in one piece is exported correctly amongst other entries
+    * @throws Exception
+    */
+   @Test
+   public void exportLongName() throws Exception
+   {
+      final StringBuilder name = new StringBuilder();
+      while (name.length() < 10000)
+      {
+         name.append("directory/");
+      }
+      final ArchivePath longPath = ArchivePaths.create(name.append("long.txt").toString());
+      final Archive<?> archive = createArchiveWithAssets().add(new StringAsset("long"), longPath);
+
+      // Export
+      final File tempDirectory = createTempDirectory("exportLongName");
+      final File exported = new File(tempDirectory, NAME_ARCHIVE + EXTENSION);
+      archive.as(ZipExporter.class).exportTo(exported, true);
+
+      // Read back via both the central directory and the local headers
+      this.ensureInExpectedForm(exported);
+      Assert.assertEquals("Long-named entry not exported as expected", "long", new String(IOUtil.asByteArray(this
+            .getContentsFromExportedFile(exported, longPath))));
+      final ZipInputStream in = new ZipInputStream(new FileInputStream(exported));
+      try
+      {
+         int count = 0;
+         while (in.getNextEntry() != null)
+         {
+            count++;
+         }
+         Assert.assertEquals("All entries should be read back", archive.getContent().size(), count);
+      }
+      finally
+      {
+         in.close();
+      }
+   }
+
+   /**
+    * Ensures that an entry too large to be buffered for compression is
+    * exported correctly amongst smaller entries
+    * @throws Exception
+    */
+   @Test
+   public void exportLargeAsset() throws Exception
+   {
+      // Larger than the limit at which the exporter buffers content
+      final byte[] content = new byte[9 * 1024 * 1024];
+      for (int i = 0; i < content.length; i++)
+      {
+         content[i] = (byte) (i % 251);
+      }
+      final ArchivePath largePath = ArchivePaths.create("large.bin");
+      final Archive<?> archive = createArchiveWithAssets().add(new ByteArrayAsset(content), largePath);
+      archive.add(new StringAsset("after"), "after.txt");
+
+      // Export
+      final File tempDirectory = createTempDirectory("exportLargeAsset");
+      final File exported = new File(tempDirectory, NAME_ARCHIVE + EXTENSION);
+      archive.as(ZipExporter.class).exportTo(exported, true);
+
+      // Read back via both the central directory and the local headers
+      this.ensureInExpectedForm(exported);
+      Assert.assertArrayEquals("Large entry not exported as expected", content, IOUtil.asByteArray(this
+            .getContentsFromExportedFile(exported, largePath)));
+      final ZipInputStream in = new ZipInputStream(new FileInputStream(exported));
+      int count = 0;
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null)
+      {
+         final byte[] read = IOUtil.asByteArray(new FilterInputStream(in)
+         {
+            @Override
+            public void close() throws IOException
+            {
+               // Leave the ZIP stream open for the next entry
+            }
+         });
+         if (entry.getName().equals("large.bin"))
+         {
+            Assert.assertArrayEquals("Large entry not read back as expected", content, read);
+            // Sizes fit, so neither the local header nor the data descriptor is in ZIP64 form
+            Assert.assertNull("Large entry should not announce ZIP64 in its local header", entry.getExtra());
+         }
+         count++;
+      }
+      in.close();
+      Assert.assertEquals("All entries should be read back", archive.getContent().size(), count);
+   }
+
+   /**
+    * Test to ensure that the {@link ZipExporterDelegate} does not accept 
     * an empty archive as input
     * 
     * SHRINKWRAP-93
@@ -140,6 +672,28 @@ public final class ZipExporterTestCase extends StreamExporterTestBase
    // Internal Helper Methods ------------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
 
+   /**
+    * Creates an archive with enough entries to keep several Threads busy, 
+    * configured to use the specified {@link ExecutorService}
+    * @param service
+    * @return
+    */
+   private Archive<?> createArchiveWithManyEntries(final ExecutorService service)
+   {
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().executorService(service).build());
+      final Archive<?> archive = domain.getArchiveFactory().create(JavaArchive.class, NAME_ARCHIVE + EXTENSION);
+      for (int i = 0; i < 64; i++)
+      {
+         final StringBuilder content = new StringBuilder();
+         for (int j = 0; j < i * 100; j++)
+         {
+            content.append("Line ").append(j).append(" of entry ").append(i).append('\n');
+         }
+         archive.add(new StringAsset(content.toString()), "dir" + (i % 5) + "/entry" + i + ".txt");
+      }
+      return archive;
+   }
+
    /**
     * Ensures that the specified {@link ZipFile} contains entries
     * in the expected form
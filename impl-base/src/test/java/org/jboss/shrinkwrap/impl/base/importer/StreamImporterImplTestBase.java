@@ -26,6 +26,8 @@ import junit.framework.Assert;
 
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
 import org.jboss.shrinkwrap.api.GenericArchive;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
@@ -191,6 +193,36 @@ public abstract class StreamImporterImplTestBase<T extends StreamImporter<T>>
       delegate.assertContent(archive, testFile);
    }
 
+   /**
+    * Ensures that content imported from a stream is intact when written
+    * to a temporary file rather than held in memory
+    * @throws Exception
+    */
+   @Test
+   public void shouldBeAbleToImportInputStreamSpillingToDisk() throws Exception
+   {
+      final ContentAssertionDelegateBase delegate = this.getDelegate();
+      assert delegate != null : "Delegate must be specified by implementations";
+      final File testFile = delegate.getExistingResource();
+
+      // Spill all but the smallest entries, and all once a few have been held
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().spillingImport(true).spillThreshold(
+            16).importHeapBudget(32));
+      final InputStream stream = new FileInputStream(testFile);
+      final Archive<?> archive;
+      try
+      {
+         archive = domain.getArchiveFactory().create(this.getImporterClass(), "test.jar").importFrom(stream).as(
+               GenericArchive.class);
+      }
+      finally
+      {
+         stream.close();
+      }
+
+      delegate.assertContent(archive, testFile);
+   }
+
    /**
     * Ensures that an import of {@link InputStream} results in {@link ArchiveImportException}
     * if an unexpected error occurred.
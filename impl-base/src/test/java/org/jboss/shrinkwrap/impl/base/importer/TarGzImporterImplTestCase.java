@@ -18,16 +18,23 @@ package org.jboss.shrinkwrap.impl.base.importer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
 
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
 import org.jboss.shrinkwrap.api.importer.TarGzImporter;
 import org.jboss.shrinkwrap.impl.base.importer.tar.TarGzImporterImpl;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarGzInputStream;
+import org.junit.Test;
 
 /**
  * TestCase to verify the {@link TarGzImporterImpl} functionality.
@@ -52,6 +59,36 @@ public class TarGzImporterImplTestCase extends StreamImporterImplTestBase<TarGzI
     */
    private static final TarGzContentAssertionDelegate delegate = new TarGzContentAssertionDelegate();
 
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that a file written as many GZIP members, and so imported as an index 
+    * of its entries, has the expected content; as does one which may not be indexed
+    * @throws Exception
+    */
+   @Test
+   public void shouldImportIndexedFile() throws Exception
+   {
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().indexedTarImport(true)
+            .multiMemberGzip(true).compressionBlockSize(1024));
+
+      // A single member
+      final File testFile = delegate.getExistingResource();
+      final Archive<?> imported = domain.getArchiveFactory().create(TarGzImporter.class, "test.tar.gz").importFrom(
+            testFile).as(GenericArchive.class);
+      delegate.assertContent(imported, testFile);
+
+      // Many members
+      final File exported = new File("target/testOutput-indexed.tar.gz");
+      exported.deleteOnExit();
+      imported.as(TarGzExporter.class).exportTo(exported, true);
+      final Archive<?> archive = domain.getArchiveFactory().create(TarGzImporter.class, "test.tar.gz").importFrom(
+            exported).as(GenericArchive.class);
+      delegate.assertContent(archive, exported);
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -17,15 +17,21 @@
 package org.jboss.shrinkwrap.impl.base.importer;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.logging.Logger;
 
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.TarExporter;
 import org.jboss.shrinkwrap.api.importer.TarImporter;
 import org.jboss.shrinkwrap.impl.base.importer.tar.TarImporterImpl;
 import org.jboss.shrinkwrap.impl.base.io.tar.TarInputStream;
+import org.junit.Test;
 
 /**
  * TestCase to verify the {@link TarImporterImpl} functionality.
@@ -51,6 +57,24 @@ public class TarImporterImplTestCase extends StreamImporterImplTestBase<TarImpor
     */
    private static final TarContentAssertionDelegate delegate = new TarContentAssertionDelegate();
 
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that a file imported as an index of its entries has the expected content
+    * @throws Exception
+    */
+   @Test
+   public void shouldImportIndexedFile() throws Exception
+   {
+      final File testFile = delegate.getExistingResource();
+      final Archive<?> archive = ShrinkWrap.createDomain(new ConfigurationBuilder().indexedTarImport(true))
+            .getArchiveFactory().create(TarImporter.class, "test.tar").importFrom(testFile).as(GenericArchive.class);
+
+      delegate.assertContent(archive, testFile);
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -19,17 +19,30 @@ package org.jboss.shrinkwrap.impl.base.importer;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
 import org.jboss.shrinkwrap.api.exporter.StreamExporter;
 import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.importer.ArchiveImportException;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -83,6 +96,155 @@ public class ZipImporterImplTestCase extends StreamImporterImplTestBase<ZipImpor
       ShrinkWrap.create(ZipImporter.class, "test.jar").importFrom(testZip).as(JavaArchive.class);
    }
 
+   /**
+    * Ensures that a file imported as a memory-mapped view has the same content
+    * as one imported entry by entry
+    * @throws Exception
+    */
+   @Test
+   public void shouldImportMappedFile() throws Exception
+   {
+      final File testFile = this.getDelegate().getExistingResource();
+      final Archive<?> archive = createMappedDomain().getArchiveFactory().create(ZipImporter.class, "test.jar")
+            .importFrom(testFile).as(JavaArchive.class);
+
+      delegate.assertContent(archive, testFile);
+      assertSameContent(ShrinkWrap.create(ZipImporter.class, "test.jar").importFrom(testFile).as(JavaArchive.class),
+            archive);
+   }
+
+   /**
+    * Ensures that entries of a file imported as a memory-mapped view may be read
+    * one by one, and replaced or deleted as any other
+    * @throws Exception
+    */
+   @Test
+   public void shouldOverlayChangesOnMappedFile() throws Exception
+   {
+      final File testFile = this.getDelegate().getExistingResource();
+      final Archive<?> eager = ShrinkWrap.create(ZipImporter.class, "test.jar").importFrom(testFile).as(
+            JavaArchive.class);
+      final Archive<?> archive = createMappedDomain().getArchiveFactory().create(ZipImporter.class, "test.jar")
+            .importFrom(new ZipFile(testFile)).as(JavaArchive.class);
+
+      // Pick a file, and the directory of another not holding the first
+      ArchivePath replaced = null;
+      ArchivePath deleted = null;
+      for (final Map.Entry<ArchivePath, Node> entry : eager.getContent().entrySet())
+      {
+         if (entry.getValue().getAsset() == null)
+         {
+            continue;
+         }
+         if (replaced == null)
+         {
+            replaced = entry.getKey();
+         }
+         else if (deleted == null && !replaced.get().startsWith(entry.getKey().getParent().get() + "/"))
+         {
+            deleted = entry.getKey().getParent();
+         }
+      }
+      Assert.assertNotNull("Test archive should contain a file", replaced);
+      Assert.assertNotNull("Test archive should contain a file in another directory", deleted);
+
+      // Read without importing the rest
+      Assert.assertTrue(archive.contains(replaced));
+      Assert.assertTrue(archive.contains(deleted));
+      Assert.assertTrue("Content should be that of the file", Arrays.equals(read(eager.get(replaced).getAsset()),
+            read(archive.get(replaced).getAsset())));
+
+      archive.add(new StringAsset("replaced"), replaced);
+      Assert.assertTrue(archive.delete(deleted));
+      final ArchivePath added = ArchivePaths.create("added.txt");
+      archive.add(new StringAsset("added"), added);
+
+      Assert.assertEquals("replaced", new String(read(archive.get(replaced).getAsset())));
+      Assert.assertFalse("Deleted content should not be mapped again", archive.contains(deleted));
+      Assert.assertNull(archive.get(deleted));
+      Assert.assertFalse("Deleted content should not be mapped again", archive.getContent().containsKey(deleted));
+      Assert.assertEquals("added", new String(read(archive.get(added).getAsset())));
+
+      // Apply the same to the eager import
+      eager.add(new StringAsset("replaced"), replaced);
+      eager.delete(deleted);
+      eager.add(new StringAsset("added"), added);
+      assertSameContent(eager, archive);
+   }
+
+   /**
+    * Ensures that a file whose entries lie outside of it is rejected when imported as a
+   * memory-mapped view, rather than upon reading the entry
+    * @throws Exception
+    */
+   @Test(expected = ArchiveImportException.class)
+   public void shouldRejectMappedFileOfMalformedEntry() throws Exception
+   {
+      final File file = File.createTempFile("malformed", ".jar");
+      file.deleteOnExit();
+      ShrinkWrap.create(JavaArchive.class).add(new StringAsset("content"), "entry.txt").as(ZipExporter.class)
+            .exportTo(file, true);
+
+      // Point the central directory header at a local header beyond the end
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try
+      {
+         final byte[] bytes = new byte[(int) raf.length()];
+         raf.readFully(bytes);
+         for (int i = bytes.length - 4; i >= 0; i--)
+         {
+            if (bytes[i] == 0x50 && bytes[i + 1] == 0x4b && bytes[i + 2] == 0x01 && bytes[i + 3] == 0x02)
+            {
+               raf.seek(i + 42);
+               raf.write(new byte[]
+               {(byte) 0xf0, (byte) 0xff, (byte) 0xff, 0x7f});
+               break;
+            }
+         }
+      }
+      finally
+      {
+         raf.close();
+      }
+
+      createMappedDomain().getArchiveFactory().create(ZipImporter.class, "test.jar").importFrom(file);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static Domain createMappedDomain()
+   {
+      return ShrinkWrap.createDomain(new ConfigurationBuilder().mappedZipImport(true));
+   }
+
+   private static void assertSameContent(final Archive<?> expected, final Archive<?> actual)
+   {
+      final Map<ArchivePath, Node> expectedContent = expected.getContent();
+      final Map<ArchivePath, Node> actualContent = actual.getContent();
+      Assert.assertEquals("Archives should have the same paths", expectedContent.keySet(), actualContent.keySet());
+      for (final Map.Entry<ArchivePath, Node> entry : expectedContent.entrySet())
+      {
+         final Asset expectedAsset = entry.getValue().getAsset();
+         final Asset actualAsset = actualContent.get(entry.getKey()).getAsset();
+         Assert.assertEquals("Both or neither should be directories: " + entry.getKey(), expectedAsset == null,
+               actualAsset == null);
+         if (expectedAsset != null)
+         {
+            Assert.assertTrue("Content should be the same: " + entry.getKey(), Arrays.equals(read(expectedAsset),
+                  read(actualAsset)));
+         }
+         Assert.assertEquals("Children should be the same: " + entry.getKey(), entry.getValue().getChildren(),
+               actualContent.get(entry.getKey()).getChildren());
+      }
+   }
+
+   private static byte[] read(final Asset asset)
+   {
+      return IOUtil.asByteArray(asset.openStream());
+   }
+
    //-------------------------------------------------------------------------------------||
    // Required Implementations -----------------------------------------------------------||
    //-------------------------------------------------------------------------------------||
@@ -0,0 +1,162 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.importer.tar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.GenericArchive;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.exporter.TarExporter;
+import org.jboss.shrinkwrap.api.exporter.TarGzExporter;
+import org.jboss.shrinkwrap.impl.base.io.CodecPool;
+import org.jboss.shrinkwrap.impl.base.io.IOUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link TarFileIndex} reads the content of each entry
+ * from the file, compressed or not
+ *
+ * @version $Revision: $
+ */
+public class TarFileIndexTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Number of entries in the archives tested
+    */
+   private static final int ENTRIES = 20;
+
+   /**
+    * Length of the content of each entry
+    */
+   private static final int ENTRY_SIZE = 3000;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that each entry of an uncompressed TAR is read intact
+    * @throws Exception
+    */
+   @Test
+   public void indexesTar() throws Exception
+   {
+      final File file = createTempFile(".tar");
+      createArchive().as(TarExporter.class).exportTo(file, true);
+      assertIndexed(TarFileIndex.index(file));
+   }
+
+   /**
+    * Ensures that each entry of a TAR.GZ written as many members is read intact,
+    * and in any order
+    * @throws Exception
+    */
+   @Test
+   public void indexesTarGzOfManyMembers() throws Exception
+   {
+      final File file = createTempFile(".tar.gz");
+      ShrinkWrap.createDomain(new ConfigurationBuilder().multiMemberGzip(true).compressionBlockSize(
+            1024)).getArchiveFactory().create(
+            GenericArchive.class, "test.tar.gz").merge(createArchive()).as(TarGzExporter.class).exportTo(file, true);
+      assertIndexed(TarFileIndex.indexGzip(file, CodecPool.shared()));
+   }
+
+   /**
+    * Ensures that a TAR.GZ whose members are too far apart is not indexed
+    * @throws Exception
+    */
+   @Test
+   public void doesNotIndexTarGzOfSparseMembers() throws Exception
+   {
+      final File file = createTempFile(".tar.gz");
+      final GenericArchive archive = createArchive();
+      archive.add(new ByteArrayAsset(new byte[(int) TarFileIndex.MAX_CHECKPOINT_DISTANCE + 1]), "large");
+      final OutputStream out = new GZIPOutputStream(new FileOutputStream(file));
+      try
+      {
+         // A single member
+         IOUtil.copy(archive.as(TarExporter.class).exportAsInputStream(), out);
+      }
+      finally
+      {
+         out.close();
+      }
+      Assert.assertNull("Entries beyond a checkpoint should not be indexed", TarFileIndex.indexGzip(file, CodecPool
+            .shared()));
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static GenericArchive createArchive()
+   {
+      final GenericArchive archive = ShrinkWrap.create(GenericArchive.class, "test.tar");
+      for (int i = 0; i < ENTRIES; i++)
+      {
+         archive.add(new ByteArrayAsset(createContent(i)), "dir/entry" + i);
+      }
+      return archive;
+   }
+
+   private static void assertIndexed(final TarFileIndex index) throws IOException
+   {
+      Assert.assertNotNull("File should be indexed", index);
+      int found = 0;
+      for (int i = index.size() - 1; i >= 0; i--)
+      {
+         if (index.isDirectory(i))
+         {
+            continue;
+         }
+         final String name = index.getName(i);
+         final int number = Integer.parseInt(name.substring(name.indexOf("entry") + 5));
+         Assert.assertArrayEquals("Content should be read intact: " + name, createContent(number), IOUtil
+               .asByteArray(index.getAsset(i).openStream()));
+         found++;
+      }
+      Assert.assertEquals("All entries should be indexed", ENTRIES, found);
+   }
+
+   private static byte[] createContent(final int seed)
+   {
+      final byte[] content = new byte[ENTRY_SIZE];
+      for (int i = 0; i < content.length; i++)
+      {
+         content[i] = (byte) (i * 31 + seed);
+      }
+      return content;
+   }
+
+   private static File createTempFile(final String suffix) throws IOException
+   {
+      final File file = File.createTempFile("tarFileIndex", suffix);
+      file.deleteOnExit();
+      return file;
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link FileBackedOutputStream} replays its content
+ * whether held in memory or on disk
+ *
+ * @version $Revision: $
+ */
+public class FileBackedOutputStreamTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Bytes held in memory
+    */
+   private static final int THRESHOLD = 64;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures content below the threshold is replayed intact
+    * @throws Exception
+    */
+   @Test
+   public void replaysContentInMemory() throws Exception
+   {
+      assertReplayed(createContent(THRESHOLD));
+   }
+
+   /**
+    * Ensures content beyond the threshold is replayed intact
+    * @throws Exception
+    */
+   @Test
+   public void replaysContentBeyondThreshold() throws Exception
+   {
+      assertReplayed(createContent(THRESHOLD * 100 + 7));
+   }
+
+   /**
+    * Ensures that content is discarded upon reset, and the 
+    * stream may be reused
+    * @throws Exception
+    */
+   @Test
+   public void resetDiscardsContent() throws Exception
+   {
+      final FileBackedOutputStream out = new FileBackedOutputStream(THRESHOLD);
+      try
+      {
+         out.write(createContent(THRESHOLD * 2));
+         out.reset();
+         Assert.assertEquals("Reset should discard all content", 0, out.size());
+
+         final byte[] content = createContent(THRESHOLD / 2);
+         out.write(content);
+         Assert.assertArrayEquals("Content written after reset should be replayed", content, replay(out));
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static void assertReplayed(final byte[] content) throws IOException
+   {
+      final FileBackedOutputStream out = new FileBackedOutputStream(THRESHOLD);
+      try
+      {
+         // Mix single bytes and arrays
+         out.write(content[0]);
+         out.write(content, 1, content.length - 1);
+         Assert.assertEquals("Size should match content written", content.length, out.size());
+
+         // Replay more than once
+         Assert.assertArrayEquals("Content should be replayed intact", content, replay(out));
+         Assert.assertArrayEquals("Content should be replayed intact again", content, replay(out));
+      }
+      finally
+      {
+         out.close();
+      }
+   }
+
+   private static byte[] replay(final FileBackedOutputStream out) throws IOException
+   {
+      final ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+      out.writeTo(replayed);
+      return replayed.toByteArray();
+   }
+
+   private static byte[] createContent(final int length)
+   {
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) i;
+      }
+      return content;
+   }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link ParallelGzipOutputStream} writes valid, 
+ * deterministic GZIP
+ *
+ * @version $Revision: $
+ */
+public class ParallelGzipOutputStreamTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Size of the blocks in which content is compressed
+    */
+   private static final int BLOCK_SIZE = 4096;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that content spanning many blocks is read back intact by 
+    * {@link GZIPInputStream}
+    * @throws Exception
+    */
+   @Test
+   public void roundTripsManyBlocks() throws Exception
+   {
+      final byte[] content = createContent(BLOCK_SIZE * 10 + 123);
+      final ExecutorService service = Executors.newFixedThreadPool(4);
+      try
+      {
+         final byte[] compressed = compress(content, service, 4);
+         Assert.assertArrayEquals("Content should survive compression", content, decompress(compressed));
+      }
+      finally
+      {
+         service.shutdown();
+      }
+   }
+
+   /**
+    * Ensures that the output does not depend upon the parallelism
+    * @throws Exception
+    */
+   @Test
+   public void outputIsIdenticalRegardlessOfParallelism() throws Exception
+   {
+      final byte[] content = createContent(BLOCK_SIZE * 7 + 5);
+      final ExecutorService service = Executors.newFixedThreadPool(4);
+      try
+      {
+         final byte[] serial = compress(content, null, 1);
+         final byte[] parallel = compress(content, service, 4);
+         Assert.assertArrayEquals("Output should not depend upon parallelism", serial, parallel);
+      }
+      finally
+      {
+         service.shutdown();
+      }
+   }
+
+   /**
+    * Ensures that no content still results in a valid GZIP stream
+    * @throws Exception
+    */
+   @Test
+   public void emptyContentIsValid() throws Exception
+   {
+      final byte[] compressed = compress(new byte[0], null, 1);
+      Assert.assertEquals("Empty content should decompress to nothing", 0, decompress(compressed).length);
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates compressible content of the specified length
+    */
+   private static byte[] createContent(final int length)
+   {
+      final Random random = new Random(length);
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) ('a' + random.nextInt(8));
+      }
+      return content;
+   }
+
+   private static byte[] compress(final byte[] content, final ExecutorService service, final int parallelism)
+         throws IOException
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, service, Deflater.DEFAULT_COMPRESSION,
+            BLOCK_SIZE, parallelism);
+      // Write in uneven pieces to cross block boundaries
+      int offset = 0;
+      while (offset < content.length)
+      {
+         final int length = Math.min(1000, content.length - offset);
+         gzip.write(content, offset, length);
+         offset += length;
+      }
+      gzip.close();
+      return out.toByteArray();
+   }
+
+   private static byte[] decompress(final byte[] compressed) throws IOException
+   {
+      return IOUtil.asByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+   }
+}
@@ -0,0 +1,160 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link PooledGzipInputStream} reads single- and multi-member 
+ * GZIP, validates it, and hands back what it borrows from its {@link CodecPool}
+ *
+ * @version $Revision: $
+ */
+public class PooledGzipInputStreamTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Size of the blocks in which multi-member content is compressed
+    */
+   private static final int BLOCK_SIZE = 4096;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that content written as one member per block is read back intact
+    * @throws Exception
+    */
+   @Test
+   public void readsManyMembers() throws Exception
+   {
+      final byte[] content = createContent(BLOCK_SIZE * 5 + 17);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, null, Deflater.DEFAULT_COMPRESSION,
+            BLOCK_SIZE, 1);
+      gzip.write(content);
+      gzip.close();
+
+      Assert.assertArrayEquals("Content should survive all members", content, decompress(out.toByteArray(),
+            CodecPool.shared()));
+   }
+
+   /**
+    * Ensures that a single member written by {@link GZIPOutputStream} is read back intact
+    * @throws Exception
+    */
+   @Test
+   public void readsSingleMember() throws Exception
+   {
+      final byte[] content = createContent(10000);
+      Assert.assertArrayEquals("Content should survive", content, decompress(gzip(content), CodecPool.shared()));
+   }
+
+   /**
+    * Ensures that a member whose trailer doesn't match its content is rejected
+    * @throws Exception
+    */
+   @Test(expected = ZipException.class)
+   public void rejectsCorruptTrailer() throws Exception
+   {
+      final byte[] compressed = gzip(createContent(1000));
+      // Flip a bit of the CRC
+      compressed[compressed.length - 8] ^= 1;
+      decompress(compressed, CodecPool.shared());
+   }
+
+   /**
+    * Ensures that content which isn't GZIP is rejected up front
+    * @throws Exception
+    */
+   @Test(expected = ZipException.class)
+   public void rejectsNonGzip() throws Exception
+   {
+      new PooledGzipInputStream(new ByteArrayInputStream(new byte[]
+      {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}), CodecPool.shared());
+   }
+
+   /**
+    * Ensures that the {@link Inflater} is handed back once the stream is exhausted, 
+    * so that subsequent streams reuse it
+    * @throws Exception
+    */
+   @Test
+   public void returnsInflaterToPool() throws Exception
+   {
+      final CodecPool pool = CodecPool.of(new ConfigurationBuilder().build());
+      final Inflater inflater = pool.borrowInflater();
+      pool.returnInflater(inflater);
+
+      decompress(gzip(createContent(100)), pool);
+      Assert.assertSame("Inflater should have been reused and handed back", inflater, pool.borrowInflater());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Creates compressible content of the specified length
+    */
+   private static byte[] createContent(final int length)
+   {
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) ('a' + (i * 31 + i / 7) % 11);
+      }
+      return content;
+   }
+
+   private static byte[] gzip(final byte[] content) throws IOException
+   {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final GZIPOutputStream gzip = new GZIPOutputStream(out);
+      gzip.write(content);
+      gzip.close();
+      return out.toByteArray();
+   }
+
+   private static byte[] decompress(final byte[] compressed, final CodecPool pool) throws IOException
+   {
+      final PooledGzipInputStream in = new PooledGzipInputStream(new ByteArrayInputStream(compressed), pool);
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) != -1)
+      {
+         out.write(buffer, 0, read);
+      }
+      in.close();
+      return out.toByteArray();
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import org.jboss.shrinkwrap.api.asset.DescribableAsset;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Ensures that the {@link SpillStore} reads content intact whether
+ * held in memory or written to a temporary file
+ *
+ * @version $Revision: $
+ */
+public class SpillStoreTestCase
+{
+   //-------------------------------------------------------------------------------------||
+   // Class Members ----------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Bytes of a single entry held in memory
+    */
+   private static final int THRESHOLD = 64;
+
+   /**
+    * Bytes of all entries held in memory
+    */
+   private static final long HEAP_BUDGET = THRESHOLD * 2;
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures content within the threshold, of known or unknown size, is held in memory
+    * @throws Exception
+    */
+   @Test
+   public void holdsContentWithinThreshold() throws Exception
+   {
+      final SpillStore store = createStore();
+      final byte[] content = createContent(THRESHOLD);
+      assertRead(content, store.read(new ByteArrayInputStream(content), content.length, 5L));
+      assertRead(content, store.read(new ByteArrayInputStream(content), DescribableAsset.UNKNOWN,
+            DescribableAsset.UNKNOWN));
+      Assert.assertEquals("Both should be held in memory", THRESHOLD * 2, store.getHeapUsed());
+   }
+
+   /**
+    * Ensures content beyond the threshold, of known or unknown size, is read intact
+    * without being held in memory
+    * @throws Exception
+    */
+   @Test
+   public void spillsContentBeyondThreshold() throws Exception
+   {
+      final SpillStore store = createStore();
+      final byte[] content = createContent(CodecPool.BUFFER_SIZE * 2 + 7);
+      final DescribableAsset known = store.read(new ByteArrayInputStream(content), content.length, 5L);
+      final DescribableAsset unknown = store.read(new ByteArrayInputStream(content), DescribableAsset.UNKNOWN,
+            DescribableAsset.UNKNOWN);
+      Assert.assertEquals("Neither should be held in memory", 0, store.getHeapUsed());
+      assertRead(content, known);
+      assertRead(content, unknown);
+
+      // Read again, out of order
+      assertRead(content, unknown);
+      assertRead(content, known);
+   }
+
+   /**
+    * Ensures that content within the threshold is written to the temporary file
+    * once the heap budget is used up
+    * @throws Exception
+    */
+   @Test
+   public void spillsContentBeyondHeapBudget() throws Exception
+   {
+      final SpillStore store = createStore();
+      final byte[] content = createContent(THRESHOLD);
+      for (int i = 0; i < 4; i++)
+      {
+         assertRead(content, store.read(new ByteArrayInputStream(content), DescribableAsset.UNKNOWN,
+               DescribableAsset.UNKNOWN));
+      }
+      Assert.assertEquals("No more than the budget should be held in memory", HEAP_BUDGET, store.getHeapUsed());
+   }
+
+   /**
+    * Ensures that content declaring a size greater than it has is read intact, 
+    * without first allocating the size declared
+    * @throws Exception
+    */
+   @Test
+   public void doesNotTrustDeclaredSize() throws Exception
+   {
+      final SpillStore store = new SpillStore(Integer.MAX_VALUE, Long.MAX_VALUE, CodecPool.shared());
+      final byte[] content = createContent(SpillStore.MAX_PRESIZED_CAPACITY + 7);
+      assertRead(content, store.read(new ByteArrayInputStream(content), Integer.MAX_VALUE - 8,
+            DescribableAsset.UNKNOWN));
+   }
+
+   /**
+    * Ensures that the temporary file is deleted once its content is no longer referenced
+    * @throws Exception
+    */
+   @Test
+   public void deletesTemporaryFileOnceUnreferenced() throws Exception
+   {
+      DescribableAsset asset = createStore().read(new ByteArrayInputStream(createContent(THRESHOLD + 1)),
+            DescribableAsset.UNKNOWN, DescribableAsset.UNKNOWN);
+      final String description = asset.toString();
+      final File file = new File(description.substring(description.indexOf("file=") + 5, description
+            .indexOf(", start=")));
+      Assert.assertTrue("Content should be written to a temporary file", file.isFile());
+
+      asset = null;
+      for (int i = 0; i < 100 && file.exists(); i++)
+      {
+         System.gc();
+         Thread.sleep(50);
+      }
+      Assert.assertFalse("Temporary file should be deleted once unreferenced", file.exists());
+   }
+
+   //-------------------------------------------------------------------------------------||
+   // Internal Helper Methods ------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   private static SpillStore createStore()
+   {
+      return new SpillStore(THRESHOLD, HEAP_BUDGET, CodecPool.shared());
+   }
+
+   private static void assertRead(final byte[] content, final DescribableAsset asset) throws IOException
+   {
+      Assert.assertEquals("Size should be that of the content", content.length, asset.getSize());
+      Assert.assertArrayEquals("Content should be read intact", content, IOUtil.asByteArray(asset.openStream()));
+      final CRC32 crc = new CRC32();
+      crc.update(content);
+      Assert.assertEquals("CRC-32 should be that of the content", crc.getValue(), asset.getCrc32());
+   }
+
+   private static byte[] createContent(final int length)
+   {
+      final byte[] content = new byte[length];
+      for (int i = 0; i < length; i++)
+      {
+         content[i] = (byte) i;
+      }
+      return content;
+   }
+}
@@ -19,6 +19,8 @@ package org.jboss.shrinkwrap.impl.base.path;
 import java.util.logging.Logger;
 
 import org.jboss.shrinkwrap.api.ArchivePath;
+import org.junit.Assert;
+import org.junit.Test;
 
 /**
  * BasicPathTestCase
@@ -40,7 +42,6 @@ public class BasicPathTestCase extends PathsTestBase
    /**
     * Logger
     */
-   @SuppressWarnings("unused")
    private static final Logger log = Logger.getLogger(BasicPathTestCase.class.getName());
 
    //-------------------------------------------------------------------------------------||
@@ -97,4 +98,28 @@ public class BasicPathTestCase extends PathsTestBase
       return new BasicPath(base, context);
    }
 
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that the parent of a {@link BasicPath} is resolved 
+    * once and shared by subsequent calls
+    */
+   @Test
+   public void testParentResolvedOnce()
+   {
+      // Log
+      log.info("testParentResolvedOnce");
+
+      // Create a new path
+      final ArchivePath path = this.createPath("/dir/file");
+      final ArchivePath parent = path.getParent();
+
+      // Ensure expected
+      Assert.assertEquals("Parent should be resolved", this.createPath("/dir"), parent);
+      Assert.assertSame("Parent should be shared between calls", parent, path.getParent());
+      Assert.assertNull("Root should have no parent", this.createPath("/").getParent());
+   }
+
 }
@@ -0,0 +1,112 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2010, Red Hat Middleware LLC, and individual contributors
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.shrinkwrap.impl.base.path;
+
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.ConfigurationBuilder;
+import org.jboss.shrinkwrap.api.Domain;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests to ensure that the {@link PathInterner} shares 
+ * directory paths as contracted
+ *
+ * @version $Revision: $
+ */
+public class PathInternerTestCase
+{
+
+   //-------------------------------------------------------------------------------------||
+   // Tests ------------------------------------------------------------------------------||
+   //-------------------------------------------------------------------------------------||
+
+   /**
+    * Ensures that paths beneath equal directories share 
+    * their parent chain
+    */
+   @Test
+   public void shouldShareParents()
+   {
+      // Intern paths
+      final PathInterner interner = PathInterner.of(new ConfigurationBuilder().build());
+      final ArchivePath first = interner.intern(new BasicPath("/org/example/First.class"));
+      final ArchivePath second = interner.intern(new BasicPath("/org/example/Second.class"));
+
+      // Ensure expected
+      Assert.assertEquals("Interned path should be equal to the original", new BasicPath(
+            "/org/example/First.class"), first);
+      Assert.assertSame("Paths in the same directory should share their parent", first.getParent(), second
+            .getParent());
+      Assert.assertSame("Ancestors should be shared", first.getParent().getParent(), interner.intern(
+            new BasicPath("/org/Third.class")).getParent());
+   }
+
+   /**
+    * Ensures that paths which do not need interning are returned as-is
+    */
+   @Test
+   public void shouldReturnRootAsIs()
+   {
+      final PathInterner interner = PathInterner.of(new ConfigurationBuilder().build());
+      final ArchivePath root = new BasicPath("/");
+      Assert.assertSame("Root should be returned as-is", root, interner.intern(root));
+      Assert.assertNull("Null should be returned as-is", interner.intern(null));
+   }
+
+   /**
+    * Ensures that archives of the same {@link Domain} share directory paths if
+    * interning is enabled
+    */
+   @Test
+   public void shouldShareParentsAcrossArchivesOfDomain()
+   {
+      // Create archives with a common layout
+      final Domain domain = ShrinkWrap.createDomain(new ConfigurationBuilder().internPaths(true));
+      final JavaArchive first = domain.getArchiveFactory().create(JavaArchive.class, "first.jar").add(
+            EmptyAsset.INSTANCE, "org/example/a.txt");
+      final JavaArchive second = domain.getArchiveFactory().create(JavaArchive.class, "second.jar").add(
+            EmptyAsset.INSTANCE, "org/example/b.txt");
+
+      // Ensure expected
+      final ArchivePath firstParent = first.get(ArchivePaths.create("org/example/a.txt")).getPath().getParent();
+      final ArchivePath secondParent = second.get(ArchivePaths.create("org/example/b.txt")).getPath().getParent();
+      Assert.assertSame("Archives of the same domain should share directory paths", firstParent, secondParent);
+      Assert.assertSame("Directory nodes should be keyed by the shared path", firstParent, first.get(
+            ArchivePaths.create("org/example")).getPath());
+   }
+
+   /**
+    * Ensures that archives do not share paths if interning is disabled, as by default
+    */
+   @Test
+   public void shouldNotShareParentsIfDisabled()
+   {
+      final Domain domain = ShrinkWrap.createDomain();
+      final JavaArchive first = domain.getArchiveFactory().create(JavaArchive.class, "first.jar").add(
+            EmptyAsset.INSTANCE, "org/a.txt");
+      final JavaArchive second = domain.getArchiveFactory().create(JavaArchive.class, "second.jar").add(
+            EmptyAsset.INSTANCE, "org/b.txt");
+      Assert.assertNotSame("Archives should not share directory paths if interning is disabled", first.get(
+            ArchivePaths.create("org/a.txt")).getPath().getParent(), second.get(ArchivePaths.create("org/b.txt"))
+            .getPath().getParent());
+   }
+}
@@ -283,6 +283,25 @@ public abstract class PathsTestBase
       log.info("Both " + path1 + " and " + path2 + " have hashCode: " + hash1);
    }
 
+   /**
+    * Ensures that Paths equal by value regardless of 
+    * a following slash have equal hash codes
+    */
+   @Test
+   public void testHashCodeIgnoresFollowingSlash()
+   {
+      // Log
+      log.info("testHashCodeIgnoresFollowingSlash");
+
+      // Create new paths
+      final ArchivePath path = this.createPath("dir");
+      final ArchivePath pathWithFollowingSlash = this.createPath("dir" + PathUtil.SLASH);
+
+      // Ensure expected
+      Assert.assertEquals("Paths equal regardless of following slash should have equal hash codes", path
+            .hashCode(), pathWithFollowingSlash.hashCode());
+   }
+
    /**
     * Ensures that Paths with equal contexts 
     * are equal by value
@@ -17,6 +17,8 @@
 package org.jboss.shrinkwrap.impl.base.test;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 import junit.framework.Assert;
@@ -25,6 +27,7 @@ import junit.framework.TestCase;
 import org.jboss.shrinkwrap.api.Archive;
 import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ArchivePaths;
+import org.jboss.shrinkwrap.api.Filter;
 import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.IllegalArchivePathException;
 import org.jboss.shrinkwrap.api.Node;
@@ -551,6 +554,50 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
             node2);
    }
    
+   /**
+    * Ensure get content with a prefix filter returns everything, and only that, 
+    * whose path starts with the prefix
+    * @throws Exception
+    */
+   @Test
+   public void testToGetContentFilteredByPrefix() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      Asset asset = new ClassLoaderAsset(NAME_TEST_PROPERTIES);
+      archive.add(asset, "/prefix/nested/test.properties").add(asset, "/prefix/nestedTest.properties").add(asset,
+            "/prefixTest.properties").add(asset, "/other/test.properties");
+
+      Map<ArchivePath, Node> content = archive.getContent(Filters.includePrefix("/prefix/nested"));
+
+      Assert.assertEquals("Should include the matching directory, its content and its matching sibling", 
+            new HashSet<ArchivePath>(Arrays.asList(
+                  ArchivePaths.create("/prefix/nested"),
+                  ArchivePaths.create("/prefix/nested/test.properties"),
+                  ArchivePaths.create("/prefix/nestedTest.properties"))), 
+            content.keySet());
+      Assert.assertEquals("Should include the same as a full scan", 
+            this.scanContent(archive, Filters.include("/prefix/.*")), 
+            archive.getContent(Filters.include("/prefix/.*")));
+   }
+
+   /**
+    * Ensure deleting a directory deletes all it contains
+    * @throws Exception
+    */
+   @Test
+   public void testDeleteDirectoryDeletesContent() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      ArchivePath location = new BasicPath("/directory/nested", "test.properties");
+      archive.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES), location);
+
+      Assert.assertTrue("Deleting a directory should return true", archive.delete(ArchivePaths.create("/directory")));
+
+      Assert.assertFalse("There should no longer be a nested directory", archive.contains("/directory/nested"));
+      Assert.assertFalse("There should no longer be an asset at: " + location.get(), archive.contains(location));
+      Assert.assertTrue("Should no longer be listed", archive.getContent(Filters.includePrefix("/directory")).isEmpty());
+   }
+
    /**
     * Ensure adding an archive to a path requires a path
     * @throws Exception
@@ -912,6 +959,46 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
             .contains(expectedPath));
    }
 
+   /**
+    * Ensure paths which merely start with the name of a nested archive, 
+    * or which remain after it's deleted, are not resolved within it
+    * @throws Exception
+    */
+   @Test
+   public void testNestedArchiveResolvesOnlyWholeSegments() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      Archive<T> nestedArchive = createNewArchive();
+      nestedArchive.add(new ClassLoaderAsset(NAME_TEST_PROPERTIES), new BasicPath("/", "test.properties"));
+      ArchivePath baseLocation = new BasicPath("somewhere");
+      archive.add(nestedArchive, baseLocation, ZipExporter.class);
+      ArchivePath archivePath = new BasicPath(baseLocation, nestedArchive.getName());
+
+      ArchivePath siblingPath = new BasicPath(baseLocation, nestedArchive.getName() + "test.properties");
+      Assert.assertFalse("A sibling sharing the nested archive's name as a prefix should not be resolved within it",
+            archive.contains(siblingPath));
+      Assert.assertNull("A sibling sharing the nested archive's name as a prefix should not be resolved within it",
+            archive.get(siblingPath));
+
+      archive.delete(archivePath);
+      Assert.assertFalse("Assets of a deleted nested archive should no longer be available", archive
+            .contains(new BasicPath(archivePath, "test.properties")));
+   }
+
+   /**
+    * Ensure a view of the archive is created once and reused for the same type
+    * @throws Exception
+    */
+   @Test
+   public void testAsReusesViews() throws Exception
+   {
+      Archive<T> archive = getArchive();
+      ZipExporter exporter = archive.as(ZipExporter.class);
+      Assert.assertSame("Views of the same type should be reused", exporter, archive.as(ZipExporter.class));
+      Assert.assertSame("Views obtained from views should be reused", exporter, archive.as(JavaArchive.class).as(
+            ZipExporter.class));
+   }
+
    /**
     * Ensure assets from a nested archive are accessible from parent archives.
     * @throws Exception
@@ -975,6 +1062,22 @@ public abstract class ArchiveTestBase<T extends Archive<T>>
       return Arrays.equals(oneData, twoData);
    }
    
+   /**
+    * Obtains the content included by the specified filter by looking at every path
+    */
+   private Map<ArchivePath, Node> scanContent(final Archive<?> archive, final Filter<ArchivePath> filter)
+   {
+      final Map<ArchivePath, Node> result = new HashMap<ArchivePath, Node>();
+      for (final Map.Entry<ArchivePath, Node> entry : archive.getContent().entrySet())
+      {
+         if (filter.include(entry.getKey()))
+         {
+            result.put(entry.getKey(), entry.getValue());
+         }
+      }
+      return result;
+   }
+
    /**
     * Returns the number of assets in a file.
     * 
@@ -542,6 +542,31 @@ public abstract class DynamicContainerTestBase<T extends Archive<T>> extends Arc
 
       this.ensureClassesAdded();
    }
+
+   /**
+    * Ensure the inner classes of every class in a batch from the same package
+    * are added
+    *
+    * @throws Exception
+    */
+   @Test
+   @ArchiveType(ClassContainer.class)
+   public void testAddClassesFromSamePackageAddsAllInnerClasses() throws Exception
+   {
+      getClassContainer().addClasses(DummyClassA.class, DummyClassParent.class);
+
+      final ArchivePath expectedPathInnerClass = new BasicPath(
+            getClassPath(), AssetUtil.getFullPathForClassResource(DummyClassA.InnerClass.class));
+      final ArchivePath expectedPathInnerClassParent = new BasicPath(
+            getClassPath(), AssetUtil.getFullPathForClassResource(DummyClassParent.ParentInnerClass.class));
+
+      Assert.assertTrue(
+            "Inner classes of the first class should be added",
+            getArchive().contains(expectedPathInnerClass));
+      Assert.assertTrue(
+            "Inner classes of the second class should be added",
+            getArchive().contains(expectedPathInnerClassParent));
+   }
    
    /**
     * Ensures that the "addClass*" tests result in all expected classes added 
@@ -625,6 +650,35 @@ public abstract class DynamicContainerTestBase<T extends Archive<T>> extends Arc
       Assert.assertTrue("A class should be located at " + expectedPath.get(), getArchive().contains(expectedPath));
    }
 
+   /**
+    * Ensure classes added by name, and their inner classes, are taken 
+    * from their class files without being loaded
+    * 
+    * @throws Exception
+    */
+   @Test
+   @ArchiveType(ClassContainer.class)
+   public void testAddClassesByFqnWithoutLoading() throws Exception
+   {
+      final String classNameToAdd = DummyClassA.class.getName();
+      final ClassLoader cl = new ClassLoader(DummyClassA.class.getClassLoader())
+      {
+         @Override
+         protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException
+         {
+            if (name.startsWith(classNameToAdd))
+            {
+               Assert.fail("Class should not be loaded: " + name);
+            }
+            return super.loadClass(name, resolve);
+         }
+      };
+
+      getClassContainer().addClass(classNameToAdd, cl);
+
+      this.ensureClassesAdded();
+   }
+
    /**
     * Ensure a package can be added to a container
     * 